@@ -0,0 +1,406 @@
+package org.myrobotlab.arduino;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.myrobotlab.framework.TimeoutWheel;
+import org.myrobotlab.framework.TimeoutWheel.Timeout;
+import org.myrobotlab.logging.LoggerFactory;
+import org.myrobotlab.service.interfaces.SerialDevice;
+import org.slf4j.Logger;
+
+/**
+ * <pre>
+ * Sliding window acknowledgements for the MrlComm protocol.
+ *
+ * Stop and wait allows one message on the wire per round trip. With a window
+ * up to size messages are outstanding, and the board acks each one with a
+ * sequence number - the count of messages it processed since the last
+ * enableAckWindow, mod 256 - instead of the method. The serial link is
+ * ordered, so acks are cumulative: an ack for seq n acknowledges everything up
+ * to n, and a lost ack is covered by the next one.
+ *
+ * A board counts what it processed, so after an rx error it processes and
+ * acks nothing until the next enableAckWindow - otherwise the acks after a
+ * lost message would be counted against the messages before it.
+ *
+ * If the oldest message is not acked within timeoutMs, every outstanding
+ * message is resent go-back-n style behind a new enableAckWindow. That
+ * resets the board's sequence, and the board's publishAckWindow reply marks
+ * where the acks for the resent messages start - acks before it are stale.
+ * If only the ack was lost, a resent message is applied twice - so only
+ * messages which set state (servo moves, pin writes) are resent. Messages
+ * with side effects (i2c and serial writes, custom messages, soft reset,
+ * device attaches) are dropped from the window instead, and logged - they
+ * may or may not have been applied.
+ *
+ * After maxRetries resends without progress the window closes and Msg falls
+ * back to stop and wait.
+ *
+ * Timeouts are noticed on the TimeoutWheel tick, the resend and onFailure run
+ * on a recovery thread - serial writes never hold up the tick.
+ * </pre>
+ */
+public class AckWindow {
+
+  public final static Logger log = LoggerFactory.getLogger(AckWindow.class);
+
+  /**
+   * keeps a full window well inside the 256 sequence numbers
+   */
+  static public final int MAX_SIZE = 127;
+
+  /**
+   * resends and failure callbacks of every window
+   */
+  static final ExecutorService recovery = Executors.newCachedThreadPool(r -> {
+    Thread t = new Thread(r, "ack.window.recovery");
+    t.setDaemon(true);
+    return t;
+  });
+
+  /**
+   * where the window writes its messages
+   */
+  interface Wire {
+    void write(byte[] msg) throws Exception;
+  }
+
+  static class Pending {
+    int seq;
+    final byte[] msg;
+    final boolean sync;
+    final boolean resend;
+    long ts;
+
+    Pending(byte[] msg, boolean sync) {
+      this.msg = msg;
+      this.sync = sync;
+      this.resend = sync || isResendable(msg);
+    }
+  }
+
+  /**
+   * @param msg
+   *          - complete MrlComm message
+   * @return false if applying the message twice is not the same as applying it
+   *         once
+   */
+  static boolean isResendable(byte[] msg) {
+    if (msg.length < 3) {
+      return false;
+    }
+    switch (msg[2] & 0xFF) {
+      case Msg.SOFT_RESET:
+      case Msg.CUSTOM_MSG:
+      case Msg.I2C_BUS_ATTACH:
+      case Msg.I2C_READ:
+      case Msg.I2C_WRITE:
+      case Msg.I2C_WRITE_READ:
+      case Msg.NEO_PIXEL_ATTACH:
+      case Msg.SERVO_ATTACH:
+      case Msg.SERIAL_ATTACH:
+      case Msg.SERIAL_RELAY:
+      case Msg.ULTRASONIC_SENSOR_ATTACH:
+      case Msg.MOTOR_ATTACH:
+      case Msg.ENCODER_ATTACH:
+        return false;
+      default:
+        return true;
+    }
+  }
+
+  final Wire serial;
+  final long timeoutMs;
+  final int maxRetries;
+  final Runnable onFailure;
+  int size;
+
+  final ArrayDeque<Pending> outstanding = new ArrayDeque<>();
+  int nextSeq = 0;
+  boolean syncing = false;
+  boolean closed = false;
+  int retries = 0;
+  Timeout timer = null;
+  boolean recovering = false;
+
+  long sent = 0;
+  long acked = 0;
+  long resent = 0;
+  long dropped = 0;
+
+  /**
+   * @param serial
+   *          - port to the board
+   * @param size
+   *          - max outstanding messages
+   * @param timeoutMs
+   *          - oldest message not acked after this is resent
+   * @param maxRetries
+   *          - resends without progress before giving up
+   * @param onFailure
+   *          - called after the window closed because of timeouts
+   */
+  public AckWindow(SerialDevice serial, int size, long timeoutMs, int maxRetries, Runnable onFailure) {
+    this(serial::write, size, timeoutMs, maxRetries, onFailure);
+  }
+
+  AckWindow(Wire serial, int size, long timeoutMs, int maxRetries, Runnable onFailure) {
+    this.serial = serial;
+    this.size = Math.max(1, Math.min(size, MAX_SIZE));
+    this.timeoutMs = timeoutMs;
+    this.maxRetries = maxRetries;
+    this.onFailure = onFailure;
+  }
+
+  /**
+   * sends enableAckWindow - the board resets its sequence and confirms with
+   * publishAckWindow
+   */
+  synchronized public void start() throws Exception {
+    sync();
+  }
+
+  /**
+   * @param msg
+   *          - complete MrlComm message
+   * @return false if the window is closed - the caller sends stop and wait
+   */
+  synchronized public boolean send(byte[] msg) throws Exception {
+    while (!closed && outstanding.size() >= size) {
+      wait(timeoutMs);
+    }
+    if (closed) {
+      return false;
+    }
+    Pending p = new Pending(msg, false);
+    p.seq = nextSeq;
+    nextSeq = (nextSeq + 1) & 0xFF;
+    p.ts = System.currentTimeMillis();
+    outstanding.add(p);
+    serial.write(msg);
+    ++sent;
+    arm(timeoutMs);
+    return true;
+  }
+
+  /**
+   * @param seq
+   *          - sequence number from publishAck
+   */
+  synchronized public void ack(int seq) {
+    if (syncing || closed) {
+      // stale - from before the last enableAckWindow
+      return;
+    }
+    boolean found = false;
+    for (Pending p : outstanding) {
+      if (p.seq == seq) {
+        found = true;
+        break;
+      }
+    }
+    if (!found) {
+      log.debug("stale ack {}", seq);
+      return;
+    }
+    Pending p = null;
+    do {
+      p = outstanding.poll();
+      if (!p.sync) {
+        ++acked;
+      }
+    } while (p.seq != seq);
+    retries = 0;
+    notifyAll();
+  }
+
+  /**
+   * publishAckWindow while syncing - the board reset its sequence
+   *
+   * @param windowSize
+   *          - window accepted by the board
+   */
+  synchronized public void confirmed(int windowSize) {
+    syncing = false;
+    if (windowSize > 0 && windowSize < size) {
+      size = windowSize;
+    }
+    notifyAll();
+  }
+
+  /**
+   * wait until everything sent is acked
+   *
+   * @return true if drained, false if closed or timed out
+   */
+  synchronized public boolean drain() throws InterruptedException {
+    long deadline = System.currentTimeMillis() + timeoutMs * (maxRetries + 1);
+    long now = 0;
+    while (!closed && !outstanding.isEmpty() && (now = System.currentTimeMillis()) < deadline) {
+      wait(deadline - now);
+    }
+    return !closed && outstanding.isEmpty();
+  }
+
+  /**
+   * renegotiate with a new size - outstanding messages are resent behind the
+   * new enableAckWindow
+   */
+  synchronized public void resize(int windowSize) throws Exception {
+    size = Math.max(1, Math.min(windowSize, MAX_SIZE));
+    sync();
+  }
+
+  synchronized public void close() {
+    closed = true;
+    outstanding.clear();
+    if (timer != null) {
+      timer.cancel();
+      timer = null;
+    }
+    notifyAll();
+  }
+
+  public synchronized boolean isSyncing() {
+    return syncing;
+  }
+
+  public synchronized boolean isClosed() {
+    return closed;
+  }
+
+  public synchronized int getSize() {
+    return size;
+  }
+
+  public synchronized int getOutstanding() {
+    return outstanding.size();
+  }
+
+  public synchronized long getSent() {
+    return sent;
+  }
+
+  public synchronized long getAcked() {
+    return acked;
+  }
+
+  public synchronized long getResent() {
+    return resent;
+  }
+
+  /**
+   * @return messages with side effects which were not resent
+   */
+  public synchronized long getDropped() {
+    return dropped;
+  }
+
+  /**
+   * enableAckWindow takes seq 0 on the board, every message not acked is
+   * renumbered behind it and written again - except the ones with side effects
+   */
+  private void sync() throws Exception {
+    for (Iterator<Pending> it = outstanding.iterator(); it.hasNext();) {
+      Pending p = it.next();
+      if (p.sync) {
+        it.remove();
+      } else if (!p.resend) {
+        log.warn("not resending method {} seq {} - it may have been applied", p.msg[2] & 0xFF, p.seq);
+        it.remove();
+        ++dropped;
+      }
+    }
+    // dropped messages free up room
+    notifyAll();
+    Pending s = new Pending(new byte[] { (byte) Msg.MAGIC_NUMBER, 2, (byte) Msg.ENABLE_ACK_WINDOW, (byte) size }, true);
+    outstanding.addFirst(s);
+    syncing = true;
+    nextSeq = 0;
+    long now = System.currentTimeMillis();
+    for (Pending p : outstanding) {
+      p.seq = nextSeq;
+      nextSeq = (nextSeq + 1) & 0xFF;
+      p.ts = now;
+      serial.write(p.msg);
+      if (!p.sync) {
+        ++resent;
+      }
+    }
+    arm(timeoutMs);
+  }
+
+  private void arm(long ms) {
+    if (timer == null && !recovering && !closed && !outstanding.isEmpty()) {
+      timer = TimeoutWheel.getInstance().schedule(ms, this::check);
+    }
+  }
+
+  /**
+   * tick thread - only looks at the oldest message, a timeout is handed to
+   * the recovery thread
+   */
+  synchronized private void check() {
+    timer = null;
+    if (!isTimedOut()) {
+      return;
+    }
+    recovering = true;
+    recovery.execute(this::recover);
+  }
+
+  /**
+   * @return true if the oldest message is due for a resend - otherwise the
+   *         timer is re-armed for it
+   */
+  private boolean isTimedOut() {
+    if (closed || outstanding.isEmpty()) {
+      return false;
+    }
+    long age = System.currentTimeMillis() - outstanding.peek().ts;
+    if (age < timeoutMs) {
+      arm(timeoutMs - age);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * recovery thread - resend the window or give up
+   */
+  private void recover() {
+    boolean failed = false;
+    synchronized (this) {
+      recovering = false;
+      // acks may have arrived since the tick
+      if (!isTimedOut()) {
+        return;
+      }
+      if (++retries > maxRetries) {
+        log.error("ack window timeout - {} messages not acked after {} retries", outstanding.size(), maxRetries);
+        close();
+        failed = true;
+      } else {
+        log.warn("ack timeout seq {} - resending {} messages", outstanding.peek().seq, outstanding.size());
+        try {
+          sync();
+        } catch (Exception e) {
+          log.error("resending failed", e);
+          arm(timeoutMs);
+        }
+      }
+    }
+    if (failed && onFailure != null) {
+      onFailure.run();
+    }
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("window %d outstanding %d sent %d acked %d resent %d dropped %d", size, outstanding.size(), sent, acked, resent, dropped);
+  }
+
+}
@@ -26,7 +26,7 @@ public class ArduinoMsgGenerator {
 
   public transient final static Logger log = LoggerFactory.getLogger(ArduinoMsgGenerator.class);
 
-  static final Integer MRLCOMM_VERSION = 67;
+  static final Integer MRLCOMM_VERSION = 68;
 
   private String ackEnabled = "true";
 
@@ -222,7 +222,7 @@ public class ArduinoMsgGenerator {
     idlToJava = idlToJava.replace("%javaClass%", "Msg");
     idlToJava = idlToJava.replace("%javaArduinoClass%", MrlCommPublisher.class.getSimpleName());
     // Msg doesn't publish acks back to MrlComm
-    idlToJava = idlToJava.replace("%publishAcks%", "");
+    idlToJava = idlToJava.replace("%processCommand%", "processCommand(actualCommand);");
     // on startup Msg needs to see an MrlBeginMessage before it's clear to send
     // data.
     idlToJava = idlToJava.replace("%clearToSend%", "false");
@@ -231,8 +231,10 @@ public class ArduinoMsgGenerator {
     virtualJava = virtualJava.replace("%javaClass%", "VirtualMsg");
     virtualJava = virtualJava.replace("%javaArduinoClass%", "MrlComm");
     virtualJava = virtualJava.replace("%ackEnabled%", "false");
-    // virtual message should publish an ack after each processCommand call.
-    virtualJava = virtualJava.replace("%publishAcks%", "publishAck(method);");
+    // virtual message should publish an ack after each processCommand call,
+    // with a window it drops everything after an rx error until the resync
+    virtualJava = virtualJava.replace("%processCommand%", "if (arduino.acceptCommand(method, errorServiceToHardwareRxCnt + errorHardwareToServiceRxCnt)) {\n"
+        + "          processCommand(actualCommand);\n          publishAck(arduino.getAck(method));\n        }");
     // virtual message doesn't need to wait for a begin message to be clear to
     // send.
     virtualJava = virtualJava.replace("%clearToSend%", "true");
@@ -396,7 +398,7 @@ public class ArduinoMsgGenerator {
     StringBuilder javaMethodParameters = new StringBuilder();
     StringBuilder cppMethodParameters = new StringBuilder();
     StringBuilder cppWrite = new StringBuilder("  write(" + CodecUtils.toUnderScore(name) + "); // msgType = " + msgIndex + "\n");
-    StringBuilder javaWrite = new StringBuilder("      appendMessage(baos, " + CodecUtils.toUnderScore(name) + "); // msgType = " + msgIndex + "\n");
+    StringBuilder javaWrite = new StringBuilder("      codec.append(" + CodecUtils.toUnderScore(name) + "); // msgType = " + msgIndex + "\n");
 
     String arduinoOrMrlComm = (keywords.contains(name)) ? "" : "mrlComm->";
     StringBuilder cppCaseHeader = new StringBuilder("  case " + CodecUtils.toUnderScore(name) + ": { // " + name + "\n");
@@ -491,7 +493,7 @@ public class ArduinoMsgGenerator {
 
         // cppWrite.append(" writestr(" + paramName + ");\n");
         cppWrite.append("  write((byte*)" + paramName + ", " + paramName + "Size);\n");
-        javaWrite.append("      appendMessage(baos, " + paramName + ");\n");
+        javaWrite.append("      codec.append(" + paramName + ");\n");
 
         javaWriteMsgSize.append(" + (1 + " + paramName + ".length())");
 
@@ -500,14 +502,14 @@ public class ArduinoMsgGenerator {
       } else if (idlParamType.equals("[]")) {
 
         cppWrite.append("  write((byte*)" + paramName + ", " + paramName + "Size);\n");
-        javaWrite.append("      appendMessage(baos, " + paramName + ");\n");
+        javaWrite.append("      codec.append(" + paramName + ");\n");
 
         javaWriteMsgSize.append(" + (1 + " + paramName + ".length)");
 
         cppWriteMsgSize.append(" + (1 + " + paramName + "Size)");
       } else {
         cppWrite.append("  write" + idlParamType + "(" + paramName + ");\n");
-        javaWrite.append("      appendMessage" + idlParamType + "(baos, " + paramName + ");\n");
+        javaWrite.append("      codec.append" + idlParamType + "(" + paramName + ");\n");
         cppWriteMsgSize.append(" + " + getCppTypeSize(idlParamType));
         javaWriteMsgSize.append(" + " + getCppTypeSize(idlParamType));
       }
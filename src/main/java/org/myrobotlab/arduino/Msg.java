@@ -1,13 +1,9 @@
 package org.myrobotlab.arduino;
 
-import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.Arrays;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.myrobotlab.logging.Level;
 
@@ -63,14 +59,12 @@ public class Msg {
   public transient final static Logger log = LoggerFactory.getLogger(Msg.class);
   public static final int MAX_MSG_SIZE = 64;
   public static final int MAGIC_NUMBER = 170; // 10101010
-  public static final int MRLCOMM_VERSION = 67;
+  public static final int MRLCOMM_VERSION = 68;
   // send buffer
   private int sendBufferSize = 0;
   private int sendBuffer[] = new int[MAX_MSG_SIZE];
-  // recv buffer
-  private int ioCmd[] = new int[MAX_MSG_SIZE];
-  private AtomicInteger byteCount = new AtomicInteger(0);
-  private int msgSize = 0;
+  // encodes sent and decodes received messages
+  transient final MsgCodec codec = new MsgCodec();
   // ------ device type mapping constants
   private int method = -1;
   public boolean debug = false;
@@ -91,6 +85,15 @@ public class Msg {
   }
 
   transient AckLock ackRecievedLock = new AckLock();
+
+  // sliding window acks - see AckWindow
+  private static final int ACK_WINDOW_TIMEOUT = 500;
+  private static final int ACK_WINDOW_RETRIES = 3;
+  // window asked for with setAckWindow - 0 stop and wait
+  private volatile int ackWindowSize = 0;
+  // largest window the board advertised in reply to getBoardInfo
+  private volatile int boardAckWindow = 0;
+  transient volatile AckWindow ackWindow = null;
   // recording related
   transient OutputStream record = null;
   transient StringBuilder rxBuffer = new StringBuilder();
@@ -220,6 +223,12 @@ public class Msg {
   public final static int PUBLISH_MRL_COMM_BEGIN = 55;
   // > servoStop/deviceId
   public final static int SERVO_STOP = 56;
+  // < publishAckWindow/windowSize
+  public final static int PUBLISH_ACK_WINDOW = 57;
+  // > enableAckWindow/windowSize
+  public final static int ENABLE_ACK_WINDOW = 58;
+  // > servoMoveToMicrosecondsBatch/[] moves
+  public final static int SERVO_MOVE_TO_MICROSECONDS_BATCH = 59;
 
   /**
    * These methods will be invoked from the Msg class as callbacks from MrlComm.
@@ -244,6 +253,7 @@ public class Msg {
   // public void publishEncoderData(Integer deviceId/*byte*/, Integer
   // position/*b16*/){}
   // public void publishMrlCommBegin(Integer version/*byte*/){}
+  // public void publishAckWindow(Integer windowSize/*byte*/){}
 
   public Msg(MrlCommPublisher arduino, SerialDevice serial) {
     this.arduino = arduino;
@@ -277,6 +287,10 @@ public class Msg {
       ackReceived(function);
     }
 
+    if (method == PUBLISH_ACK_WINDOW) {
+      ackWindowReceived(ioCmd[startPos + 1]);
+    }
+
     if (method != PUBLISH_MRL_COMM_BEGIN) {
       if (!clearToSend) {
         log.warn("Not Clear to send yet.  Dumping command {}", ioCmd);
@@ -644,6 +658,29 @@ public class Msg {
 
         break;
       }
+      case PUBLISH_ACK_WINDOW: {
+        Integer windowSize = ioCmd[startPos + 1]; // bu8
+        startPos += 1;
+        if (invoke) {
+          arduino.invoke("publishAckWindow", windowSize);
+        } else {
+          arduino.publishAckWindow(windowSize);
+        }
+        if (record != null) {
+          rxBuffer.append("< publishAckWindow");
+          rxBuffer.append("/");
+          rxBuffer.append(windowSize);
+          rxBuffer.append("\n");
+          try {
+            record.write(rxBuffer.toString().getBytes());
+            rxBuffer.setLength(0);
+          } catch (IOException e) {
+            log.warn("failed recording bytes.", e);
+          }
+        }
+
+        break;
+      }
 
     }
   }
@@ -654,13 +691,11 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: getBoardInfo to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1); // size
-      appendMessage(baos, GET_BOARD_INFO); // msgType = 2
+      codec.begin(1); // size
+      codec.append(GET_BOARD_INFO); // msgType = 2
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -683,16 +718,14 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: enablePin to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 1 + 2); // size
-      appendMessage(baos, ENABLE_PIN); // msgType = 4
-      appendMessage(baos, address);
-      appendMessage(baos, type);
-      appendMessageb16(baos, rate);
-
-      byte[] message = sendMessage(baos);
+      codec.begin(1 + 1 + 1 + 2); // size
+      codec.append(ENABLE_PIN); // msgType = 4
+      codec.append(address);
+      codec.append(type);
+      codec.appendb16(rate);
+
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -720,14 +753,12 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: setDebug to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1); // size
-      appendMessage(baos, SET_DEBUG); // msgType = 5
-      appendMessagebool(baos, enabled);
+      codec.begin(1 + 1); // size
+      codec.append(SET_DEBUG); // msgType = 5
+      codec.appendbool(enabled);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -751,14 +782,12 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: setSerialRate to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 4); // size
-      appendMessage(baos, SET_SERIAL_RATE); // msgType = 6
-      appendMessageb32(baos, rate);
+      codec.begin(1 + 4); // size
+      codec.append(SET_SERIAL_RATE); // msgType = 6
+      codec.appendb32(rate);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -782,13 +811,11 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: softReset to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1); // size
-      appendMessage(baos, SOFT_RESET); // msgType = 7
+      codec.begin(1); // size
+      codec.append(SOFT_RESET); // msgType = 7
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -810,14 +837,12 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: enableAck to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1); // size
-      appendMessage(baos, ENABLE_ACK); // msgType = 8
-      appendMessagebool(baos, enabled);
+      codec.begin(1 + 1); // size
+      codec.append(ENABLE_ACK); // msgType = 8
+      codec.appendbool(enabled);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -842,16 +867,14 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: echo to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 4 + 1 + 4); // size
-      appendMessage(baos, ECHO); // msgType = 10
-      appendMessagef32(baos, myFloat);
-      appendMessage(baos, myByte);
-      appendMessagef32(baos, secondFloat);
-
-      byte[] message = sendMessage(baos);
+      codec.begin(1 + 4 + 1 + 4); // size
+      codec.append(ECHO); // msgType = 10
+      codec.appendf32(myFloat);
+      codec.append(myByte);
+      codec.appendf32(secondFloat);
+
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -879,14 +902,12 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: customMsg to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + (1 + msg.length)); // size
-      appendMessage(baos, CUSTOM_MSG); // msgType = 12
-      appendMessage(baos, msg);
+      codec.begin(1 + (1 + msg.length)); // size
+      codec.append(CUSTOM_MSG); // msgType = 12
+      codec.append(msg);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -910,14 +931,12 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: deviceDetach to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1); // size
-      appendMessage(baos, DEVICE_DETACH); // msgType = 14
-      appendMessage(baos, deviceId);
+      codec.begin(1 + 1); // size
+      codec.append(DEVICE_DETACH); // msgType = 14
+      codec.append(deviceId);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -942,15 +961,13 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: i2cBusAttach to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 1); // size
-      appendMessage(baos, I2C_BUS_ATTACH); // msgType = 15
-      appendMessage(baos, deviceId);
-      appendMessage(baos, i2cBus);
+      codec.begin(1 + 1 + 1); // size
+      codec.append(I2C_BUS_ATTACH); // msgType = 15
+      codec.append(deviceId);
+      codec.append(i2cBus);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -977,16 +994,14 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: i2cRead to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 1 + 1); // size
-      appendMessage(baos, I2C_READ); // msgType = 16
-      appendMessage(baos, deviceId);
-      appendMessage(baos, deviceAddress);
-      appendMessage(baos, size);
-
-      byte[] message = sendMessage(baos);
+      codec.begin(1 + 1 + 1 + 1); // size
+      codec.append(I2C_READ); // msgType = 16
+      codec.append(deviceId);
+      codec.append(deviceAddress);
+      codec.append(size);
+
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1015,16 +1030,14 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: i2cWrite to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 1 + (1 + data.length)); // size
-      appendMessage(baos, I2C_WRITE); // msgType = 17
-      appendMessage(baos, deviceId);
-      appendMessage(baos, deviceAddress);
-      appendMessage(baos, data);
-
-      byte[] message = sendMessage(baos);
+      codec.begin(1 + 1 + 1 + (1 + data.length)); // size
+      codec.append(I2C_WRITE); // msgType = 17
+      codec.append(deviceId);
+      codec.append(deviceAddress);
+      codec.append(data);
+
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1054,17 +1067,15 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: i2cWriteRead to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 1 + 1 + 1); // size
-      appendMessage(baos, I2C_WRITE_READ); // msgType = 18
-      appendMessage(baos, deviceId);
-      appendMessage(baos, deviceAddress);
-      appendMessage(baos, readSize);
-      appendMessage(baos, writeValue);
-
-      byte[] message = sendMessage(baos);
+      codec.begin(1 + 1 + 1 + 1 + 1); // size
+      codec.append(I2C_WRITE_READ); // msgType = 18
+      codec.append(deviceId);
+      codec.append(deviceAddress);
+      codec.append(readSize);
+      codec.append(writeValue);
+
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1095,17 +1106,15 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: neoPixelAttach to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 1 + 4 + 1); // size
-      appendMessage(baos, NEO_PIXEL_ATTACH); // msgType = 20
-      appendMessage(baos, deviceId);
-      appendMessage(baos, pin);
-      appendMessageb32(baos, numPixels);
-      appendMessage(baos, depth);
-
-      byte[] message = sendMessage(baos);
+      codec.begin(1 + 1 + 1 + 4 + 1); // size
+      codec.append(NEO_PIXEL_ATTACH); // msgType = 20
+      codec.append(deviceId);
+      codec.append(pin);
+      codec.appendb32(numPixels);
+      codec.append(depth);
+
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1137,19 +1146,17 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: neoPixelSetAnimation to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 1 + 1 + 1 + 1 + 2); // size
-      appendMessage(baos, NEO_PIXEL_SET_ANIMATION); // msgType = 21
-      appendMessage(baos, deviceId);
-      appendMessage(baos, animation);
-      appendMessage(baos, red);
-      appendMessage(baos, green);
-      appendMessage(baos, blue);
-      appendMessageb16(baos, speed);
-
-      byte[] message = sendMessage(baos);
+      codec.begin(1 + 1 + 1 + 1 + 1 + 1 + 2); // size
+      codec.append(NEO_PIXEL_SET_ANIMATION); // msgType = 21
+      codec.append(deviceId);
+      codec.append(animation);
+      codec.append(red);
+      codec.append(green);
+      codec.append(blue);
+      codec.appendb16(speed);
+
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1184,15 +1191,13 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: neoPixelWriteMatrix to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + (1 + buffer.length)); // size
-      appendMessage(baos, NEO_PIXEL_WRITE_MATRIX); // msgType = 22
-      appendMessage(baos, deviceId);
-      appendMessage(baos, buffer);
+      codec.begin(1 + 1 + (1 + buffer.length)); // size
+      codec.append(NEO_PIXEL_WRITE_MATRIX); // msgType = 22
+      codec.append(deviceId);
+      codec.append(buffer);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1219,15 +1224,13 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: analogWrite to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 1); // size
-      appendMessage(baos, ANALOG_WRITE); // msgType = 23
-      appendMessage(baos, pin);
-      appendMessage(baos, value);
+      codec.begin(1 + 1 + 1); // size
+      codec.append(ANALOG_WRITE); // msgType = 23
+      codec.append(pin);
+      codec.append(value);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1254,15 +1257,13 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: digitalWrite to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 1); // size
-      appendMessage(baos, DIGITAL_WRITE); // msgType = 24
-      appendMessage(baos, pin);
-      appendMessage(baos, value);
+      codec.begin(1 + 1 + 1); // size
+      codec.append(DIGITAL_WRITE); // msgType = 24
+      codec.append(pin);
+      codec.append(value);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1288,14 +1289,12 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: disablePin to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1); // size
-      appendMessage(baos, DISABLE_PIN); // msgType = 25
-      appendMessage(baos, pin);
+      codec.begin(1 + 1); // size
+      codec.append(DISABLE_PIN); // msgType = 25
+      codec.append(pin);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1319,13 +1318,11 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: disablePins to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1); // size
-      appendMessage(baos, DISABLE_PINS); // msgType = 26
+      codec.begin(1); // size
+      codec.append(DISABLE_PINS); // msgType = 26
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1348,15 +1345,13 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: pinMode to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 1); // size
-      appendMessage(baos, PIN_MODE); // msgType = 27
-      appendMessage(baos, pin);
-      appendMessage(baos, mode);
+      codec.begin(1 + 1 + 1); // size
+      codec.append(PIN_MODE); // msgType = 27
+      codec.append(pin);
+      codec.append(mode);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1383,15 +1378,13 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: setTrigger to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 1); // size
-      appendMessage(baos, SET_TRIGGER); // msgType = 30
-      appendMessage(baos, pin);
-      appendMessage(baos, triggerValue);
+      codec.begin(1 + 1 + 1); // size
+      codec.append(SET_TRIGGER); // msgType = 30
+      codec.append(pin);
+      codec.append(triggerValue);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1418,15 +1411,13 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: setDebounce to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 1); // size
-      appendMessage(baos, SET_DEBOUNCE); // msgType = 31
-      appendMessage(baos, pin);
-      appendMessage(baos, delay);
+      codec.begin(1 + 1 + 1); // size
+      codec.append(SET_DEBOUNCE); // msgType = 31
+      codec.append(pin);
+      codec.append(delay);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1454,18 +1445,16 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: servoAttach to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 1 + 2 + 2 + (1 + name.length())); // size
-      appendMessage(baos, SERVO_ATTACH); // msgType = 32
-      appendMessage(baos, deviceId);
-      appendMessage(baos, pin);
-      appendMessageb16(baos, initPos);
-      appendMessageb16(baos, initVelocity);
-      appendMessage(baos, name);
-
-      byte[] message = sendMessage(baos);
+      codec.begin(1 + 1 + 1 + 2 + 2 + (1 + name.length())); // size
+      codec.append(SERVO_ATTACH); // msgType = 32
+      codec.append(deviceId);
+      codec.append(pin);
+      codec.appendb16(initPos);
+      codec.appendb16(initVelocity);
+      codec.append(name);
+
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1498,15 +1487,13 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: servoAttachPin to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 1); // size
-      appendMessage(baos, SERVO_ATTACH_PIN); // msgType = 33
-      appendMessage(baos, deviceId);
-      appendMessage(baos, pin);
+      codec.begin(1 + 1 + 1); // size
+      codec.append(SERVO_ATTACH_PIN); // msgType = 33
+      codec.append(deviceId);
+      codec.append(pin);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1532,14 +1519,12 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: servoDetachPin to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1); // size
-      appendMessage(baos, SERVO_DETACH_PIN); // msgType = 34
-      appendMessage(baos, deviceId);
+      codec.begin(1 + 1); // size
+      codec.append(SERVO_DETACH_PIN); // msgType = 34
+      codec.append(deviceId);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1564,15 +1549,13 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: servoSetVelocity to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 2); // size
-      appendMessage(baos, SERVO_SET_VELOCITY); // msgType = 35
-      appendMessage(baos, deviceId);
-      appendMessageb16(baos, velocity);
+      codec.begin(1 + 1 + 2); // size
+      codec.append(SERVO_SET_VELOCITY); // msgType = 35
+      codec.append(deviceId);
+      codec.appendb16(velocity);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1599,17 +1582,15 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: servoSweepStart to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 1 + 1 + 1); // size
-      appendMessage(baos, SERVO_SWEEP_START); // msgType = 36
-      appendMessage(baos, deviceId);
-      appendMessage(baos, min);
-      appendMessage(baos, max);
-      appendMessage(baos, step);
-
-      byte[] message = sendMessage(baos);
+      codec.begin(1 + 1 + 1 + 1 + 1); // size
+      codec.append(SERVO_SWEEP_START); // msgType = 36
+      codec.append(deviceId);
+      codec.append(min);
+      codec.append(max);
+      codec.append(step);
+
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1639,14 +1620,12 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: servoSweepStop to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1); // size
-      appendMessage(baos, SERVO_SWEEP_STOP); // msgType = 37
-      appendMessage(baos, deviceId);
+      codec.begin(1 + 1); // size
+      codec.append(SERVO_SWEEP_STOP); // msgType = 37
+      codec.append(deviceId);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1671,15 +1650,13 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: servoMoveToMicroseconds to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 2); // size
-      appendMessage(baos, SERVO_MOVE_TO_MICROSECONDS); // msgType = 38
-      appendMessage(baos, deviceId);
-      appendMessageb16(baos, target);
+      codec.begin(1 + 1 + 2); // size
+      codec.append(SERVO_MOVE_TO_MICROSECONDS); // msgType = 38
+      codec.append(deviceId);
+      codec.appendb16(target);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1706,15 +1683,13 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: servoSetAcceleration to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 2); // size
-      appendMessage(baos, SERVO_SET_ACCELERATION); // msgType = 39
-      appendMessage(baos, deviceId);
-      appendMessageb16(baos, acceleration);
+      codec.begin(1 + 1 + 2); // size
+      codec.append(SERVO_SET_ACCELERATION); // msgType = 39
+      codec.append(deviceId);
+      codec.appendb16(acceleration);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1741,15 +1716,13 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: serialAttach to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 1); // size
-      appendMessage(baos, SERIAL_ATTACH); // msgType = 41
-      appendMessage(baos, deviceId);
-      appendMessage(baos, relayPin);
+      codec.begin(1 + 1 + 1); // size
+      codec.append(SERIAL_ATTACH); // msgType = 41
+      codec.append(deviceId);
+      codec.append(relayPin);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1776,15 +1749,13 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: serialRelay to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + (1 + data.length)); // size
-      appendMessage(baos, SERIAL_RELAY); // msgType = 42
-      appendMessage(baos, deviceId);
-      appendMessage(baos, data);
+      codec.begin(1 + 1 + (1 + data.length)); // size
+      codec.append(SERIAL_RELAY); // msgType = 42
+      codec.append(deviceId);
+      codec.append(data);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1811,16 +1782,14 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: ultrasonicSensorAttach to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 1 + 1); // size
-      appendMessage(baos, ULTRASONIC_SENSOR_ATTACH); // msgType = 44
-      appendMessage(baos, deviceId);
-      appendMessage(baos, triggerPin);
-      appendMessage(baos, echoPin);
-
-      byte[] message = sendMessage(baos);
+      codec.begin(1 + 1 + 1 + 1); // size
+      codec.append(ULTRASONIC_SENSOR_ATTACH); // msgType = 44
+      codec.append(deviceId);
+      codec.append(triggerPin);
+      codec.append(echoPin);
+
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1849,14 +1818,12 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: ultrasonicSensorStartRanging to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1); // size
-      appendMessage(baos, ULTRASONIC_SENSOR_START_RANGING); // msgType = 45
-      appendMessage(baos, deviceId);
+      codec.begin(1 + 1); // size
+      codec.append(ULTRASONIC_SENSOR_START_RANGING); // msgType = 45
+      codec.append(deviceId);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1881,14 +1848,12 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: ultrasonicSensorStopRanging to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1); // size
-      appendMessage(baos, ULTRASONIC_SENSOR_STOP_RANGING); // msgType = 46
-      appendMessage(baos, deviceId);
+      codec.begin(1 + 1); // size
+      codec.append(ULTRASONIC_SENSOR_STOP_RANGING); // msgType = 46
+      codec.append(deviceId);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1912,14 +1877,12 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: setAref to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 2); // size
-      appendMessage(baos, SET_AREF); // msgType = 48
-      appendMessageb16(baos, type);
+      codec.begin(1 + 2); // size
+      codec.append(SET_AREF); // msgType = 48
+      codec.appendb16(type);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1944,16 +1907,14 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: motorAttach to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 1 + (1 + pins.length)); // size
-      appendMessage(baos, MOTOR_ATTACH); // msgType = 49
-      appendMessage(baos, deviceId);
-      appendMessage(baos, type);
-      appendMessage(baos, pins);
-
-      byte[] message = sendMessage(baos);
+      codec.begin(1 + 1 + 1 + (1 + pins.length)); // size
+      codec.append(MOTOR_ATTACH); // msgType = 49
+      codec.append(deviceId);
+      codec.append(type);
+      codec.append(pins);
+
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1982,15 +1943,13 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: motorMove to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 1); // size
-      appendMessage(baos, MOTOR_MOVE); // msgType = 50
-      appendMessage(baos, deviceId);
-      appendMessage(baos, pwr);
+      codec.begin(1 + 1 + 1); // size
+      codec.append(MOTOR_MOVE); // msgType = 50
+      codec.append(deviceId);
+      codec.append(pwr);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -2017,15 +1976,13 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: motorMoveTo to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 1); // size
-      appendMessage(baos, MOTOR_MOVE_TO); // msgType = 51
-      appendMessage(baos, deviceId);
-      appendMessage(baos, pos);
+      codec.begin(1 + 1 + 1); // size
+      codec.append(MOTOR_MOVE_TO); // msgType = 51
+      codec.append(deviceId);
+      codec.append(pos);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -2052,16 +2009,14 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: encoderAttach to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 1 + 1); // size
-      appendMessage(baos, ENCODER_ATTACH); // msgType = 52
-      appendMessage(baos, deviceId);
-      appendMessage(baos, type);
-      appendMessage(baos, pin);
-
-      byte[] message = sendMessage(baos);
+      codec.begin(1 + 1 + 1 + 1); // size
+      codec.append(ENCODER_ATTACH); // msgType = 52
+      codec.append(deviceId);
+      codec.append(type);
+      codec.append(pin);
+
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -2089,14 +2044,12 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: setZeroPoint to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1); // size
-      appendMessage(baos, SET_ZERO_POINT); // msgType = 53
-      appendMessage(baos, deviceId);
+      codec.begin(1 + 1); // size
+      codec.append(SET_ZERO_POINT); // msgType = 53
+      codec.append(deviceId);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -2120,14 +2073,12 @@ public class Msg {
     if (debug) {
       log.info("Sending Message: servoStop to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1); // size
-      appendMessage(baos, SERVO_STOP); // msgType = 56
-      appendMessage(baos, deviceId);
+      codec.begin(1 + 1); // size
+      codec.append(SERVO_STOP); // msgType = 56
+      codec.append(deviceId);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -2147,6 +2098,64 @@ public class Msg {
     }
   }
 
+  public synchronized byte[] enableAckWindow(Integer windowSize/* byte */) {
+    if (debug) {
+      log.info("Sending Message: enableAckWindow to {}", serial.getName());
+    }
+    try {
+      codec.begin(1 + 1); // size
+      codec.append(ENABLE_ACK_WINDOW); // msgType = 58
+      codec.append(windowSize);
+
+      byte[] message = sendMessage(codec.frame());
+      if (ackEnabled) {
+        waitForAck();
+      }
+      if (record != null) {
+        txBuffer.append("> enableAckWindow");
+        txBuffer.append("/");
+        txBuffer.append(windowSize);
+        txBuffer.append("\n");
+        record.write(txBuffer.toString().getBytes());
+        txBuffer.setLength(0);
+      }
+
+      return message;
+    } catch (Exception e) {
+      log.error("enableAckWindow threw", e);
+      return null;
+    }
+  }
+
+  public synchronized byte[] servoMoveToMicrosecondsBatch(int[] moves/* [] */) {
+    if (debug) {
+      log.info("Sending Message: servoMoveToMicrosecondsBatch to {}", serial.getName());
+    }
+    try {
+      codec.begin(1 + (1 + moves.length)); // size
+      codec.append(SERVO_MOVE_TO_MICROSECONDS_BATCH); // msgType = 59
+      codec.append(moves);
+
+      byte[] message = sendMessage(codec.frame());
+      if (ackEnabled) {
+        waitForAck();
+      }
+      if (record != null) {
+        txBuffer.append("> servoMoveToMicrosecondsBatch");
+        txBuffer.append("/");
+        txBuffer.append(Arrays.toString(moves));
+        txBuffer.append("\n");
+        record.write(txBuffer.toString().getBytes());
+        txBuffer.setLength(0);
+      }
+
+      return message;
+    } catch (Exception e) {
+      log.error("servoMoveToMicrosecondsBatch threw", e);
+      return null;
+    }
+  }
+
   public static String methodToString(int method) {
     switch (method) {
       case PUBLISH_MRLCOMM_ERROR: {
@@ -2317,6 +2326,15 @@ public class Msg {
       case SERVO_STOP: {
         return "servoStop";
       }
+      case PUBLISH_ACK_WINDOW: {
+        return "publishAckWindow";
+      }
+      case ENABLE_ACK_WINDOW: {
+        return "enableAckWindow";
+      }
+      case SERVO_MOVE_TO_MICROSECONDS_BATCH: {
+        return "servoMoveToMicrosecondsBatch";
+      }
 
       default: {
         return "ERROR UNKNOWN METHOD (" + Integer.toString(method) + ")";
@@ -2359,129 +2377,70 @@ public class Msg {
 
   // float 32 bit bucket
   public float f32(int[] buffer, int start/* =0 */) {
-    byte[] b = new byte[4];
-    for (int i = 0; i < 4; ++i) {
-      b[i] = (byte) buffer[start + i];
-    }
-    float f = ByteBuffer.wrap(b).order(ByteOrder.BIG_ENDIAN).getFloat();
-    return f;
+    return Float.intBitsToFloat(b32(buffer, start));
   }
 
   public void onBytes(byte[] bytes) {
     if (debug) {
       // debug message.. semi-human readable?
       String byteString = StringUtil.byteArrayToIntString(bytes);
-      log.info("onBytes called byteCount: {} data: >{}<", byteCount, byteString);
+      log.info("onBytes called byteCount: {} data: >{}<", codec.getByteCount(), byteString);
     }
     // this gives us the current full buffer that was read from the seral
     for (int i = 0; i < bytes.length; i++) {
-      // For now, let's just call onByte for each byte upcasted as an int.
-      Integer newByte = bytes[i] & 0xFF;
+      int newByte = bytes[i] & 0xFF;
       try {
-        byteCount.incrementAndGet();
-        if (byteCount.get() == 1) {
-          if (newByte != MAGIC_NUMBER) {
-            byteCount = new AtomicInteger(0);
-            msgSize = 0;
-            Arrays.fill(ioCmd, 0); // FIXME - optimize - remove
-            // warn(String.format("Arduino->MRL error - bad magic number %d - %d
-            // rx errors", newByte, ++errorServiceToHardwareRxCnt));
-            log.warn("Arduino->MRL error - bad magic number {} - {} rx errors", newByte, ++errorServiceToHardwareRxCnt);
-          }
+        int state = codec.decode(newByte);
+        if (state == MsgCodec.NEED_MORE) {
           continue;
-        } else if (byteCount.get() == 2) {
-          // get the size of message
-          if (newByte > 64) {
-            byteCount = new AtomicInteger(0);
-            msgSize = 0;
-            // This is an error scenario.. we should reset our byte count also.
-            // error(String.format("Arduino->MRL error %d rx sz errors",
-            // ++errorServiceToHardwareRxCnt ));
-            log.error("Arduino->MRL error {} rx sz errors", ++errorServiceToHardwareRxCnt);
-            continue;
-          }
-          msgSize = newByte.intValue();
-        } else if (byteCount.get() == 3) {
-          // This is the method..
-          int method = newByte.intValue();
-          if (methodToString(method).startsWith("ERROR")) {
-            // we've got an error scenario here.. reset the parser and try
-            // again!
-            log.error("Arduino->MRL error unknown method error. resetting parser.");
-            byteCount = new AtomicInteger(0);
-            msgSize = 0;
-            continue;
-          }
+        } else if (state == MsgCodec.BAD_MAGIC) {
+          log.warn("Arduino->MRL error - bad magic number {} - {} rx errors", newByte, ++errorServiceToHardwareRxCnt);
+          continue;
+        } else if (state == MsgCodec.BAD_SIZE) {
+          // This is an error scenario.. the decoder looks for the next magic
+          // number
+          log.error("Arduino->MRL error {} rx sz errors", ++errorServiceToHardwareRxCnt);
+          continue;
+        }
+        // we have a complete message here - it stays in the codec's buffer
+        // until the next one
+        int[] actualCommand = codec.getFrame();
+        int method = actualCommand[0];
+        if (methodToString(method).startsWith("ERROR")) {
+          log.error("Arduino->MRL error unknown method {} - {} rx errors", method, ++errorServiceToHardwareRxCnt);
+          continue;
+        }
 
-          // If we're not clear to send, we need to unlock if this is a begin
-          // message.
-          if (!clearToSend && (method == Msg.PUBLISH_MRL_COMM_BEGIN)) {
-            // Clear to send!!
-            log.info("Saw the MRL COMM BEGIN!!!!!!!!!!!!! Clear To Send.");
-            clearToSend = true;
-          }
+        // If we're not clear to send, we need to unlock if this is a begin
+        // message.
+        if (!clearToSend && (method == Msg.PUBLISH_MRL_COMM_BEGIN)) {
+          // Clear to send!!
+          log.info("Saw the MRL COMM BEGIN!!!!!!!!!!!!! Clear To Send.");
+          clearToSend = true;
+        }
 
-          if (!clearToSend) {
-            log.warn("NOT CLEAR TO SEND! resetting parser!");
-            // We opened the port, and we got some data that isn't a Begin
-            // message.
-            // so, I think we need to reset the parser and continue processing
-            // bytes...
-            // there will be errors until the next magic byte is seen.
-            byteCount = new AtomicInteger(0);
-            msgSize = 0;
-            continue;
-          }
-          // we are in a valid parse state.
-          ioCmd[byteCount.get() - 3] = method;
-        } else if (byteCount.get() > 3) {
-          // This is the body of the message copy it to the buffer
-          ioCmd[byteCount.get() - 3] = newByte.intValue();
-        } else {
-          // the case where byteCount is negative?! not got. You should probably
-          // never see this.
-          log.warn("MRL error rx zero/negative size error: {} {}", byteCount, Arrays.copyOf(ioCmd, byteCount.get()));
-          // error(String.format("Arduino->MRL error %d rx negsz errors",
-          // ++errorServiceToHardwareRxCnt));
+        if (!clearToSend) {
+          // We opened the port, and we got some data that isn't a Begin
+          // message - drop it
+          log.warn("NOT CLEAR TO SEND! dropping {}", methodToString(method));
           continue;
         }
-        // we have a complete message here.
-        if (byteCount.get() == 2 + msgSize) {
-          // we've received a full message
-          int[] actualCommand = Arrays.copyOf(ioCmd, byteCount.get() - 2);
-          if (debug) {
-            log.info("Full message received: {} Data:{}", VirtualMsg.methodToString(ioCmd[0]), actualCommand);
-          }
-          // process the command.
-          processCommand(actualCommand);
-
-          // re-init parser
-          Arrays.fill(ioCmd, 0); // optimize remove
-          msgSize = 0;
-          byteCount = new AtomicInteger(0);
+        if (debug) {
+          log.info("Full message received: {} Data:{}", VirtualMsg.methodToString(method), Arrays.copyOf(actualCommand, codec.getFrameSize()));
         }
+        // process the command.
+        processCommand(actualCommand);
       } catch (Exception e) {
         ++errorHardwareToServiceRxCnt;
         // error("msg structure violation %d", errorHardwareToServiceRxCnt);
-        log.warn("msg_structure violation byteCount {} buffer {}", byteCount, Arrays.copyOf(ioCmd, byteCount.get()), e);
-        // TODO: perhaps we could find the first occurance of 170.. and then
-        // attempt to re-parse at that point.
-        // find the first occurance of 170 in the bytes subbytes
-        // Maybe we can just walk the iterater back to the beginning based on
-        // the byte count .. and advance it by 1.. and continue.
-        i = i - byteCount.get() + 1;
-        log.error("Trying to resume parsing the byte stream at position {} bytecount: {}", i, byteCount);
+        log.warn("msg_structure violation byteCount {} buffer {}", codec.getByteCount(), Arrays.copyOf(codec.getFrame(), codec.getFrameSize()), e);
         log.error("Original Byte Array: {}", StringUtil.byteArrayToIntString(bytes));
-        System.err.println("Try to consume more messages!");
-        msgSize = 0;
-        byteCount = new AtomicInteger(0);
-        // TODO: this is wonky.. what?!
-        i = 0;
+        // the rest of this read is dropped, the parser starts again at the
+        // next magic number
+        codec.reset();
         return;
-
       }
     }
-    return;
   }
 
   String F(String msg) {
@@ -2492,76 +2451,19 @@ public class Msg {
     log.error(error);
   }
 
-  void appendMessage(ByteArrayOutputStream baos, int b8) throws Exception {
-    if ((b8 < 0) || (b8 > 255)) {
-      log.error("writeByte overrun - should be  0 <= value <= 255 - value = {}", b8);
-    }
-    baos.write(b8 & 0xFF);
-  }
-
-  void appendMessagebool(ByteArrayOutputStream baos, boolean b1) throws Exception {
-    if (b1) {
-      appendMessage(baos, 1);
-    } else {
-      appendMessage(baos, 0);
-    }
-  }
-
-  void appendMessageb16(ByteArrayOutputStream baos, int b16) throws Exception {
-    if ((b16 < -32768) || (b16 > 32767)) {
-      log.error("writeByte overrun - should be  -32,768 <= value <= 32,767 - value = {}", b16);
-    }
-    appendMessage(baos, b16 >> 8 & 0xFF);
-    appendMessage(baos, b16 & 0xFF);
-  }
-
-  void appendMessageb32(ByteArrayOutputStream baos, int b32) throws Exception {
-    appendMessage(baos, b32 >> 24 & 0xFF);
-    appendMessage(baos, b32 >> 16 & 0xFF);
-    appendMessage(baos, b32 >> 8 & 0xFF);
-    appendMessage(baos, b32 & 0xFF);
-  }
-
-  void appendMessagef32(ByteArrayOutputStream baos, float f32) throws Exception {
-    // int x = Float.floatToIntBits(f32);
-    byte[] f = ByteBuffer.allocate(4).order(ByteOrder.BIG_ENDIAN).putFloat(f32).array();
-    appendMessage(baos, f[3] & 0xFF);
-    appendMessage(baos, f[2] & 0xFF);
-    appendMessage(baos, f[1] & 0xFF);
-    appendMessage(baos, f[0] & 0xFF);
-  }
-
-  void appendMessagebu32(ByteArrayOutputStream baos, long b32) throws Exception {
-    appendMessage(baos, (int) (b32 >> 24 & 0xFF));
-    appendMessage(baos, (int) (b32 >> 16 & 0xFF));
-    appendMessage(baos, (int) (b32 >> 8 & 0xFF));
-    appendMessage(baos, (int) (b32 & 0xFF));
-  }
-
-  void appendMessage(ByteArrayOutputStream baos, String str) throws Exception {
-    appendMessage(baos, str.getBytes());
-  }
-
-  void appendMessage(ByteArrayOutputStream baos, int[] array) throws Exception {
-    // write size
-    appendMessage(baos, array.length & 0xFF);
-    // write data
-    for (int i = 0; i < array.length; ++i) {
-      appendMessage(baos, array[i] & 0xFF);
-    }
-  }
-
-  void appendMessage(ByteArrayOutputStream baos, byte[] array) throws Exception {
-    // write size
-    appendMessage(baos, array.length);
-    // write data
-    for (int i = 0; i < array.length; ++i) {
-      appendMessage(baos, array[i]);
+  /**
+   * @param message
+   *          - frame from the codec - reused for the next message of the same
+   *          size, so it never leaves this method
+   * @return null once written to the serial port - without one the send
+   *         methods only encode, and the caller gets a copy of the frame
+   */
+  synchronized byte[] sendMessage(byte[] message) throws Exception {
+    AckWindow window = getAckWindow();
+    // the window keeps its messages until acked - it needs its own copy
+    if (window != null && window.send(message.clone())) {
+      return null;
     }
-  }
-
-  synchronized byte[] sendMessage(ByteArrayOutputStream baos) throws Exception {
-    byte[] message = baos.toByteArray();
     if (ackEnabled) {
       // wait for a pending ack to be received before we process our message.^M
       waitForAck();
@@ -2583,7 +2485,8 @@ public class Msg {
         waitForAck();
       }
     }
-    return message;
+    // encode only - the frame is reused, the caller keeps a copy
+    return (serial == null) ? message.clone() : null;
   }
 
   public void markPending() {
@@ -2677,7 +2580,7 @@ public class Msg {
   }
 
   public void waitForAck() {
-    if (!ackEnabled) {
+    if (!ackEnabled || ackWindow != null) {
       return;
     }
     // if there's a pending message, we need to wait for the ack to be received.
@@ -2699,12 +2602,114 @@ public class Msg {
   }
 
   public void ackReceived(int function) {
+    AckWindow window = ackWindow;
+    if (window != null && function >= 0) {
+      window.ack(function);
+      return;
+    }
     synchronized (ackRecievedLock) {
       ackRecievedLock.pendingMessage = false;
       ackRecievedLock.notifyAll();
     }
   }
 
+  /**
+   * Allow up to size messages in flight instead of waiting for the ack of each
+   * one. The window is negotiated with the next message once the board has
+   * advertised the largest window it supports in reply to getBoardInfo - boards
+   * which never do stay stop and wait.
+   * 
+   * @param size
+   *          - 0 or 1 stop and wait
+   */
+  public synchronized void setAckWindow(int size) {
+    ackWindowSize = Math.max(0, Math.min(size, AckWindow.MAX_SIZE));
+    AckWindow window = ackWindow;
+    if (window == null) {
+      return;
+    }
+    try {
+      window.drain();
+      if (ackWindowSize > 1) {
+        window.resize(Math.min(ackWindowSize, boardAckWindow));
+      } else {
+        closeAckWindow();
+        // enableAckWindow(0) - built here, VirtualMsg only has the board side
+        codec.begin(1 + 1); // size
+        codec.append(ENABLE_ACK_WINDOW);
+        codec.append(0);
+        sendMessage(codec.frame());
+        waitForAck();
+      }
+    } catch (Exception e) {
+      log.error("setAckWindow threw", e);
+    }
+  }
+
+  public int getAckWindowSize() {
+    return ackWindowSize;
+  }
+
+  /**
+   * @return the negotiated window, null when stop and wait
+   */
+  public AckWindow getAckWindowState() {
+    return ackWindow;
+  }
+
+  /**
+   * called with the Msg lock held - negotiates a window if one was asked for
+   * and the board supports it
+   */
+  private AckWindow getAckWindow() throws Exception {
+    if (!ackEnabled || serial == null) {
+      return null;
+    }
+    AckWindow window = ackWindow;
+    if (window == null && ackWindowSize > 1 && boardAckWindow > 1) {
+      // last stop and wait message must be acked before the board switches
+      waitForAck();
+      window = new AckWindow(serial, Math.min(ackWindowSize, boardAckWindow), ACK_WINDOW_TIMEOUT, ACK_WINDOW_RETRIES, () -> ackWindowTimeout());
+      ackWindow = window;
+      window.start();
+    }
+    return window;
+  }
+
+  /**
+   * publishAckWindow - the board's reply to enableAckWindow while syncing,
+   * otherwise the largest window it supports
+   */
+  void ackWindowReceived(int windowSize) {
+    AckWindow window = ackWindow;
+    if (window != null && window.isSyncing()) {
+      if (windowSize > 0) {
+        window.confirmed(windowSize);
+      } else {
+        log.warn("board refused ack window - stop and wait");
+        closeAckWindow();
+        boardAckWindow = 0;
+      }
+    } else if (windowSize > 0) {
+      boardAckWindow = windowSize;
+    }
+  }
+
+  void ackWindowTimeout() {
+    // back to stop and wait until the board advertises a window again
+    ackWindow = null;
+    boardAckWindow = 0;
+    arduino.ackTimeout();
+  }
+
+  void closeAckWindow() {
+    AckWindow window = ackWindow;
+    ackWindow = null;
+    if (window != null) {
+      window.close();
+    }
+  }
+
   public int getMethod() {
     return method;
   }
@@ -2756,8 +2761,9 @@ public class Msg {
       log.info("On Connect Called in Msg.");
     }
     // reset the parser...
-    this.byteCount = new AtomicInteger(0);
-    this.msgSize = 0;
+    codec.reset();
+    closeAckWindow();
+    boardAckWindow = 0;
     ackReceived(-1);
   }
 
@@ -2766,8 +2772,9 @@ public class Msg {
       log.info("On Disconnect Called in Msg.");
     }
     // reset the parser... this might not be necessary.
-    this.byteCount = new AtomicInteger(0);
-    this.msgSize = 0;
+    codec.reset();
+    closeAckWindow();
+    boardAckWindow = 0;
     ackReceived(-1);
   }
 
@@ -0,0 +1,200 @@
+package org.myrobotlab.arduino;
+
+import java.nio.ByteBuffer;
+
+import org.myrobotlab.logging.LoggerFactory;
+import org.slf4j.Logger;
+
+/**
+ * <pre>
+ * MrlComm wire format without allocating per message - one per port.
+ *
+ * MAGIC_NUMBER|MSG_SIZE|METHOD|PARAM0|PARAM1 ...
+ *
+ * Encoding - begin(size), append the method and each parameter, frame().
+ * Everything is written into one buffer, frame() copies it into a byte[] of
+ * the exact frame size. There is one such array per size and it is reused,
+ * so a frame is only valid until the next one is built - anything keeping
+ * frames around (AckWindow) has to copy them. Not thread safe - Msg builds
+ * frames in its synchronized send methods.
+ *
+ * Decoding - decode(b) for every byte received, a state machine over
+ * primitives. COMPLETE leaves the message in getFrame() with the method at
+ * index 0, the layout processCommand expects - it is overwritten by the next
+ * message, and indexes past getFrameSize() hold old data.
+ *
+ * Same byte order as the firmware - big endian, except f32 sent to the board
+ * which is little endian (the board memcpy's it).
+ * </pre>
+ */
+public class MsgCodec {
+
+  public final static Logger log = LoggerFactory.getLogger(MsgCodec.class);
+
+  static public final int MAGIC_NUMBER = 170;
+  /**
+   * largest msg size - method and parameters
+   */
+  static public final int MAX_MSG_SIZE = 64;
+  static public final int MAX_FRAME_SIZE = 2 + MAX_MSG_SIZE;
+
+  // decode results
+  static public final int NEED_MORE = 0;
+  static public final int COMPLETE = 1;
+  static public final int BAD_MAGIC = -1;
+  static public final int BAD_SIZE = -2;
+
+  // encoder
+  final byte[] txBuffer = new byte[MAX_FRAME_SIZE];
+  final ByteBuffer tx = ByteBuffer.wrap(txBuffer);
+  final byte[][] frames = new byte[MAX_FRAME_SIZE + 1][];
+
+  // decoder
+  final int[] rxBuffer = new int[MAX_MSG_SIZE];
+  int byteCount = 0;
+  int msgSize = 0;
+
+  /**
+   * start a new frame
+   *
+   * @param size
+   *          - msg size, method and parameters
+   */
+  public void begin(int size) {
+    tx.clear();
+    append(MAGIC_NUMBER);
+    append(size);
+  }
+
+  public void append(int b8) {
+    if ((b8 < 0) || (b8 > 255)) {
+      log.error("writeByte overrun - should be  0 <= value <= 255 - value = {}", b8);
+    }
+    tx.put((byte) b8);
+  }
+
+  public void appendbool(boolean b1) {
+    tx.put((byte) (b1 ? 1 : 0));
+  }
+
+  public void appendb16(int b16) {
+    if ((b16 < -32768) || (b16 > 32767)) {
+      log.error("writeByte overrun - should be  -32,768 <= value <= 32,767 - value = {}", b16);
+    }
+    tx.putShort((short) b16);
+  }
+
+  public void appendb32(int b32) {
+    tx.putInt(b32);
+  }
+
+  public void appendf32(float f32) {
+    tx.putInt(Integer.reverseBytes(Float.floatToRawIntBits(f32)));
+  }
+
+  public void appendbu32(long bu32) {
+    tx.putInt((int) bu32);
+  }
+
+  /**
+   * size and chars - MrlComm strings are ascii
+   */
+  public void append(String str) {
+    int len = str.length();
+    append(len);
+    for (int i = 0; i < len; ++i) {
+      tx.put((byte) str.charAt(i));
+    }
+  }
+
+  public void append(int[] array) {
+    append(array.length & 0xFF);
+    for (int i = 0; i < array.length; ++i) {
+      tx.put((byte) array[i]);
+    }
+  }
+
+  public void append(byte[] array) {
+    append(array.length);
+    tx.put(array);
+  }
+
+  /**
+   * @return the frame built since begin - valid until the next frame of the
+   *         same size
+   */
+  public byte[] frame() {
+    int len = tx.position();
+    if ((txBuffer[1] & 0xFF) != len - 2) {
+      log.error("msg size {} does not match {} bytes written", txBuffer[1] & 0xFF, len - 2);
+    }
+    byte[] frame = frames[len];
+    if (frame == null) {
+      frame = new byte[len];
+      frames[len] = frame;
+    }
+    System.arraycopy(txBuffer, 0, frame, 0, len);
+    return frame;
+  }
+
+  /**
+   * @param b
+   *          - next byte received, 0 to 255
+   * @return NEED_MORE, COMPLETE when a message is in getFrame(), BAD_MAGIC or
+   *         BAD_SIZE when the byte was dropped and the decoder looks for the
+   *         next magic number
+   */
+  public int decode(int b) {
+    ++byteCount;
+    if (byteCount == 1) {
+      if (b != MAGIC_NUMBER) {
+        byteCount = 0;
+        return BAD_MAGIC;
+      }
+      return NEED_MORE;
+    } else if (byteCount == 2) {
+      if (b == 0 || b > MAX_MSG_SIZE) {
+        byteCount = 0;
+        return BAD_SIZE;
+      }
+      msgSize = b;
+      return NEED_MORE;
+    }
+    rxBuffer[byteCount - 3] = b;
+    if (byteCount == 2 + msgSize) {
+      byteCount = 0;
+      return COMPLETE;
+    }
+    return NEED_MORE;
+  }
+
+  /**
+   * @return the last complete message, method at 0
+   */
+  public int[] getFrame() {
+    return rxBuffer;
+  }
+
+  /**
+   * @return size of the last complete message
+   */
+  public int getFrameSize() {
+    return msgSize;
+  }
+
+  /**
+   * @return bytes of the message being decoded so far
+   */
+  public int getByteCount() {
+    return byteCount;
+  }
+
+  /**
+   * drop a partly decoded message
+   */
+  public void reset() {
+    byteCount = 0;
+    msgSize = 0;
+  }
+
+}
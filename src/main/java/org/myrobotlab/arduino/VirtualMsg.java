@@ -1,12 +1,8 @@
 package org.myrobotlab.arduino;
 
-import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
 import java.io.OutputStream;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.Arrays;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.myrobotlab.arduino.virtual.MrlComm;
 import org.myrobotlab.logging.Level;
@@ -62,14 +58,12 @@ public class VirtualMsg {
   public transient final static Logger log = LoggerFactory.getLogger(VirtualMsg.class);
   public static final int MAX_MSG_SIZE = 64;
   public static final int MAGIC_NUMBER = 170; // 10101010
-  public static final int MRLCOMM_VERSION = 67;
+  public static final int MRLCOMM_VERSION = 68;
   // send buffer
   private int sendBufferSize = 0;
   private int sendBuffer[] = new int[MAX_MSG_SIZE];
-  // recv buffer
-  private int ioCmd[] = new int[MAX_MSG_SIZE];
-  private AtomicInteger byteCount = new AtomicInteger(0);
-  private int msgSize = 0;
+  // encodes sent and decodes received messages
+  transient final MsgCodec codec = new MsgCodec();
   // ------ device type mapping constants
   private int method = -1;
   public boolean debug = false;
@@ -90,6 +84,15 @@ public class VirtualMsg {
   }
 
   transient AckLock ackRecievedLock = new AckLock();
+
+  // sliding window acks - see AckWindow
+  private static final int ACK_WINDOW_TIMEOUT = 500;
+  private static final int ACK_WINDOW_RETRIES = 3;
+  // window asked for with setAckWindow - 0 stop and wait
+  private volatile int ackWindowSize = 0;
+  // largest window the board advertised in reply to getBoardInfo
+  private volatile int boardAckWindow = 0;
+  transient volatile AckWindow ackWindow = null;
   // recording related
   transient OutputStream record = null;
   transient StringBuilder rxBuffer = new StringBuilder();
@@ -219,6 +222,12 @@ public class VirtualMsg {
   public final static int PUBLISH_MRL_COMM_BEGIN = 55;
   // > servoStop/deviceId
   public final static int SERVO_STOP = 56;
+  // < publishAckWindow/windowSize
+  public final static int PUBLISH_ACK_WINDOW = 57;
+  // > enableAckWindow/windowSize
+  public final static int ENABLE_ACK_WINDOW = 58;
+  // > servoMoveToMicrosecondsBatch/[] moves
+  public final static int SERVO_MOVE_TO_MICROSECONDS_BATCH = 59;
 
   /**
    * These methods will be invoked from the Msg class as callbacks from MrlComm.
@@ -287,6 +296,8 @@ public class VirtualMsg {
   // Integer pin/*byte*/){}
   // public void setZeroPoint(Integer deviceId/*byte*/){}
   // public void servoStop(Integer deviceId/*byte*/){}
+  // public void enableAckWindow(Integer windowSize/*byte*/){}
+  // public void servoMoveToMicrosecondsBatch(int[] moves/*[]*/){}
 
   public VirtualMsg(MrlComm arduino, SerialDevice serial) {
     this.arduino = arduino;
@@ -320,6 +331,10 @@ public class VirtualMsg {
       ackReceived(function);
     }
 
+    if (method == PUBLISH_ACK_WINDOW) {
+      ackWindowReceived(ioCmd[startPos + 1]);
+    }
+
     if (method != PUBLISH_MRL_COMM_BEGIN) {
       if (!clearToSend) {
         log.warn("Not Clear to send yet.  Dumping command {}", ioCmd);
@@ -850,6 +865,26 @@ public class VirtualMsg {
         }
         break;
       }
+      case ENABLE_ACK_WINDOW: {
+        Integer windowSize = ioCmd[startPos + 1]; // bu8
+        startPos += 1;
+        if (invoke) {
+          arduino.invoke("enableAckWindow", windowSize);
+        } else {
+          arduino.enableAckWindow(windowSize);
+        }
+        break;
+      }
+      case SERVO_MOVE_TO_MICROSECONDS_BATCH: {
+        int[] moves = subArray(ioCmd, startPos + 2, ioCmd[startPos + 1]);
+        startPos += 1 + ioCmd[startPos + 1];
+        if (invoke) {
+          arduino.invoke("servoMoveToMicrosecondsBatch", moves);
+        } else {
+          arduino.servoMoveToMicrosecondsBatch(moves);
+        }
+        break;
+      }
 
     }
   }
@@ -860,14 +895,12 @@ public class VirtualMsg {
     if (debug) {
       log.info("Sending Message: publishMRLCommError to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + (1 + errorMsg.length())); // size
-      appendMessage(baos, PUBLISH_MRLCOMM_ERROR); // msgType = 1
-      appendMessage(baos, errorMsg);
+      codec.begin(1 + (1 + errorMsg.length())); // size
+      codec.append(PUBLISH_MRLCOMM_ERROR); // msgType = 1
+      codec.append(errorMsg);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -894,19 +927,17 @@ public class VirtualMsg {
     if (debug) {
       log.info("Sending Message: publishBoardInfo to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 1 + 2 + 2 + 1 + (1 + deviceSummary.length)); // size
-      appendMessage(baos, PUBLISH_BOARD_INFO); // msgType = 3
-      appendMessage(baos, version);
-      appendMessage(baos, boardType);
-      appendMessageb16(baos, microsPerLoop);
-      appendMessageb16(baos, sram);
-      appendMessage(baos, activePins);
-      appendMessage(baos, deviceSummary);
-
-      byte[] message = sendMessage(baos);
+      codec.begin(1 + 1 + 1 + 2 + 2 + 1 + (1 + deviceSummary.length)); // size
+      codec.append(PUBLISH_BOARD_INFO); // msgType = 3
+      codec.append(version);
+      codec.append(boardType);
+      codec.appendb16(microsPerLoop);
+      codec.appendb16(sram);
+      codec.append(activePins);
+      codec.append(deviceSummary);
+
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -940,14 +971,12 @@ public class VirtualMsg {
     if (debug) {
       log.info("Sending Message: publishAck to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1); // size
-      appendMessage(baos, PUBLISH_ACK); // msgType = 9
-      appendMessage(baos, function);
+      codec.begin(1 + 1); // size
+      codec.append(PUBLISH_ACK); // msgType = 9
+      codec.append(function);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -972,16 +1001,14 @@ public class VirtualMsg {
     if (debug) {
       log.info("Sending Message: publishEcho to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 4 + 1 + 4); // size
-      appendMessage(baos, PUBLISH_ECHO); // msgType = 11
-      appendMessagef32(baos, myFloat);
-      appendMessage(baos, myByte);
-      appendMessagef32(baos, secondFloat);
-
-      byte[] message = sendMessage(baos);
+      codec.begin(1 + 4 + 1 + 4); // size
+      codec.append(PUBLISH_ECHO); // msgType = 11
+      codec.appendf32(myFloat);
+      codec.append(myByte);
+      codec.appendf32(secondFloat);
+
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1009,14 +1036,12 @@ public class VirtualMsg {
     if (debug) {
       log.info("Sending Message: publishCustomMsg to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + (1 + msg.length)); // size
-      appendMessage(baos, PUBLISH_CUSTOM_MSG); // msgType = 13
-      appendMessage(baos, msg);
+      codec.begin(1 + (1 + msg.length)); // size
+      codec.append(PUBLISH_CUSTOM_MSG); // msgType = 13
+      codec.append(msg);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1041,15 +1066,13 @@ public class VirtualMsg {
     if (debug) {
       log.info("Sending Message: publishI2cData to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + (1 + data.length)); // size
-      appendMessage(baos, PUBLISH_I2C_DATA); // msgType = 19
-      appendMessage(baos, deviceId);
-      appendMessage(baos, data);
+      codec.begin(1 + 1 + (1 + data.length)); // size
+      codec.append(PUBLISH_I2C_DATA); // msgType = 19
+      codec.append(deviceId);
+      codec.append(data);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1075,14 +1098,12 @@ public class VirtualMsg {
     if (debug) {
       log.info("Sending Message: publishDebug to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + (1 + debugMsg.length())); // size
-      appendMessage(baos, PUBLISH_DEBUG); // msgType = 28
-      appendMessage(baos, debugMsg);
+      codec.begin(1 + (1 + debugMsg.length())); // size
+      codec.append(PUBLISH_DEBUG); // msgType = 28
+      codec.append(debugMsg);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1106,14 +1127,12 @@ public class VirtualMsg {
     if (debug) {
       log.info("Sending Message: publishPinArray to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + (1 + data.length)); // size
-      appendMessage(baos, PUBLISH_PIN_ARRAY); // msgType = 29
-      appendMessage(baos, data);
+      codec.begin(1 + (1 + data.length)); // size
+      codec.append(PUBLISH_PIN_ARRAY); // msgType = 29
+      codec.append(data);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1139,17 +1158,15 @@ public class VirtualMsg {
     if (debug) {
       log.info("Sending Message: publishServoEvent to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 1 + 2 + 2); // size
-      appendMessage(baos, PUBLISH_SERVO_EVENT); // msgType = 40
-      appendMessage(baos, deviceId);
-      appendMessage(baos, eventType);
-      appendMessageb16(baos, currentPos);
-      appendMessageb16(baos, targetPos);
-
-      byte[] message = sendMessage(baos);
+      codec.begin(1 + 1 + 1 + 2 + 2); // size
+      codec.append(PUBLISH_SERVO_EVENT); // msgType = 40
+      codec.append(deviceId);
+      codec.append(eventType);
+      codec.appendb16(currentPos);
+      codec.appendb16(targetPos);
+
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1180,15 +1197,13 @@ public class VirtualMsg {
     if (debug) {
       log.info("Sending Message: publishSerialData to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + (1 + data.length)); // size
-      appendMessage(baos, PUBLISH_SERIAL_DATA); // msgType = 43
-      appendMessage(baos, deviceId);
-      appendMessage(baos, data);
+      codec.begin(1 + 1 + (1 + data.length)); // size
+      codec.append(PUBLISH_SERIAL_DATA); // msgType = 43
+      codec.append(deviceId);
+      codec.append(data);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1215,15 +1230,13 @@ public class VirtualMsg {
     if (debug) {
       log.info("Sending Message: publishUltrasonicSensorData to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 2); // size
-      appendMessage(baos, PUBLISH_ULTRASONIC_SENSOR_DATA); // msgType = 47
-      appendMessage(baos, deviceId);
-      appendMessageb16(baos, echoTime);
+      codec.begin(1 + 1 + 2); // size
+      codec.append(PUBLISH_ULTRASONIC_SENSOR_DATA); // msgType = 47
+      codec.append(deviceId);
+      codec.appendb16(echoTime);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1250,15 +1263,13 @@ public class VirtualMsg {
     if (debug) {
       log.info("Sending Message: publishEncoderData to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1 + 2); // size
-      appendMessage(baos, PUBLISH_ENCODER_DATA); // msgType = 54
-      appendMessage(baos, deviceId);
-      appendMessageb16(baos, position);
+      codec.begin(1 + 1 + 2); // size
+      codec.append(PUBLISH_ENCODER_DATA); // msgType = 54
+      codec.append(deviceId);
+      codec.appendb16(position);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1284,14 +1295,12 @@ public class VirtualMsg {
     if (debug) {
       log.info("Sending Message: publishMrlCommBegin to {}", serial.getName());
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
     try {
-      appendMessage(baos, MAGIC_NUMBER);
-      appendMessage(baos, 1 + 1); // size
-      appendMessage(baos, PUBLISH_MRL_COMM_BEGIN); // msgType = 55
-      appendMessage(baos, version);
+      codec.begin(1 + 1); // size
+      codec.append(PUBLISH_MRL_COMM_BEGIN); // msgType = 55
+      codec.append(version);
 
-      byte[] message = sendMessage(baos);
+      byte[] message = sendMessage(codec.frame());
       if (ackEnabled) {
         waitForAck();
       }
@@ -1311,6 +1320,35 @@ public class VirtualMsg {
     }
   }
 
+  public synchronized byte[] publishAckWindow(Integer windowSize/* byte */) {
+    if (debug) {
+      log.info("Sending Message: publishAckWindow to {}", serial.getName());
+    }
+    try {
+      codec.begin(1 + 1); // size
+      codec.append(PUBLISH_ACK_WINDOW); // msgType = 57
+      codec.append(windowSize);
+
+      byte[] message = sendMessage(codec.frame());
+      if (ackEnabled) {
+        waitForAck();
+      }
+      if (record != null) {
+        txBuffer.append("> publishAckWindow");
+        txBuffer.append("/");
+        txBuffer.append(windowSize);
+        txBuffer.append("\n");
+        record.write(txBuffer.toString().getBytes());
+        txBuffer.setLength(0);
+      }
+
+      return message;
+    } catch (Exception e) {
+      log.error("publishAckWindow threw", e);
+      return null;
+    }
+  }
+
   public static String methodToString(int method) {
     switch (method) {
       case PUBLISH_MRLCOMM_ERROR: {
@@ -1481,6 +1519,15 @@ public class VirtualMsg {
       case SERVO_STOP: {
         return "servoStop";
       }
+      case PUBLISH_ACK_WINDOW: {
+        return "publishAckWindow";
+      }
+      case ENABLE_ACK_WINDOW: {
+        return "enableAckWindow";
+      }
+      case SERVO_MOVE_TO_MICROSECONDS_BATCH: {
+        return "servoMoveToMicrosecondsBatch";
+      }
 
       default: {
         return "ERROR UNKNOWN METHOD (" + Integer.toString(method) + ")";
@@ -1523,129 +1570,73 @@ public class VirtualMsg {
 
   // float 32 bit bucket
   public float f32(int[] buffer, int start/* =0 */) {
-    byte[] b = new byte[4];
-    for (int i = 0; i < 4; ++i) {
-      b[i] = (byte) buffer[start + i];
-    }
-    float f = ByteBuffer.wrap(b).order(ByteOrder.BIG_ENDIAN).getFloat();
-    return f;
+    return Float.intBitsToFloat(b32(buffer, start));
   }
 
   public void onBytes(byte[] bytes) {
     if (debug) {
       // debug message.. semi-human readable?
       String byteString = StringUtil.byteArrayToIntString(bytes);
-      log.info("onBytes called byteCount: {} data: >{}<", byteCount, byteString);
+      log.info("onBytes called byteCount: {} data: >{}<", codec.getByteCount(), byteString);
     }
     // this gives us the current full buffer that was read from the seral
     for (int i = 0; i < bytes.length; i++) {
-      // For now, let's just call onByte for each byte upcasted as an int.
-      Integer newByte = bytes[i] & 0xFF;
+      int newByte = bytes[i] & 0xFF;
       try {
-        byteCount.incrementAndGet();
-        if (byteCount.get() == 1) {
-          if (newByte != MAGIC_NUMBER) {
-            byteCount = new AtomicInteger(0);
-            msgSize = 0;
-            Arrays.fill(ioCmd, 0); // FIXME - optimize - remove
-            // warn(String.format("Arduino->MRL error - bad magic number %d - %d
-            // rx errors", newByte, ++errorServiceToHardwareRxCnt));
-            log.warn("Arduino->MRL error - bad magic number {} - {} rx errors", newByte, ++errorServiceToHardwareRxCnt);
-          }
+        int state = codec.decode(newByte);
+        if (state == MsgCodec.NEED_MORE) {
           continue;
-        } else if (byteCount.get() == 2) {
-          // get the size of message
-          if (newByte > 64) {
-            byteCount = new AtomicInteger(0);
-            msgSize = 0;
-            // This is an error scenario.. we should reset our byte count also.
-            // error(String.format("Arduino->MRL error %d rx sz errors",
-            // ++errorServiceToHardwareRxCnt ));
-            log.error("Arduino->MRL error {} rx sz errors", ++errorServiceToHardwareRxCnt);
-            continue;
-          }
-          msgSize = newByte.intValue();
-        } else if (byteCount.get() == 3) {
-          // This is the method..
-          int method = newByte.intValue();
-          if (methodToString(method).startsWith("ERROR")) {
-            // we've got an error scenario here.. reset the parser and try
-            // again!
-            log.error("Arduino->MRL error unknown method error. resetting parser.");
-            byteCount = new AtomicInteger(0);
-            msgSize = 0;
-            continue;
-          }
-
-          // If we're not clear to send, we need to unlock if this is a begin
-          // message.
-          if (!clearToSend && (method == Msg.PUBLISH_MRL_COMM_BEGIN)) {
-            // Clear to send!!
-            log.info("Saw the MRL COMM BEGIN!!!!!!!!!!!!! Clear To Send.");
-            clearToSend = true;
-          }
-
-          if (!clearToSend) {
-            log.warn("NOT CLEAR TO SEND! resetting parser!");
-            // We opened the port, and we got some data that isn't a Begin
-            // message.
-            // so, I think we need to reset the parser and continue processing
-            // bytes...
-            // there will be errors until the next magic byte is seen.
-            byteCount = new AtomicInteger(0);
-            msgSize = 0;
-            continue;
-          }
-          // we are in a valid parse state.
-          ioCmd[byteCount.get() - 3] = method;
-        } else if (byteCount.get() > 3) {
-          // This is the body of the message copy it to the buffer
-          ioCmd[byteCount.get() - 3] = newByte.intValue();
-        } else {
-          // the case where byteCount is negative?! not got. You should probably
-          // never see this.
-          log.warn("MRL error rx zero/negative size error: {} {}", byteCount, Arrays.copyOf(ioCmd, byteCount.get()));
-          // error(String.format("Arduino->MRL error %d rx negsz errors",
-          // ++errorServiceToHardwareRxCnt));
+        } else if (state == MsgCodec.BAD_MAGIC) {
+          log.warn("Arduino->MRL error - bad magic number {} - {} rx errors", newByte, ++errorServiceToHardwareRxCnt);
+          continue;
+        } else if (state == MsgCodec.BAD_SIZE) {
+          // This is an error scenario.. the decoder looks for the next magic
+          // number
+          log.error("Arduino->MRL error {} rx sz errors", ++errorServiceToHardwareRxCnt);
+          continue;
+        }
+        // we have a complete message here - it stays in the codec's buffer
+        // until the next one
+        int[] actualCommand = codec.getFrame();
+        int method = actualCommand[0];
+        if (methodToString(method).startsWith("ERROR")) {
+          log.error("Arduino->MRL error unknown method {} - {} rx errors", method, ++errorServiceToHardwareRxCnt);
           continue;
         }
-        // we have a complete message here.
-        if (byteCount.get() == 2 + msgSize) {
-          // we've received a full message
-          int[] actualCommand = Arrays.copyOf(ioCmd, byteCount.get() - 2);
-          if (debug) {
-            log.info("Full message received: {} Data:{}", VirtualMsg.methodToString(ioCmd[0]), actualCommand);
-          }
-          // process the command.
+
+        // If we're not clear to send, we need to unlock if this is a begin
+        // message.
+        if (!clearToSend && (method == Msg.PUBLISH_MRL_COMM_BEGIN)) {
+          // Clear to send!!
+          log.info("Saw the MRL COMM BEGIN!!!!!!!!!!!!! Clear To Send.");
+          clearToSend = true;
+        }
+
+        if (!clearToSend) {
+          // We opened the port, and we got some data that isn't a Begin
+          // message - drop it
+          log.warn("NOT CLEAR TO SEND! dropping {}", methodToString(method));
+          continue;
+        }
+        if (debug) {
+          log.info("Full message received: {} Data:{}", VirtualMsg.methodToString(method), Arrays.copyOf(actualCommand, codec.getFrameSize()));
+        }
+        // process the command.
+        if (arduino.acceptCommand(method, errorServiceToHardwareRxCnt + errorHardwareToServiceRxCnt)) {
           processCommand(actualCommand);
-          publishAck(method);
-          // re-init parser
-          Arrays.fill(ioCmd, 0); // optimize remove
-          msgSize = 0;
-          byteCount = new AtomicInteger(0);
+          publishAck(arduino.getAck(method));
         }
       } catch (Exception e) {
         ++errorHardwareToServiceRxCnt;
         // error("msg structure violation %d", errorHardwareToServiceRxCnt);
-        log.warn("msg_structure violation byteCount {} buffer {}", byteCount, Arrays.copyOf(ioCmd, byteCount.get()), e);
-        // TODO: perhaps we could find the first occurance of 170.. and then
-        // attempt to re-parse at that point.
-        // find the first occurance of 170 in the bytes subbytes
-        // Maybe we can just walk the iterater back to the beginning based on
-        // the byte count .. and advance it by 1.. and continue.
-        i = i - byteCount.get() + 1;
-        log.error("Trying to resume parsing the byte stream at position {} bytecount: {}", i, byteCount);
+        log.warn("msg_structure violation byteCount {} buffer {}", codec.getByteCount(), Arrays.copyOf(codec.getFrame(), codec.getFrameSize()), e);
         log.error("Original Byte Array: {}", StringUtil.byteArrayToIntString(bytes));
-        System.err.println("Try to consume more messages!");
-        msgSize = 0;
-        byteCount = new AtomicInteger(0);
-        // TODO: this is wonky.. what?!
-        i = 0;
+        // the rest of this read is dropped, the parser starts again at the
+        // next magic number
+        codec.reset();
         return;
-
       }
     }
-    return;
   }
 
   String F(String msg) {
@@ -1656,76 +1647,19 @@ public class VirtualMsg {
     log.error(error);
   }
 
-  void appendMessage(ByteArrayOutputStream baos, int b8) throws Exception {
-    if ((b8 < 0) || (b8 > 255)) {
-      log.error("writeByte overrun - should be  0 <= value <= 255 - value = {}", b8);
-    }
-    baos.write(b8 & 0xFF);
-  }
-
-  void appendMessagebool(ByteArrayOutputStream baos, boolean b1) throws Exception {
-    if (b1) {
-      appendMessage(baos, 1);
-    } else {
-      appendMessage(baos, 0);
-    }
-  }
-
-  void appendMessageb16(ByteArrayOutputStream baos, int b16) throws Exception {
-    if ((b16 < -32768) || (b16 > 32767)) {
-      log.error("writeByte overrun - should be  -32,768 <= value <= 32,767 - value = {}", b16);
-    }
-    appendMessage(baos, b16 >> 8 & 0xFF);
-    appendMessage(baos, b16 & 0xFF);
-  }
-
-  void appendMessageb32(ByteArrayOutputStream baos, int b32) throws Exception {
-    appendMessage(baos, b32 >> 24 & 0xFF);
-    appendMessage(baos, b32 >> 16 & 0xFF);
-    appendMessage(baos, b32 >> 8 & 0xFF);
-    appendMessage(baos, b32 & 0xFF);
-  }
-
-  void appendMessagef32(ByteArrayOutputStream baos, float f32) throws Exception {
-    // int x = Float.floatToIntBits(f32);
-    byte[] f = ByteBuffer.allocate(4).order(ByteOrder.BIG_ENDIAN).putFloat(f32).array();
-    appendMessage(baos, f[3] & 0xFF);
-    appendMessage(baos, f[2] & 0xFF);
-    appendMessage(baos, f[1] & 0xFF);
-    appendMessage(baos, f[0] & 0xFF);
-  }
-
-  void appendMessagebu32(ByteArrayOutputStream baos, long b32) throws Exception {
-    appendMessage(baos, (int) (b32 >> 24 & 0xFF));
-    appendMessage(baos, (int) (b32 >> 16 & 0xFF));
-    appendMessage(baos, (int) (b32 >> 8 & 0xFF));
-    appendMessage(baos, (int) (b32 & 0xFF));
-  }
-
-  void appendMessage(ByteArrayOutputStream baos, String str) throws Exception {
-    appendMessage(baos, str.getBytes());
-  }
-
-  void appendMessage(ByteArrayOutputStream baos, int[] array) throws Exception {
-    // write size
-    appendMessage(baos, array.length & 0xFF);
-    // write data
-    for (int i = 0; i < array.length; ++i) {
-      appendMessage(baos, array[i] & 0xFF);
-    }
-  }
-
-  void appendMessage(ByteArrayOutputStream baos, byte[] array) throws Exception {
-    // write size
-    appendMessage(baos, array.length);
-    // write data
-    for (int i = 0; i < array.length; ++i) {
-      appendMessage(baos, array[i]);
+  /**
+   * @param message
+   *          - frame from the codec - reused for the next message of the same
+   *          size, so it never leaves this method
+   * @return null once written to the serial port - without one the send
+   *         methods only encode, and the caller gets a copy of the frame
+   */
+  synchronized byte[] sendMessage(byte[] message) throws Exception {
+    AckWindow window = getAckWindow();
+    // the window keeps its messages until acked - it needs its own copy
+    if (window != null && window.send(message.clone())) {
+      return null;
     }
-  }
-
-  synchronized byte[] sendMessage(ByteArrayOutputStream baos) throws Exception {
-    byte[] message = baos.toByteArray();
     if (ackEnabled) {
       // wait for a pending ack to be received before we process our message.^M
       waitForAck();
@@ -1747,7 +1681,8 @@ public class VirtualMsg {
         waitForAck();
       }
     }
-    return message;
+    // encode only - the frame is reused, the caller keeps a copy
+    return (serial == null) ? message.clone() : null;
   }
 
   public void markPending() {
@@ -1841,7 +1776,7 @@ public class VirtualMsg {
   }
 
   public void waitForAck() {
-    if (!ackEnabled) {
+    if (!ackEnabled || ackWindow != null) {
       return;
     }
     // if there's a pending message, we need to wait for the ack to be received.
@@ -1863,12 +1798,114 @@ public class VirtualMsg {
   }
 
   public void ackReceived(int function) {
+    AckWindow window = ackWindow;
+    if (window != null && function >= 0) {
+      window.ack(function);
+      return;
+    }
     synchronized (ackRecievedLock) {
       ackRecievedLock.pendingMessage = false;
       ackRecievedLock.notifyAll();
     }
   }
 
+  /**
+   * Allow up to size messages in flight instead of waiting for the ack of each
+   * one. The window is negotiated with the next message once the board has
+   * advertised the largest window it supports in reply to getBoardInfo - boards
+   * which never do stay stop and wait.
+   * 
+   * @param size
+   *          - 0 or 1 stop and wait
+   */
+  public synchronized void setAckWindow(int size) {
+    ackWindowSize = Math.max(0, Math.min(size, AckWindow.MAX_SIZE));
+    AckWindow window = ackWindow;
+    if (window == null) {
+      return;
+    }
+    try {
+      window.drain();
+      if (ackWindowSize > 1) {
+        window.resize(Math.min(ackWindowSize, boardAckWindow));
+      } else {
+        closeAckWindow();
+        // enableAckWindow(0) - built here, VirtualMsg only has the board side
+        codec.begin(1 + 1); // size
+        codec.append(ENABLE_ACK_WINDOW);
+        codec.append(0);
+        sendMessage(codec.frame());
+        waitForAck();
+      }
+    } catch (Exception e) {
+      log.error("setAckWindow threw", e);
+    }
+  }
+
+  public int getAckWindowSize() {
+    return ackWindowSize;
+  }
+
+  /**
+   * @return the negotiated window, null when stop and wait
+   */
+  public AckWindow getAckWindowState() {
+    return ackWindow;
+  }
+
+  /**
+   * called with the Msg lock held - negotiates a window if one was asked for
+   * and the board supports it
+   */
+  private AckWindow getAckWindow() throws Exception {
+    if (!ackEnabled || serial == null) {
+      return null;
+    }
+    AckWindow window = ackWindow;
+    if (window == null && ackWindowSize > 1 && boardAckWindow > 1) {
+      // last stop and wait message must be acked before the board switches
+      waitForAck();
+      window = new AckWindow(serial, Math.min(ackWindowSize, boardAckWindow), ACK_WINDOW_TIMEOUT, ACK_WINDOW_RETRIES, () -> ackWindowTimeout());
+      ackWindow = window;
+      window.start();
+    }
+    return window;
+  }
+
+  /**
+   * publishAckWindow - the board's reply to enableAckWindow while syncing,
+   * otherwise the largest window it supports
+   */
+  void ackWindowReceived(int windowSize) {
+    AckWindow window = ackWindow;
+    if (window != null && window.isSyncing()) {
+      if (windowSize > 0) {
+        window.confirmed(windowSize);
+      } else {
+        log.warn("board refused ack window - stop and wait");
+        closeAckWindow();
+        boardAckWindow = 0;
+      }
+    } else if (windowSize > 0) {
+      boardAckWindow = windowSize;
+    }
+  }
+
+  void ackWindowTimeout() {
+    // back to stop and wait until the board advertises a window again
+    ackWindow = null;
+    boardAckWindow = 0;
+    arduino.ackTimeout();
+  }
+
+  void closeAckWindow() {
+    AckWindow window = ackWindow;
+    ackWindow = null;
+    if (window != null) {
+      window.close();
+    }
+  }
+
   public int getMethod() {
     return method;
   }
@@ -1920,8 +1957,9 @@ public class VirtualMsg {
       log.info("On Connect Called in Msg.");
     }
     // reset the parser...
-    this.byteCount = new AtomicInteger(0);
-    this.msgSize = 0;
+    codec.reset();
+    closeAckWindow();
+    boardAckWindow = 0;
     ackReceived(-1);
   }
 
@@ -1930,8 +1968,9 @@ public class VirtualMsg {
       log.info("On Disconnect Called in Msg.");
     }
     // reset the parser... this might not be necessary.
-    this.byteCount = new AtomicInteger(0);
-    this.msgSize = 0;
+    codec.reset();
+    closeAckWindow();
+    boardAckWindow = 0;
     ackReceived(-1);
   }
 
@@ -52,6 +52,18 @@ public class MrlComm implements SerialDataListener {
 
   boolean ackEnabled = true;
 
+  /**
+   * largest ack window advertised in reply to getBoardInfo
+   */
+  static public final int MAX_ACK_WINDOW = 32;
+
+  // sliding window acks - 0 stop and wait, otherwise acks carry ackSeq
+  int ackWindow = 0;
+  int ackSeq = 0;
+  // a message was lost - discard until the next enableAckWindow
+  boolean ackLost = false;
+  int rxErrors = 0;
+
   public BoardInfo boardInfo = null;
 
   boolean boardStatusEnabled;
@@ -364,6 +376,49 @@ public class MrlComm implements SerialDataListener {
     ackEnabled = enabled;
   }
 
+  // > enableAckWindow/windowSize
+  public void enableAckWindow(Integer windowSize) {
+    ackWindow = Math.min(windowSize, MAX_ACK_WINDOW);
+    ackSeq = 0;
+    ackLost = false;
+    virtualMsg.publishAckWindow(ackWindow);
+  }
+
+  /**
+   * Acks in a window are counted, so a message lost to an rx error would shift
+   * every following ack onto the message before it. After an error nothing is
+   * processed or acked until the service times out and resends everything
+   * behind an enableAckWindow.
+   *
+   * @param method
+   *          - method of the message just received
+   * @param rxErrors
+   *          - rx errors of the parser so far
+   * @return true if the message should be processed and acked
+   */
+  public boolean acceptCommand(int method, int rxErrors) {
+    if (ackWindow > 0 && rxErrors != this.rxErrors) {
+      ackLost = true;
+    }
+    this.rxErrors = rxErrors;
+    return !ackLost || method == VirtualMsg.ENABLE_ACK_WINDOW;
+  }
+
+  /**
+   * @param method
+   *          - method of the message just processed
+   * @return what its ack carries - the method, or the sequence number when a
+   *         window is enabled
+   */
+  public int getAck(int method) {
+    if (ackWindow == 0) {
+      return method;
+    }
+    int seq = ackSeq;
+    ackSeq = (ackSeq + 1) & 0xFF;
+    return seq;
+  }
+
   // > enablePin/address/type/b16 rate
   public void enablePin(int address, int type, int rate) {
     // don't add it twice
@@ -416,6 +471,9 @@ public class MrlComm implements SerialDataListener {
   public void getBoardInfo() {
     // msg.publishBoardInfo(MRLCOMM_VERSION, BOARD);
     publishBoardInfo();
+    if (virtual.isConnected()) {
+      virtualMsg.publishAckWindow(MAX_ACK_WINDOW);
+    }
   }
 
   int getCustomMsg() {
@@ -626,6 +684,14 @@ public class MrlComm implements SerialDataListener {
     }
   }
 
+  // > servoMoveToMicrosecondsBatch/[] moves
+  // deviceId, target high byte, target low byte for each servo
+  public void servoMoveToMicrosecondsBatch(int[] moves) {
+    for (int i = 0; i + 2 < moves.length; i += 3) {
+      servoMoveToMicroseconds(moves[i], (short) ((moves[i + 1] << 8) | moves[i + 2]));
+    }
+  }
+
   public void servoSetAcceleration(int deviceId, int acceleration) {
     MrlServo servo = (MrlServo) getDevice(deviceId);
     servo.setAcceleration(acceleration);
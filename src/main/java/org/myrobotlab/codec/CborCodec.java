@@ -0,0 +1,511 @@
+package org.myrobotlab.codec;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * <pre>
+ * CBOR (RFC 7049) for the WebGui websocket - the same tree as the json
+ * CodecUtils produces, so a browser gets exactly the same objects, just
+ * smaller and without number to text conversions.
+ *
+ * Encoding streams out of gson - Writer is a JsonWriter writing CBOR, gson's
+ * own type adapters walk the object so there is no schema to maintain and
+ * nothing is serialized differently than in json. Maps and arrays are
+ * written with indefinite length. Integral numbers become ints, a double which
+ * is exactly a float becomes a 4 byte float.
+ *
+ * Decoding builds a gson JsonElement, which gson turns into any type.
+ * </pre>
+ */
+public class CborCodec {
+
+  // major types
+  static final int UNSIGNED = 0;
+  static final int NEGATIVE = 1 << 5;
+  static final int BYTES = 2 << 5;
+  static final int TEXT = 3 << 5;
+  static final int ARRAY = 4 << 5;
+  static final int MAP = 5 << 5;
+  static final int TAG = 6 << 5;
+  static final int SIMPLE = 7 << 5;
+
+  static final int INDEFINITE = 31;
+  static final int FALSE = SIMPLE | 20;
+  static final int TRUE = SIMPLE | 21;
+  static final int NULL = SIMPLE | 22;
+  static final int FLOAT16 = SIMPLE | 25;
+  static final int FLOAT32 = SIMPLE | 26;
+  static final int FLOAT64 = SIMPLE | 27;
+  static final int BREAK = 0xFF;
+
+  static public byte[] encode(Gson gson, Object o) throws IOException {
+    Writer writer = new Writer();
+    gson.toJson(o, (o == null) ? Object.class : o.getClass(), writer);
+    return writer.toByteArray();
+  }
+
+  /**
+   * adds a field whose value is already encoded to an encoded object - objects
+   * are written with indefinite length, so the field goes before the break
+   */
+  static public byte[] put(byte[] object, String name, byte[] value) {
+    Writer writer = new Writer();
+    writer.ensure(object.length + value.length + name.length() + 8);
+    System.arraycopy(object, 0, writer.buffer, 0, object.length - 1);
+    writer.size = object.length - 1;
+    writer.text(name);
+    writer.ensure(value.length + 1);
+    System.arraycopy(value, 0, writer.buffer, writer.size, value.length);
+    writer.size += value.length;
+    writer.put(BREAK);
+    return writer.toByteArray();
+  }
+
+  static public <T> T decode(Gson gson, byte[] data, int offset, int length, Class<T> clazz) throws IOException {
+    return gson.fromJson(decode(data, offset, length), clazz);
+  }
+
+  static public JsonElement decode(byte[] data, int offset, int length) throws IOException {
+    Reader reader = new Reader(data, offset, length);
+    JsonElement e = reader.read();
+    if (e == null) {
+      throw new IOException("unexpected cbor break");
+    }
+    return e;
+  }
+
+  /**
+   * JsonWriter writing CBOR into a growable buffer
+   */
+  static public class Writer extends JsonWriter {
+
+    static final java.io.Writer NOOP = new java.io.Writer() {
+      @Override
+      public void write(char[] cbuf, int off, int len) {
+      }
+
+      @Override
+      public void flush() {
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+
+    byte[] buffer = new byte[256];
+    int size = 0;
+    // gson drops the names of null fields unless serializeNulls
+    String deferredName = null;
+
+    public Writer() {
+      super(NOOP);
+    }
+
+    public byte[] toByteArray() {
+      return Arrays.copyOf(buffer, size);
+    }
+
+    public int size() {
+      return size;
+    }
+
+    void ensure(int n) {
+      if (size + n > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + n));
+      }
+    }
+
+    void put(int b) {
+      ensure(1);
+      buffer[size++] = (byte) b;
+    }
+
+    void head(int major, long value) {
+      ensure(9);
+      if (value < 24) {
+        buffer[size++] = (byte) (major | value);
+      } else if (value < 0x100) {
+        buffer[size++] = (byte) (major | 24);
+        buffer[size++] = (byte) value;
+      } else if (value < 0x10000) {
+        buffer[size++] = (byte) (major | 25);
+        buffer[size++] = (byte) (value >> 8);
+        buffer[size++] = (byte) value;
+      } else if (value < 0x100000000L) {
+        buffer[size++] = (byte) (major | 26);
+        putInt((int) value);
+      } else {
+        buffer[size++] = (byte) (major | 27);
+        putInt((int) (value >> 32));
+        putInt((int) value);
+      }
+    }
+
+    void putInt(int v) {
+      buffer[size++] = (byte) (v >> 24);
+      buffer[size++] = (byte) (v >> 16);
+      buffer[size++] = (byte) (v >> 8);
+      buffer[size++] = (byte) v;
+    }
+
+    void text(String s) {
+      byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+      head(TEXT, utf8.length);
+      ensure(utf8.length);
+      System.arraycopy(utf8, 0, buffer, size, utf8.length);
+      size += utf8.length;
+    }
+
+    void integer(long v) {
+      if (v >= 0) {
+        head(UNSIGNED, v);
+      } else {
+        head(NEGATIVE, -1 - v);
+      }
+    }
+
+    void writeDeferredName() {
+      if (deferredName != null) {
+        text(deferredName);
+        deferredName = null;
+      }
+    }
+
+    @Override
+    public JsonWriter beginArray() {
+      writeDeferredName();
+      put(ARRAY | INDEFINITE);
+      return this;
+    }
+
+    @Override
+    public JsonWriter endArray() {
+      put(BREAK);
+      return this;
+    }
+
+    @Override
+    public JsonWriter beginObject() {
+      writeDeferredName();
+      put(MAP | INDEFINITE);
+      return this;
+    }
+
+    @Override
+    public JsonWriter endObject() {
+      put(BREAK);
+      return this;
+    }
+
+    @Override
+    public JsonWriter name(String name) {
+      deferredName = name;
+      return this;
+    }
+
+    @Override
+    public JsonWriter value(String value) {
+      if (value == null) {
+        return nullValue();
+      }
+      writeDeferredName();
+      text(value);
+      return this;
+    }
+
+    @Override
+    public JsonWriter jsonValue(String value) throws IOException {
+      throw new IOException("raw json can not be written as cbor");
+    }
+
+    @Override
+    public JsonWriter nullValue() {
+      if (deferredName != null && !getSerializeNulls()) {
+        // like json - a null field is left out
+        deferredName = null;
+        return this;
+      }
+      writeDeferredName();
+      put(NULL);
+      return this;
+    }
+
+    @Override
+    public JsonWriter value(boolean value) {
+      writeDeferredName();
+      put(value ? TRUE : FALSE);
+      return this;
+    }
+
+    @Override
+    public JsonWriter value(Boolean value) {
+      if (value == null) {
+        return nullValue();
+      }
+      return value(value.booleanValue());
+    }
+
+    @Override
+    public JsonWriter value(double value) {
+      writeDeferredName();
+      if (value == Math.rint(value) && Math.abs(value) < (1L << 53)) {
+        integer((long) value);
+      } else if ((float) value == value || Double.isNaN(value)) {
+        put(FLOAT32);
+        ensure(4);
+        putInt(Float.floatToIntBits((float) value));
+      } else {
+        put(FLOAT64);
+        ensure(8);
+        long bits = Double.doubleToLongBits(value);
+        putInt((int) (bits >> 32));
+        putInt((int) bits);
+      }
+      return this;
+    }
+
+    @Override
+    public JsonWriter value(long value) {
+      writeDeferredName();
+      integer(value);
+      return this;
+    }
+
+    @Override
+    public JsonWriter value(Number value) {
+      if (value == null) {
+        return nullValue();
+      }
+      if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte || value instanceof AtomicInteger
+          || value instanceof AtomicLong) {
+        return value(value.longValue());
+      }
+      if (value instanceof Double || value instanceof Float) {
+        return value(value.doubleValue());
+      }
+      // BigDecimal, BigInteger, gson's LazilyParsedNumber ...
+      String s = value.toString();
+      try {
+        BigDecimal d = new BigDecimal(s);
+        if (d.signum() == 0 || d.scale() <= 0 || d.stripTrailingZeros().scale() <= 0) {
+          BigInteger i = d.toBigIntegerExact();
+          if (i.bitLength() < 64) {
+            return value(i.longValue());
+          }
+        }
+      } catch (NumberFormatException | ArithmeticException e) {
+        // NaN, Infinity or too large - as a double
+      }
+      return value(value.doubleValue());
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+  }
+
+  /**
+   * CBOR to gson tree - all major types, definite and indefinite lengths, tags
+   * are skipped and byte strings become arrays of unsigned bytes
+   */
+  static class Reader {
+    final byte[] data;
+    int pos;
+    final int end;
+
+    Reader(byte[] data, int offset, int length) {
+      this.data = data;
+      this.pos = offset;
+      this.end = offset + length;
+    }
+
+    int next() throws IOException {
+      if (pos >= end) {
+        throw new IOException("truncated cbor");
+      }
+      return data[pos++] & 0xFF;
+    }
+
+    long argument(int info) throws IOException {
+      if (info < 24) {
+        return info;
+      }
+      int n;
+      switch (info) {
+        case 24:
+          n = 1;
+          break;
+        case 25:
+          n = 2;
+          break;
+        case 26:
+          n = 4;
+          break;
+        case 27:
+          n = 8;
+          break;
+        default:
+          throw new IOException(String.format("bad cbor additional info %d", info));
+      }
+      long v = 0;
+      for (int i = 0; i < n; ++i) {
+        v = (v << 8) | next();
+      }
+      return v;
+    }
+
+    int length(int info) throws IOException {
+      long len = argument(info);
+      if (len < 0 || len > end - pos) {
+        throw new IOException(String.format("bad cbor length %d", len));
+      }
+      return (int) len;
+    }
+
+    /**
+     * @return the next item, null for a break
+     */
+    JsonElement read() throws IOException {
+      int b = next();
+      if (b == BREAK) {
+        return null;
+      }
+      int major = b & 0xE0;
+      int info = b & 0x1F;
+      switch (major) {
+        case UNSIGNED:
+          return new JsonPrimitive(argument(info));
+        case NEGATIVE:
+          return new JsonPrimitive(-1 - argument(info));
+        case BYTES: {
+          JsonArray array = new JsonArray();
+          if (info == INDEFINITE) {
+            JsonElement chunk;
+            while ((chunk = read()) != null) {
+              array.addAll(chunk.getAsJsonArray());
+            }
+          } else {
+            int len = length(info);
+            for (int i = 0; i < len; ++i) {
+              array.add(next());
+            }
+          }
+          return array;
+        }
+        case TEXT: {
+          if (info == INDEFINITE) {
+            StringBuilder sb = new StringBuilder();
+            JsonElement chunk;
+            while ((chunk = read()) != null) {
+              sb.append(chunk.getAsString());
+            }
+            return new JsonPrimitive(sb.toString());
+          }
+          int len = length(info);
+          String s = new String(data, pos, len, StandardCharsets.UTF_8);
+          pos += len;
+          return new JsonPrimitive(s);
+        }
+        case ARRAY: {
+          JsonArray array = new JsonArray();
+          if (info == INDEFINITE) {
+            JsonElement e;
+            while ((e = read()) != null) {
+              array.add(e);
+            }
+          } else {
+            long len = argument(info);
+            for (long i = 0; i < len; ++i) {
+              array.add(item());
+            }
+          }
+          return array;
+        }
+        case MAP: {
+          JsonObject object = new JsonObject();
+          if (info == INDEFINITE) {
+            JsonElement key;
+            while ((key = read()) != null) {
+              object.add(key.getAsString(), item());
+            }
+          } else {
+            long len = argument(info);
+            for (long i = 0; i < len; ++i) {
+              object.add(item().getAsString(), item());
+            }
+          }
+          return object;
+        }
+        case TAG:
+          argument(info);
+          return item();
+        default:
+          return simple(b, info);
+      }
+    }
+
+    JsonElement item() throws IOException {
+      JsonElement e = read();
+      if (e == null) {
+        throw new IOException("unexpected cbor break");
+      }
+      return e;
+    }
+
+    JsonElement simple(int b, int info) throws IOException {
+      switch (b) {
+        case FALSE:
+          return new JsonPrimitive(false);
+        case TRUE:
+          return new JsonPrimitive(true);
+        case NULL:
+        case SIMPLE | 23: // undefined
+          return JsonNull.INSTANCE;
+        case FLOAT16:
+          return new JsonPrimitive(halfToFloat((int) argument(info)));
+        case FLOAT32:
+          return new JsonPrimitive(Float.intBitsToFloat((int) argument(info)));
+        case FLOAT64:
+          return new JsonPrimitive(Double.longBitsToDouble(argument(info)));
+        default:
+          throw new IOException(String.format("unsupported cbor simple value %d", b));
+      }
+    }
+
+    static float halfToFloat(int half) {
+      int exp = (half >> 10) & 0x1F;
+      int mant = half & 0x3FF;
+      float val;
+      if (exp == 0) {
+        val = mant * (float) Math.pow(2, -24);
+      } else if (exp != 31) {
+        val = (mant + 1024) * (float) Math.pow(2, exp - 25);
+      } else {
+        val = (mant == 0) ? Float.POSITIVE_INFINITY : Float.NaN;
+      }
+      return ((half & 0x8000) == 0) ? val : -val;
+    }
+  }
+
+}
@@ -64,6 +64,11 @@ public class CodecUtils {
 
   // mime-types
   public final static String MIME_TYPE_JSON = "application/json";
+  public final static String MIME_TYPE_CBOR = "application/cbor";
+
+  // websocket wire formats a client can ask for with ?encoding=
+  public final static String ENCODING_JSON = "json";
+  public final static String ENCODING_CBOR = "cbor";
 
   private transient static Gson gson = new GsonBuilder().setDateFormat("yyyy-MM-dd HH:mm:ss.SSS").disableHtmlEscaping().create();
   private transient static Gson prettyGson = new GsonBuilder().setDateFormat("yyyy-MM-dd HH:mm:ss.SSS").setPrettyPrinting().disableHtmlEscaping().create();
@@ -274,6 +279,37 @@ public class CodecUtils {
     return gson.toJson(o, clazz);
   }
 
+  /**
+   * same tree as toJson - as CBOR
+   */
+  static public byte[] toCbor(Object o) throws IOException {
+    return CborCodec.encode(gson, o);
+  }
+
+  static public <T extends Object> T fromCbor(byte[] data, int offset, int length, Class<T> clazz) throws IOException {
+    return CborCodec.decode(gson, data, offset, length, clazz);
+  }
+
+  /**
+   * json of a message with its data already encoded - a publish fanned out to
+   * many remote subscribers encodes the data once and only the envelope for
+   * each copy
+   */
+  static public String toJson(Message msg, String data) {
+    // null fields are not serialized - the envelope is everything but data
+    String envelope = gson.toJson(msg.envelope());
+    StringBuilder sb = new StringBuilder(envelope.length() + data.length() + 8);
+    sb.append(envelope, 0, envelope.length() - 1).append(",\"data\":").append(data).append('}');
+    return sb.toString();
+  }
+
+  /**
+   * cbor of a message with its data already encoded
+   */
+  static public byte[] toCbor(Message msg, byte[] data) throws IOException {
+    return CborCodec.put(toCbor(msg.envelope()), "data", data);
+  }
+
   public static void toJsonFile(Object o, String filename) throws IOException {
     FileOutputStream fos = new FileOutputStream(new File(filename));
     fos.write(gson.toJson(o).getBytes());
@@ -65,6 +65,9 @@ public class CmdOptions {
   @Option(names = { "-d", "--daemon" }, description = "daemon - fork process from current process - no inherited io no cli")
   public boolean daemon = false;
 
+  @Option(names = { "--extract-all" }, description = "extract all resources at startup - by default the resources of a service type are extracted when it is first used")
+  public boolean extractAll = false;
+
   // if --from-launcher knows to createAndStart service on -s
   @Option(names = { "--from-launcher" }, description = "prevents starting in interactive mode - reading from stdin")
   public boolean fromLauncher = false;
@@ -99,6 +102,9 @@ public class CmdOptions {
       "--services" }, arity = "0..*", description = "services requested on startup, the services must be {name} {Type} paired, e.g. gui SwingGui webgui WebGui servo Servo ...")
   public List<String> services = new ArrayList<>();
 
+  @Option(names = { "--thread-mode" }, description = "threads running service inboxes and outboxes [platform virtual] - virtual requires java 21+")
+  public String threadMode = null;
+
   @Option(names = { "-V", "--virtual" }, description = "sets global environment as virtual - all services which support virtual hardware will create virtual hardware")
   public boolean virtual = false;
 
@@ -171,6 +177,10 @@ public class CmdOptions {
       cmd.add("-d");
     }
 
+    if (extractAll) {
+      cmd.add("--extract-all");
+    }
+
     if (invoke != null) {
       cmd.add("-I");
       for (int i = 0; i < invoke.length; ++i) {
@@ -227,6 +237,11 @@ public class CmdOptions {
       cmd.add(s);
     }
 
+    if (threadMode != null) {
+      cmd.add("--thread-mode");
+      cmd.add(threadMode);
+    }
+
     if (virtual) {
       cmd.add("-v");
     }
@@ -0,0 +1,193 @@
+package org.myrobotlab.framework;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.myrobotlab.logging.LoggerFactory;
+import org.slf4j.Logger;
+
+/**
+ * <pre>
+ * Latest value per device, written once per tick - for controllers which
+ * get many writes for the same servo or pin in between two frames on the
+ * wire (gestures, scripts calling moveTo in a loop, speed control threads).
+ *
+ * write(key, value) replaces what is pending for key, the first write after
+ * a flush schedules the next flush tickMs later on the writer's own flush
+ * thread - flushes block on the controller's bus, so they stay off shared
+ * threads. The flush hands every pending key and value, in key order, to the
+ * controller which sends them as few frames as its bus allows. Flushes never
+ * overlap, so a newer value can not overtake an older one.
+ *
+ * A controller sending any other command for a key calls flush(key) first,
+ * so the command can not overtake a write still held for that key.
+ *
+ * Keys are device ids or pins - 0 to MAX_KEYS - 1.
+ * </pre>
+ */
+public class CoalescingWriter {
+
+  public final static Logger log = LoggerFactory.getLogger(CoalescingWriter.class);
+
+  static public final int MAX_KEYS = 256;
+
+  public interface Flush {
+    /**
+     * @param keys
+     *          - pending keys, ascending
+     * @param values
+     *          - latest value for each key
+     * @param count
+     *          - number of keys
+     */
+    void flush(int[] keys, int[] values, int count) throws Exception;
+  }
+
+  final String name;
+  final Flush flush;
+  volatile long tickMs;
+
+  /**
+   * exits when idle for a minute
+   */
+  final ScheduledThreadPoolExecutor flusher;
+
+  // pending - guarded by this
+  final boolean[] dirty = new boolean[MAX_KEYS];
+  final int[] pending = new int[MAX_KEYS];
+  int pendingCount = 0;
+  boolean scheduled = false;
+
+  // flushing - guarded by flushLock
+  final Object flushLock = new Object();
+  final int[] flushKeys = new int[MAX_KEYS];
+  final int[] flushValues = new int[MAX_KEYS];
+
+  long writes = 0;
+  long superseded = 0;
+  long flushes = 0;
+
+  /**
+   * @param name
+   *          - for logging
+   * @param tickMs
+   *          - how long a write waits for newer ones
+   * @param flush
+   *          - sends a batch
+   */
+  public CoalescingWriter(String name, long tickMs, Flush flush) {
+    this.name = name;
+    this.tickMs = tickMs;
+    this.flush = flush;
+    flusher = new ScheduledThreadPoolExecutor(1, r -> {
+      Thread t = new Thread(r, name + ".flush");
+      t.setDaemon(true);
+      return t;
+    });
+    flusher.setKeepAliveTime(60, TimeUnit.SECONDS);
+    flusher.allowCoreThreadTimeOut(true);
+  }
+
+  synchronized public void write(int key, int value) {
+    ++writes;
+    if (dirty[key]) {
+      ++superseded;
+    } else {
+      dirty[key] = true;
+      ++pendingCount;
+    }
+    pending[key] = value;
+    if (!scheduled) {
+      scheduled = true;
+      flusher.schedule(() -> flush(), tickMs, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * drop a pending write - e.g. the servo was stopped or disabled after it
+   *
+   * @return true if one was pending
+   */
+  synchronized public boolean remove(int key) {
+    if (!dirty[key]) {
+      return false;
+    }
+    dirty[key] = false;
+    --pendingCount;
+    return true;
+  }
+
+  /**
+   * write everything pending now
+   */
+  public void flush() {
+    synchronized (flushLock) {
+      int count = 0;
+      synchronized (this) {
+        scheduled = false;
+        for (int key = 0; key < MAX_KEYS && count < pendingCount; ++key) {
+          if (dirty[key]) {
+            dirty[key] = false;
+            flushKeys[count] = key;
+            flushValues[count] = pending[key];
+            ++count;
+          }
+        }
+        pendingCount = 0;
+        if (count > 0) {
+          ++flushes;
+        }
+      }
+      if (count == 0) {
+        return;
+      }
+      try {
+        flush.flush(flushKeys, flushValues, count);
+      } catch (Exception e) {
+        log.error("{} flush threw", name, e);
+      }
+    }
+  }
+
+  /**
+   * write what is pending for key now - before sending anything else for it
+   *
+   * @param key
+   *          - device id or pin
+   */
+  public void flush(int key) {
+    synchronized (flushLock) {
+      int value = 0;
+      synchronized (this) {
+        if (!dirty[key]) {
+          return;
+        }
+        dirty[key] = false;
+        --pendingCount;
+        value = pending[key];
+        ++flushes;
+      }
+      flushKeys[0] = key;
+      flushValues[0] = value;
+      try {
+        flush.flush(flushKeys, flushValues, 1);
+      } catch (Exception e) {
+        log.error("{} flush {} threw", name, key, e);
+      }
+    }
+  }
+
+  public long getTickMs() {
+    return tickMs;
+  }
+
+  public void setTickMs(long tickMs) {
+    this.tickMs = tickMs;
+  }
+
+  @Override
+  synchronized public String toString() {
+    return String.format("%s tick %d ms writes %d superseded %d flushes %d", name, tickMs, writes, superseded, flushes);
+  }
+
+}
@@ -0,0 +1,246 @@
+package org.myrobotlab.framework;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.myrobotlab.framework.interfaces.ServiceInterface;
+import org.myrobotlab.framework.interfaces.ThreadSafeSubscriber;
+
+/**
+ * Delivery state of a subscription with a {@link DeliveryPolicy} - lives on
+ * the publisher's MRLListener. deliver is called by the publisher's outbox
+ * with the message already addressed to the subscriber.
+ *
+ * Timed flushes are noticed on the TimeoutWheel tick and sent on a flush
+ * thread - serializing and sending to a remote subscriber never holds up the
+ * tick.
+ */
+public abstract class Delivery {
+
+  /**
+   * timed flushes of every subscription
+   */
+  static final ExecutorService flusher = Executors.newCachedThreadPool(r -> {
+    Thread t = new Thread(r, "delivery.flush");
+    t.setDaemon(true);
+    return t;
+  });
+
+  final MRLListener listener;
+
+  Delivery(MRLListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * @param listener
+   *          - subscription
+   * @return delivery for the listener's policy, or null to deliver every
+   *         message
+   */
+  static public Delivery create(MRLListener listener) {
+    DeliveryPolicy policy = listener.policy;
+    if (policy == null || policy.type == null) {
+      return null;
+    }
+    if (DeliveryPolicy.LATEST.equals(policy.type)) {
+      return new Latest(listener);
+    } else if (DeliveryPolicy.BATCH.equals(policy.type)) {
+      if (policy.intervalMs <= 0 && policy.maxSize <= 0) {
+        // a batch which never flushes - policies can arrive from remote
+        // processes without going through DeliveryPolicy.batch
+        Outbox.log.error("batch policy without intervalMs or maxSize for {} - delivering every message", listener);
+        return null;
+      }
+      return new Batch(listener, policy.intervalMs, policy.maxSize);
+    } else if (DeliveryPolicy.RATE.equals(policy.type)) {
+      return new Rate(listener, policy.intervalMs);
+    }
+    Outbox.log.error("unknown delivery policy {} for {} - delivering every message", policy.type, listener);
+    return null;
+  }
+
+  abstract void deliver(Outbox outbox, Message msg);
+
+  /**
+   * latest value wins - one placeholder message sits in the subscriber's
+   * inbox, it picks up the newest data when the inbox thread takes it
+   */
+  static public class Latest extends Delivery {
+
+    Object[] latest;
+    boolean queued = false;
+
+    Latest(MRLListener listener) {
+      super(listener);
+    }
+
+    @Override
+    void deliver(Outbox outbox, Message msg) {
+      ServiceInterface route = outbox.route(listener);
+      if (route == null || (outbox.directRouting && route instanceof ThreadSafeSubscriber)) {
+        // remote or inline - nothing queues, nothing to coalesce
+        outbox.send(msg, listener);
+        return;
+      }
+      synchronized (this) {
+        latest = msg.data;
+        if (queued) {
+          // the waiting placeholder will carry this data
+          return;
+        }
+        queued = true;
+      }
+      msg.coalesced = this;
+      route.in(msg);
+    }
+
+    /**
+     * called by the subscriber's inbox thread when it takes the placeholder
+     *
+     * @param msg
+     *          - placeholder
+     */
+    synchronized void take(Message msg) {
+      msg.data = latest;
+      latest = null;
+      queued = false;
+    }
+
+    /**
+     * the placeholder did not make it into the inbox
+     */
+    synchronized void dropped() {
+      queued = false;
+    }
+
+    /**
+     * the placeholder completed a waiting call instead of going into the inbox
+     *
+     * @param msg
+     *          - placeholder
+     * @return a new placeholder for data published since, null if there is
+     *         none
+     */
+    synchronized Message consumed(Message msg) {
+      if (latest == msg.data) {
+        latest = null;
+        queued = false;
+        return null;
+      }
+      Message next = new Message(msg);
+      next.data = latest;
+      next.coalesced = this;
+      return next;
+    }
+  }
+
+  /**
+   * collect publishes and deliver them as one List
+   */
+  static public class Batch extends Delivery {
+
+    final long intervalMs;
+    final int maxSize;
+    List<Object> batch;
+    Message template;
+
+    Batch(MRLListener listener, long intervalMs, int maxSize) {
+      super(listener);
+      this.intervalMs = intervalMs;
+      this.maxSize = (maxSize <= 0) ? Integer.MAX_VALUE : maxSize;
+    }
+
+    @Override
+    void deliver(Outbox outbox, Message msg) {
+      Message full = null;
+      synchronized (this) {
+        boolean first = (batch == null);
+        if (first) {
+          batch = new ArrayList<>();
+          template = msg;
+        }
+        batch.add((msg.data == null || msg.data.length != 1) ? msg.data : msg.data[0]);
+        if (batch.size() >= maxSize) {
+          full = take();
+        } else if (first && intervalMs > 0) {
+          final List<Object> pending = batch;
+          TimeoutWheel.getInstance().schedule(intervalMs, () -> flusher.execute(() -> flush(outbox, pending)));
+        }
+      }
+      if (full != null) {
+        outbox.send(full, listener);
+      }
+    }
+
+    void flush(Outbox outbox, List<Object> pending) {
+      Message msg = null;
+      synchronized (this) {
+        // already delivered because it filled up
+        if (batch != pending) {
+          return;
+        }
+        msg = take();
+      }
+      outbox.send(msg, listener, false);
+    }
+
+    private Message take() {
+      Message msg = new Message(template);
+      msg.data = new Object[] { batch };
+      batch = null;
+      template = null;
+      return msg;
+    }
+  }
+
+  /**
+   * at most one message per interval - the newest publish during an interval
+   * is delivered when it ends
+   */
+  static public class Rate extends Delivery {
+
+    final long intervalNs;
+    long lastNs = 0;
+    Message pending;
+
+    Rate(MRLListener listener, long intervalMs) {
+      super(listener);
+      this.intervalNs = intervalMs * 1000000L;
+    }
+
+    @Override
+    void deliver(Outbox outbox, Message msg) {
+      synchronized (this) {
+        long now = System.nanoTime();
+        if (pending == null && (lastNs == 0 || now - lastNs >= intervalNs)) {
+          lastNs = now;
+        } else {
+          boolean scheduled = (pending != null);
+          pending = msg;
+          if (!scheduled) {
+            long waitMs = Math.max(0, (lastNs + intervalNs - now) / 1000000L);
+            TimeoutWheel.getInstance().schedule(waitMs, () -> flusher.execute(() -> flush(outbox)));
+          }
+          return;
+        }
+      }
+      outbox.send(msg, listener);
+    }
+
+    void flush(Outbox outbox) {
+      Message msg = null;
+      synchronized (this) {
+        msg = pending;
+        pending = null;
+        lastNs = System.nanoTime();
+      }
+      if (msg != null) {
+        outbox.send(msg, listener, false);
+      }
+    }
+  }
+
+}
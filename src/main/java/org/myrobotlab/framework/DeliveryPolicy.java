@@ -0,0 +1,95 @@
+package org.myrobotlab.framework;
+
+import java.io.Serializable;
+
+/**
+ * <pre>
+ * How published messages are delivered to one subscription - set when
+ * subscribing and carried to the publisher on the MRLListener, so fast
+ * publishers (pin arrays, imu samples, opencv data) can not flood a slow
+ * subscriber's inbox.
+ *
+ * (none)  - every message, in order (default)
+ * LATEST  - latest value wins - at most one message is waiting in the
+ *           subscriber's inbox, newer publishes replace its data
+ * BATCH   - publishes are collected and delivered as a single List every
+ *           intervalMs or when maxSize are collected - the callback must
+ *           take a List
+ * RATE    - at most one message every intervalMs, the newest publish in
+ *           between is delivered at the end of the interval
+ *
+ * LATEST needs a subscriber in this process - for remote subscribers it
+ * falls back to every message.
+ * </pre>
+ */
+public class DeliveryPolicy implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  static public final String LATEST = "LATEST";
+  static public final String BATCH = "BATCH";
+  static public final String RATE = "RATE";
+
+  public String type;
+  public long intervalMs;
+  public int maxSize;
+
+  public DeliveryPolicy() {
+  }
+
+  public DeliveryPolicy(String type, long intervalMs, int maxSize) {
+    this.type = type;
+    this.intervalMs = intervalMs;
+    this.maxSize = maxSize;
+  }
+
+  static public DeliveryPolicy latest() {
+    return new DeliveryPolicy(LATEST, 0, 0);
+  }
+
+  /**
+   * @param intervalMs
+   *          - max time a publish waits to be delivered
+   * @param maxSize
+   *          - deliver as soon as this many are collected
+   * @return policy
+   * @throws IllegalArgumentException
+   *           if neither intervalMs nor maxSize is set - the batch would never
+   *           be delivered
+   */
+  static public DeliveryPolicy batch(long intervalMs, int maxSize) {
+    if (intervalMs <= 0 && maxSize <= 0) {
+      throw new IllegalArgumentException(String.format("batch needs an intervalMs or a maxSize - got %d, %d", intervalMs, maxSize));
+    }
+    return new DeliveryPolicy(BATCH, intervalMs, maxSize);
+  }
+
+  /**
+   * @param intervalMs
+   *          - minimum time between deliveries
+   * @return policy
+   */
+  static public DeliveryPolicy rate(long intervalMs) {
+    return new DeliveryPolicy(RATE, intervalMs, 0);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof DeliveryPolicy)) {
+      return false;
+    }
+    DeliveryPolicy other = (DeliveryPolicy) o;
+    return intervalMs == other.intervalMs && maxSize == other.maxSize && (type == null ? other.type == null : type.equals(other.type));
+  }
+
+  @Override
+  public int hashCode() {
+    return (type == null ? 0 : type.hashCode()) + (int) intervalMs * 31 + maxSize;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s %d ms %d", type, intervalMs, maxSize);
+  }
+
+}
@@ -0,0 +1,122 @@
+package org.myrobotlab.framework;
+
+import java.lang.reflect.Method;
+
+import org.myrobotlab.logging.LoggerFactory;
+import org.slf4j.Logger;
+
+/**
+ * <pre>
+ * Runtime wide choice of what kind of thread runs a service's inbox loop and
+ * outbox dispatcher.
+ *
+ * PLATFORM - a dedicated os thread each (the original behavior)
+ * VIRTUAL  - a virtual thread each, multiplexed on the jvm's small carrier pool
+ *
+ * Virtual threads need a Java 21+ runtime. The build targets Java 8 so
+ * Thread.ofVirtual() is looked up reflectively - on older jvms a warning is
+ * logged and platform threads are used.
+ *
+ * In virtual mode new inboxes and outboxes default to the MPSC queue - its
+ * park/unpark wakeups unmount the virtual thread, where the LINKED queue's
+ * synchronized wait() would pin a carrier thread for as long as the service
+ * is idle.
+ *
+ * Must be set before services are started - typically from CmdOptions
+ * --thread-mode
+ * </pre>
+ */
+public class ExecutionMode {
+
+  public final static Logger log = LoggerFactory.getLogger(ExecutionMode.class);
+
+  static public final String PLATFORM = "PLATFORM";
+  static public final String VIRTUAL = "VIRTUAL";
+
+  static private volatile String mode = PLATFORM;
+
+  // Thread.ofVirtual(), Thread.Builder.name(String), Thread.Builder.unstarted(Runnable)
+  static private Method ofVirtual;
+  static private Method builderName;
+  static private Method builderUnstarted;
+
+  static {
+    try {
+      ofVirtual = Thread.class.getMethod("ofVirtual");
+      Class<?> builder = Class.forName("java.lang.Thread$Builder");
+      builderName = builder.getMethod("name", String.class);
+      builderUnstarted = builder.getMethod("unstarted", Runnable.class);
+    } catch (Exception e) {
+      ofVirtual = null;
+    }
+  }
+
+  /**
+   * @return true if this jvm can create virtual threads
+   */
+  static public boolean isVirtualSupported() {
+    return ofVirtual != null;
+  }
+
+  /**
+   * @param newMode
+   *          - PLATFORM or VIRTUAL (case insensitive)
+   * @return the mode actually in effect
+   */
+  static public String setMode(String newMode) {
+    if (newMode == null) {
+      return mode;
+    }
+    newMode = newMode.toUpperCase();
+    if (VIRTUAL.equals(newMode)) {
+      if (!isVirtualSupported()) {
+        log.warn("virtual threads require java 21+ - this is java {} - using platform threads", System.getProperty("java.version"));
+        mode = PLATFORM;
+      } else {
+        mode = VIRTUAL;
+      }
+    } else if (PLATFORM.equals(newMode)) {
+      mode = PLATFORM;
+    } else {
+      log.error("unknown thread mode {} - valid modes are {} {}", newMode, PLATFORM, VIRTUAL);
+    }
+    return mode;
+  }
+
+  static public String getMode() {
+    return mode;
+  }
+
+  static public boolean isVirtual() {
+    return VIRTUAL.equals(mode);
+  }
+
+  /**
+   * @return the queue type new inboxes and outboxes should use
+   */
+  static public String getDefaultQueueType() {
+    return isVirtual() ? MessageQueue.MPSC : MessageQueue.LINKED;
+  }
+
+  /**
+   * create an unstarted thread of the current mode
+   *
+   * @param runnable
+   *          - work
+   * @param name
+   *          - thread name
+   * @return unstarted thread
+   */
+  static public Thread newThread(Runnable runnable, String name) {
+    if (isVirtual()) {
+      try {
+        Object builder = builderName.invoke(ofVirtual.invoke(null), name);
+        return (Thread) builderUnstarted.invoke(builder, runnable);
+      } catch (Exception e) {
+        log.error("could not create virtual thread {} - using platform thread", name, e);
+      }
+    }
+    return new Thread(runnable, name);
+  }
+
+}
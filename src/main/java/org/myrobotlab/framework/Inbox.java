@@ -27,8 +27,6 @@ package org.myrobotlab.framework;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 
 import org.myrobotlab.framework.interfaces.MessageListener;
@@ -42,15 +40,16 @@ public class Inbox implements Serializable {
   public final static Logger log = LoggerFactory.getLogger(Inbox.class.getCanonicalName());
 
   String name;
-  LinkedList<Message> msgBox = new LinkedList<Message>();
+  // will need to adjust unit test if you change the default max queue size
+  transient MessageQueue msgBox = createQueue(ExecutionMode.getDefaultQueueType(), 1024, false, true);
   boolean isRunning = false;
   boolean bufferOverrun = false;
-  boolean blocking = false;
-  int maxQueue = 1024; // will need to adjust unit test if you change this
-  // value
 
-  // support remote blocking... in-process blocking uses invoke
-  public HashMap<String, Object[]> blockingList = new HashMap<>();
+  // replies to sendAsync/sendBlocking and waitFor publishes - in-process
+  // blocking uses invoke
+  static final PendingCalls pending = PendingCalls.getInstance();
+
+  transient ServiceMetrics metrics;
 
   List<MessageListener> listeners = new ArrayList<MessageListener>();
 
@@ -73,28 +72,37 @@ public class Inbox implements Serializable {
      * msg.historyList.add(name);
      */
 
-    synchronized (msgBox) {
-      while (blocking && (msgBox.size() >= maxQueue)) // queue "full"
-      {
-        try {
-          msgBox.wait();
-        } catch (InterruptedException ex) {
-          log.debug("inbox enque msg INTERRUPTED " + name);
+    // completing a waiting call here rather than on the inbox thread means a
+    // service can wait on a reply from its own inbox thread
+    if (pending.complete(msg)) {
+      if (msg.coalesced != null) {
+        // a latest placeholder never reaches the queue - release it
+        Message next = msg.coalesced.consumed(msg);
+        if (next != null) {
+          add(next);
         }
       }
+      return;
+    }
 
-      if (msgBox.size() > maxQueue) {
-        bufferOverrun = true;
-        log.warn("inbox size {} BUFFER OVERRUN dumping msg from {} To {}.{}", msgBox.size(), msg.sender, msg.name, msg.method);
-      } else {
-        msgBox.addFirst(msg);
-        // Logging.logTime(String.format("inbox - %s size %d", name,
-        // msgBox.size()));
-        if (log.isDebugEnabled()) {
-          log.debug("{}.msgBox + 1 = {}", name, msgBox.size());
-        }
-        msgBox.notifyAll(); // must own the lock
+    msg.enqueueNs = (metrics != null && metrics.sampleInbox()) ? System.nanoTime() : 0;
+
+    if (!msgBox.add(msg)) {
+      if (metrics != null) {
+        metrics.inboxDropped();
       }
+      if (msg.coalesced != null) {
+        msg.coalesced.dropped();
+      }
+      bufferOverrun = true;
+      log.warn("inbox size {} BUFFER OVERRUN dumping msg from {} To {}.{}", msgBox.size(), msg.sender, msg.name, msg.method);
+      return;
+    }
+
+    // Logging.logTime(String.format("inbox - %s size %d", name,
+    // msgBox.size()));
+    if (log.isDebugEnabled()) {
+      log.debug("{}.msgBox + 1 = {}", name, msgBox.size());
     }
 
     // TODO: move this to a base class Inbox/Outbox are very similar.
@@ -143,47 +151,8 @@ public class Inbox implements Serializable {
      * Message came from should be hidden and interfaces should be exposed only-
      */
 
-    Message msg = null;
-
-    synchronized (msgBox) {
-
-      while (msg == null) { // while no messages && no messages that are
-        // blocking
-        if (msgBox.size() == 0) {
-          // log.debug("Inbox WAITING " + name);
-          msgBox.wait(); // must own the lock
-        } else {
-          msg = msgBox.removeLast();
-          log.debug("{}.msgBox -1 {}", name, msgBox.size());
-
-          // --- sendBlocking support begin --------------------
-          // TODO - possible safety check msg.status == Message.RETURN
-          // &&
-          String blockingKey = String.format("%s.%s", msg.getFullName(), msg.getMethod());
-          if (blockingList.containsKey(blockingKey)) {
-            Object[] returnContainer = blockingList.get(blockingKey);
-            if (msg.data == null) // TODO - don't know if this is
-            // correct but this works for
-            // null data now
-            {
-              returnContainer = null;
-            } else {
-              returnContainer[0] = msg.data[0]; // transferring
-              // return data !
-            }
-            synchronized (returnContainer) {
-              blockingList.remove(blockingKey);
-              returnContainer.notifyAll(); // addListener sender
-            }
-            msg = null; // do not invoke this msg - sendBlocking has
-            // been notified data returned
-          }
-          // --- sendBlocking support end --------------------
-
-        }
-      }
-      msgBox.notifyAll();
-    }
+    Message msg = msgBox.take();
+    log.debug("{}.msgBox -1 {}", name, msgBox.size());
     return msg;
   }
 
@@ -192,7 +161,54 @@ public class Inbox implements Serializable {
   }
 
   public void setBlocking(boolean toBlock) {
-    blocking = toBlock;
+    msgBox.setBlocking(toBlock);
+  }
+
+  public boolean isBlocking() {
+    return msgBox.isBlocking();
+  }
+
+  public int getMaxQueueSize() {
+    return msgBox.getMaxQueueSize();
+  }
+
+  public void setMaxQueueSize(int size) {
+    msgBox.setMaxQueueSize(size);
+  }
+
+  /**
+   * switch the queue implementation - LINKED or MPSC. Should be done before
+   * the service is started, any messages currently queued are moved to the new
+   * queue.
+   * 
+   * @param type
+   *          MessageQueue.LINKED or MessageQueue.MPSC
+   */
+  public void setQueueType(String type) {
+    MessageQueue newBox = createQueue(type, msgBox.getMaxQueueSize(), msgBox.isBlocking(), true);
+    if (newBox == null || newBox.getType().equals(msgBox.getType())) {
+      return;
+    }
+    MessageQueue oldBox = msgBox;
+    Message msg = null;
+    while ((msg = oldBox.poll()) != null) {
+      newBox.add(msg);
+    }
+    msgBox = newBox;
+  }
+
+  public String getQueueType() {
+    return msgBox.getType();
+  }
+
+  static MessageQueue createQueue(String type, int maxQueue, boolean blocking, boolean dropOnOverrun) {
+    if (MessageQueue.MPSC.equals(type)) {
+      return new MpscMessageQueue(maxQueue, blocking);
+    } else if (MessageQueue.LINKED.equals(type)) {
+      return new LinkedMessageQueue(maxQueue, blocking, dropOnOverrun);
+    }
+    log.error("unknown queue type {}", type);
+    return null;
   }
 
   public int size() {
@@ -0,0 +1,119 @@
+package org.myrobotlab.framework;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <pre>
+ * Fixed size log-linear histogram of nanosecond latencies, in the style of
+ * HdrHistogram - every power of 2 is split into 16 linear sub buckets, so a
+ * recorded value is known to within ~6% from 1 ns to hours, in 960 counters
+ * and without allocating.
+ *
+ * record is lock free and safe from any thread, snapshots are approximate
+ * while values are being recorded.
+ * </pre>
+ */
+public class LatencyHistogram {
+
+  static final int SUB_BITS = 4;
+  static final int SUB_COUNT = 1 << SUB_BITS;
+  static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+  final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  final AtomicLong count = new AtomicLong();
+  final AtomicLong sum = new AtomicLong();
+  final AtomicLong max = new AtomicLong();
+
+  static int index(long value) {
+    if (value < SUB_COUNT) {
+      return (int) value;
+    }
+    int exp = 63 - Long.numberOfLeadingZeros(value);
+    return ((exp - SUB_BITS + 1) << SUB_BITS) + (int) ((value >>> (exp - SUB_BITS)) & (SUB_COUNT - 1));
+  }
+
+  static long lowerBound(int index) {
+    if (index < SUB_COUNT) {
+      return index;
+    }
+    int exp = (index >> SUB_BITS) + SUB_BITS - 1;
+    return ((long) (SUB_COUNT + (index & (SUB_COUNT - 1)))) << (exp - SUB_BITS);
+  }
+
+  static long width(int index) {
+    if (index < 2 * SUB_COUNT) {
+      return 1;
+    }
+    return 1L << ((index >> SUB_BITS) - 1);
+  }
+
+  /**
+   * @param ns
+   *          - latency in nanoseconds, negative values are ignored
+   */
+  public void record(long ns) {
+    if (ns < 0) {
+      return;
+    }
+    counts.incrementAndGet(index(ns));
+    count.incrementAndGet();
+    sum.addAndGet(ns);
+    long m = max.get();
+    while (ns > m && !max.compareAndSet(m, ns)) {
+      m = max.get();
+    }
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  /**
+   * @param percentile
+   *          - 0.0 to 100.0
+   * @return ns value at the percentile - the middle of its bucket
+   */
+  public long getValueAtPercentile(double percentile) {
+    long total = count.get();
+    if (total == 0) {
+      return 0;
+    }
+    long target = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; ++i) {
+      seen += counts.get(i);
+      if (seen >= target) {
+        return Math.min(max.get(), lowerBound(i) + width(i) / 2);
+      }
+    }
+    return max.get();
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKETS; ++i) {
+      counts.set(i, 0);
+    }
+    count.set(0);
+    sum.set(0);
+    max.set(0);
+  }
+
+  /**
+   * @return summary in microseconds
+   */
+  public LatencyStats getStats() {
+    LatencyStats stats = new LatencyStats();
+    stats.count = count.get();
+    if (stats.count > 0) {
+      stats.meanUs = sum.get() / 1000.0 / stats.count;
+    }
+    stats.p50Us = getValueAtPercentile(50) / 1000.0;
+    stats.p90Us = getValueAtPercentile(90) / 1000.0;
+    stats.p99Us = getValueAtPercentile(99) / 1000.0;
+    stats.p999Us = getValueAtPercentile(99.9) / 1000.0;
+    stats.maxUs = max.get() / 1000.0;
+    return stats;
+  }
+
+}
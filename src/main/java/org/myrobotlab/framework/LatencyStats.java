@@ -0,0 +1,21 @@
+package org.myrobotlab.framework;
+
+/**
+ * percentile summary of a {@link LatencyHistogram} in microseconds
+ */
+public class LatencyStats {
+
+  public long count;
+  public double meanUs;
+  public double p50Us;
+  public double p90Us;
+  public double p99Us;
+  public double p999Us;
+  public double maxUs;
+
+  @Override
+  public String toString() {
+    return String.format("n %d mean %.1f p50 %.1f p90 %.1f p99 %.1f p99.9 %.1f max %.1f us", count, meanUs, p50Us, p90Us, p99Us, p999Us, maxUs);
+  }
+
+}
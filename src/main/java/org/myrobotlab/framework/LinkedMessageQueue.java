@@ -0,0 +1,119 @@
+package org.myrobotlab.framework;
+
+import java.util.LinkedList;
+
+import org.myrobotlab.logging.LoggerFactory;
+import org.slf4j.Logger;
+
+/**
+ * The original Inbox/Outbox queue - a LinkedList guarded by its own monitor.
+ * Every add and remove notifies all waiters. Simple and unbounded in memory
+ * when dropOnOverrun is false (the Outbox behavior).
+ *
+ */
+public class LinkedMessageQueue implements MessageQueue {
+
+  public final static Logger log = LoggerFactory.getLogger(LinkedMessageQueue.class);
+
+  LinkedList<Message> msgBox = new LinkedList<Message>();
+  int maxQueue = 1024;
+  boolean blocking = false;
+
+  /**
+   * Inbox drops messages over maxQueue, Outbox only warns and keeps them
+   */
+  boolean dropOnOverrun = true;
+
+  public LinkedMessageQueue() {
+  }
+
+  public LinkedMessageQueue(int maxQueue, boolean blocking, boolean dropOnOverrun) {
+    this.maxQueue = maxQueue;
+    this.blocking = blocking;
+    this.dropOnOverrun = dropOnOverrun;
+  }
+
+  @Override
+  public boolean add(Message msg) {
+    synchronized (msgBox) {
+      while (blocking && (msgBox.size() >= maxQueue)) { // queue "full"
+        try {
+          msgBox.wait();
+        } catch (InterruptedException ex) {
+          log.debug("enque msg INTERRUPTED");
+        }
+      }
+
+      if (dropOnOverrun && msgBox.size() > maxQueue) {
+        return false;
+      }
+
+      msgBox.addFirst(msg);
+      msgBox.notifyAll(); // must own the lock
+    }
+    return true;
+  }
+
+  @Override
+  public Message take() throws InterruptedException {
+    synchronized (msgBox) {
+      while (msgBox.size() == 0) {
+        msgBox.wait(); // must own the lock
+      }
+      Message msg = msgBox.removeLast();
+      msgBox.notifyAll();
+      return msg;
+    }
+  }
+
+  @Override
+  public Message poll() {
+    synchronized (msgBox) {
+      if (msgBox.size() == 0) {
+        return null;
+      }
+      Message msg = msgBox.removeLast();
+      msgBox.notifyAll();
+      return msg;
+    }
+  }
+
+  @Override
+  public int size() {
+    return msgBox.size();
+  }
+
+  @Override
+  public void clear() {
+    synchronized (msgBox) {
+      msgBox.clear();
+      msgBox.notifyAll();
+    }
+  }
+
+  @Override
+  public int getMaxQueueSize() {
+    return maxQueue;
+  }
+
+  @Override
+  public void setMaxQueueSize(int size) {
+    maxQueue = size;
+  }
+
+  @Override
+  public boolean isBlocking() {
+    return blocking;
+  }
+
+  @Override
+  public void setBlocking(boolean blocking) {
+    this.blocking = blocking;
+  }
+
+  @Override
+  public String getType() {
+    return LINKED;
+  }
+
+}
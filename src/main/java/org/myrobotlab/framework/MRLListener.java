@@ -28,6 +28,7 @@ package org.myrobotlab.framework;
 import java.io.IOException;
 import java.io.Serializable;
 
+import org.myrobotlab.framework.interfaces.ServiceInterface;
 import org.myrobotlab.logging.Level;
 import org.myrobotlab.logging.LoggerFactory;
 import org.myrobotlab.logging.Logging;
@@ -69,12 +70,35 @@ public final class MRLListener implements Serializable {
    */
   public String callbackMethod;
 
+  /**
+   * direct reference to the subscriber when it is a local service - resolved
+   * when the listener is added so local delivery does not need a registry
+   * lookup per message, cleared when the subscriber is released
+   */
+  transient volatile public ServiceInterface route;
+
+  /**
+   * optional coalescing, batching or rate limiting of this subscription - null
+   * delivers every message
+   */
+  public DeliveryPolicy policy;
+
+  /**
+   * publisher side state of the policy
+   */
+  transient public Delivery delivery;
+
   public MRLListener(String topicMethod, String callbackName, String callbackMethod) {
     this.topicMethod = topicMethod;
     this.callbackMethod = callbackMethod;
     this.callbackName = callbackName;
   }
 
+  public MRLListener(String topicMethod, String callbackName, String callbackMethod, DeliveryPolicy policy) {
+    this(topicMethod, callbackName, callbackMethod);
+    this.policy = policy;
+  }
+
   final public boolean equals(final MRLListener other) {
     if (callbackName.equals(other.callbackName) && callbackMethod.equals(other.callbackMethod) && topicMethod.equals(other.topicMethod)) {
       return true;
@@ -45,6 +45,16 @@ public class Message implements Serializable {
 
   private static final long serialVersionUID = 1L;
 
+  /**
+   * status of a request whose caller waits for a RETURN with the same msgId
+   */
+  static public final String BLOCKING = "BLOCKING";
+
+  /**
+   * status of the reply to a BLOCKING request
+   */
+  static public final String RETURN = "RETURN";
+
   // FIXME msgId should be a String encoded value of src and an atomic increment
   // ROS comes with a seq Id, a timestamp, and a frame Id
   /**
@@ -106,6 +116,18 @@ public class Message implements Serializable {
    */
   public Object[] data;
 
+  /**
+   * System.nanoTime() the message was added to an inbox, 0 if it was not
+   * sampled for metrics - local only, not serialized
+   */
+  transient public long enqueueNs;
+
+  /**
+   * set on a latest-value-wins placeholder - its data is filled in when the
+   * inbox thread takes it
+   */
+  transient Delivery.Latest coalesced;
+
   public Message() {
     msgId = System.currentTimeMillis();
     name = new String(); // FIXME - allow NULL !
@@ -119,6 +141,30 @@ public class Message implements Serializable {
     set(other);
   }
 
+  /**
+   * shallow copy of every serialized field but data
+   */
+  private Message(final Message other, final Object[] data) {
+    msgId = other.msgId;
+    name = other.name;
+    sender = other.sender;
+    sendingMethod = other.sendingMethod;
+    historyList = other.historyList;
+    properties = other.properties;
+    status = other.status;
+    dataEncoding = other.dataEncoding;
+    method = other.method;
+    this.data = data;
+  }
+
+  /**
+   * @return a shallow copy with no data - for encoders which append data they
+   *         encoded once, without touching a message other threads can see
+   */
+  public Message envelope() {
+    return new Message(this, null);
+  }
+
   public Object[] getData() {
     return data;
   }
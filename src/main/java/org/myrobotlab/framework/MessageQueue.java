@@ -0,0 +1,70 @@
+package org.myrobotlab.framework;
+
+/**
+ * Storage strategy behind a service's {@link Inbox} and {@link Outbox}. Many
+ * threads may add messages, but only a single thread (the inbox or outbox
+ * thread) removes them.
+ *
+ * The queue owns the "maxQueue" and "blocking" semantics. When blocking is
+ * true add will wait until there is room, when blocking is false add will
+ * return false if the message could not be accepted (buffer overrun).
+ *
+ * @author GroG
+ *
+ */
+public interface MessageQueue {
+
+  /**
+   * the original synchronized LinkedList with wait/notifyAll
+   */
+  static public final String LINKED = "LINKED";
+
+  /**
+   * bounded array ring, lock-free multi-producer single-consumer with
+   * park/unpark wakeups
+   */
+  static public final String MPSC = "MPSC";
+
+  /**
+   * enqueue a message
+   *
+   * @param msg
+   *          - message to add
+   * @return false if the queue was full and the message was dropped
+   */
+  public boolean add(Message msg);
+
+  /**
+   * waits until a message is available and removes it - single consumer only
+   *
+   * @return the oldest message on the queue
+   * @throws InterruptedException
+   *           if the consuming thread was interrupted while waiting
+   */
+  public Message take() throws InterruptedException;
+
+  /**
+   * removes the oldest message - single consumer only
+   *
+   * @return the message or null if the queue is empty
+   */
+  public Message poll();
+
+  public int size();
+
+  public void clear();
+
+  public int getMaxQueueSize();
+
+  public void setMaxQueueSize(int size);
+
+  public boolean isBlocking();
+
+  public void setBlocking(boolean blocking);
+
+  /**
+   * @return type of queue e.g. LINKED or MPSC
+   */
+  public String getType();
+
+}
@@ -3,12 +3,14 @@ package org.myrobotlab.framework;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.myrobotlab.codec.CodecUtils;
 import org.myrobotlab.logging.LoggerFactory;
@@ -137,6 +139,15 @@ public class MethodCache {
 
   Map<String, MethodIndex> objectCache = new TreeMap<>();
 
+  /**
+   * resolved invokers - class -&gt; method name -&gt; invokers for each seen set
+   * of argument classes. Lookups are identity comparisons of the actual
+   * parameter classes, no keys are built on the invoke path.
+   */
+  Map<Class<?>, Map<String, MethodInvoker[]>> invokerCache = new ConcurrentHashMap<>();
+
+  final static MethodInvoker[] NO_INVOKERS = new MethodInvoker[0];
+
   protected MethodCache() {
   }
 
@@ -241,6 +252,7 @@ public class MethodCache {
    */
   public void clear() {
     objectCache.clear();
+    invokerCache.clear();
   }
 
   public int getObjectSize() {
@@ -284,6 +296,53 @@ public class MethodCache {
     return getMethod(objectType, methodName, paramTypes);
   }
 
+  /**
+   * Hot path for in-process invoking. Returns a cached invoker for the class,
+   * method name and the actual classes of the parameters. The first call for a
+   * new combination resolves through getMethod, later calls only compare
+   * classes.
+   * 
+   * @param objectType
+   *          - the object to invoke against
+   * @param methodName
+   *          - method name
+   * @param params
+   *          - actual parameters
+   * @return the invoker or null if no method matches
+   * @throws ClassNotFoundException
+   */
+  public MethodInvoker getInvoker(Class<?> objectType, String methodName, Object... params) throws ClassNotFoundException {
+    Map<String, MethodInvoker[]> byName = invokerCache.get(objectType);
+    if (byName != null) {
+      MethodInvoker[] invokers = byName.get(methodName);
+      if (invokers != null) {
+        for (int i = 0; i < invokers.length; ++i) {
+          if (invokers[i].matches(params)) {
+            return invokers[i];
+          }
+        }
+      }
+    }
+
+    // slow path - resolve and remember
+    Class<?>[] paramTypes = getParamTypes(params);
+    Method method = getMethod(objectType, methodName, paramTypes);
+    if (method == null) {
+      return null;
+    }
+    MethodInvoker invoker = new MethodInvoker(method, paramTypes);
+    if (byName == null) {
+      byName = invokerCache.computeIfAbsent(objectType, k -> new ConcurrentHashMap<>());
+    }
+    synchronized (byName) {
+      MethodInvoker[] invokers = byName.getOrDefault(methodName, NO_INVOKERS);
+      MethodInvoker[] grown = Arrays.copyOf(invokers, invokers.length + 1);
+      grown[invokers.length] = invoker;
+      byName.put(methodName, grown);
+    }
+    return invoker;
+  }
+
   public Class<?>[] getParamTypes(Object... params) {
     Class<?>[] paramTypes = null;
     if (params != null) {
@@ -414,8 +473,8 @@ public class MethodCache {
 
     Object retobj = null;
     MethodCache cache = MethodCache.getInstance();
-    Method method = cache.getMethod(obj.getClass(), methodName, params);
-    retobj = method.invoke(obj, params);
+    MethodInvoker invoker = cache.getInvoker(obj.getClass(), methodName, params);
+    retobj = invoker.invoke(obj, params);
     out(methodName, retobj); // <-- FIXME clean this up !!!
 
     return retobj;
@@ -0,0 +1,172 @@
+package org.myrobotlab.framework;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.List;
+
+import org.myrobotlab.logging.LoggerFactory;
+import org.slf4j.Logger;
+
+/**
+ * A resolved, ready to call method for one (class, method name, argument
+ * classes) combination. The MethodCache hands these out so the hot invoke path
+ * does not need to build type name arrays or string keys for every message.
+ *
+ * The reflected Method is converted once into a MethodHandle with a generic
+ * (Object, Object[])Object shape so it can be called with invokeExact. If a
+ * handle can not be made (e.g. module access restrictions) the invoker falls
+ * back to Method.invoke.
+ *
+ * @author GroG
+ *
+ */
+public class MethodInvoker {
+
+  public final static Logger log = LoggerFactory.getLogger(MethodInvoker.class);
+
+  final static MethodType GENERIC = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+  /**
+   * the argument classes this invoker was resolved for - null entries are null
+   * parameters
+   */
+  final Class<?>[] argClasses;
+
+  final Method method;
+
+  final MethodHandle handle;
+
+  /**
+   * parameter types of the method with primitives boxed - to check arguments
+   * before calling the handle
+   */
+  final Class<?>[] paramTypes;
+
+  final Class<?>[] declaredTypes;
+
+  public MethodInvoker(Method method, Class<?>[] argClasses) {
+    this.method = method;
+    this.argClasses = argClasses;
+    this.handle = createHandle(method);
+    Class<?>[] types = method.getParameterTypes();
+    declaredTypes = types;
+    paramTypes = new Class<?>[types.length];
+    for (int i = 0; i < types.length; ++i) {
+      paramTypes[i] = (types[i].isPrimitive()) ? MethodType.methodType(types[i]).wrap().returnType() : types[i];
+    }
+  }
+
+  /**
+   * widening of a boxed argument to a primitive parameter, as Method.invoke
+   * allows e.g. an Integer for a long
+   */
+  static boolean widens(Class<?> from, Class<?> to) {
+    if (!to.isPrimitive() || to == char.class || to == boolean.class) {
+      return false;
+    }
+    int t = WIDENING.indexOf(MethodType.methodType(to).wrap().returnType());
+    if (from == Character.class) {
+      // char widens to int and up
+      return t >= WIDENING.indexOf(Integer.class);
+    }
+    int f = WIDENING.indexOf(from);
+    return f >= 0 && f <= t;
+  }
+
+  final static List<Class<?>> WIDENING = Arrays.asList(Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class);
+
+  /**
+   * argument mismatches are reported like Method.invoke does - as an
+   * IllegalArgumentException, not as something the target threw
+   */
+  final void checkArguments(Object[] params) {
+    int length = (params == null) ? 0 : params.length;
+    if (length != paramTypes.length) {
+      throw new IllegalArgumentException(String.format("wrong number of arguments for %s - %d expected %d", method.getName(), length, paramTypes.length));
+    }
+    for (int i = 0; i < length; ++i) {
+      Object param = params[i];
+      if (param == null) {
+        if (declaredTypes[i].isPrimitive()) {
+          throw new IllegalArgumentException(String.format("null for primitive parameter %d of %s", i, method.getName()));
+        }
+      } else if (!paramTypes[i].isInstance(param) && !widens(param.getClass(), declaredTypes[i])) {
+        throw new IllegalArgumentException(String.format("argument type mismatch for parameter %d of %s - %s is not a %s", i, method.getName(), param.getClass().getName(), paramTypes[i].getName()));
+      }
+    }
+  }
+
+  static MethodHandle createHandle(Method method) {
+    try {
+      method.setAccessible(true);
+      MethodHandle mh = MethodHandles.lookup().unreflect(method);
+      if (Modifier.isStatic(method.getModifiers())) {
+        // normalize to take a (ignored) receiver
+        mh = MethodHandles.dropArguments(mh, 0, Object.class);
+      }
+      int arity = method.getParameterTypes().length;
+      mh = mh.asType(MethodType.genericMethodType(arity + 1));
+      return mh.asSpreader(Object[].class, arity).asType(GENERIC);
+    } catch (Exception e) {
+      log.debug("could not create method handle for {} - using reflection", method, e);
+    }
+    return null;
+  }
+
+  /**
+   * @param params
+   *          actual parameters
+   * @return true if this invoker was resolved for exactly these parameter
+   *         classes
+   */
+  final public boolean matches(Object[] params) {
+    int length = (params == null) ? 0 : params.length;
+    if (length != argClasses.length) {
+      return false;
+    }
+    for (int i = 0; i < length; ++i) {
+      Class<?> c = (params[i] == null) ? null : params[i].getClass();
+      if (c != argClasses[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * invoke with the same contract as Method.invoke - exceptions thrown by the
+   * target are wrapped in an InvocationTargetException, arguments that do not
+   * fit the method throw an IllegalArgumentException
+   *
+   * @param obj
+   *          target
+   * @param params
+   *          parameters
+   * @return the return value or null for void methods
+   * @throws IllegalAccessException
+   *           e
+   * @throws InvocationTargetException
+   *           e
+   */
+  final public Object invoke(Object obj, Object... params) throws IllegalAccessException, InvocationTargetException {
+    if (handle == null) {
+      return method.invoke(obj, params);
+    }
+    checkArguments(params);
+    try {
+      return (Object) handle.invokeExact(obj, params);
+    } catch (Throwable t) {
+      throw new InvocationTargetException(t);
+    }
+  }
+
+  public Method getMethod() {
+    return method;
+  }
+
+}
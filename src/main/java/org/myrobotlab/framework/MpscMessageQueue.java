@@ -0,0 +1,194 @@
+package org.myrobotlab.framework;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.myrobotlab.logging.LoggerFactory;
+import org.slf4j.Logger;
+
+/**
+ * <pre>
+ * Bounded, array based, lock-free multi-producer / single-consumer message queue.
+ *
+ * Producers claim a slot by CAS on the producer index, then publish the message
+ * into the slot. The single consumer reads slots in order and clears them.
+ * A waiting consumer parks and is unparked by the producer which publishes -
+ * there is no shared monitor, so publishers never contend on a lock and never
+ * wake threads that have nothing to do.
+ *
+ * Capacity is fixed at construction (rounded up to a power of 2), maxQueue can be
+ * lowered later but not raised past the capacity.
+ *
+ * Only ONE thread may call take/poll/clear at a time.
+ * </pre>
+ */
+public class MpscMessageQueue implements MessageQueue {
+
+  public final static Logger log = LoggerFactory.getLogger(MpscMessageQueue.class);
+
+  /**
+   * how long a blocking producer backs off when the queue is full
+   */
+  final static long FULL_BACKOFF_NS = TimeUnit.MICROSECONDS.toNanos(100);
+
+  final AtomicReferenceArray<Message> buffer;
+  final int mask;
+  final int capacity;
+
+  final AtomicLong producerIndex = new AtomicLong();
+  final AtomicLong consumerIndex = new AtomicLong();
+
+  /**
+   * set by the consumer before parking - producers unpark it
+   */
+  volatile Thread waiter = null;
+
+  volatile int maxQueue;
+  volatile boolean blocking = false;
+
+  public MpscMessageQueue() {
+    this(1024);
+  }
+
+  public MpscMessageQueue(int maxQueue) {
+    this(maxQueue, false);
+  }
+
+  public MpscMessageQueue(int maxQueue, boolean blocking) {
+    if (maxQueue < 1) {
+      maxQueue = 1;
+    }
+    int size = 1;
+    while (size < maxQueue) {
+      size <<= 1;
+    }
+    this.capacity = size;
+    this.mask = size - 1;
+    this.buffer = new AtomicReferenceArray<>(size);
+    this.maxQueue = maxQueue;
+    this.blocking = blocking;
+  }
+
+  @Override
+  public boolean add(Message msg) {
+    long p;
+    while (true) {
+      p = producerIndex.get();
+      if (p - consumerIndex.get() >= maxQueue) {
+        // full
+        if (!blocking) {
+          return false;
+        }
+        LockSupport.parkNanos(this, FULL_BACKOFF_NS);
+        continue;
+      }
+      if (producerIndex.compareAndSet(p, p + 1)) {
+        break;
+      }
+    }
+
+    // publish into the claimed slot
+    buffer.set((int) p & mask, msg);
+
+    Thread t = waiter;
+    if (t != null) {
+      LockSupport.unpark(t);
+    }
+    return true;
+  }
+
+  @Override
+  public Message poll() {
+    long c = consumerIndex.get();
+    int index = (int) c & mask;
+    Message msg = buffer.get(index);
+    if (msg == null) {
+      if (c == producerIndex.get()) {
+        // empty
+        return null;
+      }
+      // a producer has claimed the slot but not yet published - it will be
+      // there momentarily
+      do {
+        Thread.yield();
+        msg = buffer.get(index);
+      } while (msg == null);
+    }
+    buffer.lazySet(index, null);
+    consumerIndex.lazySet(c + 1);
+    return msg;
+  }
+
+  @Override
+  public Message take() throws InterruptedException {
+    Message msg = poll();
+    while (msg == null) {
+      waiter = Thread.currentThread();
+      // re-check after announcing so a producer's publish cannot be missed
+      msg = poll();
+      if (msg == null) {
+        LockSupport.park(this);
+        if (Thread.interrupted()) {
+          waiter = null;
+          throw new InterruptedException();
+        }
+        msg = poll();
+      }
+      waiter = null;
+    }
+    return msg;
+  }
+
+  @Override
+  public int size() {
+    // read consumer first so the difference can not go negative
+    long c = consumerIndex.get();
+    long p = producerIndex.get();
+    return (int) (p - c);
+  }
+
+  @Override
+  public void clear() {
+    while (poll() != null) {
+    }
+  }
+
+  @Override
+  public int getMaxQueueSize() {
+    return maxQueue;
+  }
+
+  @Override
+  public void setMaxQueueSize(int size) {
+    if (size > capacity) {
+      log.warn("requested max queue size {} larger than ring capacity {} - using {}", size, capacity, capacity);
+      size = capacity;
+    }
+    if (size < 1) {
+      size = 1;
+    }
+    maxQueue = size;
+  }
+
+  @Override
+  public boolean isBlocking() {
+    return blocking;
+  }
+
+  @Override
+  public void setBlocking(boolean blocking) {
+    this.blocking = blocking;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  @Override
+  public String getType() {
+    return MPSC;
+  }
+
+}
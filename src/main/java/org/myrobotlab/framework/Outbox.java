@@ -28,8 +28,6 @@ package org.myrobotlab.framework;
 import java.io.Serializable;
 import java.net.URI;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
@@ -38,6 +36,7 @@ import org.myrobotlab.codec.CodecUtils;
 import org.myrobotlab.framework.interfaces.MessageListener;
 import org.myrobotlab.framework.interfaces.NameProvider;
 import org.myrobotlab.framework.interfaces.ServiceInterface;
+import org.myrobotlab.framework.interfaces.ThreadSafeSubscriber;
 import org.myrobotlab.logging.LoggerFactory;
 import org.myrobotlab.service.Runtime;
 import org.myrobotlab.service.interfaces.Gateway;
@@ -62,27 +61,32 @@ public class Outbox implements Runnable, Serializable {
   static public final String PROCESSANDBROADCAST = "PROCESSANDBROADCAST";
 
   NameProvider myService = null;
-  LinkedList<Message> msgBox = new LinkedList<Message>();
+  transient MessageQueue msgBox = Inbox.createQueue(ExecutionMode.getDefaultQueueType(), 1024, false, false);
   private boolean isRunning = false;
-  private boolean blocking = false;
-  int maxQueue = 1024;
+  /**
+   * deliver local publishes on the publishing thread - see setDirectRouting
+   */
+  boolean directRouting = false;
+  // must stay 1 - queues are single consumer
   int initialThreadCount = 1;
   transient ArrayList<Thread> outboxThreadPool = new ArrayList<Thread>();
 
   /**
-   * pub/sub listeners - HashMap &lt; {topic}, List {listeners} &gt;
+   * pub/sub listeners - {topic} -&gt; copy on write array of {listeners}
    */
-  public HashMap<String, List<MRLListener>> notifyList = new HashMap<String, List<MRLListener>>();
+  public SubscriptionTable notifyList = new SubscriptionTable();
 
   List<MessageListener> listeners = new ArrayList<MessageListener>();
 
+  transient ServiceMetrics metrics;
+
   public Outbox(NameProvider myService) {
     this.myService = myService;
   }
 
   public Set<String> getAttached() {
     Set<String> unique = new TreeSet<>();
-    for (List<MRLListener> subcribers : notifyList.values()) {
+    for (MRLListener[] subcribers : notifyList.values()) {
       for (MRLListener listener : subcribers) {
         unique.add(listener.callbackName);
       }
@@ -93,36 +97,42 @@ public class Outbox implements Runnable, Serializable {
   // TODO - config to put message in block mode - with no buffer overrun
   // TODO - config to drop message without buffer overrun e.g. like UDP
   public void add(Message msg) {
+    if (metrics != null && msg.getName() == null) {
+      metrics.samplePublish(msg.sendingMethod);
+    }
+
+    if (directRouting && msg.getName() == null) {
+      // local publish fast path - no queue, no thread hand off
+      for (MessageListener ml : listeners) {
+        ml.onMessage(msg);
+      }
+      broadcast(msg);
+      return;
+    }
+
     // chase network bugs
     // log.error(String.format("%s.outbox.add(msg) %s.%s --> %s.%s",
     // myService.getName(), msg.sender, msg.sendingMethod, msg.name,
     // msg.method));
-    synchronized (msgBox) {
-      while (blocking && (msgBox.size() >= maxQueue)) {
-        // queue "full"
-        try {
-          // log.debug("outbox enque msg WAITING ");
-          msgBox.wait(); // Limit the size
-        } catch (InterruptedException ex) {
-          log.debug("outbox add enque msg INTERRUPTED ");
-        }
-      }
-
-      // we warn if over 10 messages are in the queue - but we will still
-      // process them
-      if (msgBox.size() > maxQueue) {
+    // we warn if over maxQueue messages are in the queue - the linked queue
+    // will still process them, a bounded queue will drop
+    if (msgBox.size() > msgBox.getMaxQueueSize()) {
+      log.warn("{} outbox BUFFER OVERRUN size {} Dropping message to {}.{}", myService.getName(), msgBox.size(), msg.name, msg.method);
+    }
 
-        log.warn("{} outbox BUFFER OVERRUN size {} Dropping message to {}.{}", myService.getName(), msgBox.size(), msg.name, msg.method);
+    if (!msgBox.add(msg)) {
+      if (metrics != null) {
+        metrics.outboxDropped();
       }
-      msgBox.addFirst(msg);
+      log.warn("{} outbox full size {} dropped message to {}.{}", myService.getName(), msgBox.size(), msg.name, msg.method);
+      return;
+    }
 
-      // Logging.logTime(String.format("outbox %s size %d",myService.getName(),
-      // msgBox.size()));
+    // Logging.logTime(String.format("outbox %s size %d",myService.getName(),
+    // msgBox.size()));
 
-      if (log.isDebugEnabled()) {
-        log.debug("msg [{}]", msg.toString());
-      }
-      msgBox.notifyAll(); // must own the lock
+    if (log.isDebugEnabled()) {
+      log.debug("msg [{}]", msg.toString());
     }
 
     // now that it's actually in the queue. let's notify the listeners
@@ -137,27 +147,17 @@ public class Outbox implements Runnable, Serializable {
     isRunning = true;
     while (isRunning) {
       Message msg = null;
-      synchronized (msgBox) {
-        try {
-          while (msgBox.size() == 0) {
-            // log.debug("outbox run WAITING ");
-            msgBox.wait(); // must own the lock
-          }
-        } catch (InterruptedException ex) {
-          log.debug("outbox run INTERRUPTED ");
-          // msgBox.notifyAll();
-          isRunning = false;
-          return;
-        }
-        msg = msgBox.removeLast();
-        // chase network bugs
-        // log.error(String.format("%s.outbox.run(msg) %s.%s -- %s.%s ",
-        // myService.getName(), msg.sender, msg.sendingMethod, msg.name,
-        // msg.method));
-        // log.debug(String.format("removed from msgBox size now %d",
-        // msgBox.size()));
-        msgBox.notifyAll();
+      try {
+        msg = msgBox.take();
+      } catch (InterruptedException ex) {
+        log.debug("outbox run INTERRUPTED ");
+        isRunning = false;
+        return;
       }
+      // chase network bugs
+      // log.error(String.format("%s.outbox.run(msg) %s.%s -- %s.%s ",
+      // myService.getName(), msg.sender, msg.sendingMethod, msg.name,
+      // msg.method));
 
       // RELAY OTHER SERVICE'S MSGS
       // if the msg name is not my name - then
@@ -174,34 +174,142 @@ public class Outbox implements Runnable, Serializable {
       }
 
       // BROADCASTS name=="" WILL DROP DOWN and be processed here
-      if (notifyList.size() != 0) {
-        // get the value for the source method
-        List<MRLListener> subList = notifyList.get(msg.sendingMethod);
-        if (subList == null) {
-          log.debug("no additional routes for {}.{} ", msg.sender, msg.sendingMethod);
-          // This will cause issues in broadcasts
-          continue;
-        }
+      broadcast(msg);
 
-        for (int i = 0; i < subList.size(); ++i) {
-          MRLListener listener = subList.get(i);
-          msg.setName(listener.callbackName);
-          msg.method = listener.callbackMethod;
-          send(msg);
+    } // while (isRunning)
+  }
 
-          // must make new for internal queues
-          // otherwise you'll change the name on
-          // existing enqueued messages
-          msg = new Message(msg);
-        }
+  /**
+   * fan out a published (nameless) message to all subscribers of its sending
+   * method
+   */
+  void broadcast(Message msg) {
+    if (notifyList.size() == 0) {
+      if (log.isDebugEnabled()) {
+        log.debug("{}/{}({}) notifyList is empty", msg.getName(), msg.method, CodecUtils.getParameterSignature(msg.data));
+      }
+      return;
+    }
+
+    // get the value for the source method
+    MRLListener[] subList = notifyList.get(msg.sendingMethod);
+    if (subList == null) {
+      log.debug("no additional routes for {}.{} ", msg.sender, msg.sendingMethod);
+      // This will cause issues in broadcasts
+      return;
+    }
+
+    for (int i = 0; i < subList.length; ++i) {
+      MRLListener listener = subList[i];
+      msg.setName(listener.callbackName);
+      msg.method = listener.callbackMethod;
+      if (listener.delivery != null) {
+        listener.delivery.deliver(this, msg);
       } else {
-        if (log.isDebugEnabled()) {
-          log.debug("{}/{}({}) notifyList is empty", msg.getName(), msg.method, CodecUtils.getParameterSignature(msg.data));
+        send(msg, listener);
+      }
+
+      // must make new for internal queues
+      // otherwise you'll change the name on
+      // existing enqueued messages
+      msg = new Message(msg);
+    }
+  }
+
+  /**
+   * send to a subscriber using its resolved route if it has one - resolves and
+   * remembers the route on first use
+   */
+  final void send(final Message msg, final MRLListener listener) {
+    send(msg, listener, directRouting);
+  }
+
+  /**
+   * @param inline
+   *          - allow invoking a ThreadSafeSubscriber on this thread
+   */
+  final void send(final Message msg, final MRLListener listener, boolean inline) {
+    ServiceInterface route = route(listener);
+    if (route == null) {
+      // remote or not yet registered - normal lookup
+      send(msg);
+      return;
+    }
+
+    if (inline && route instanceof ThreadSafeSubscriber) {
+      // inline on the publishing thread - skipping the inbox, so check for a
+      // waitFor here
+      if (PendingCalls.getInstance().complete(msg)) {
+        return;
+      }
+      if (!(route instanceof Service) || ((Service) route).preProcessHook(msg)) {
+        route.invoke(msg);
+      }
+    } else {
+      route.in(msg);
+    }
+  }
+
+  final ServiceInterface route(final MRLListener listener) {
+    ServiceInterface route = listener.route;
+    if (route == null) {
+      route = resolveRoute(listener.callbackName);
+      listener.route = route;
+      // released while it was resolved - unregister removes it from the
+      // registry before it drops the routes
+      if (route != null && Runtime.getService(listener.callbackName) != route) {
+        listener.route = null;
+        return null;
+      }
+    }
+    return route;
+  }
+
+  /**
+   * @param name
+   *          - subscriber name
+   * @return the service if it is a local in-process service, null otherwise
+   */
+  static public ServiceInterface resolveRoute(String name) {
+    ServiceInterface si = Runtime.getService(name);
+    if (si == null || si.getInstanceId() != null || !Platform.getLocalInstance().getId().equals(si.getId())) {
+      return null;
+    }
+    return si;
+  }
+
+  /**
+   * drop any resolved routes to a service which is being released - they will
+   * be resolved again by name on next delivery
+   * 
+   * @param si
+   *          - the released service
+   */
+  public void invalidateRoutes(ServiceInterface si) {
+    for (MRLListener[] subscribers : notifyList.values()) {
+      for (MRLListener listener : subscribers) {
+        if (listener.route == si) {
+          listener.route = null;
         }
-        continue;
       }
+    }
+  }
 
-    } // while (isRunning)
+  public boolean isDirectRouting() {
+    return directRouting;
+  }
+
+  /**
+   * In direct routing mode published messages skip the outbox queue and thread.
+   * They are delivered on the publishing thread directly to local subscribers'
+   * inboxes, or invoked inline for subscribers which are ThreadSafeSubscribers.
+   * Messages relayed or sent to remote subscribers still go through the queue.
+   * 
+   * @param b
+   *          - true to deliver directly
+   */
+  public void setDirectRouting(boolean b) {
+    directRouting = b;
   }
 
   public int size() {
@@ -210,7 +318,7 @@ public class Outbox implements Runnable, Serializable {
 
   public void start() {
     for (int i = outboxThreadPool.size(); i < initialThreadCount; ++i) {
-      Thread t = new Thread(this, myService.getName() + "_outbox_" + i);
+      Thread t = ExecutionMode.newThread(this, myService.getName() + "_outbox_" + i);
       outboxThreadPool.add(t);
       t.start();
     }
@@ -226,24 +334,48 @@ public class Outbox implements Runnable, Serializable {
     }
   }
 
-  public LinkedList<Message> getMsgBox() {
+  public MessageQueue getMsgBox() {
     return msgBox;
   }
 
   public int getMaxQueueSize() {
-    return maxQueue;
+    return msgBox.getMaxQueueSize();
   }
 
   public void setMaxQueueSize(int size) {
-    maxQueue = size;
+    msgBox.setMaxQueueSize(size);
   }
 
   public boolean isBlocking() {
-    return blocking;
+    return msgBox.isBlocking();
   }
 
   public void setBlocking(boolean blocking) {
-    this.blocking = blocking;
+    msgBox.setBlocking(blocking);
+  }
+
+  /**
+   * switch the queue implementation - LINKED or MPSC. Must be done while the
+   * outbox thread is not running, queued messages are moved to the new queue.
+   * 
+   * @param type
+   *          MessageQueue.LINKED or MessageQueue.MPSC
+   */
+  public void setQueueType(String type) {
+    MessageQueue newBox = Inbox.createQueue(type, msgBox.getMaxQueueSize(), msgBox.isBlocking(), false);
+    if (newBox == null || newBox.getType().equals(msgBox.getType())) {
+      return;
+    }
+    MessageQueue oldBox = msgBox;
+    Message msg = null;
+    while ((msg = oldBox.poll()) != null) {
+      newBox.add(msg);
+    }
+    msgBox = newBox;
+  }
+
+  public String getQueueType() {
+    return msgBox.getType();
   }
 
   public boolean isRunning() {
@@ -301,7 +433,7 @@ public class Outbox implements Runnable, Serializable {
    * remove ALL listeners/subscribers
    */
   public void reset() {
-    notifyList = new HashMap<String, List<MRLListener>>();
+    notifyList.clear();
   }
 
   /**
@@ -309,17 +441,8 @@ public class Outbox implements Runnable, Serializable {
    * 
    * @param name
    */
-  synchronized public void detach(String name) {
-    for (String topic : notifyList.keySet()) {
-      List<MRLListener> subscribers = notifyList.get(topic);
-      ArrayList<MRLListener> smallerList = new ArrayList<>();
-      for (MRLListener listener : subscribers) {
-        if (!listener.callbackName.equals(name)) {
-          smallerList.add(listener);
-        }
-      }
-      notifyList.put(topic, smallerList);
-    }
+  public void detach(String name) {
+    notifyList.removeSubscriber(name);
   }
 
 }
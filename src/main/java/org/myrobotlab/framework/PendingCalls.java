@@ -0,0 +1,148 @@
+package org.myrobotlab.framework;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <pre>
+ * Outstanding sendAsync / sendBlocking calls and waitFor waits of this
+ * process.
+ *
+ * calls  - msgId -&gt; future, completed by the RETURN message the callee
+ *          sends back with the same msgId, so any number of concurrent
+ *          calls to the same method can not be confused
+ * topics - {callback} -&gt; {subscriber} -&gt; futures, completed by the next
+ *          message published to that callback (waitFor) - keyed on the
+ *          callback first so other messages are passed with one lookup
+ *
+ * Every inbox checks arriving messages here before queuing them. Expiration
+ * is done by the TimeoutWheel - waiting costs no threads.
+ *
+ * Futures complete on the thread delivering the reply - use the *Async
+ * CompletableFuture methods for anything more than a quick callback.
+ * </pre>
+ */
+public class PendingCalls {
+
+  static private final PendingCalls instance = new PendingCalls();
+
+  final ConcurrentHashMap<Long, CompletableFuture<Object>> calls = new ConcurrentHashMap<>();
+
+  final ConcurrentHashMap<String, ConcurrentHashMap<String, Set<CompletableFuture<Object>>>> topics = new ConcurrentHashMap<>();
+
+  static public PendingCalls getInstance() {
+    return instance;
+  }
+
+  /**
+   * expect a RETURN message with msgId
+   *
+   * @param msgId
+   *          - correlation id of the request
+   * @param timeout
+   *          - ms to wait, null waits forever
+   * @param description
+   *          - for the timeout exception
+   * @return future completed with the return value, or exceptionally with a
+   *         TimeoutException
+   */
+  public CompletableFuture<Object> expect(long msgId, Integer timeout, String description) {
+    CompletableFuture<Object> future = new CompletableFuture<>();
+    calls.put(msgId, future);
+    expire(future, timeout, description);
+    future.whenComplete((ret, e) -> calls.remove(msgId, future));
+    return future;
+  }
+
+  /**
+   * expect the next message published to a callback
+   *
+   * @param subscriber
+   *          - subscriber full name
+   * @param callback
+   *          - callback method
+   * @param timeout
+   *          - ms to wait, null waits forever
+   * @param description
+   *          - for the timeout exception
+   * @return future completed with the published value, or exceptionally with
+   *         a TimeoutException
+   */
+  public CompletableFuture<Object> expect(String subscriber, String callback, Integer timeout, String description) {
+    CompletableFuture<Object> future = new CompletableFuture<>();
+    // add inside compute - atomic with complete removing the set
+    topics.compute(callback, (k, subscribers) -> {
+      if (subscribers == null) {
+        subscribers = new ConcurrentHashMap<>();
+      }
+      subscribers.computeIfAbsent(subscriber, s -> ConcurrentHashMap.newKeySet()).add(future);
+      return subscribers;
+    });
+    expire(future, timeout, description);
+    future.whenComplete((ret, e) -> {
+      topics.computeIfPresent(callback, (k, subscribers) -> {
+        subscribers.computeIfPresent(subscriber, (s, waiting) -> {
+          waiting.remove(future);
+          return waiting.isEmpty() ? null : waiting;
+        });
+        return subscribers.isEmpty() ? null : subscribers;
+      });
+    });
+    return future;
+  }
+
+  private void expire(CompletableFuture<Object> future, Integer timeout, String description) {
+    if (timeout == null) {
+      return;
+    }
+    TimeoutWheel.Timeout t = TimeoutWheel.getInstance().schedule(timeout, () -> {
+      future.completeExceptionally(new TimeoutException("timeout of %d for %s exceeded", timeout, description));
+    });
+    future.whenComplete((ret, e) -> t.cancel());
+  }
+
+  /**
+   * complete whatever is waiting on msg
+   *
+   * @param msg
+   *          - an arriving message
+   * @return true if msg completed a waiting call or waitFor - it should not be
+   *         invoked
+   */
+  public boolean complete(Message msg) {
+    if (Message.RETURN.equals(msg.status)) {
+      CompletableFuture<Object> future = calls.remove(msg.msgId);
+      if (future != null) {
+        future.complete(value(msg));
+        return true;
+      }
+      // nobody waits on this msgId - deliver it like any other message
+    }
+    ConcurrentHashMap<String, Set<CompletableFuture<Object>>> subscribers = topics.get(msg.getMethod());
+    if (subscribers == null || !subscribers.containsKey(msg.getFullName())) {
+      return false;
+    }
+    Set<CompletableFuture<Object>> waiting = subscribers.remove(msg.getFullName());
+    if (waiting == null) {
+      return false;
+    }
+    Object ret = value(msg);
+    for (CompletableFuture<Object> future : waiting) {
+      future.complete(ret);
+    }
+    return true;
+  }
+
+  private Object value(Message msg) {
+    return (msg.data == null || msg.data.length == 0) ? null : msg.data[0];
+  }
+
+  /**
+   * @return number of outstanding calls
+   */
+  public int size() {
+    return calls.size();
+  }
+
+}
@@ -49,10 +49,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
-import java.util.Timer;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 import org.myrobotlab.codec.CodecUtils;
 import org.myrobotlab.framework.interfaces.Attachable;
@@ -135,6 +136,11 @@ public abstract class Service implements Runnable, Serializable, ServiceInterfac
   transient protected Inbox inbox = null;
   transient protected Outbox outbox = null;
 
+  /**
+   * sampled queue latency, invoke time and publish rates
+   */
+  transient protected ServiceMetrics metrics = null;
+
   protected String serviceVersion = null;
 
   /**
@@ -169,7 +175,7 @@ public abstract class Service implements Runnable, Serializable, ServiceInterfac
   /**
    * a more capable task handler
    */
-  transient HashMap<String, Timer> tasks = new HashMap<String, Timer>();
+  transient HashMap<String, Task> tasks = new HashMap<String, Task>();
 
   // public final static String cfgDir = FileIO.getCfgDir();
 
@@ -453,6 +459,7 @@ public abstract class Service implements Runnable, Serializable, ServiceInterfac
 
     // setting resource directory
     String resourceDir = "resource" + fs + serviceType;
+    FileIO.extractServiceResources(serviceType);
 
     // overriden by src
     String override = "src" + fs + "main" + fs + "resources" + fs + "resource" + fs + serviceType;
@@ -642,6 +649,9 @@ public abstract class Service implements Runnable, Serializable, ServiceInterfac
 
     this.inbox = new Inbox(getFullName());
     this.outbox = new Outbox(this);
+    this.metrics = new ServiceMetrics(getName());
+    inbox.metrics = metrics;
+    outbox.metrics = metrics;
 
     File versionFile = new File(getResourceDir() + fs + "version.txt");
     if (versionFile.exists()) {
@@ -697,8 +707,21 @@ public abstract class Service implements Runnable, Serializable, ServiceInterfac
     addListener(data.get("topicMethod").toString(), data.get("callbackName").toString(), data.get("callbackMethod").toString());
   }
 
+  /**
+   * adds a MRL message listener to this service, replacing an equal one so a
+   * subscriber can change its delivery policy by subscribing again
+   * 
+   * @param listener
+   *          - topicMethod, callback and optional delivery policy
+   */
   public void addListener(MRLListener listener) {
-    addListener(listener.topicMethod, listener.callbackName, listener.callbackMethod);
+    listener.route = Outbox.resolveRoute(listener.callbackName);
+    listener.delivery = Delivery.create(listener);
+    if (outbox.notifyList.put(listener) == null) {
+      log.debug("adding addListener from {}.{} to {}.{}", this.getName(), listener.topicMethod, listener.callbackName, listener.callbackMethod);
+    } else {
+      log.debug("replacing MRLListener {} policy {}", listener, listener.policy);
+    }
   }
 
   public void addListener(String topicMethod, String callbackName) {
@@ -719,33 +742,27 @@ public abstract class Service implements Runnable, Serializable, ServiceInterfac
    *          - name of the method to send return data to
    */
   public void addListener(String topicMethod, String callbackName, String callbackMethod) {
-    MRLListener listener = new MRLListener(topicMethod, callbackName, callbackMethod);
-    if (outbox.notifyList.containsKey(listener.topicMethod)) {
-      // iterate through all looking for duplicate
-      boolean found = false;
-      List<MRLListener> nes = outbox.notifyList.get(listener.topicMethod);
-      for (int i = 0; i < nes.size(); ++i) {
-        MRLListener entry = nes.get(i);
-        if (entry.equals(listener)) {
-          log.debug("attempting to add duplicate MRLListener {}", listener);
-          found = true;
-          break;
-        }
-      }
-      if (!found) {
-        log.debug("adding addListener from {}.{} to {}.{}", this.getName(), listener.topicMethod, listener.callbackName, listener.callbackMethod);
-        nes.add(listener);
-      }
-    } else {
-      List<MRLListener> notifyList = new CopyOnWriteArrayList<MRLListener>();
-      notifyList.add(listener);
-      log.debug("adding addListener from {}.{} to {}.{}", this.getName(), listener.topicMethod, listener.callbackName, listener.callbackMethod);
-      outbox.notifyList.put(listener.topicMethod, notifyList);
-    }
+    addListener(new MRLListener(topicMethod, callbackName, callbackMethod));
+  }
+
+  public void addListener(String topicMethod, String callbackName, String callbackMethod, DeliveryPolicy policy) {
+    addListener(new MRLListener(topicMethod, callbackName, callbackMethod, policy));
+  }
+
+  /**
+   * @return true if anything is subscribed to the topic - lets a publisher
+   *         skip building data nobody is listening for
+   */
+  public boolean hasSubscribers(String topicMethod) {
+    MRLListener[] subList = outbox.notifyList.get(topicMethod);
+    return subList != null && subList.length > 0;
   }
 
   public boolean hasSubscribed(String listener, String topicMethod) {
-    List<MRLListener> nes = outbox.notifyList.get(topicMethod);
+    MRLListener[] nes = outbox.notifyList.get(topicMethod);
+    if (nes == null) {
+      return false;
+    }
     for (MRLListener ne : nes) {
       if (ne.callbackName.contentEquals(listener)) {
         return true;
@@ -780,22 +797,53 @@ public abstract class Service implements Runnable, Serializable, ServiceInterfac
    * @param params
    *          the params to pass
    */
-  synchronized public void addTask(String taskName, long intervalMs, long delayMs, String method, Object... params) {
+  public void addTask(String taskName, long intervalMs, long delayMs, String method, Object... params) {
+    addTask(taskName, intervalMs, delayMs, false, method, params);
+  }
+
+  /**
+   * add a task run by the runtime's shared TaskScheduler
+   * 
+   * @param taskName
+   *          task name
+   * @param intervalMs
+   *          how frequent in milliseconds - 0 runs once
+   * @param delayMs
+   *          the delay before the first run
+   * @param fixedRate
+   *          true - runs are intervalMs apart from the first run, false -
+   *          intervalMs between the end of a run and the start of the next
+   * @param method
+   *          the method
+   * @param params
+   *          the params to pass
+   */
+  synchronized public void addTask(String taskName, long intervalMs, long delayMs, boolean fixedRate, String method, Object... params) {
     if (tasks.containsKey(taskName)) {
       log.info("already have active task \"{}\"", taskName);
       return;
     }
-    Timer timer = new Timer(String.format("%s.timer", String.format("%s.%s", getName(), taskName)));
     Message msg = Message.createMessage(getName(), getName(), method, params);
-    Task task = new Task(this, taskName, intervalMs, msg);
-    timer.schedule(task, delayMs);
-    tasks.put(taskName, timer);
+    Task task = new Task(this, taskName, intervalMs, delayMs, fixedRate, msg);
+    TaskScheduler.getInstance().schedule(task);
+    tasks.put(taskName, task);
   }
 
-  public HashMap<String, Timer> getTasks() {
+  public HashMap<String, Task> getTasks() {
     return tasks;
   }
 
+  /**
+   * @return latency and jitter of this service's tasks
+   */
+  public List<TaskStats> getTaskStats() {
+    List<TaskStats> stats = new ArrayList<>();
+    for (Task task : tasks.values()) {
+      stats.add(task.getStats());
+    }
+    return stats;
+  }
+
   public boolean containsTask(String taskName) {
     return tasks.containsKey(taskName);
   }
@@ -803,34 +851,25 @@ public abstract class Service implements Runnable, Serializable, ServiceInterfac
   synchronized public void purgeTask(String taskName) {
     if (tasks.containsKey(taskName)) {
       log.info("remove task {}", taskName);
-      Timer timer = tasks.get(taskName);
-      if (timer != null) {
-        try {
-          timer.cancel();
-          timer.purge();
-          timer = null;
-          tasks.remove(taskName);
-        } catch (Exception e) {
-          log.info(e.getMessage());
-        }
+      Task task = tasks.remove(taskName);
+      if (task != null) {
+        TaskScheduler.getInstance().cancel(task);
       }
     } else {
       log.debug("purgeTask - task {} does not exist", taskName);
     }
   }
 
-  public void purgeTasks() {
-    for (String taskName : tasks.keySet()) {
-      Timer timer = tasks.get(taskName);
-      if (timer != null) {
-        try {
-          timer.purge();
-          timer.cancel();
-          timer = null;
-        } catch (Exception e) {
-          log.info(e.getMessage());
-        }
-      }
+  /**
+   * a one shot task has run - forget it so its name can be used again
+   */
+  synchronized void taskDone(Task task) {
+    tasks.remove(task.getName(), task);
+  }
+
+  synchronized public void purgeTasks() {
+    for (Task task : tasks.values()) {
+      TaskScheduler.getInstance().cancel(task);
     }
     tasks.clear();
   }
@@ -1030,7 +1069,7 @@ public abstract class Service implements Runnable, Serializable, ServiceInterfac
       return remote;
 
     } else {
-      return getOutbox().notifyList.get(key);
+      return getOutbox().notifyList.getList(key);
     }
   }
 
@@ -1061,6 +1100,43 @@ public abstract class Service implements Runnable, Serializable, ServiceInterfac
     return outbox;
   }
 
+  /**
+   * selects the queue implementation used by this service's inbox and outbox.
+   * MessageQueue.LINKED is the original synchronized LinkedList,
+   * MessageQueue.MPSC is a bounded lock-free ring which scales better with many
+   * publishing threads. Must be called before the service is started.
+   *
+   * @param type
+   *          MessageQueue.LINKED or MessageQueue.MPSC
+   */
+  public void setQueueType(String type) {
+    if (isRunning()) {
+      error("%s queue type can only be changed before the service is started", getName());
+      return;
+    }
+    inbox.setQueueType(type);
+    outbox.setQueueType(type);
+  }
+
+  public String getQueueType() {
+    return inbox.getQueueType();
+  }
+
+  /**
+   * deliver this service's local publishes directly to subscribers on the
+   * publishing thread instead of through the outbox thread
+   *
+   * @param b
+   *          true for direct routing
+   */
+  public void setDirectRouting(boolean b) {
+    outbox.setDirectRouting(b);
+  }
+
+  public boolean isDirectRouting() {
+    return outbox.isDirectRouting();
+  }
+
   @Override
   public String getSimpleName() {
     return simpleName;
@@ -1148,6 +1224,15 @@ public abstract class Service implements Runnable, Serializable, ServiceInterfac
 
     retobj = invokeOn(false, this, msg.method, msg.data);
 
+    if (msg.status != null && Message.BLOCKING.equals(msg.status)) {
+      // caller is waiting on this msgId - send the return value back
+      Message ret = Message.createMessage(getFullName(), msg.getSrcFullName(), CodecUtils.getCallbackTopicName(msg.method), retobj);
+      ret.msgId = msg.msgId;
+      ret.status = Message.RETURN;
+      ret.sendingMethod = msg.method;
+      send(ret);
+    }
+
     return retobj;
   }
 
@@ -1215,7 +1300,7 @@ public abstract class Service implements Runnable, Serializable, ServiceInterfac
         log.error("cannot invoke on a null object ! {}({})", methodName, MethodCache.formatParams(params));
         return null;
       }
-      Method method = cache.getMethod(obj.getClass(), methodName, params);
+      MethodInvoker method = cache.getInvoker(obj.getClass(), methodName, params);
       if (method == null) {
         error("could not find method %s.%s(%s)", obj.getClass().getSimpleName(), methodName, MethodCache.formatParams(params));
         return null; // should this be allowed to throw to a higher level ?
@@ -1223,21 +1308,24 @@ public abstract class Service implements Runnable, Serializable, ServiceInterfac
       retobj = method.invoke(obj, params);
 
       if (blockLocally) {
-        List<MRLListener> subList = outbox.notifyList.get(methodName);
+        MRLListener[] subList = outbox.notifyList.get(methodName);
         if (subList != null) {
+          // one data array for every subscriber - a gateway encodes it once,
+          // a null return is sent without data as createMessage does
+          Object[] data = (retobj == null) ? null : new Object[] { retobj };
           for (MRLListener listener : subList) {
 
-            Message msg = Message.createMessage(getFullName(), listener.callbackName, listener.callbackMethod, retobj);
+            Message msg = Message.createMessage(getFullName(), listener.callbackName, listener.callbackMethod, data);
             msg.sendingMethod = methodName;
 
             // correct? get local (default?) gateway
             Runtime runtime = Runtime.getInstance();
             if (runtime.isLocal(msg)) {
-              ServiceInterface si = Runtime.getService(listener.callbackName);
+              ServiceInterface si = (listener.route != null) ? listener.route : Runtime.getService(listener.callbackName);
               if (si == null) {
                 log.info("{} cannot callback to listener {} does not exist for {} ", getName(), listener.callbackName, listener.callbackMethod);
               } else {
-                Method m = cache.getMethod(si.getClass(), listener.callbackMethod, retobj);
+                MethodInvoker m = cache.getInvoker(si.getClass(), listener.callbackMethod, retobj);
                 m.invoke(si, retobj);
               }
             } else {
@@ -1388,6 +1476,20 @@ public abstract class Service implements Runnable, Serializable, ServiceInterfac
     return stats;
   }
 
+  /**
+   * sampled inbox wait and invoke latencies, publish rates and drop counts
+   * since the last resetServiceStats
+   * 
+   * @return the stats
+   */
+  public ServiceStats getServiceStats() {
+    return metrics.getStats(inbox.size(), outbox.size());
+  }
+
+  public void resetServiceStats() {
+    metrics.reset();
+  }
+
   /**
    * publishing point for the whole service the entire Service is published
    * 
@@ -1486,15 +1588,8 @@ public abstract class Service implements Runnable, Serializable, ServiceInterfac
 
   @Override
   public void removeListener(String outMethod, String serviceName, String inMethod) {
-    if (outbox.notifyList.containsKey(outMethod)) {
-      List<MRLListener> nel = outbox.notifyList.get(outMethod);
-      for (int i = 0; i < nel.size(); ++i) {
-        MRLListener target = nel.get(i);
-        if (target.callbackName.compareTo(serviceName) == 0) {
-          nel.remove(i);
-          log.info("removeListener requested {}.{} to be removed", serviceName, outMethod);
-        }
-      }
+    if (outbox.notifyList.remove(outMethod, serviceName) > 0) {
+      log.info("removeListener requested {}.{} to be removed", serviceName, outMethod);
     } else {
       log.info("removeListener requested {}.{} to be removed - but does not exist", serviceName, outMethod);
     }
@@ -1517,6 +1612,18 @@ public abstract class Service implements Runnable, Serializable, ServiceInterfac
         // so, make sure to release prior to continue
         Message m = getMsg();
 
+        // latest-value-wins placeholder - pick up the newest data
+        if (m.coalesced != null) {
+          m.coalesced.take(m);
+          m.coalesced = null;
+        }
+
+        // sampled for metrics
+        boolean sampled = m.enqueueNs != 0;
+        if (sampled) {
+          metrics.recordInboxWait(System.nanoTime() - m.enqueueNs);
+        }
+
         if (!preRoutingHook(m)) {
           continue;
         }
@@ -1544,8 +1651,13 @@ public abstract class Service implements Runnable, Serializable, ServiceInterfac
           continue;
         }
 
-        Object ret = invoke(m);
-
+        if (sampled) {
+          long start = System.nanoTime();
+          invoke(m);
+          metrics.recordInvoke(m.method, System.nanoTime() - start);
+        } else {
+          invoke(m);
+        }
       }
     } catch (InterruptedException edown) {
       info("shutting down");
@@ -1657,10 +1769,10 @@ public abstract class Service implements Runnable, Serializable, ServiceInterfac
   }
 
   /**
-   * In theory the only reason this should need to use synchronized wait/notify
-   * is when the msg destination is in another remote process. sendBlocking
-   * should either invoke directly or use a gateway's sendBlockingRemote. To use
-   * a gateways sendBlockingRemote - the msg must have a remote src
+   * In theory the only reason this should need to wait is when the msg
+   * destination is in another remote process. sendBlocking invokes local
+   * services directly, remote ones are sent the msg and the caller waits on
+   * sendAsync's future
    * 
    * <pre>
    * after attach:
@@ -1675,18 +1787,50 @@ public abstract class Service implements Runnable, Serializable, ServiceInterfac
     if (Runtime.getInstance().isLocal(msg)) {
       return invoke(msg);
     } else {
-      return waitOn(msg.getFullName(), msg.getMethod(), timeout, msg);
+      return waitOn(sendAsync(msg, timeout));
+    }
+  }
+
+  public CompletableFuture<Object> sendAsync(String name, String method, Object... data) {
+    // default 1 second timeout - FIXME CONFIGURABLE
+    return sendAsync(name, 1000, method, data);
+  }
+
+  public CompletableFuture<Object> sendAsync(String name, Integer timeout, String method, Object... data) {
+    Message msg = Message.createMessage(getFullName(), name, method, data);
+    return sendAsync(msg, timeout);
+  }
+
+  /**
+   * Send a msg and get a future for its return value. The msg gets a process
+   * unique msgId and BLOCKING status, the callee sends the return value back
+   * as a RETURN message with the same msgId - concurrent calls to the same
+   * method each get their own reply. No thread waits, timeouts are expired by
+   * the TimeoutWheel.
+   * 
+   * @param msg
+   *          - the request
+   * @param timeout
+   *          - ms until the future completes exceptionally with a
+   *          TimeoutException, null never times out
+   * @return future of the return value
+   */
+  public CompletableFuture<Object> sendAsync(Message msg, Integer timeout) {
+    if (msg.sender == null || msg.sender.length() == 0) {
+      msg.sender = getFullName();
     }
+    msg.msgId = Runtime.getUniqueID();
+    msg.status = Message.BLOCKING;
+    CompletableFuture<Object> future = PendingCalls.getInstance().expect(msg.msgId, timeout, String.format("%s.%s", msg.getFullName(), msg.getMethod()));
+    send(msg);
+    return future;
   }
 
   /**
-   * This method waits on a remote topic by sending a subscription and waiting
-   * for a message to come back. It is used both by sendBlocking and waitFor to
-   * normalize the code - they are equivalent. The only difference between
-   * sendBlocking and waitFor is sendBlocking sends an activating msg to the
-   * remote topic. If timeout occurs before a return message, a TimeoutException
-   * is thrown. This is important to distinguish between a timeout and a valid
-   * null return.
+   * Waits for the next publish of a remote topic by subscribing to it. If
+   * timeout occurs before a message, the future completes exceptionally with a
+   * TimeoutException. This is important to distinguish between a timeout and a
+   * valid null return.
    * 
    * @param fullName
    *          - service name
@@ -1694,72 +1838,43 @@ public abstract class Service implements Runnable, Serializable, ServiceInterfac
    *          - method name
    * @param timeout
    *          - max time to wait in ms
-   * @param sendMsg
-   *          - optional message to send to the remote topic
-   * @return
-   * @throws InterruptedException
-   * @throws TimeoutException
+   * @return future of the published value
    */
-  protected Object waitOn(String fullName, String method, Integer timeout, Message sendMsg) throws InterruptedException, TimeoutException {
-
-    String subscriber = null;
-    if (sendMsg != null) {
-      // InProcCli proxies - so the subscription needs to be from the sender NOT
-      // from runtime !
-      subscriber = sendMsg.getSrcFullName();
-    } else {
-      subscriber = getFullName();
-    }
-
-    // put in-process lock in map
+  public CompletableFuture<Object> waitForAsync(String fullName, String method, Integer timeout) {
+    String subscriber = getFullName();
     String callbackMethod = CodecUtils.getCallbackTopicName(method);
-    String blockingKey = String.format("%s.%s", subscriber, callbackMethod);
-    Object[] blockingLockContainer = null;
-    if (!inbox.blockingList.containsKey(blockingKey)) {
-      blockingLockContainer = new Object[1];
-      inbox.blockingList.put(blockingKey, blockingLockContainer);
-    } else {
-      // if it already exists - other threads are already waiting for the
-      // same callback ...
-      blockingLockContainer = inbox.blockingList.get(blockingKey);
-    }
-
-    // send subscription
-    subscribe(fullName, method, subscriber, CodecUtils.getCallbackTopicName(method));
-
-    if (sendMsg != null) {
-      // possible race condition - counting on the delay of
-      // starting a thread for the program counter to reach the
-      // wait before the msg is sent
-      new Thread("blocking-msg") {
-        public void run() {
-          Runtime.getInstance().send(sendMsg);
-        }
-      }.start();
-    }
+    CompletableFuture<Object> future = PendingCalls.getInstance().expect(subscriber, callbackMethod, timeout, String.format("%s.%s", fullName, method));
+    subscribe(fullName, method, subscriber, callbackMethod);
+    // cleanup
+    future.whenComplete((ret, e) -> unsubscribe(fullName, method, subscriber, callbackMethod));
+    return future;
+  }
 
-    synchronized (blockingLockContainer) {
-      if (timeout == null) {
-        blockingLockContainer.wait();
-      } else {
-        long startTs = System.currentTimeMillis();
-        blockingLockContainer.wait(timeout);
-        if (System.currentTimeMillis() - startTs >= timeout) {
-          throw new TimeoutException("timeout of %d for %s.%s exceeded", timeout, fullName, method);
-        }
+  /**
+   * block on a sendAsync or waitForAsync future - a failure other than a
+   * timeout is rethrown as is, checked ones wrapped in a CompletionException
+   */
+  protected Object waitOn(CompletableFuture<Object> future) throws InterruptedException, TimeoutException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof TimeoutException) {
+        throw (TimeoutException) cause;
       }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new CompletionException(cause);
     }
-
-    // cleanup
-    unsubscribe(fullName, method, subscriber, CodecUtils.getCallbackTopicName(method));
-
-    return blockingLockContainer[0];
-
   }
 
   // equivalent to sendBlocking without the sending a message
   public Object waitFor(String fullName, String method, Integer timeout) throws InterruptedException, TimeoutException {
-    return waitOn(fullName, method, timeout, null);
+    return waitOn(waitForAsync(fullName, method, timeout));
   }
 
   // BOXING - End --------------------------------------
@@ -1848,7 +1963,7 @@ public abstract class Service implements Runnable, Serializable, ServiceInterfac
     if (!isRunning()) {
       outbox.start();
       if (thisThread == null) {
-        thisThread = new Thread(this, name);
+        thisThread = ExecutionMode.newThread(this, name);
       }
       thisThread.start();
       isRunning = true;
@@ -1977,24 +2092,37 @@ public abstract class Service implements Runnable, Serializable, ServiceInterfac
     unsubscribe(Runtime.getInstance().getName(), method, getName(), CodecUtils.getCallbackTopicName(method));
   }
 
+  public void subscribe(String topicName, String topicMethod, DeliveryPolicy policy) {
+    subscribe(topicName, topicMethod, getName(), CodecUtils.getCallbackTopicName(topicMethod), policy);
+  }
+
   public void subscribe(String topicName, String topicMethod, String callbackName, String callbackMethod) {
+    subscribe(topicName, topicMethod, callbackName, callbackMethod, null);
+  }
+
+  /**
+   * @param policy
+   *          - how the publisher delivers to this subscription, null for every
+   *          message - see {@link DeliveryPolicy}
+   */
+  public void subscribe(String topicName, String topicMethod, String callbackName, String callbackMethod, DeliveryPolicy policy) {
     log.info("subscribe [{}/{} ---> {}/{}]", topicName, topicMethod, callbackName, callbackMethod);
     // TODO - do regex matching
     if (topicName.contains("*")) { // FIXME "any regex expression
       List<String> tnames = Runtime.getServiceNames(topicName);
       for (String serviceName : tnames) {
-        MRLListener listener = new MRLListener(topicMethod, callbackName, callbackMethod);
+        MRLListener listener = new MRLListener(topicMethod, callbackName, callbackMethod, policy);
         send(Message.createMessage(getName(), serviceName, "addListener", listener));
       }
     } else {
       if (topicMethod.contains("*")) { // FIXME "any regex expression
         Set<String> tnames = Runtime.getMethodMap(topicName).keySet();
         for (String method : tnames) {
-          MRLListener listener = new MRLListener(method, callbackName, callbackMethod);
+          MRLListener listener = new MRLListener(method, callbackName, callbackMethod, policy);
           send(Message.createMessage(getName(), topicName, "addListener", listener));
         }
       } else {
-        MRLListener listener = new MRLListener(topicMethod, callbackName, callbackMethod);
+        MRLListener listener = new MRLListener(topicMethod, callbackName, callbackMethod, policy);
         send(Message.createMessage(getName(), topicName, "addListener", listener));
       }
     }
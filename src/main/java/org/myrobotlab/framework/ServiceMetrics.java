@@ -0,0 +1,141 @@
+package org.myrobotlab.framework;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <pre>
+ * Live queue and invoke instrumentation of a single service.
+ *
+ * To keep the cost on a saturated bus low only 1 in sampleRate messages is
+ * timed - the inbox stamps the sampled message with an enqueue time, the
+ * inbox thread records how long it waited and how long invoking it took.
+ * Publish counts are sampled the same way and scaled back up. Drop counters
+ * are always exact.
+ *
+ * sampleRate is runtime wide - 0 off, 1 every message, otherwise rounded up
+ * to a power of 2 (default 64)
+ * </pre>
+ */
+public class ServiceMetrics {
+
+  static private volatile int sampleRate = 64;
+  /**
+   * sampleRate - 1, or -1 when off
+   */
+  static private volatile int sampleMask = 63;
+
+  final String name;
+
+  // racy on purpose - only used to pick samples
+  int inboxTick = 0;
+  int publishTick = 0;
+
+  final LongAdder inboxDropped = new LongAdder();
+  final LongAdder outboxDropped = new LongAdder();
+  final LatencyHistogram inboxWait = new LatencyHistogram();
+  final Map<String, LatencyHistogram> invoke = new ConcurrentHashMap<>();
+  final Map<String, LongAdder> published = new ConcurrentHashMap<>();
+  volatile long resetTs = System.currentTimeMillis();
+
+  public ServiceMetrics(String name) {
+    this.name = name;
+  }
+
+  /**
+   * @param oneIn
+   *          - 0 off, 1 every message, n - 1 in n messages (rounded up to a
+   *          power of 2)
+   * @return the sample rate in effect
+   */
+  static public int setSampleRate(int oneIn) {
+    if (oneIn <= 0) {
+      sampleMask = -1;
+      sampleRate = 0;
+    } else {
+      int rate = Integer.highestOneBit(oneIn);
+      if (rate < oneIn) {
+        rate <<= 1;
+      }
+      sampleRate = rate;
+      sampleMask = rate - 1;
+    }
+    return sampleRate;
+  }
+
+  static public int getSampleRate() {
+    return sampleRate;
+  }
+
+  /**
+   * @return true if the message being added to the inbox should be timed
+   */
+  boolean sampleInbox() {
+    int mask = sampleMask;
+    return mask >= 0 && (++inboxTick & mask) == 0;
+  }
+
+  void recordInboxWait(long ns) {
+    inboxWait.record(ns);
+  }
+
+  void recordInvoke(String method, long ns) {
+    LatencyHistogram h = invoke.get(method);
+    if (h == null) {
+      h = invoke.computeIfAbsent(method, m -> new LatencyHistogram());
+    }
+    h.record(ns);
+  }
+
+  void samplePublish(String topic) {
+    int mask = sampleMask;
+    if (topic == null || mask < 0 || (++publishTick & mask) != 0) {
+      return;
+    }
+    LongAdder count = published.get(topic);
+    if (count == null) {
+      count = published.computeIfAbsent(topic, t -> new LongAdder());
+    }
+    count.add(mask + 1);
+  }
+
+  void inboxDropped() {
+    inboxDropped.increment();
+  }
+
+  void outboxDropped() {
+    outboxDropped.increment();
+  }
+
+  public void reset() {
+    inboxDropped.reset();
+    outboxDropped.reset();
+    inboxWait.reset();
+    invoke.clear();
+    published.clear();
+    resetTs = System.currentTimeMillis();
+  }
+
+  public ServiceStats getStats(int inboxSize, int outboxSize) {
+    ServiceStats stats = new ServiceStats();
+    stats.name = name;
+    stats.sampleRate = sampleRate;
+    stats.inboxSize = inboxSize;
+    stats.outboxSize = outboxSize;
+    stats.inboxDropped = inboxDropped.sum();
+    stats.outboxDropped = outboxDropped.sum();
+    stats.inboxWait = inboxWait.getStats();
+    for (Map.Entry<String, LatencyHistogram> e : invoke.entrySet()) {
+      stats.invoke.put(e.getKey(), e.getValue().getStats());
+    }
+    stats.ts = System.currentTimeMillis();
+    stats.intervalMs = stats.ts - resetTs;
+    double seconds = Math.max(1, stats.intervalMs) / 1000.0;
+    for (Map.Entry<String, LongAdder> e : published.entrySet()) {
+      stats.publishRate.put(e.getKey(), e.getValue().sum() / seconds);
+    }
+    return stats;
+  }
+
+}
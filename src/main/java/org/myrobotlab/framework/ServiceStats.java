@@ -0,0 +1,37 @@
+package org.myrobotlab.framework;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * snapshot of a service's {@link ServiceMetrics} - latencies in microseconds,
+ * counts estimated from samples are scaled by the sample rate
+ */
+public class ServiceStats {
+
+  public String name;
+  public int sampleRate;
+  public int inboxSize;
+  public int outboxSize;
+  public long inboxDropped;
+  public long outboxDropped;
+  /**
+   * time messages waited in the inbox before being invoked
+   */
+  public LatencyStats inboxWait;
+  /**
+   * method -&gt; time spent invoking it
+   */
+  public Map<String, LatencyStats> invoke = new HashMap<>();
+  /**
+   * topic -&gt; estimated publishes per second since the last reset
+   */
+  public Map<String, Double> publishRate = new HashMap<>();
+  public long intervalMs;
+  public long ts;
+
+  public String getName() {
+    return name;
+  }
+
+}
@@ -0,0 +1,211 @@
+package org.myrobotlab.framework;
+
+import java.io.Serializable;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import com.google.gson.annotations.JsonAdapter;
+
+/**
+ * <pre>
+ * pub/sub listeners of a service - topic method -&gt; array of subscribers
+ *
+ * Reads are lock free and never allocate - a broadcast gets the current array for a
+ * topic and iterates it. Arrays are never modified once published, every
+ * subscribe or unsubscribe builds a new array and swaps it in (copy on write),
+ * so subscription churn (e.g. WebGui clients connecting and disconnecting) can
+ * not corrupt or stall an in-flight delivery.
+ *
+ * Topic keys are interned so lookups with method name literals usually
+ * succeed on the identity check.
+ *
+ * In json it keeps the shape of the map it replaced - topic -&gt; list of
+ * listeners - so saved state and the WebGui read it as before.
+ * </pre>
+ */
+@JsonAdapter(SubscriptionTable.Adapter.class)
+public class SubscriptionTable implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  static class Adapter implements JsonSerializer<SubscriptionTable>, JsonDeserializer<SubscriptionTable> {
+
+    @Override
+    public JsonElement serialize(SubscriptionTable src, Type typeOfSrc, JsonSerializationContext context) {
+      JsonObject json = new JsonObject();
+      for (Map.Entry<String, MRLListener[]> entry : src.table.entrySet()) {
+        json.add(entry.getKey(), context.serialize(entry.getValue()));
+      }
+      return json;
+    }
+
+    @Override
+    public SubscriptionTable deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
+      SubscriptionTable table = new SubscriptionTable();
+      for (Map.Entry<String, JsonElement> entry : json.getAsJsonObject().entrySet()) {
+        MRLListener[] listeners = context.deserialize(entry.getValue(), MRLListener[].class);
+        for (MRLListener listener : listeners) {
+          table.add(listener);
+        }
+      }
+      return table;
+    }
+  }
+
+  final ConcurrentHashMap<String, MRLListener[]> table = new ConcurrentHashMap<>();
+
+  /**
+   * @param topic
+   *          - topic method
+   * @return current subscribers - do not modify - or null if there are none
+   */
+  public MRLListener[] get(String topic) {
+    if (topic == null) {
+      return null;
+    }
+    return table.get(topic);
+  }
+
+  /**
+   * @param listener
+   *          - subscriber to add
+   * @return false if an equal listener already existed
+   */
+  synchronized public boolean add(MRLListener listener) {
+    String topic = listener.topicMethod.intern();
+    MRLListener[] current = table.get(topic);
+    if (current == null) {
+      table.put(topic, new MRLListener[] { listener });
+      return true;
+    }
+    for (int i = 0; i < current.length; ++i) {
+      if (current[i].equals(listener)) {
+        return false;
+      }
+    }
+    MRLListener[] grown = Arrays.copyOf(current, current.length + 1);
+    grown[current.length] = listener;
+    table.put(topic, grown);
+    return true;
+  }
+
+  /**
+   * add a listener, replacing an equal one - e.g. to change its delivery
+   * policy
+   *
+   * @param listener
+   *          - subscriber to add
+   * @return the replaced listener or null
+   */
+  synchronized public MRLListener put(MRLListener listener) {
+    String topic = listener.topicMethod.intern();
+    MRLListener[] current = table.get(topic);
+    if (current != null) {
+      for (int i = 0; i < current.length; ++i) {
+        if (current[i].equals(listener)) {
+          MRLListener[] replaced = current.clone();
+          replaced[i] = listener;
+          table.put(topic, replaced);
+          return current[i];
+        }
+      }
+    }
+    add(listener);
+    return null;
+  }
+
+  /**
+   * remove all subscribers with callbackName from a topic
+   *
+   * @param topic
+   *          - topic method
+   * @param callbackName
+   *          - subscriber name
+   * @return number of subscribers removed
+   */
+  synchronized public int remove(String topic, String callbackName) {
+    MRLListener[] current = table.get(topic);
+    if (current == null) {
+      return 0;
+    }
+    return replace(topic, current, callbackName);
+  }
+
+  /**
+   * remove a subscriber from every topic
+   *
+   * @param callbackName
+   *          - subscriber name
+   */
+  synchronized public void removeSubscriber(String callbackName) {
+    for (String topic : table.keySet()) {
+      replace(topic, table.get(topic), callbackName);
+    }
+  }
+
+  private int replace(String topic, MRLListener[] current, String callbackName) {
+    List<MRLListener> smaller = new ArrayList<>(current.length);
+    for (MRLListener listener : current) {
+      if (!listener.callbackName.equals(callbackName)) {
+        smaller.add(listener);
+      }
+    }
+    int removed = current.length - smaller.size();
+    if (removed == 0) {
+      return 0;
+    }
+    if (smaller.size() == 0) {
+      table.remove(topic);
+    } else {
+      table.put(topic, smaller.toArray(new MRLListener[smaller.size()]));
+    }
+    return removed;
+  }
+
+  public boolean containsKey(String topic) {
+    return topic != null && table.containsKey(topic);
+  }
+
+  /**
+   * @param topic
+   *          - topic method
+   * @return a copy of the subscribers, or null if there are none
+   */
+  public List<MRLListener> getList(String topic) {
+    MRLListener[] current = get(topic);
+    if (current == null) {
+      return null;
+    }
+    return new ArrayList<>(Arrays.asList(current));
+  }
+
+  public Set<String> keySet() {
+    return table.keySet();
+  }
+
+  public Collection<MRLListener[]> values() {
+    return table.values();
+  }
+
+  public int size() {
+    return table.size();
+  }
+
+  synchronized public void clear() {
+    table.clear();
+  }
+
+}
@@ -1,54 +1,141 @@
 package org.myrobotlab.framework;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ScheduledFuture;
 
-public class Task extends TimerTask {
+import org.myrobotlab.logging.LoggerFactory;
+import org.slf4j.Logger;
+
+/**
+ * A service task timed by the shared {@link TaskScheduler}. Each run invokes
+ * msg on the service and records how late it started compared to its
+ * schedule.
+ *
+ * fixed delay (the default) - next run is interval ms after the previous run
+ * finished, fixed rate - runs are interval ms apart from the first run
+ * regardless of how long each run takes.
+ */
+public class Task implements Runnable {
+
+  public final static Logger log = LoggerFactory.getLogger(Task.class);
 
   String taskName;
   Message msg;
   long interval = 0;
-  Service myService;
+  long delay = 0;
+  boolean fixedRate = false;
+  transient Service myService;
+  transient ScheduledFuture<?> future;
+  transient volatile boolean cancelled = false;
 
-  // FIXME upgrade to ScheduledExecutorService
-  // http://howtodoinjava.com/2015/03/25/task-scheduling-with-executors-scheduledthreadpoolexecutor-example/
+  // timing - guarded by this
+  transient long expectedNs;
+  transient long runs;
+  transient long overruns;
+  transient long lastLatencyNs;
+  transient long maxLatencyNs;
+  transient double latencySumMs;
+  transient double latencySqSumMs;
+  transient long durationSumNs;
+  transient long maxDurationNs;
 
   public Task(Service myService, String taskName, long interval, Message msg) {
+    this(myService, taskName, interval, 0, false, msg);
+  }
+
+  public Task(Service myService, String taskName, long interval, long delay, boolean fixedRate, Message msg) {
     this.myService = myService;
     this.taskName = taskName;
     this.interval = interval;
+    this.delay = delay;
+    this.fixedRate = fixedRate;
     this.msg = msg;
   }
 
-  public Task(Task s) {
-    this.msg = s.msg;
-    this.interval = s.interval;
-    this.taskName = s.taskName;
-    this.myService = s.myService;
+  /**
+   * called by the scheduler just before the task is scheduled
+   */
+  synchronized void scheduled() {
+    expectedNs = System.nanoTime() + delay * 1000000L;
   }
 
   @Override
   public void run() {
-    // info("task %s running - next run %s", taskName,
-    // MathUtils.msToString(interval));
-    myService.invoke(msg);
-
-    // GroG commented out 2019.07.14 for preferrable "blocking" task
-    // myService.getInbox().add(msg);
-
-    if (interval > 0) {
-      Task t = new Task(this);
+    long start = System.nanoTime();
+    try {
       // clear history list - becomes "new" message
-      t.msg.historyList.clear();
-      Timer timer = myService.tasks.get(taskName);
-      if (timer != null) {
-        // timer = new Timer(String.format("%s.timer", getName()));
-        try {
-          timer.schedule(t, interval);
-        } catch (IllegalStateException e) {
-        }
+      msg.historyList.clear();
+      myService.invoke(msg);
+    } catch (Exception e) {
+      // an exception escaping a periodic task would silently cancel it
+      log.error("task {}.{} threw", myService.getName(), taskName, e);
+    }
+    long end = System.nanoTime();
+
+    synchronized (this) {
+      long latency = Math.max(0, start - expectedNs);
+      ++runs;
+      lastLatencyNs = latency;
+      if (latency > maxLatencyNs) {
+        maxLatencyNs = latency;
+      }
+      double latencyMs = latency / 1000000.0;
+      latencySumMs += latencyMs;
+      latencySqSumMs += latencyMs * latencyMs;
+      long duration = end - start;
+      durationSumNs += duration;
+      if (duration > maxDurationNs) {
+        maxDurationNs = duration;
+      }
+      if (interval > 0 && latency >= interval * 1000000L) {
+        // missed at least one whole slot
+        ++overruns;
+      }
+      if (fixedRate) {
+        expectedNs += interval * 1000000L;
+      } else {
+        expectedNs = end + interval * 1000000L;
       }
     }
   }
 
+  /**
+   * @return ms until the next run is due
+   */
+  synchronized long getNextDelayMs() {
+    return Math.max(0, (expectedNs - System.nanoTime()) / 1000000L);
+  }
+
+  public String getName() {
+    return taskName;
+  }
+
+  public long getInterval() {
+    return interval;
+  }
+
+  public boolean isFixedRate() {
+    return fixedRate;
+  }
+
+  synchronized public TaskStats getStats() {
+    TaskStats stats = new TaskStats();
+    stats.service = myService.getName();
+    stats.name = taskName;
+    stats.method = msg.method;
+    stats.intervalMs = interval;
+    stats.fixedRate = fixedRate;
+    stats.runs = runs;
+    stats.overruns = overruns;
+    stats.lastLatencyMs = lastLatencyNs / 1000000.0;
+    stats.maxLatencyMs = maxLatencyNs / 1000000.0;
+    stats.maxDurationMs = maxDurationNs / 1000000.0;
+    if (runs > 0) {
+      stats.avgLatencyMs = latencySumMs / runs;
+      stats.jitterMs = Math.sqrt(Math.max(0, latencySqSumMs / runs - stats.avgLatencyMs * stats.avgLatencyMs));
+      stats.avgDurationMs = durationSumNs / runs / 1000000.0;
+    }
+    stats.ts = System.currentTimeMillis();
+    return stats;
+  }
+
 }
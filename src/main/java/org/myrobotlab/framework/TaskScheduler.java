@@ -0,0 +1,177 @@
+package org.myrobotlab.framework;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.myrobotlab.logging.LoggerFactory;
+import org.slf4j.Logger;
+
+/**
+ * <pre>
+ * Runtime wide scheduler for Service.addTask - a small pool of daemon threads
+ * keeps time for every service's tasks, instead of a java.util.Timer thread
+ * per task.
+ *
+ * The scheduler threads only hand a due task to a pool of task threads, so a
+ * task which blocks (a network scan, a serial write waiting on an ack) delays
+ * no other task - not even one of the same service. A task runs on one thread
+ * at a time, there are never more task threads than tasks running, and an
+ * idle one exits after a minute.
+ * </pre>
+ */
+public class TaskScheduler {
+
+  public final static Logger log = LoggerFactory.getLogger(TaskScheduler.class);
+
+  static private TaskScheduler instance;
+
+  final ScheduledThreadPoolExecutor executor;
+
+  /**
+   * every scheduled task of every service
+   */
+  final Set<Task> tasks = ConcurrentHashMap.newKeySet();
+
+  /**
+   * runs due tasks
+   */
+  final ThreadPoolExecutor runner;
+
+  TaskScheduler(int threads) {
+    AtomicInteger count = new AtomicInteger();
+    ThreadFactory factory = new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "scheduler." + count.getAndIncrement());
+        t.setDaemon(true);
+        return t;
+      }
+    };
+    executor = new ScheduledThreadPoolExecutor(threads, factory);
+    executor.setRemoveOnCancelPolicy(true);
+    AtomicInteger taskCount = new AtomicInteger();
+    runner = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+      Thread t = new Thread(r, "task." + taskCount.getAndIncrement());
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  synchronized static public TaskScheduler getInstance() {
+    if (instance == null) {
+      int threads = Math.max(2, Math.min(4, java.lang.Runtime.getRuntime().availableProcessors()));
+      try {
+        threads = Integer.parseInt(System.getProperty("mrl.scheduler.threads", Integer.toString(threads)));
+      } catch (Exception e) {
+        log.error("bad mrl.scheduler.threads - using {}", threads);
+      }
+      instance = new TaskScheduler(threads);
+    }
+    return instance;
+  }
+
+  /**
+   * start running a task - once after its delay if its interval is 0,
+   * otherwise repeatedly
+   *
+   * @param task
+   *          - the task
+   */
+  public void schedule(Task task) {
+    task.scheduled();
+    tasks.add(task);
+    fire(task, task.delay);
+  }
+
+  void fire(Task task, long delayMs) {
+    synchronized (task) {
+      if (!task.cancelled) {
+        task.future = executor.schedule(() -> dispatch(task), delayMs, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  /**
+   * scheduler thread - hand the task to a task thread
+   */
+  void dispatch(Task task) {
+    if (task.cancelled) {
+      return;
+    }
+    try {
+      runner.execute(() -> runTask(task));
+    } catch (RejectedExecutionException e) {
+      log.error("task {}.{} rejected", task.myService.getName(), task.getName(), e);
+    }
+  }
+
+  /**
+   * task thread - run the task, then schedule its next run or retire it if it
+   * was a one shot
+   */
+  void runTask(Task task) {
+    if (task.cancelled) {
+      return;
+    }
+    Thread thread = Thread.currentThread();
+    String threadName = thread.getName();
+    // named like the timer threads tasks used to have
+    thread.setName(String.format("%s.%s.timer", task.myService.getName(), task.getName()));
+    try {
+      task.run();
+    } finally {
+      thread.setName(threadName);
+    }
+    if (task.interval <= 0) {
+      tasks.remove(task);
+      task.myService.taskDone(task);
+    } else {
+      fire(task, task.getNextDelayMs());
+    }
+  }
+
+  /**
+   * stop a task - a run already in progress completes
+   *
+   * @param task
+   *          - the task
+   */
+  public void cancel(Task task) {
+    synchronized (task) {
+      task.cancelled = true;
+      if (task.future != null) {
+        task.future.cancel(false);
+      }
+    }
+    tasks.remove(task);
+  }
+
+  /**
+   * @return timing of every scheduled task
+   */
+  public List<TaskStats> getStats() {
+    List<TaskStats> stats = new ArrayList<>();
+    for (Task task : tasks) {
+      stats.add(task.getStats());
+    }
+    return stats;
+  }
+
+  public int getPoolSize() {
+    return executor.getCorePoolSize();
+  }
+
+  public void setPoolSize(int size) {
+    executor.setCorePoolSize(size);
+  }
+
+}
@@ -0,0 +1,35 @@
+package org.myrobotlab.framework;
+
+/**
+ * snapshot of a scheduled task's timing - latency is how late a run started
+ * compared to when it should have started, jitter is the standard deviation
+ * of that latency
+ */
+public class TaskStats {
+
+  public String service;
+  public String name;
+  public String method;
+  public long intervalMs;
+  public boolean fixedRate;
+  public long runs;
+  public long overruns;
+  public double lastLatencyMs;
+  public double avgLatencyMs;
+  public double maxLatencyMs;
+  public double jitterMs;
+  public double avgDurationMs;
+  public double maxDurationMs;
+  public long ts;
+
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s.%s every %d ms runs %d latency avg %.3f max %.3f jitter %.3f ms duration avg %.3f max %.3f ms overruns %d", service, name, intervalMs,
+        runs, avgLatencyMs, maxLatencyMs, jitterMs, avgDurationMs, maxDurationMs, overruns);
+  }
+
+}
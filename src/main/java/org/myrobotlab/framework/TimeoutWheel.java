@@ -0,0 +1,140 @@
+package org.myrobotlab.framework;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.myrobotlab.logging.LoggerFactory;
+import org.slf4j.Logger;
+
+/**
+ * <pre>
+ * Hashed timing wheel for expiring outstanding calls - one tick thread
+ * expires every timeout in the process, so waiting on hundreds of replies
+ * costs no threads and no per timeout scheduler entry. The tick has its own
+ * thread so service tasks can never make it late.
+ *
+ * Timeouts are accurate to a tick (10 ms). Adding is lock free - new
+ * timeouts go on a queue which only the tick moves into buckets, so the
+ * buckets are only ever touched by the tick.
+ * </pre>
+ */
+public class TimeoutWheel {
+
+  public final static Logger log = LoggerFactory.getLogger(TimeoutWheel.class);
+
+  static private TimeoutWheel instance;
+
+  static final long TICK_MS = 10;
+  static final int WHEEL_SIZE = 512; // power of 2 - 5.12 s per revolution
+  static final int MASK = WHEEL_SIZE - 1;
+
+  /**
+   * handle to an expiration - cancel it when the call completes
+   */
+  static public class Timeout {
+    final long deadlineTick;
+    final Runnable onTimeout;
+    volatile boolean cancelled = false;
+
+    Timeout(long deadlineTick, Runnable onTimeout) {
+      this.deadlineTick = deadlineTick;
+      this.onTimeout = onTimeout;
+    }
+
+    public void cancel() {
+      cancelled = true;
+    }
+
+    public boolean isCancelled() {
+      return cancelled;
+    }
+  }
+
+  final long startNs = System.nanoTime();
+  final ConcurrentLinkedQueue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+  @SuppressWarnings("unchecked")
+  final ArrayDeque<Timeout>[] buckets = new ArrayDeque[WHEEL_SIZE];
+  long lastTick = 0; // tick thread only
+  ScheduledFuture<?> ticker;
+
+  TimeoutWheel() {
+    for (int i = 0; i < WHEEL_SIZE; ++i) {
+      buckets[i] = new ArrayDeque<>();
+    }
+  }
+
+  synchronized static public TimeoutWheel getInstance() {
+    if (instance == null) {
+      instance = new TimeoutWheel();
+      ScheduledThreadPoolExecutor tickThread = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "timeout.wheel");
+        t.setDaemon(true);
+        return t;
+      });
+      instance.ticker = tickThread.scheduleAtFixedRate(instance::tick, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+    return instance;
+  }
+
+  long currentTick() {
+    return (System.nanoTime() - startNs) / (TICK_MS * 1000000L);
+  }
+
+  /**
+   * run onTimeout after timeoutMs unless cancelled first
+   *
+   * @param timeoutMs
+   *          - ms from now
+   * @param onTimeout
+   *          - runs on the tick thread - must be quick
+   * @return handle to cancel the timeout
+   */
+  public Timeout schedule(long timeoutMs, Runnable onTimeout) {
+    // round up, plus the part of the current tick already gone - never expire
+    // early
+    long ticks = (timeoutMs + TICK_MS - 1) / TICK_MS;
+    Timeout timeout = new Timeout(currentTick() + ticks + 1, onTimeout);
+    incoming.add(timeout);
+    return timeout;
+  }
+
+  void tick() {
+    long now = currentTick();
+
+    Timeout timeout = null;
+    while ((timeout = incoming.poll()) != null) {
+      if (!timeout.cancelled) {
+        // already due timeouts go in the next bucket to process
+        buckets[(int) (Math.max(timeout.deadlineTick, lastTick + 1) & MASK)].add(timeout);
+      }
+    }
+
+    // catch up on every bucket since the last tick - a late tick still
+    // expires everything in order
+    for (long t = Math.max(lastTick + 1, now - MASK); t <= now; ++t) {
+      Iterator<Timeout> it = buckets[(int) (t & MASK)].iterator();
+      while (it.hasNext()) {
+        timeout = it.next();
+        // entries not yet due are a revolution or more away - leave them
+        if (timeout.cancelled) {
+          it.remove();
+        } else if (timeout.deadlineTick <= now) {
+          it.remove();
+          try {
+            timeout.onTimeout.run();
+          } catch (Exception e) {
+            log.error("timeout threw", e);
+          }
+        }
+      }
+    }
+    if (now > lastTick) {
+      lastTick = now;
+    }
+  }
+
+}
@@ -1,5 +1,7 @@
 package org.myrobotlab.framework.interfaces;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.myrobotlab.framework.Message;
 import org.myrobotlab.framework.TimeoutException;
 
@@ -47,4 +49,12 @@ public interface MessageSender extends NameProvider {
 
   public Object waitFor(String fullName, String method, Integer timeout) throws InterruptedException, TimeoutException;
 
+  public CompletableFuture<Object> sendAsync(String name, String method, Object... data);
+
+  public CompletableFuture<Object> sendAsync(String name, Integer timeout, String method, Object... data);
+
+  public CompletableFuture<Object> sendAsync(Message msg, Integer timeout);
+
+  public CompletableFuture<Object> waitForAsync(String fullName, String method, Integer timeout);
+
 }
@@ -0,0 +1,11 @@
+package org.myrobotlab.framework.interfaces;
+
+/**
+ * Marker for services whose callback methods are safe to be called from any
+ * thread. When a publisher uses direct routing, messages to a
+ * ThreadSafeSubscriber are invoked inline on the publishing thread instead of
+ * being put on the subscriber's inbox.
+ */
+public interface ThreadSafeSubscriber {
+
+}
@@ -59,6 +59,12 @@ public class ServiceData implements Serializable {
 
   static private String serviceDataCacheFileName = FileIO.getCfgDir() + File.separator + "serviceData.json";
 
+  /**
+   * load the binary index built with mrl before falling back to
+   * serviceData.json or generating
+   */
+  static public boolean useIndex = true;
+
   /**
    * clears all overrides. All services shall be using the standard hard co
    */
@@ -169,6 +175,16 @@ public class ServiceData implements Serializable {
 
       // if we're not in a jar we are in an IDE.
 
+      // the prebuilt index - no json parsing and no Meta classes loaded
+      if (useIndex) {
+        long start = System.currentTimeMillis();
+        localInstance = ServiceDataIndex.load();
+        if (localInstance != null) {
+          log.info("loaded {} service types from index in {} ms", localInstance.serviceTypes.size(), System.currentTimeMillis() - start);
+          return localInstance;
+        }
+      }
+
       // First check the .myrobotlab/serviceData.json dir.
       File jsonFile = new File(serviceDataCacheFileName);
       if (jsonFile.exists()) {
@@ -192,6 +208,9 @@ public class ServiceData implements Serializable {
           localInstance = ServiceData.generate();
           localInstance.save();
           log.info("saved generated serviceData.json to {}", serviceDataCacheFileName);
+          if (useIndex) {
+            ServiceDataIndex.save(localInstance, FileIO.getCfgDir() + File.separator + ServiceDataIndex.FILE_NAME);
+          }
         } catch (IOException e1) {
           log.error("Unable to generate the serivceData.json file!!");
           // This is a fatal issue. I think we should exit the jvm here.
@@ -519,6 +538,7 @@ public class ServiceData implements Serializable {
       // 20190630 - GroG changed uses FileIO.getCfgDir()
       removeExisting = new File(FileIO.getCfgDir() + File.separatorChar + "serviceData.json");
       removeExisting.delete();
+      new File(FileIO.getCfgDir() + File.separatorChar + ServiceDataIndex.FILE_NAME).delete();
 
       // THIS IS FOR ANT BUILD - DO NOT CHANGE !!! - BEGIN ----
       ServiceData sd = generate();
@@ -0,0 +1,369 @@
+package org.myrobotlab.framework.repo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.myrobotlab.framework.ServiceReservation;
+import org.myrobotlab.io.FileIO;
+import org.myrobotlab.logging.LoggerFactory;
+import org.myrobotlab.service.meta.abstracts.MetaData;
+import org.slf4j.Logger;
+
+/**
+ * <pre>
+ * Compact binary index of the service meta data - service types, categories,
+ * peers and dependencies. It is generated at build time into
+ * resource/framework, next to where serviceData.json used to be generated.
+ *
+ * Loading it is one read and one sequential pass over the bytes, with no text
+ * parsing and no reflection, so a cold start neither parses serviceData.json
+ * nor calls getMetaData on every Meta class.
+ *
+ * Layout, big endian: magic, format version, stamp, a table of every distinct
+ * string, the categories, then the service types. Strings are referenced by
+ * their index in the table, -1 for null.
+ *
+ * The first start from a jar copies the index into the .myrobotlab directory,
+ * later starts read the copy while its stamp matches the one in the jar. The
+ * file is read into memory, not mapped - a live mapping would keep Windows from
+ * overwriting or deleting the copy.
+ * </pre>
+ */
+public class ServiceDataIndex {
+
+  public final static Logger log = LoggerFactory.getLogger(ServiceDataIndex.class);
+
+  static public final int MAGIC = 0x4D524C49; // MRLI
+  static public final int VERSION = 1;
+  static public final String FILE_NAME = "serviceData.bin";
+  static public final String RESOURCE = "/resource/framework/" + FILE_NAME;
+
+  static final int AVAILABLE = 1;
+  static final int ONE_JAR = 2;
+  static final int CLOUD = 4;
+  static final int REQUIRES_KEYS = 8;
+
+  /**
+   * collects the string table while the body is written
+   */
+  static class Encoder {
+    final Map<String, Integer> strings = new LinkedHashMap<>();
+    final ByteArrayOutputStream body = new ByteArrayOutputStream(64 * 1024);
+    final DataOutputStream out = new DataOutputStream(body);
+
+    void str(String s) throws IOException {
+      if (s == null) {
+        out.writeInt(-1);
+        return;
+      }
+      Integer index = strings.get(s);
+      if (index == null) {
+        index = strings.size();
+        strings.put(s, index);
+      }
+      out.writeInt(index);
+    }
+
+    void bool(Boolean b) throws IOException {
+      out.writeByte((b == null) ? 0 : (b) ? 2 : 1);
+    }
+  }
+
+  static class Decoder {
+    final ByteBuffer buf;
+    final String[] strings;
+
+    Decoder(ByteBuffer buf) throws IOException {
+      this.buf = buf;
+      if (buf.getInt() != MAGIC) {
+        throw new IOException("not a service data index");
+      }
+      int version = buf.getInt();
+      if (version != VERSION) {
+        throw new IOException(String.format("service data index version %d - expected %d", version, VERSION));
+      }
+      buf.getLong();
+      strings = new String[buf.getInt()];
+      byte[] bytes = new byte[256];
+      for (int i = 0; i < strings.length; ++i) {
+        int length = buf.getInt();
+        if (bytes.length < length) {
+          bytes = new byte[length * 2];
+        }
+        buf.get(bytes, 0, length);
+        strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+      }
+    }
+
+    String str() {
+      int index = buf.getInt();
+      return (index < 0) ? null : strings[index];
+    }
+
+    Boolean bool() {
+      byte b = buf.get();
+      return (b == 0) ? null : b == 2;
+    }
+  }
+
+  static public byte[] encode(ServiceData sd, long stamp) throws IOException {
+    Encoder e = new Encoder();
+    DataOutputStream out = e.out;
+
+    out.writeInt(sd.categoryTypes.size());
+    for (Category category : sd.categoryTypes.values()) {
+      e.str(category.name);
+      e.str(category.description);
+      out.writeInt(category.serviceTypes.size());
+      for (String type : category.serviceTypes) {
+        e.str(type);
+      }
+    }
+
+    out.writeInt(sd.serviceTypes.size());
+    for (MetaData md : sd.serviceTypes.values()) {
+      e.str(md.getType());
+      e.str(md.getSimpleName());
+      e.str(md.getServiceName());
+      e.str(md.getDescription());
+      e.str(md.getLicense());
+      e.str(md.getLink());
+      e.str(md.getSponsor());
+      e.str(md.getTodo());
+      int flags = 0;
+      flags |= (md.isAvailable()) ? AVAILABLE : 0;
+      flags |= (md.includeServiceInOneJar()) ? ONE_JAR : 0;
+      flags |= (md.isCloudService()) ? CLOUD : 0;
+      flags |= (md.requiresKeys()) ? REQUIRES_KEYS : 0;
+      out.writeByte(flags);
+
+      List<ServiceDependency> dependencies = md.getDependencies();
+      out.writeInt(dependencies.size());
+      for (ServiceDependency dep : dependencies) {
+        e.str(dep.getOrgId());
+        e.str(dep.getArtifactId());
+        e.str(dep.getVersion());
+        e.str(dep.getExt());
+        out.writeBoolean(dep.isInstalled());
+        out.writeInt(dep.getExcludes().size());
+        for (ServiceExclude ex : dep.getExcludes()) {
+          e.str(ex.org);
+          e.str(ex.module);
+          e.str(ex.name);
+          e.str(ex.type);
+          e.str(ex.ext);
+          e.str(ex.matcher);
+          e.str(ex.conf);
+          e.str(ex.version);
+        }
+        out.writeInt(dep.getArtifacts().size());
+        for (ServiceArtifact artifact : dep.getArtifacts()) {
+          e.str(artifact.orgId);
+          e.str(artifact.classifierId);
+          e.str(artifact.type);
+        }
+      }
+
+      Map<String, ServiceReservation> peers = md.getPeers();
+      out.writeInt(peers.size());
+      for (Map.Entry<String, ServiceReservation> entry : peers.entrySet()) {
+        ServiceReservation sr = entry.getValue();
+        e.str(entry.getKey());
+        e.str(sr.key);
+        e.str(sr.actualName);
+        e.str(sr.type);
+        e.str(sr.comment);
+        e.bool(sr.autoStart);
+        e.str(sr.state);
+      }
+    }
+    out.flush();
+
+    ByteArrayOutputStream index = new ByteArrayOutputStream(e.body.size() + 64 * 1024);
+    DataOutputStream header = new DataOutputStream(index);
+    header.writeInt(MAGIC);
+    header.writeInt(VERSION);
+    header.writeLong(stamp);
+    header.writeInt(e.strings.size());
+    for (String s : e.strings.keySet()) {
+      byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      header.writeInt(bytes.length);
+      header.write(bytes);
+    }
+    header.flush();
+    e.body.writeTo(index);
+    return index.toByteArray();
+  }
+
+  static public ServiceData decode(ByteBuffer buf) throws IOException {
+    Decoder d = new Decoder(buf);
+    ServiceData sd = new ServiceData();
+
+    int categories = buf.getInt();
+    for (int i = 0; i < categories; ++i) {
+      Category category = new Category();
+      category.name = d.str();
+      category.description = d.str();
+      int types = buf.getInt();
+      category.serviceTypes.ensureCapacity(types);
+      for (int j = 0; j < types; ++j) {
+        category.serviceTypes.add(d.str());
+      }
+      sd.categoryTypes.put(category.name, category);
+    }
+
+    int services = buf.getInt();
+    for (int i = 0; i < services; ++i) {
+      MetaData md = new MetaData(d.str(), d.str(), d.str());
+      md.addDescription(d.str());
+      md.addLicense(d.str());
+      md.setLink(d.str());
+      md.setSponsor(d.str());
+      md.addTodo(d.str());
+      int flags = buf.get();
+      md.setAvailable((flags & AVAILABLE) != 0);
+      md.includeServiceInOneJar((flags & ONE_JAR) != 0);
+      md.setCloudService((flags & CLOUD) != 0);
+      md.setRequiresKeys((flags & REQUIRES_KEYS) != 0);
+
+      int dependencies = buf.getInt();
+      for (int j = 0; j < dependencies; ++j) {
+        ServiceDependency dep = new ServiceDependency(d.str(), d.str(), d.str(), d.str());
+        dep.setInstalled(buf.get() != 0);
+        int excludes = buf.getInt();
+        for (int k = 0; k < excludes; ++k) {
+          ServiceExclude ex = new ServiceExclude(d.str(), d.str());
+          ex.name = d.str();
+          ex.type = d.str();
+          ex.ext = d.str();
+          ex.matcher = d.str();
+          ex.conf = d.str();
+          ex.version = d.str();
+          dep.add(ex);
+        }
+        int artifacts = buf.getInt();
+        for (int k = 0; k < artifacts; ++k) {
+          dep.add(new ServiceArtifact(d.str(), d.str(), d.str()));
+        }
+        md.dependencies.add(dep);
+      }
+
+      int peers = buf.getInt();
+      for (int j = 0; j < peers; ++j) {
+        String peerKey = d.str();
+        ServiceReservation sr = new ServiceReservation(d.str(), d.str(), d.str(), d.str(), d.bool());
+        sr.state = d.str();
+        md.peers.put(peerKey, sr);
+      }
+      sd.add(md);
+    }
+    return sd;
+  }
+
+  static public boolean save(ServiceData sd, String filename) {
+    try (FileOutputStream fos = new FileOutputStream(filename)) {
+      fos.write(encode(sd, System.currentTimeMillis()));
+      return true;
+    } catch (Exception e) {
+      log.error("saving service data index {} threw", filename, e);
+    }
+    return false;
+  }
+
+  static public ServiceData load(File file) throws IOException {
+    return decode(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+  }
+
+  /**
+   * the index built with this jar or classes directory, or a copy of it in the
+   * .myrobotlab directory
+   *
+   * @return null if there is no usable index
+   */
+  static public ServiceData load() {
+    File cached = new File(FileIO.getCfgDir() + File.separator + FILE_NAME);
+    try {
+      URL url = ServiceDataIndex.class.getResource(RESOURCE);
+      if (url == null) {
+        // e.g. in an IDE without a build - maybe saved when serviceData was
+        // generated
+        return (cached.exists()) ? load(cached) : null;
+      }
+
+      if ("file".equals(url.getProtocol())) {
+        return load(new File(url.toURI()));
+      }
+
+      // in a jar - read the copy if it is the same build
+      long stamp;
+      try (DataInputStream in = new DataInputStream(url.openStream())) {
+        in.readInt();
+        in.readInt();
+        stamp = in.readLong();
+      }
+      if (cached.exists() && readStamp(cached) == stamp) {
+        return load(cached);
+      }
+      byte[] data;
+      try (InputStream in = url.openStream()) {
+        data = FileIO.toByteArray(in);
+      }
+      try (FileOutputStream fos = new FileOutputStream(cached)) {
+        fos.write(data);
+      } catch (Exception e) {
+        log.warn("could not copy service data index to {}", cached, e);
+      }
+      return decode(ByteBuffer.wrap(data));
+
+    } catch (Exception e) {
+      log.error("loading service data index failed", e);
+    }
+    return null;
+  }
+
+  static long readStamp(File file) {
+    try (DataInputStream in = new DataInputStream(new java.io.FileInputStream(file))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        return -1;
+      }
+      return in.readLong();
+    } catch (Exception e) {
+      return -1;
+    }
+  }
+
+  /**
+   * build step - generates the index from the Meta classes
+   *
+   * @param args
+   *          - directory the index is written to, e.g.
+   *          target/classes/resource/framework
+   */
+  public static void main(String[] args) {
+    String path = (args.length > 0) ? args[0] : ".";
+    try {
+      new File(path).mkdirs();
+      String filename = path + File.separator + FILE_NAME;
+      ServiceData sd = ServiceData.generate();
+      if (save(sd, filename)) {
+        log.info("wrote {} service types to {}", sd.serviceTypes.size(), filename);
+      }
+    } catch (Exception e) {
+      // a missing index only costs start up time - never fail the build
+      log.error("generating service data index threw", e);
+    }
+  }
+
+}
@@ -125,4 +125,8 @@ public class ServiceDependency implements Serializable, Comparator<ServiceDepend
     artifacts.add(serviceArtifact);
   }
 
+  public List<ServiceArtifact> getArtifacts() {
+    return artifacts;
+  }
+
 }
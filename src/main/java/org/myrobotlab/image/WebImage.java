@@ -57,7 +57,7 @@ public class WebImage {
       if (quality == null) {
         ImageIO.write(img, imgType, os);
         os.close();
-        data = String.format("data:image/%s;base64,%s", type, Base64.getEncoder().encodeToString(os.toByteArray()));
+        data = String.format("data:image/%s;base64,%s", imgType, Base64.getEncoder().encodeToString(os.toByteArray()));
       } else {
 
         // save jpeg image with specific quality. "1f" corresponds to 100% ,
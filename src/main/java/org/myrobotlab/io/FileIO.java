@@ -45,11 +45,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -372,6 +374,144 @@ public class FileIO {
     return false;
   }
 
+  /**
+   * service types whose resources have been extracted - or did not need to be
+   */
+  static private final Set<String> extractedTypes = new HashSet<>();
+
+  /**
+   * jar entries of resource/{ServiceType}/ by service type - read once
+   */
+  static private Map<String, List<String>> serviceResources = null;
+
+  /**
+   * resource/{ServiceType}/ directories - the bulk of the resources, extracted
+   * when the service type is first used
+   */
+  static private String getServiceResourceType(String entryName) {
+    if (!entryName.startsWith("resource/")) {
+      return null;
+    }
+    int pos = entryName.indexOf('/', 9);
+    if (pos < 10 || !Character.isUpperCase(entryName.charAt(9))) {
+      return null;
+    }
+    return entryName.substring(9, pos);
+  }
+
+  /**
+   * extracts what every service needs - the top level files including the
+   * service icons, and the framework, core, license and template directories.
+   * Resources of a service type are extracted on first use by
+   * extractServiceResources
+   *
+   * @return true if anything was extracted
+   */
+  static public final boolean extractSharedResources() {
+    String root = getRoot();
+    // framework is one of the shared directories - if it is there they all are
+    if (!isJar(root) || new File("resource" + File.separator + "framework").exists()) {
+      return false;
+    }
+    long start = System.currentTimeMillis();
+    int count = 0;
+    try (JarFile jar = new JarFile(root)) {
+      Enumeration<JarEntry> entries = jar.entries();
+      while (entries.hasMoreElements()) {
+        JarEntry entry = entries.nextElement();
+        String name = entry.getName();
+        if (entry.isDirectory() || !name.startsWith("resource/") || getServiceResourceType(name) != null) {
+          continue;
+        }
+        toFile(name, toByteArray(jar.getInputStream(entry)));
+        ++count;
+      }
+    } catch (Exception e) {
+      log.error("extracting shared resources threw", e);
+    }
+    log.info("extracted {} shared resources in {} ms", count, System.currentTimeMillis() - start);
+    return count > 0;
+  }
+
+  /**
+   * extracts resource/{serviceType}/ from the jar unless it already exists -
+   * called when a service of that type is created or its resource directory is
+   * asked for. Does nothing when not running from a jar.
+   *
+   * @param serviceType
+   *          - simple name of the service type e.g. OpenCV
+   * @return true if anything was extracted
+   */
+  static synchronized public final boolean extractServiceResources(String serviceType) {
+    if (serviceType == null || !extractedTypes.add(serviceType)) {
+      return false;
+    }
+    String root = getRoot();
+    if (!isJar(root) || new File("resource" + File.separator + serviceType).exists()) {
+      return false;
+    }
+    try (JarFile jar = new JarFile(root)) {
+      return extractServiceResources(jar, serviceType);
+    } catch (Exception e) {
+      log.error("extracting resources of {} threw", serviceType, e);
+    }
+    return false;
+  }
+
+  /**
+   * extracts every resource/{ServiceType}/ directory which does not exist yet,
+   * after the shared resources - used by --extract-all. Unlike extractResources
+   * it does not skip everything when resource/ is already there, e.g. after
+   * earlier starts extracted only the shared resources and a few service types.
+   *
+   * @return true if anything was extracted
+   */
+  static synchronized public final boolean extractAllResources() {
+    String root = getRoot();
+    if (!isJar(root)) {
+      return extractResources();
+    }
+    boolean extracted = extractSharedResources();
+    try (JarFile jar = new JarFile(root)) {
+      for (String serviceType : new TreeSet<>(getServiceResources(jar).keySet())) {
+        if (extractedTypes.add(serviceType) && !new File("resource" + File.separator + serviceType).exists()) {
+          extracted |= extractServiceResources(jar, serviceType);
+        }
+      }
+    } catch (Exception e) {
+      log.error("extracting all resources threw", e);
+    }
+    return extracted;
+  }
+
+  static private boolean extractServiceResources(JarFile jar, String serviceType) throws IOException {
+    long start = System.currentTimeMillis();
+    List<String> names = getServiceResources(jar).get(serviceType);
+    if (names == null) {
+      return false;
+    }
+    for (String name : names) {
+      toFile(name, toByteArray(jar.getInputStream(jar.getEntry(name))));
+    }
+    log.info("extracted {} resources of {} in {} ms", names.size(), serviceType, System.currentTimeMillis() - start);
+    return true;
+  }
+
+  static private Map<String, List<String>> getServiceResources(JarFile jar) {
+    if (serviceResources == null) {
+      serviceResources = new HashMap<>();
+      Enumeration<JarEntry> entries = jar.entries();
+      while (entries.hasMoreElements()) {
+        JarEntry entry = entries.nextElement();
+        String type = (entry.isDirectory()) ? null : getServiceResourceType(entry.getName());
+        if (type != null) {
+          serviceResources.computeIfAbsent(type, k -> new ArrayList<>()).add(entry.getName());
+        }
+      }
+    }
+    return serviceResources;
+  }
+
   /**
    * get configuration directory
    * 
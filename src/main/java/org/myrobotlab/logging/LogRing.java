@@ -0,0 +1,126 @@
+package org.myrobotlab.logging;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.myrobotlab.service.Log.LogEntry;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * <pre>
+ * Bounded, preallocated, lock-free multi-producer / single-consumer ring of
+ * log entries.
+ *
+ * A logging thread claims a slot by CAS on the producer index, copies the
+ * event's fields into the LogEntry preallocated in the slot and publishes the
+ * slot by writing its sequence. It never blocks and never allocates - when the
+ * ring is full the event is counted as overflow and dropped.
+ *
+ * The single consumer copies published entries out in order and frees their
+ * slots. A slot claimed but not yet published ends the drain, the next drain
+ * picks it up.
+ *
+ * Only ONE thread may call drain at a time.
+ * </pre>
+ */
+public class LogRing {
+
+  final LogEntry[] entries;
+  /**
+   * sequence + 1 of the entry last published into each slot
+   */
+  final AtomicLongArray published;
+  final int mask;
+  final int capacity;
+
+  final AtomicLong producerIndex = new AtomicLong();
+  final AtomicLong consumerIndex = new AtomicLong();
+  final LongAdder overflow = new LongAdder();
+
+  /**
+   * @param size
+   *          - entries held before logging threads overflow, rounded up to a
+   *          power of 2
+   */
+  public LogRing(int size) {
+    int capacity = 1;
+    while (capacity < size) {
+      capacity <<= 1;
+    }
+    this.capacity = capacity;
+    this.mask = capacity - 1;
+    this.entries = new LogEntry[capacity];
+    for (int i = 0; i < capacity; ++i) {
+      entries[i] = new LogEntry();
+    }
+    this.published = new AtomicLongArray(capacity);
+  }
+
+  /**
+   * @return false if the ring was full and the event was dropped
+   */
+  public boolean offer(ILoggingEvent event) {
+    long p;
+    do {
+      p = producerIndex.get();
+      if (p - consumerIndex.get() >= capacity) {
+        overflow.increment();
+        return false;
+      }
+    } while (!producerIndex.compareAndSet(p, p + 1));
+
+    int index = (int) p & mask;
+    entries[index].set(event);
+    // release - the entry's fields are visible before the sequence
+    published.lazySet(index, p + 1);
+    return true;
+  }
+
+  /**
+   * copy published entries out, oldest first, and free their slots
+   *
+   * @param to
+   *          - list the copies are added to
+   * @param max
+   *          - most entries to take
+   * @return entries taken
+   */
+  public int drain(List<LogEntry> to, int max) {
+    long c = consumerIndex.get();
+    int count = 0;
+    while (count < max) {
+      int index = (int) c & mask;
+      if (published.get(index) != c + 1) {
+        // empty, or claimed and not published yet
+        break;
+      }
+      to.add(new LogEntry(entries[index]));
+      ++c;
+      ++count;
+      consumerIndex.lazySet(c);
+    }
+    return count;
+  }
+
+  public int size() {
+    // read consumer first so the difference can not go negative
+    long c = consumerIndex.get();
+    long p = producerIndex.get();
+    return (int) (p - c);
+  }
+
+  /**
+   * @return events dropped because the ring was full, since it was created
+   */
+  public long getOverflow() {
+    return overflow.sum();
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+}
@@ -0,0 +1,188 @@
+package org.myrobotlab.net;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Executor;
+
+import org.myrobotlab.logging.LoggerFactory;
+import org.slf4j.Logger;
+
+/**
+ * <pre>
+ * Outbound frames of one remote client. The publishing thread only queues - a
+ * writer thread drains the queue, so a slow client never stalls the service
+ * publishing to it.
+ *
+ * While a client is behind, a newer frame of a latest-only stream (same sender
+ * and method - video, state, sensor readings) replaces the one still waiting,
+ * the client skips stale frames instead of falling further behind. Past
+ * maxPending the oldest waiting latest-only frame is dropped. Other frames
+ * (registrations, method returns) are never dropped - a client with more than
+ * maxPending of those waiting is too far behind and gets disconnected.
+ * </pre>
+ */
+public class ClientOutbox implements Runnable {
+
+  public interface Writer {
+    /**
+     * write a payload to the client - may block while the client is slow
+     */
+    void write(Object payload) throws Exception;
+  }
+
+  public final static Logger log = LoggerFactory.getLogger(ClientOutbox.class);
+
+  /**
+   * key of a frame which is always sent
+   */
+  static final class Control {
+  }
+
+  final String id;
+  final Writer writer;
+  final Executor executor;
+  final int maxPending;
+  final Runnable onOverflow;
+
+  /**
+   * waiting payloads in send order - keyed by stream for latest-only frames,
+   * guarded by this
+   */
+  final LinkedHashMap<Object, Object> pending = new LinkedHashMap<>();
+  boolean draining = false;
+  boolean closed = false;
+
+  volatile long sent = 0;
+  long dropped = 0;
+
+  /**
+   * @param id
+   *          - client
+   * @param writer
+   *          - writes a payload to the client
+   * @param executor
+   *          - runs the writer
+   * @param maxPending
+   *          - frames waiting before latest-only ones are dropped
+   * @param onOverflow
+   *          - disconnects the client - called when more than maxPending
+   *          frames which can not be dropped are waiting
+   */
+  public ClientOutbox(String id, Writer writer, Executor executor, int maxPending, Runnable onOverflow) {
+    this.id = id;
+    this.writer = writer;
+    this.executor = executor;
+    this.maxPending = maxPending;
+    this.onOverflow = onOverflow;
+  }
+
+  /**
+   * queue a payload - never blocks
+   *
+   * @param stream
+   *          - key of a latest-only stream, a waiting payload of the same
+   *          stream is replaced - null to always send
+   * @param payload
+   *          - encoded frame
+   * @return false if a stale frame was dropped, or the client is disconnected
+   */
+  public boolean send(Object stream, Object payload) {
+    boolean fresh = true;
+    boolean overflow = false;
+    long count;
+    synchronized (this) {
+      if (closed) {
+        return false;
+      }
+      Object key = (stream == null) ? new Control() : stream;
+      if (pending.put(key, payload) != null) {
+        fresh = false;
+      } else if (pending.size() > maxPending) {
+        fresh = false;
+        if (!dropStale()) {
+          overflow = true;
+        }
+      }
+      if (overflow) {
+        closed = true;
+        pending.clear();
+      } else if (!fresh) {
+        ++dropped;
+      }
+      count = dropped;
+      if (!draining && !closed) {
+        draining = true;
+        executor.execute(this);
+      }
+    }
+    if (overflow) {
+      log.error("{} has more than {} frames waiting - disconnecting", id, maxPending);
+      if (onOverflow != null) {
+        onOverflow.run();
+      }
+    } else if (!fresh && count % 100 == 1) {
+      log.warn("{} is not keeping up - {} stale frames dropped", id, count);
+    }
+    return fresh;
+  }
+
+  /**
+   * drops the oldest latest-only frame
+   * 
+   * @return false if only control frames are waiting
+   */
+  private boolean dropStale() {
+    Iterator<Object> it = pending.keySet().iterator();
+    while (it.hasNext()) {
+      if (!(it.next() instanceof Control)) {
+        it.remove();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void run() {
+    while (true) {
+      Object payload;
+      synchronized (this) {
+        Iterator<Object> it = pending.values().iterator();
+        if (closed || !it.hasNext()) {
+          draining = false;
+          return;
+        }
+        payload = it.next();
+        it.remove();
+      }
+      try {
+        writer.write(payload);
+        ++sent;
+      } catch (Exception e) {
+        log.error("writing to {} threw", id, e);
+      }
+    }
+  }
+
+  synchronized public void close() {
+    closed = true;
+    pending.clear();
+  }
+
+  synchronized public int getPending() {
+    return pending.size();
+  }
+
+  synchronized public long getDropped() {
+    return dropped;
+  }
+
+  public long getSent() {
+    return sent;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+}
@@ -1,125 +1,154 @@
 package org.myrobotlab.net;
 
-import java.io.File;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Properties;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 
 import org.myrobotlab.image.SerializableImage;
 import org.myrobotlab.logging.Level;
 import org.myrobotlab.logging.LoggerFactory;
-import org.myrobotlab.logging.Logging;
 import org.myrobotlab.logging.LoggingFactory;
 import org.slf4j.Logger;
 
 /**
+ * <pre>
+ * mjpeg server - streams any number of video feeds to any number of http
+ * clients as multipart/x-mixed-replace jpegs
+ *
+ * A frame is encoded to jpeg once, on the publishing thread, into a buffer
+ * from the feed's pool. One selector thread accepts, answers the requests and
+ * writes - every client gets a gathering write of the same header, jpeg and
+ * trailer buffers. A client whose socket buffer is full keeps writing its
+ * current frame and then jumps to the newest, the frames in between are
+ * skipped for it alone.
+ *
+ * http://host:port/feedName - the stream
+ * http://host:port/         - page of all feeds
+ *
+ * borg'd in from -
+ * http://www.damonkohler.com/2010/10/mjpeg-streaming-protocol.html
+ * </pre>
+ *
  * @author GroG
- * 
- *         mjpeg server - allows multiple jpeg streams to be sent to multiple
- *         clients extends the most excellent NanoHTTPD server - multi-part mime
- *         was done with little parts borg'd in from -
- *         http://www.servlets.com/cos/
- *         http://www.damonkohler.com/2010/10/mjpeg-streaming-protocol.html
- * 
  */
-public class MjpegServer extends NanoHTTPD {
+public class MjpegServer implements Runnable {
 
-  public class Connection {
-    boolean initialized = false;
-    Socket socket;
-    OutputStream os;
+  /**
+   * a jpeg encoded frame shared by every client of a feed - back to the pool
+   * when the last client is done with it
+   */
+  static class Frame {
 
-    public Connection(Socket socket) throws IOException {
-      this.socket = socket;
-      os = socket.getOutputStream();
-    }
+    static class Jpeg extends ByteArrayOutputStream {
+      Jpeg() {
+        super(64 * 1024);
+      }
 
-    public void close() {
-      try {
-        socket.close();
-        socket = null;
-      } catch (IOException e) {
+      byte[] array() {
+        return buf;
       }
     }
-  }
 
-  public class VideoWebClient extends Thread {
-    String feed;
-    ArrayList<Connection> connections = new ArrayList<Connection>();
-    BlockingQueue<SerializableImage> videoFeed;
+    final Feed feed;
+    final Jpeg jpeg = new Jpeg();
+    final byte[] header = new byte[128];
+    int headerLength;
+    long seq;
+    final AtomicInteger refs = new AtomicInteger();
 
-    VideoWebClient(BlockingQueue<SerializableImage> videoFeed, String feed, Socket socket) throws IOException {
-      // super(String.format("stream_%s:%s",
-      // socket.getInetAddress().getHostAddress(), socket.getPort()));
-      super(String.format("stream_%s", feed));
-      this.videoFeed = videoFeed;
+    Frame(Feed feed) {
       this.feed = feed;
-      connections.add(new Connection(socket));
     }
 
-    // TODO - look into buffered output stream
-    @Override
-    public void run() {
-      try {
-        while (true) {
-          SerializableImage frame = videoFeed.take();
-          // ++frameIndex;
-          // log.info("frame {}", frameIndex);
-          Logging.logTime(String.format("Mjpeg frameIndex %d %d", frame.frameIndex, System.currentTimeMillis()));
-          for (Iterator<Connection> iterator = connections.iterator(); iterator.hasNext();) {
-            Connection c = iterator.next();
+    void retain() {
+      refs.incrementAndGet();
+    }
 
-            try {
+    void release() {
+      if (refs.decrementAndGet() == 0) {
+        feed.pool.offer(this);
+      }
+    }
 
-              if (!c.initialized) {
-                c.os.write(
-                    ("HTTP/1.0 200 OK\r\n" + "Server: YourServerName\r\n" + "Connection: close\r\n" + "Max-Age: 0\r\n" + "Expires: 0\r\n" + "Cache-Control: no-cache, private\r\n"
-                        + "Pragma: no-cache\r\n" + "Content-Type: multipart/x-mixed-replace; " + "boundary=--BoundaryString\r\n\r\n").getBytes());
-                c.initialized = true;
-              }
+    void setHeader(long timestamp) {
+      headerLength = 0;
+      putAscii("--" + BOUNDARY + "\r\nContent-Type: image/jpeg\r\nContent-Length: ");
+      putAscii(Integer.toString(jpeg.size()));
+      putAscii("\r\nX-Timestamp: ");
+      putAscii(Long.toString(timestamp));
+      putAscii("\r\n\r\n");
+    }
 
-              byte[] bytes = frame.getBytes();
+    private void putAscii(String s) {
+      for (int i = 0; i < s.length(); ++i) {
+        header[headerLength++] = (byte) s.charAt(i);
+      }
+    }
+  }
 
-              // begin jpg
-              c.os.write(("--BoundaryString\r\n" + "Content-type: image/jpg\r\n" + "Content-Length: " + bytes.length + "\r\n\r\n").getBytes());
-              // write the jpg
-              c.os.write(bytes);
+  static class Feed {
+    final String name;
+    // publisher hands frames to the selector thread here
+    final AtomicReference<Frame> pending = new AtomicReference<>();
+    final ConcurrentLinkedQueue<Frame> pool = new ConcurrentLinkedQueue<>();
+    // frames published
+    long seq = 0;
 
-              // end
-              c.os.write("\r\n\r\n".getBytes());
+    // selector thread only
+    Frame latest;
+    final List<Client> clients = new ArrayList<>();
+    volatile int viewers = 0;
 
-              // flush or not to flush that is the question
-              c.os.flush();
-              Logging.logTime(String.format("Mjpeg frameIndex %d %d SENT", frame.frameIndex, System.currentTimeMillis()));
-            } catch (Exception e) {
-              Logging.logError(e);
-              log.info("removing socket");
-              iterator.remove();
-              c.close();
-            }
+    Feed(String name) {
+      this.name = name;
+    }
+  }
 
-          } // for each socket
-        }
-      } catch (Exception e) {
-        // FIXME remove socket from list - continue to run
-        Logging.logError(e);
-      }
+  class Client {
+    final SocketChannel channel;
+    final ByteBuffer request = ByteBuffer.allocate(4096);
+    // response header or page - written before any frame
+    ByteBuffer head;
+    boolean closeAfterHead = false;
+    Feed feed;
 
+    Frame frame;
+    final ByteBuffer[] buffers = new ByteBuffer[3];
+    long seq = 0;
+    long sent = 0;
+    long skipped = 0;
+
+    Client(SocketChannel channel) {
+      this.channel = channel;
     }
   }
 
-  public final static Logger log = LoggerFactory.getLogger(MjpegServer.class.getCanonicalName());
+  public final static Logger log = LoggerFactory.getLogger(MjpegServer.class);
+
+  static public final String BOUNDARY = "BoundaryString";
 
-  transient public HashMap<String, BlockingQueue<SerializableImage>> videoFeeds = new HashMap<String, BlockingQueue<SerializableImage>>();
+  static final byte[] RESPONSE = ("HTTP/1.0 200 OK\r\nServer: myrobotlab\r\nConnection: close\r\nMax-Age: 0\r\nExpires: 0\r\nCache-Control: no-cache, private\r\nPragma: no-cache\r\n"
+      + "Content-Type: multipart/x-mixed-replace; boundary=--" + BOUNDARY + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
 
-  transient public HashMap<String, VideoWebClient> clients = new HashMap<String, VideoWebClient>();
+  static final byte[] TRAILER = "\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
 
   public static void main(String[] args) {
     try {
@@ -128,70 +157,314 @@ public class MjpegServer extends NanoHTTPD {
       server.start();
       log.info("here");
     } catch (IOException e) {
-      // TODO Auto-generated catch block
-      e.printStackTrace();
+      log.error("main threw", e);
     }
-
   }
 
+  int port;
+
+  transient public final Map<String, Feed> feeds = new ConcurrentHashMap<>();
+
+  transient ServerSocketChannel listener;
+  transient Selector selector;
+  volatile boolean listening = false;
+  transient private Thread serverThread;
+
   public MjpegServer(int port) {
-    super(port);
+    this.port = port;
   }
 
-  @Override
-  public Response serve(String uri, String method, Properties header, Properties parms, Socket socket) {
-    log.info(method + " '" + uri + "' ");
+  /**
+   * @return the port listened on - the bound one if started on port 0
+   */
+  public int getPort() {
+    return port;
+  }
 
-    Enumeration e = header.propertyNames();
-    while (e.hasMoreElements()) {
-      String value = (String) e.nextElement();
-      log.info("  HDR: '" + value + "' = '" + header.getProperty(value) + "'");
+  /**
+   * encode a frame once and hand it to the clients of its feed - frames of a
+   * feed nobody watches are not encoded
+   */
+  public void publish(SerializableImage si) {
+    Feed feed = feeds.computeIfAbsent(si.getSource(), Feed::new);
+    if (feed.viewers == 0 || selector == null) {
+      return;
+    }
+    BufferedImage image = si.getImage();
+    if (image == null) {
+      return;
+    }
+    Frame frame = feed.pool.poll();
+    if (frame == null) {
+      frame = new Frame(feed);
+    }
+    try {
+      frame.jpeg.reset();
+      MemoryCacheImageOutputStream out = new MemoryCacheImageOutputStream(frame.jpeg);
+      boolean written = ImageIO.write(image, "jpg", out);
+      out.close();
+      if (!written) {
+        log.error("no jpeg writer for image type {} of {}", image.getType(), feed.name);
+        feed.pool.offer(frame);
+        return;
+      }
+    } catch (IOException e) {
+      log.error("encoding {} threw", feed.name, e);
+      feed.pool.offer(frame);
+      return;
     }
-    e = parms.propertyNames();
-    while (e.hasMoreElements()) {
-      String value = (String) e.nextElement();
-      log.info("  PRM: '" + value + "' = '" + parms.getProperty(value) + "'");
+    frame.setHeader(si.getTimestamp());
+    frame.seq = ++feed.seq;
+    frame.refs.set(1);
+    Frame stale = feed.pending.getAndSet(frame);
+    if (stale != null) {
+      // the selector never picked it up
+      stale.release();
     }
+    selector.wakeup();
+  }
 
-    String feed = null;
+  public void run() {
+    try {
+      listener.configureBlocking(false);
+      listener.register(selector, SelectionKey.OP_ACCEPT);
+      log.info("started mjpeg server port {}", port);
+      while (listening) {
+        selector.select();
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext()) {
+          SelectionKey key = it.next();
+          it.remove();
+          try {
+            if (!key.isValid()) {
+              continue;
+            }
+            if (key.isAcceptable()) {
+              accept();
+              continue;
+            }
+            Client client = (Client) key.attachment();
+            if (key.isReadable()) {
+              read(key, client);
+            }
+            if (key.isValid() && key.isWritable()) {
+              write(key, client);
+            }
+          } catch (IOException e) {
+            close(key);
+          }
+        }
+        for (Feed feed : feeds.values()) {
+          Frame frame = feed.pending.getAndSet(null);
+          if (frame == null) {
+            continue;
+          }
+          if (feed.latest != null) {
+            feed.latest.release();
+          }
+          feed.latest = frame;
+          // closing removes from feed.clients - failed clients are closed after
+          List<SelectionKey> failed = null;
+          for (Client client : feed.clients) {
+            SelectionKey key = client.channel.keyFor(selector);
+            try {
+              // busy clients pick it up when done with their current frame
+              if (client.frame == null) {
+                write(key, client);
+              }
+            } catch (IOException e) {
+              if (failed == null) {
+                failed = new ArrayList<>();
+              }
+              failed.add(key);
+            }
+          }
+          if (failed != null) {
+            for (SelectionKey key : failed) {
+              close(key);
+            }
+          }
+        }
+      }
+    } catch (Exception e) {
+      log.error("mjpeg server threw", e);
+    } finally {
+      for (SelectionKey key : selector.keys()) {
+        if (key.attachment() != null) {
+          close(key);
+        }
+      }
+      try {
+        listener.close();
+        selector.close();
+      } catch (IOException e) {
+      }
+      log.info("stopped mjpeg server port {}", port);
+    }
+  }
 
-    // look for "file" requests
-    if (uri.contains(".")) {
-      return serveFile(uri, header, new File("."), true);
+  private void accept() throws IOException {
+    SocketChannel channel = listener.accept();
+    if (channel == null) {
+      return;
     }
+    channel.configureBlocking(false);
+    channel.socket().setTcpNoDelay(true);
+    channel.register(selector, SelectionKey.OP_READ, new Client(channel));
+  }
 
-    int pos0 = uri.lastIndexOf("/");
-    if (pos0 != -1) {
-      feed = uri.substring(pos0 + 1);
+  private void read(SelectionKey key, Client client) throws IOException {
+    if (client.feed != null || client.head != null) {
+      // streaming - only reading to notice the client leaving
+      client.request.clear();
+      if (client.channel.read(client.request) < 0) {
+        close(key);
+      }
+      return;
+    }
+    if (client.channel.read(client.request) < 0) {
+      close(key);
+      return;
+    }
+    String request = new String(client.request.array(), 0, client.request.position(), StandardCharsets.US_ASCII);
+    if (!request.contains("\r\n\r\n")) {
+      if (!client.request.hasRemaining()) {
+        respond(key, client, "400 Bad Request", "request too large");
+      }
+      return;
     }
 
-    if (!videoFeeds.containsKey(feed)) {
-      StringBuffer response = new StringBuffer(String.format("<html><body align=center>video feeds<br/>", feed));
-      for (Map.Entry<String, BlockingQueue<SerializableImage>> o : videoFeeds.entrySet()) {
-        // Map.Entry<String,SerializableImage> pairs = o;
-        // response.append(String.format("<a href=\"http://%\" >%s</a><br/>",
-        // o.getKey()));
-        response.append(String.format("<img src=\"%s\" /><br/>%s<br/>", o.getKey(), o.getKey()));
-        log.info(o.getKey());
+    // GET /feedName HTTP/1.1
+    String[] line = request.substring(0, request.indexOf("\r\n")).split(" ");
+    String uri = (line.length > 1) ? line[1] : "/";
+    String feedName = uri.substring(uri.lastIndexOf('/') + 1);
+    log.info("{} {} from {}", line[0], uri, client.channel.socket().getRemoteSocketAddress());
+
+    Feed feed = feeds.get(feedName);
+    if (feed == null) {
+      StringBuilder page = new StringBuilder("<html><body align=center>video feeds<br/>");
+      for (String name : feeds.keySet()) {
+        page.append(String.format("<img src=\"%s\" /><br/>%s<br/>", name, name));
       }
-      if (videoFeeds.size() == 0) {
-        response.append("no video feed exist - try attaching a VideoSource to the VideoStreamer");
+      if (feeds.size() == 0) {
+        page.append("no video feed exist - try attaching a VideoSource to the VideoStreamer");
       }
-      response.append("</body></html>");
-      return new Response(HTTP_OK, MIME_HTML, response.toString());
-    } else {
-      try {
-        VideoWebClient client = new VideoWebClient(videoFeeds.get(feed), feed, socket);
-        client.start();
-        clients.put(feed, client);
-      } catch (IOException e1) {
-        Logging.logError(e1);
+      page.append("</body></html>");
+      respond(key, client, "200 OK", page.toString());
+      return;
+    }
+
+    client.head = ByteBuffer.wrap(RESPONSE);
+    client.feed = feed;
+    feed.clients.add(client);
+    feed.viewers = feed.clients.size();
+    write(key, client);
+  }
+
+  private void respond(SelectionKey key, Client client, String status, String html) throws IOException {
+    byte[] body = html.getBytes(StandardCharsets.UTF_8);
+    String header = String.format("HTTP/1.0 %s\r\nContent-Type: text/html\r\nContent-Length: %d\r\nConnection: close\r\n\r\n", status, body.length);
+    ByteBuffer head = ByteBuffer.allocate(header.length() + body.length);
+    head.put(header.getBytes(StandardCharsets.US_ASCII)).put(body).flip();
+    client.head = head;
+    client.closeAfterHead = true;
+    write(key, client);
+  }
+
+  /**
+   * write as much as the socket takes - the head, then the current frame, then
+   * the newest frame if it is newer than the last one sent
+   */
+  private void write(SelectionKey key, Client client) throws IOException {
+    if (client.head != null) {
+      client.channel.write(client.head);
+      if (client.head.hasRemaining()) {
+        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        return;
+      }
+      if (client.closeAfterHead) {
+        close(key);
+        return;
+      }
+      client.head = null;
+    }
+    Feed feed = client.feed;
+    while (feed != null) {
+      if (client.frame == null) {
+        Frame latest = feed.latest;
+        if (latest == null || latest.seq == client.seq) {
+          key.interestOps(SelectionKey.OP_READ);
+          return;
+        }
+        if (client.seq != 0) {
+          client.skipped += latest.seq - client.seq - 1;
+        }
+        latest.retain();
+        client.frame = latest;
+        client.seq = latest.seq;
+        client.buffers[0] = ByteBuffer.wrap(latest.header, 0, latest.headerLength);
+        client.buffers[1] = ByteBuffer.wrap(latest.jpeg.array(), 0, latest.jpeg.size());
+        client.buffers[2] = ByteBuffer.wrap(TRAILER);
+      }
+      client.channel.write(client.buffers);
+      if (client.buffers[2].hasRemaining()) {
+        // socket buffer full - finish this frame when it drains
+        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        return;
+      }
+      client.frame.release();
+      client.frame = null;
+      ++client.sent;
+    }
+  }
+
+  private void close(SelectionKey key) {
+    Client client = (Client) key.attachment();
+    key.cancel();
+    if (client.frame != null) {
+      client.frame.release();
+      client.frame = null;
+    }
+    if (client.feed != null) {
+      if (client.feed.latest != null) {
+        client.skipped += client.feed.latest.seq - client.seq;
       }
+      client.feed.clients.remove(client);
+      client.feed.viewers = client.feed.clients.size();
+      log.info("closed {} - {} frames of {} sent {} skipped", client.channel.socket().getRemoteSocketAddress(), client.sent, client.feed.name, client.skipped);
+    }
+    try {
+      client.channel.close();
+    } catch (IOException e) {
     }
-    // new Response(HTTP_OK, MIME_HTML, "<html><body>Redirected: <a href=\""
-    // + uri + "\">" + uri + "</a></body></html>");
+  }
 
-    return null; // serveFile(uri, header, new File("."), true);
+  synchronized public void start() throws IOException {
+    if (serverThread != null) {
+      log.warn("server already started");
+      return;
+    }
+    selector = Selector.open();
+    listener = ServerSocketChannel.open();
+    listener.bind(new InetSocketAddress(port));
+    port = listener.socket().getLocalPort();
+    listening = true;
+    serverThread = new Thread(this, "mjpeg_" + port);
+    serverThread.start();
+  }
+
+  synchronized public void stop() {
+    listening = false;
+    if (serverThread == null) {
+      return;
+    }
+    selector.wakeup();
+    try {
+      serverThread.join(1000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    serverThread = null;
   }
 
 }
@@ -1,56 +1,52 @@
 package org.myrobotlab.net;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.HashSet;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.myrobotlab.logging.LoggerFactory;
 import org.myrobotlab.service.Serial;
 import org.slf4j.Logger;
 
+/**
+ * <pre>
+ * Shares a Serial service's port over tcp - what a client sends is written to
+ * the port, what the port receives is broadcast to every client.
+ *
+ * One selector thread does everything - accepting, reading whatever a client
+ * sent as soon as the os reports it, and writing out what broadcast queued.
+ * broadcast is called on the port's reading thread and only copies into each
+ * client's buffer, a slow client loses data past CLIENT_BUFFER_SIZE instead of
+ * stalling the port.
+ * </pre>
+ */
 public class TcpSerialHub implements Runnable {
 
-  private class TcpThread implements Runnable {
-    private Socket socket;
+  private class Client {
+    final SocketChannel channel;
+    // bytes to send - guarded by this, left in fill mode
+    final ByteBuffer out = ByteBuffer.allocate(CLIENT_BUFFER_SIZE);
 
-    TcpThread(Socket socket) {
-      this.socket = socket;
-    }
-
-    @Override
-    public void run() {
-      log.info("connected: " + socket);
-      try {
-
-        InputStream netIn = socket.getInputStream();
-
-        int c;
-        while ((c = netIn.read()) != -1) {
-          serial.write(c);
-        }
-
-      } catch (Exception e) {
-        log.info("error:" + socket);
-      } finally {
-        try {
-          socket.close();
-        } catch (IOException e) {
-        }
-        log.info("closed: " + socket);
-      }
-
-      clients.remove(this);
+    Client(SocketChannel channel) {
+      this.channel = channel;
     }
   }
 
   public final static Logger log = LoggerFactory.getLogger(TcpSerialHub.class);
 
+  /**
+   * bytes queued per client
+   */
+  static public final int CLIENT_BUFFER_SIZE = 64 * 1024;
+
   public static void main(String[] args) {
     try {
       TcpSerialHub hub = new TcpSerialHub();
@@ -60,19 +56,28 @@ public class TcpSerialHub implements Runnable {
     }
   }
 
-  ServerSocket listener;
-  boolean listening;
-  int nThreads = 2; // 20
-  transient ExecutorService pool;
+  transient ServerSocketChannel listener;
+  transient Selector selector;
+  volatile boolean listening;
+  /**
+   * not used - the selector thread serves all clients
+   */
+  int nThreads = 2;
 
   int port = 32323;
   transient Serial serial;
 
   transient private Thread serverThread;
 
-  Set<TcpThread> clients = new HashSet<TcpThread>();
+  Set<Client> clients = ConcurrentHashMap.newKeySet();
+
+  /**
+   * set by broadcast - the selector thread registers write interest
+   */
+  volatile boolean pendingWrites = false;
 
-  // Map<String, Socket> socketsx = new HashMap<>();
+  // selector thread only
+  final ByteBuffer readBuffer = ByteBuffer.allocate(4096);
 
   public TcpSerialHub() {
   }
@@ -88,25 +93,112 @@ public class TcpSerialHub implements Runnable {
     // serial.addByteListener(this);
   }
 
-  synchronized public void run() {
+  public void run() {
     try {
-      listener = new ServerSocket(port);
+      listener.configureBlocking(false);
+      listener.register(selector, SelectionKey.OP_ACCEPT);
       log.info("started server port {}", port);
-      pool = Executors.newFixedThreadPool(nThreads);
-      listening = true;
       while (listening) {
-        TcpThread client = new TcpThread(listener.accept());
-        clients.add(client);
-        pool.execute(client);
+        selector.select();
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext()) {
+          SelectionKey key = it.next();
+          it.remove();
+          try {
+            if (!key.isValid()) {
+              continue;
+            }
+            if (key.isAcceptable()) {
+              accept();
+              continue;
+            }
+            Client client = (Client) key.attachment();
+            if (key.isReadable()) {
+              read(key, client);
+            }
+            if (key.isValid() && key.isWritable()) {
+              flush(key, client);
+            }
+          } catch (IOException e) {
+            close(key);
+          }
+        }
+        if (pendingWrites) {
+          pendingWrites = false;
+          for (SelectionKey key : selector.keys()) {
+            if (key.isValid() && key.attachment() != null) {
+              key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+          }
+        }
       }
     } catch (Exception e) {
       log.error("TcpSerialHub threw", e);
+    } finally {
+      for (SelectionKey key : selector.keys()) {
+        if (key.attachment() != null) {
+          close(key);
+        }
+      }
+      try {
+        listener.close();
+        selector.close();
+      } catch (IOException e) {
+      }
+      log.info("stopped server port {}", port);
+    }
+  }
+
+  private void accept() throws IOException {
+    SocketChannel channel = listener.accept();
+    if (channel == null) {
+      return;
+    }
+    channel.configureBlocking(false);
+    channel.socket().setTcpNoDelay(true);
+    Client client = new Client(channel);
+    channel.register(selector, SelectionKey.OP_READ, client);
+    clients.add(client);
+    log.info("connected: {}", channel.socket());
+  }
+
+  private void read(SelectionKey key, Client client) throws IOException {
+    readBuffer.clear();
+    int count = client.channel.read(readBuffer);
+    if (count < 0) {
+      close(key);
+      return;
+    }
+    if (count == 0 || serial == null) {
+      return;
     }
-    serverThread = null;
     try {
-      listener.close();
+      serial.write(Arrays.copyOf(readBuffer.array(), count));
+    } catch (Exception e) {
+      log.warn("writing to {} threw", serial.getName(), e);
+    }
+  }
+
+  private void flush(SelectionKey key, Client client) throws IOException {
+    synchronized (client) {
+      client.out.flip();
+      client.channel.write(client.out);
+      client.out.compact();
+      if (client.out.position() == 0) {
+        key.interestOps(SelectionKey.OP_READ);
+      }
+    }
+  }
+
+  private void close(SelectionKey key) {
+    Client client = (Client) key.attachment();
+    key.cancel();
+    clients.remove(client);
+    try {
+      client.channel.close();
     } catch (IOException e) {
     }
+    log.info("closed: {}", client.channel.socket());
   }
 
   public void start() throws IOException {
@@ -119,11 +211,12 @@ public class TcpSerialHub implements Runnable {
 
   /**
    * Maximum complexity start
-   * 
+   *
    * @param inPort
    *          - listening port
    * @param inThreads
-   *          - number of handler threads
+   *          - number of handler threads - not used, one selector thread
+   *          serves all clients
    * @throws IOException
    */
   synchronized public void start(Integer inPort, Integer inThreads) throws IOException {
@@ -138,6 +231,10 @@ public class TcpSerialHub implements Runnable {
     }
 
     if (serverThread == null) {
+      selector = Selector.open();
+      listener = ServerSocketChannel.open();
+      listener.bind(new InetSocketAddress(port));
+      listening = true;
       serverThread = new Thread(this, "tcpserialhub-");
       serverThread.start();
     }
@@ -145,17 +242,40 @@ public class TcpSerialHub implements Runnable {
 
   synchronized public void stop() throws IOException {
     listening = false;
-    if (listener != null) {
-      listener.close();
+    if (serverThread == null) {
+      return;
     }
-    pool.shutdown();
+    selector.wakeup();
+    try {
+      serverThread.join(1000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    serverThread = null;
   }
 
   public void broadcast(Integer newByte) throws IOException {
-    for (TcpThread client : clients) {
-      OutputStream out = client.socket.getOutputStream();
-      out.write(newByte);
+    broadcast(new byte[] { newByte.byteValue() });
+  }
+
+  /**
+   * queue data for every client - the selector thread sends it
+   */
+  public void broadcast(byte[] data) throws IOException {
+    if (clients.isEmpty()) {
+      return;
+    }
+    for (Client client : clients) {
+      synchronized (client) {
+        int count = Math.min(client.out.remaining(), data.length);
+        client.out.put(data, 0, count);
+        if (count < data.length) {
+          log.warn("{} not reading - {} bytes dropped", client.channel.socket(), data.length - count);
+        }
+      }
     }
+    pendingWrites = true;
+    selector.wakeup();
   }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,146 @@
+package org.myrobotlab.opencv;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.myrobotlab.framework.LatencyHistogram;
+
+/**
+ * <pre>
+ * Timing of every stage and filter of an OpenCV pipeline.
+ *
+ * Each frame is timed - grab, the filter chain, display, output and grab to
+ * output for the whole frame. Each filter's process, postProcess and
+ * processDisplay are timed separately, so the filter eating the frame budget
+ * stands out.
+ *
+ * Recording is lock free and safe from the stage threads of pipelined mode.
+ * reset starts a new window - the percentiles published by OpenCV cover one
+ * publishing interval each.
+ * </pre>
+ */
+public class PipelineMetrics {
+
+  static public class FilterMetrics {
+    public final LatencyHistogram process = new LatencyHistogram();
+    public final LatencyHistogram postProcess = new LatencyHistogram();
+    public final LatencyHistogram processDisplay = new LatencyHistogram();
+
+    void reset() {
+      process.reset();
+      postProcess.reset();
+      processDisplay.reset();
+    }
+  }
+
+  final String name;
+
+  public final LatencyHistogram grab = new LatencyHistogram();
+  public final LatencyHistogram filters = new LatencyHistogram();
+  public final LatencyHistogram display = new LatencyHistogram();
+  public final LatencyHistogram output = new LatencyHistogram();
+  public final LatencyHistogram frame = new LatencyHistogram();
+  final Map<String, FilterMetrics> filterMetrics = new ConcurrentHashMap<>();
+
+  final LongAdder frames = new LongAdder();
+  final LongAdder dropped = new LongAdder();
+  final LongAdder overBudget = new LongAdder();
+  /**
+   * when the last frame came out - only touched by the thread finishing frames
+   */
+  long lastFrameNs = 0;
+  volatile long resetTs = System.currentTimeMillis();
+
+  public PipelineMetrics(String name) {
+    this.name = name;
+  }
+
+  public FilterMetrics getFilter(String filterName) {
+    FilterMetrics m = filterMetrics.get(filterName);
+    if (m == null) {
+      m = filterMetrics.computeIfAbsent(filterName, f -> new FilterMetrics());
+    }
+    return m;
+  }
+
+  public void removeFilter(String filterName) {
+    filterMetrics.remove(filterName);
+  }
+
+  /**
+   * the grab returned nothing new
+   */
+  public void dropped() {
+    dropped.increment();
+  }
+
+  /**
+   * a frame is out of the pipeline
+   *
+   * @param latencyNs
+   *          - from its grab until now
+   * @param budgetNs
+   *          - time allowed between frames, 0 for no budget
+   */
+  public void frameDone(long latencyNs, long budgetNs) {
+    long now = System.nanoTime();
+    frame.record(latencyNs);
+    frames.increment();
+    if (budgetNs > 0 && lastFrameNs != 0 && now - lastFrameNs > budgetNs) {
+      overBudget.increment();
+    }
+    lastFrameNs = now;
+  }
+
+  public void reset() {
+    grab.reset();
+    filters.reset();
+    display.reset();
+    output.reset();
+    frame.reset();
+    for (FilterMetrics m : filterMetrics.values()) {
+      m.reset();
+    }
+    frames.reset();
+    dropped.reset();
+    overBudget.reset();
+    resetTs = System.currentTimeMillis();
+  }
+
+  /**
+   * @param pipeline
+   *          - the filters in pipeline order
+   */
+  public PipelineStats getStats(Collection<OpenCVFilter> pipeline) {
+    PipelineStats stats = new PipelineStats();
+    stats.name = name;
+    stats.stages.put("grab", grab.getStats());
+    stats.stages.put("filters", filters.getStats());
+    stats.stages.put("display", display.getStats());
+    stats.stages.put("output", output.getStats());
+    stats.stages.put("frame", frame.getStats());
+    for (OpenCVFilter filter : pipeline) {
+      FilterMetrics m = filterMetrics.get(filter.name);
+      PipelineStats.FilterStats fs = new PipelineStats.FilterStats();
+      fs.name = filter.name;
+      fs.type = filter.getClass().getSimpleName();
+      fs.enabled = filter.isEnabled();
+      if (m != null) {
+        fs.process = m.process.getStats();
+        fs.postProcess = m.postProcess.getStats();
+        fs.processDisplay = m.processDisplay.getStats();
+      }
+      stats.filters.put(filter.name, fs);
+    }
+    stats.frames = frames.sum();
+    stats.dropped = dropped.sum();
+    stats.overBudget = overBudget.sum();
+    stats.ts = System.currentTimeMillis();
+    stats.intervalMs = stats.ts - resetTs;
+    stats.fps = stats.frames * 1000.0 / Math.max(1, stats.intervalMs);
+    return stats;
+  }
+
+}
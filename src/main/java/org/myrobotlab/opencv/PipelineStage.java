@@ -0,0 +1,146 @@
+package org.myrobotlab.opencv;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.myrobotlab.framework.LatencyHistogram;
+import org.myrobotlab.framework.LatencyStats;
+import org.myrobotlab.logging.LoggerFactory;
+import org.slf4j.Logger;
+
+/**
+ * <pre>
+ * One stage of a pipelined OpenCV - a worker thread taking frames from a
+ * small bounded queue, working on them and handing them to the next stage.
+ *
+ * A full queue blocks the stage in front of it, so a slow stage throttles the
+ * grabber instead of frames piling up. Every stage has one thread and fifo
+ * queues, frames leave the last stage in the order they were grabbed.
+ * </pre>
+ */
+public class PipelineStage implements Runnable {
+
+  public interface Work {
+    void process(OpenCVData data) throws Exception;
+  }
+
+  public final static Logger log = LoggerFactory.getLogger(PipelineStage.class);
+
+  final String name;
+  final Work work;
+  final ArrayBlockingQueue<OpenCVData> queue;
+  PipelineStage next;
+
+  /**
+   * time spent working on each frame
+   */
+  final LatencyHistogram latency;
+
+  volatile boolean running = false;
+  transient Thread thread;
+
+  /**
+   * @param name
+   *          - stage name
+   * @param capacity
+   *          - frames waiting before the stage in front blocks
+   * @param work
+   *          - what the stage does to a frame
+   */
+  public PipelineStage(String name, int capacity, Work work) {
+    this(name, capacity, work, new LatencyHistogram());
+  }
+
+  /**
+   * @param latency
+   *          - histogram the stage records its work time in
+   */
+  public PipelineStage(String name, int capacity, Work work, LatencyHistogram latency) {
+    this.name = name;
+    this.work = work;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.latency = latency;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setNext(PipelineStage next) {
+    this.next = next;
+  }
+
+  /**
+   * hand a frame to this stage - blocks while the stage is full
+   */
+  public void put(OpenCVData data) throws InterruptedException {
+    queue.put(data);
+  }
+
+  @Override
+  public void run() {
+    try {
+      while (running) {
+        OpenCVData data = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (data == null) {
+          continue;
+        }
+        long start = System.nanoTime();
+        try {
+          work.process(data);
+        } catch (InterruptedException e) {
+          break;
+        } catch (Exception e) {
+          log.error("{} stage threw on frame {}", name, data.getFrameIndex(), e);
+        }
+        latency.record(System.nanoTime() - start);
+        if (next != null) {
+          next.put(data);
+        }
+      }
+    } catch (InterruptedException e) {
+      // stopping
+    }
+    log.info("{} stage stopped", name);
+  }
+
+  synchronized public void start(String threadName) {
+    if (thread != null) {
+      return;
+    }
+    running = true;
+    thread = new Thread(this, threadName);
+    thread.start();
+  }
+
+  /**
+   * stops the worker - frames still queued are dropped
+   */
+  synchronized public void stop() {
+    running = false;
+    if (thread == null) {
+      return;
+    }
+    thread.interrupt();
+    try {
+      thread.join(1000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    thread = null;
+    queue.clear();
+  }
+
+  public int getQueueSize() {
+    return queue.size();
+  }
+
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+
+  public LatencyStats getStats() {
+    return latency.getStats();
+  }
+
+}
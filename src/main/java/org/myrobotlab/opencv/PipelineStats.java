@@ -0,0 +1,66 @@
+package org.myrobotlab.opencv;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.myrobotlab.framework.LatencyStats;
+
+/**
+ * snapshot of an OpenCV's {@link PipelineMetrics} - latencies in
+ * microseconds, counts since the last reset
+ */
+public class PipelineStats implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * time spent in each call of one filter
+   */
+  static public class FilterStats implements Serializable {
+    private static final long serialVersionUID = 1L;
+    public String name;
+    public String type;
+    public boolean enabled;
+    public LatencyStats process;
+    public LatencyStats postProcess;
+    public LatencyStats processDisplay;
+  }
+
+  public String name;
+  public boolean pipelined;
+  public Integer maxFps;
+  /**
+   * ms between frames at maxFps - 0 when not throttled
+   */
+  public double budgetMs;
+  public long frames;
+  public double fps;
+  /**
+   * grabs which returned no new frame - the last one was processed again
+   */
+  public long dropped;
+  /**
+   * frames which came out later than budgetMs after the one before
+   */
+  public long overBudget;
+  /**
+   * grab, filters, display, output and frame (grab to the end of output)
+   */
+  public Map<String, LatencyStats> stages = new LinkedHashMap<>();
+  /**
+   * frames waiting in front of each pipeline stage - pipelined mode only
+   */
+  public Map<String, Integer> queued = new LinkedHashMap<>();
+  /**
+   * filter name -&gt; timing, in pipeline order
+   */
+  public Map<String, FilterStats> filters = new LinkedHashMap<>();
+  public long intervalMs;
+  public long ts;
+
+  public String getName() {
+    return name;
+  }
+
+}
@@ -1,10 +1,16 @@
 package org.myrobotlab.programab;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.alicebot.ab.Bot;
+import org.alicebot.ab.Category;
 import org.alicebot.ab.Properties;
 import org.myrobotlab.io.FileIO;
 import org.myrobotlab.logging.LoggerFactory;
@@ -21,6 +27,23 @@ public class BotInfo {
   public String name;
   public File path;
   public boolean activated = false;
+  /**
+   * load the compiled brain when the aiml has not changed since it was compiled
+   */
+  public boolean useSnapshot = true;
+  /**
+   * the bot can learn - learn and learnf add categories to the brain all
+   * sessions of the bot share, so its responses are worked out one at a time.
+   * Found in the aiml when the bot is loaded, set by addCategory. Sessions of a
+   * bot without learning are answered in parallel.
+   */
+  public volatile boolean learn = false;
+  /**
+   * read locked while a response is worked out - write locked instead while the
+   * bot can learn, and while categories are added or the brain is written. Let
+   * go while a sraix search waits.
+   */
+  final transient ReentrantReadWriteLock brainLock = new ReentrantReadWriteLock();
   private transient Bot bot;
   public Properties properties = new Properties();
   private transient ProgramAB programab;
@@ -48,11 +71,9 @@ public class BotInfo {
   public synchronized Bot getBot() {
     if (bot == null) {
       // lazy loading of bot - created on the first use
-      if (properties.containsKey("locale")) {
-        bot = new Bot(name, path.getAbsolutePath(), java.util.Locale.forLanguageTag(properties.get("locale")));
-      } else {
-        bot = new Bot(name, path.getAbsolutePath());
-      }
+      java.util.Locale locale = (properties.containsKey("locale")) ? java.util.Locale.forLanguageTag(properties.get("locale")) : null;
+      bot = BrainSnapshot.load(name, path, locale, useSnapshot);
+      learn = canLearn(new File(path, "aiml"));
 
       // merge properties - potentially there are 2 sets
       // user can fill the BotInfo with new properties before a Bot is created
@@ -65,7 +86,7 @@ public class BotInfo {
       // setting reference of BotInfo properties to bot properties
       properties = bot.properties;
 
-      bot.setSraixHandler(new MrlSraixHandler(programab));
+      bot.setSraixHandler(new MrlSraixHandler(programab, this));
     }
     return bot;
   }
@@ -79,12 +100,92 @@ public class BotInfo {
     return bot != null;
   }
 
+  /**
+   * @return true if an aiml file has a learn or learnf template
+   */
+  static boolean canLearn(File aimlDir) {
+    File[] files = aimlDir.listFiles();
+    if (files == null) {
+      return false;
+    }
+    for (File file : files) {
+      if (!file.getName().toLowerCase().endsWith(".aiml")) {
+        continue;
+      }
+      try {
+        if (new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).contains("<learn")) {
+          return true;
+        }
+      } catch (IOException e) {
+        log.warn("could not read {} - assuming it learns", file, e);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the lock a response is worked out under - exclusive while the bot
+   *         can learn
+   */
+  Lock responseLock() {
+    return (learn) ? brainLock.writeLock() : brainLock.readLock();
+  }
+
+  /**
+   * lets go of the brain for a wait which does not touch it - a sraix search
+   * 
+   * @return takes the brain back
+   */
+  Runnable unlockBrain() {
+    int writes = brainLock.getWriteHoldCount();
+    int reads = brainLock.getReadHoldCount();
+    for (int i = 0; i < reads; ++i) {
+      brainLock.readLock().unlock();
+    }
+    for (int i = 0; i < writes; ++i) {
+      brainLock.writeLock().unlock();
+    }
+    return () -> {
+      for (int i = 0; i < writes; ++i) {
+        brainLock.writeLock().lock();
+      }
+      for (int i = 0; i < reads; ++i) {
+        brainLock.readLock().lock();
+      }
+    };
+  }
+
+  /**
+   * add a category to the brain - from then on the responses of the bot are
+   * worked out one at a time
+   */
+  public void addCategory(Category c) {
+    learn = true;
+    brainLock.writeLock().lock();
+    try {
+      getBot().brain.addCategory(c);
+    } finally {
+      brainLock.writeLock().unlock();
+    }
+  }
+
   public void writeAIMLFiles() {
-    bot.writeAIMLFiles();
+    brainLock.writeLock().lock();
+    try {
+      bot.writeAIMLFiles();
+    } finally {
+      brainLock.writeLock().unlock();
+    }
   }
 
   public void writeQuit() {
-    bot.writeQuit();
+    brainLock.writeLock().lock();
+    try {
+      bot.writeQuit();
+    } finally {
+      brainLock.writeLock().unlock();
+    }
   }
 
   public void setProperty(String name2, String value) {
@@ -0,0 +1,204 @@
+package org.myrobotlab.programab;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.alicebot.ab.Bot;
+import org.myrobotlab.logging.LoggerFactory;
+import org.slf4j.Logger;
+
+/**
+ * <pre>
+ * Keeps the compiled brain of a bot - the aimlif files Program AB loads
+ * instead of parsing the aiml - in step with the aiml files.
+ *
+ * Program AB only compares the modification times of the aiml and aimlif
+ * directories, which misses edited files and is a coin toss after resources
+ * are extracted, so large bots get parsed again on most starts. The snapshot
+ * records name, size and modification time of every aiml file when the brain
+ * is compiled. On the next load the compiled brain is used only if all of them
+ * still match - otherwise the aiml is parsed and compiled again.
+ * </pre>
+ */
+public class BrainSnapshot {
+
+  transient public final static Logger log = LoggerFactory.getLogger(BrainSnapshot.class);
+
+  static public final int MAGIC = 0x4D524C42; // MRLB
+  static public final int VERSION = 1;
+  static public final String FILE_NAME = "brain.snapshot";
+
+  final File aimlDir;
+  final File aimlifDir;
+  final File file;
+
+  public BrainSnapshot(File botDir) {
+    aimlDir = new File(botDir, "aiml");
+    aimlifDir = new File(botDir, "aimlif");
+    file = new File(botDir, FILE_NAME);
+  }
+
+  /**
+   * size and modification time of every aiml file keyed by relative name
+   */
+  Map<String, long[]> scan() {
+    Map<String, long[]> files = new TreeMap<>();
+    scan(aimlDir, "", files);
+    return files;
+  }
+
+  static void scan(File dir, String prefix, Map<String, long[]> files) {
+    File[] list = dir.listFiles();
+    if (list == null) {
+      return;
+    }
+    for (File f : list) {
+      if (f.isDirectory()) {
+        scan(f, prefix + f.getName() + "/", files);
+      } else {
+        files.put(prefix + f.getName(), new long[] { f.length(), f.lastModified() });
+      }
+    }
+  }
+
+  boolean hasCompiledBrain() {
+    String[] compiled = aimlifDir.list();
+    if (compiled == null) {
+      return false;
+    }
+    for (String name : compiled) {
+      if (name.endsWith(".csv")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return true if the compiled brain was made from the current aiml files
+   */
+  public boolean isValid() {
+    if (!file.exists() || !hasCompiledBrain()) {
+      return false;
+    }
+    try {
+      // read, not mapped - a live mapping keeps Windows from replacing the file
+      ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+      if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+        return false;
+      }
+      Map<String, long[]> current = scan();
+      int count = buf.getInt();
+      if (count != current.size()) {
+        return false;
+      }
+      for (int i = 0; i < count; ++i) {
+        byte[] name = new byte[buf.getShort() & 0xFFFF];
+        buf.get(name);
+        long[] stat = current.get(new String(name, StandardCharsets.UTF_8));
+        if (stat == null || stat[0] != buf.getLong() || stat[1] != buf.getLong()) {
+          return false;
+        }
+      }
+      return true;
+    } catch (Exception e) {
+      log.warn("reading {} threw", file, e);
+    }
+    return false;
+  }
+
+  /**
+   * record the aiml files the compiled brain was made from
+   */
+  public void save() throws IOException {
+    Map<String, long[]> current = scan();
+    try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(current.size());
+      for (Map.Entry<String, long[]> entry : current.entrySet()) {
+        byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+        out.writeShort(name.length);
+        out.write(name);
+        out.writeLong(entry.getValue()[0]);
+        out.writeLong(entry.getValue()[1]);
+      }
+    }
+  }
+
+  /**
+   * remove the compiled brain so the aiml gets parsed
+   */
+  public void invalidate() {
+    file.delete();
+    File[] compiled = aimlifDir.listFiles();
+    if (compiled != null) {
+      for (File f : compiled) {
+        if (f.getName().endsWith(".csv")) {
+          f.delete();
+        }
+      }
+    }
+  }
+
+  /**
+   * creates a bot from its compiled brain when it is current, otherwise parses
+   * the aiml and compiles it for the next time
+   *
+   * @param name
+   *          - bot name
+   * @param path
+   *          - bot directory
+   * @param locale
+   *          - null for the Program AB default
+   * @param useSnapshot
+   *          - false leaves the bot directory alone and creates the bot the way
+   *          Program AB does by itself
+   * @return the bot
+   */
+  static public Bot load(String name, File path, Locale locale, boolean useSnapshot) {
+    if (!useSnapshot) {
+      return newBot(name, path, locale);
+    }
+    BrainSnapshot snapshot = new BrainSnapshot(path);
+    boolean valid = snapshot.isValid();
+    if (valid) {
+      // newer than the aiml directory - Program AB loads the compiled brain
+      snapshot.aimlDir.setLastModified(snapshot.aimlifDir.lastModified() - 1000);
+    } else {
+      snapshot.invalidate();
+      // newer than the emptied aimlif directory - Program AB parses the aiml
+      snapshot.aimlDir.setLastModified(snapshot.aimlifDir.lastModified() + 1000);
+    }
+
+    long start = System.currentTimeMillis();
+    Bot bot = newBot(name, path, locale);
+    log.info("{} loaded {} categories from {} in {} ms", name, bot.brain.getCategories().size(), (valid) ? "snapshot" : "aiml", System.currentTimeMillis() - start);
+
+    if (!valid) {
+      try {
+        if (!snapshot.hasCompiledBrain()) {
+          snapshot.aimlifDir.mkdirs();
+          bot.writeAIMLIFFiles();
+        }
+        snapshot.save();
+      } catch (Exception e) {
+        log.warn("saving brain snapshot of {} threw", name, e);
+      }
+    }
+    return bot;
+  }
+
+  static Bot newBot(String name, File path, Locale locale) {
+    return (locale == null) ? new Bot(name, path.getAbsolutePath()) : new Bot(name, path.getAbsolutePath(), locale);
+  }
+
+}
@@ -2,6 +2,13 @@ package org.myrobotlab.programab;
 
 import java.util.ArrayList;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 
 import org.alicebot.ab.Chat;
@@ -19,8 +26,22 @@ import org.slf4j.Logger;
 public class MrlSraixHandler implements SraixHandler {
   transient public final static Logger log = LoggerFactory.getLogger(MrlSraixHandler.class);
 
+  static public final long DEFAULT_TIMEOUT_MS = 5000;
+
+  /**
+   * searches of getResponseAsync - bounded, when all threads are busy sraix
+   * answers with the default response
+   */
+  static final ThreadPoolExecutor pool = new ThreadPoolExecutor(0, 16, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+    Thread thread = new Thread(r, "sraix");
+    thread.setDaemon(true);
+    return thread;
+  });
+
   private ProgramAB programab = null;
 
+  private BotInfo botInfo = null;
+
   public MrlSraixHandler() {
 
   }
@@ -29,15 +50,61 @@ public class MrlSraixHandler implements SraixHandler {
     this.programab = programab;
   }
 
+  public MrlSraixHandler(ProgramAB programab, BotInfo botInfo) {
+    this.programab = programab;
+    this.botInfo = botInfo;
+  }
+
   @Override
   public String sraix(Chat chatSession, String input, String defaultResponse, String hint, String host, String botid, String apiKey, String limit, Locale locale) {
     log.debug("MRL Sraix handler! Input {}");
+    // the wait does not touch the brain - other sessions of the bot go on
+    Runnable relock = (botInfo == null) ? null : botInfo.unlockBrain();
+    try {
+      return respond(chatSession, input, defaultResponse, hint, locale);
+    } finally {
+      if (relock != null) {
+        relock.run();
+      }
+    }
+  }
+
+  private String respond(Chat chatSession, String input, String defaultResponse, String hint, Locale locale) {
     // the INPUT has the string we care about. if this is an OOB tag, let's
     // evaluate it and return the result.
     if (containsOOB(input)) {
       String response = processInlineOOB(input);
       return response;
-    } else if (programab != null && programab.getPeer("search") != null) {
+    }
+    if (!ResponseEngine.isWorker()) {
+      // getResponse waits for the search as long as it takes
+      return search(chatSession, input, defaultResponse, hint, locale);
+    }
+    // searches can take seconds - the chat worker waits at most sraixTimeoutMs
+    long timeoutMs = (programab == null) ? DEFAULT_TIMEOUT_MS : programab.getSraixTimeout();
+    Future<String> future;
+    try {
+      future = pool.submit(() -> search(chatSession, input, defaultResponse, hint, locale));
+    } catch (RejectedExecutionException e) {
+      log.warn("all sraix threads busy - not searching {}", input);
+      return defaultResponse;
+    }
+    try {
+      return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      log.warn("sraix {} took more than {} ms", input, timeoutMs);
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      log.error("sraix {} threw", input, e.getCause());
+    }
+    return defaultResponse;
+  }
+
+  String search(Chat chatSession, String input, String defaultResponse, String hint, Locale locale) {
+    if (programab != null && programab.getPeer("search") != null) {
       try {
         SearchPublisher search = (SearchPublisher) programab.getPeer("search");
         SearchResults results = search.search(input);
@@ -0,0 +1,229 @@
+package org.myrobotlab.programab;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.myrobotlab.framework.LatencyHistogram;
+import org.myrobotlab.framework.LatencyStats;
+import org.myrobotlab.logging.LoggerFactory;
+import org.slf4j.Logger;
+
+/**
+ * <pre>
+ * Answers chat requests of many sessions in parallel on a bounded pool of
+ * worker threads.
+ *
+ * Every session (user and bot) has its own lane - its requests are answered
+ * one at a time and in the order they came in, while other sessions are
+ * answered on the other workers. A lane gives its worker back after every
+ * request, so a chatty session can not starve the rest. Past maxPending
+ * waiting requests a session's new requests are rejected.
+ *
+ * The latency from submit to response, including the time waiting in the
+ * lane, is recorded per bot.
+ * </pre>
+ */
+public class ResponseEngine {
+
+  public interface Responder {
+    /**
+     * the response of a bot - called on a worker thread, never concurrently
+     * for the same session
+     */
+    Response respond(String userName, String botName, String text) throws Exception;
+  }
+
+  transient public final static Logger log = LoggerFactory.getLogger(ResponseEngine.class);
+
+  static final ThreadLocal<Boolean> worker = ThreadLocal.withInitial(() -> false);
+
+  static class Request {
+    final String userName;
+    final String botName;
+    final String text;
+    final long ts = System.nanoTime();
+    final CompletableFuture<Response> future = new CompletableFuture<>();
+
+    Request(String userName, String botName, String text) {
+      this.userName = userName;
+      this.botName = botName;
+      this.text = text;
+    }
+  }
+
+  /**
+   * requests of one session - at most one worker drains it at a time
+   */
+  class Lane implements Runnable {
+    final ArrayDeque<Request> pending = new ArrayDeque<>();
+    boolean draining = false;
+
+    @Override
+    public void run() {
+      Request request;
+      synchronized (this) {
+        request = pending.poll();
+        if (request == null) {
+          draining = false;
+          return;
+        }
+      }
+      try {
+        request.future.complete(responder.respond(request.userName, request.botName, request.text));
+      } catch (Throwable e) {
+        log.error("{} <-> {} response threw", request.userName, request.botName, e);
+        request.future.completeExceptionally(e);
+      }
+      getLatency(request.botName).record(System.nanoTime() - request.ts);
+      synchronized (this) {
+        if (pending.isEmpty()) {
+          draining = false;
+          return;
+        }
+      }
+      // more waiting - back of the pool queue, behind the other sessions
+      schedule();
+    }
+
+    void schedule() {
+      try {
+        executor.execute(this);
+      } catch (RejectedExecutionException e) {
+        // shut down
+        synchronized (this) {
+          for (Request request : pending) {
+            request.future.completeExceptionally(e);
+          }
+          pending.clear();
+          draining = false;
+        }
+      }
+    }
+  }
+
+  final Responder responder;
+  final int maxPending;
+  final ThreadPoolExecutor executor;
+  final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+  final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+
+  /**
+   * @param name
+   *          - prefix of the worker thread names
+   * @param threads
+   *          - max workers
+   * @param maxPending
+   *          - max requests waiting per session
+   * @param responder
+   *          - answers a request
+   */
+  public ResponseEngine(String name, int threads, int maxPending, Responder responder) {
+    this.responder = responder;
+    this.maxPending = maxPending;
+    AtomicInteger count = new AtomicInteger();
+    executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+      Thread thread = new Thread(() -> {
+        worker.set(true);
+        r.run();
+      }, String.format("%s.response.%d", name, count.incrementAndGet()));
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * @return true on a worker thread of a ResponseEngine
+   */
+  static public boolean isWorker() {
+    return worker.get();
+  }
+
+  LatencyHistogram getLatency(String botName) {
+    return latencies.computeIfAbsent(botName, k -> new LatencyHistogram());
+  }
+
+  /**
+   * queue a request - never blocks
+   *
+   * @return the response when it is ready - completed with a
+   *         RejectedExecutionException if the session has too many requests
+   *         waiting
+   */
+  public CompletableFuture<Response> submit(String userName, String botName, String text) {
+    Request request = new Request(userName, botName, text);
+    Lane lane = lanes.computeIfAbsent(userName + " <-> " + botName, k -> new Lane());
+    boolean start = false;
+    synchronized (lane) {
+      if (lane.pending.size() >= maxPending) {
+        request.future.completeExceptionally(new RejectedExecutionException(String.format("%s <-> %s has %d requests waiting", userName, botName, maxPending)));
+        return request.future;
+      }
+      lane.pending.add(request);
+      if (!lane.draining) {
+        lane.draining = true;
+        start = true;
+      }
+    }
+    if (start) {
+      lane.schedule();
+    }
+    return request.future;
+  }
+
+  /**
+   * requests waiting or being answered
+   */
+  public int getPending() {
+    int pending = 0;
+    for (Lane lane : lanes.values()) {
+      synchronized (lane) {
+        pending += lane.pending.size();
+      }
+    }
+    return pending + executor.getActiveCount();
+  }
+
+  /**
+   * response latency percentiles by bot
+   */
+  public Map<String, LatencyStats> getStats() {
+    Map<String, LatencyStats> stats = new TreeMap<>();
+    for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+      stats.put(entry.getKey(), entry.getValue().getStats());
+    }
+    return stats;
+  }
+
+  public void resetStats() {
+    for (LatencyHistogram latency : latencies.values()) {
+      latency.reset();
+    }
+  }
+
+  public void setThreads(int threads) {
+    if (threads > executor.getMaximumPoolSize()) {
+      executor.setMaximumPoolSize(threads);
+      executor.setCorePoolSize(threads);
+    } else {
+      executor.setCorePoolSize(threads);
+      executor.setMaximumPoolSize(threads);
+    }
+  }
+
+  /**
+   * stops the workers - requests still waiting are not answered
+   */
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+}
@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.concurrent.locks.Lock;
 
 import org.alicebot.ab.Chat;
 import org.alicebot.ab.Predicates;
@@ -96,7 +97,16 @@ public class Session {
 
   public Response getResponse(String inText) {
 
-    String text = getChat().multisentenceRespond(inText);
+    Chat chat = getChat();
+    String text;
+    // sessions of the bot share its brain - one learns at a time
+    Lock lock = botInfo.responseLock();
+    lock.lock();
+    try {
+      text = chat.multisentenceRespond(inText);
+    } finally {
+      lock.unlock();
+    }
 
     // Find any oob tags
     ArrayList<OOBPayload> oobTags = OOBPayload.extractOOBPayloads(text, programab);
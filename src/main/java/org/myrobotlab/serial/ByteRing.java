@@ -0,0 +1,514 @@
+package org.myrobotlab.serial;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.myrobotlab.logging.LoggerFactory;
+import org.slf4j.Logger;
+
+/**
+ * <pre>
+ * Bounded ring of primitive bytes, single-producer / single-consumer - the rx
+ * buffer of Serial and the two directions of a virtual port. Bytes are copied
+ * in and out in bulk, nothing is boxed or allocated per byte.
+ *
+ * The producer copies into the array then advances writeIndex, the consumer
+ * copies out then advances readIndex. A consumer waiting for data (or a
+ * producer waiting for room in put) parks and is unparked by the other side,
+ * the same way as MpscMessageQueue.
+ *
+ * Timed reads use Serial's timeout semantics - the timeout is the longest gap
+ * between bytes, every byte received restarts it. NO_TIMEOUT blocks until the
+ * read is complete.
+ *
+ * Only ONE thread may write and only ONE thread may read/clear at a time.
+ * Owners with more threads on a side hold getWriteLock() / getReadLock()
+ * around each call - the asQueue() view does.
+ * </pre>
+ */
+public class ByteRing {
+
+  public final static Logger log = LoggerFactory.getLogger(ByteRing.class);
+
+  /**
+   * block until the read is complete
+   */
+  static public final long NO_TIMEOUT = -1;
+
+  final byte[] buffer;
+  final int mask;
+  final int capacity;
+
+  final AtomicLong writeIndex = new AtomicLong();
+  final AtomicLong readIndex = new AtomicLong();
+
+  /**
+   * set before parking - the other side unparks them
+   */
+  volatile Thread reader = null;
+  volatile Thread writer = null;
+
+  final Object readLock = new Object();
+  final Object writeLock = new Object();
+
+  transient BlockingQueue<Integer> queue = null;
+
+  public ByteRing() {
+    this(1024);
+  }
+
+  /**
+   * @param size
+   *          - capacity in bytes, rounded up to a power of 2
+   */
+  public ByteRing(int size) {
+    if (size < 1) {
+      size = 1;
+    }
+    int c = 1;
+    while (c < size) {
+      c <<= 1;
+    }
+    capacity = c;
+    mask = c - 1;
+    buffer = new byte[c];
+  }
+
+  /**
+   * @return lock serializing consumers - hold it around every read, poll,
+   *         readUntil and clear when more than one thread reads
+   */
+  public Object getReadLock() {
+    return readLock;
+  }
+
+  /**
+   * @return lock serializing producers - hold it around every write and put
+   *         when more than one thread writes
+   */
+  public Object getWriteLock() {
+    return writeLock;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public int size() {
+    // read consumer first so the difference can not go negative
+    long r = readIndex.get();
+    long w = writeIndex.get();
+    return (int) (w - r);
+  }
+
+  public int remainingCapacity() {
+    return capacity - size();
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  // ============ producer ============
+
+  /**
+   * copies as much as fits - the rest is dropped
+   *
+   * @return number of bytes written
+   */
+  public int write(byte[] data, int offset, int length) {
+    long w = writeIndex.get();
+    int free = capacity - (int) (w - readIndex.get());
+    int n = Math.min(free, length);
+    if (n <= 0) {
+      return 0;
+    }
+    int start = (int) w & mask;
+    int first = Math.min(n, capacity - start);
+    System.arraycopy(data, offset, buffer, start, first);
+    if (n > first) {
+      System.arraycopy(data, offset + first, buffer, 0, n - first);
+    }
+    publish(w + n);
+    return n;
+  }
+
+  public int write(byte[] data) {
+    return write(data, 0, data.length);
+  }
+
+  /**
+   * @param b
+   *          - byte, only the low 8 bits are used
+   * @return false if the ring was full
+   */
+  public boolean write(int b) {
+    long w = writeIndex.get();
+    if (w - readIndex.get() >= capacity) {
+      return false;
+    }
+    buffer[(int) w & mask] = (byte) b;
+    publish(w + 1);
+    return true;
+  }
+
+  /**
+   * writes everything, waiting for the consumer to make room
+   */
+  public void put(byte[] data, int offset, int length) throws InterruptedException {
+    while (length > 0) {
+      int n = write(data, offset, length);
+      offset += n;
+      length -= n;
+      if (length > 0) {
+        awaitRoom(NO_TIMEOUT);
+      }
+    }
+  }
+
+  public void put(int b) throws InterruptedException {
+    while (!write(b)) {
+      awaitRoom(NO_TIMEOUT);
+    }
+  }
+
+  private void publish(long w) {
+    // a volatile store - must not be reordered with the read of reader below
+    writeIndex.set(w);
+    Thread t = reader;
+    if (t != null) {
+      LockSupport.unpark(t);
+    }
+  }
+
+  /**
+   * @return false if the timeout was reached
+   */
+  boolean awaitRoom(long timeoutMs) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    try {
+      while (remainingCapacity() == 0) {
+        writer = Thread.currentThread();
+        // re-check after announcing so the consumer's read can not be missed
+        if (remainingCapacity() == 0 && !park(timeoutMs < 0, deadline)) {
+          return false;
+        }
+      }
+      return true;
+    } finally {
+      writer = null;
+    }
+  }
+
+  // ============ consumer ============
+
+  /**
+   * @return next byte 0 to 255 or -1 if empty
+   */
+  public int read() {
+    long r = readIndex.get();
+    if (r == writeIndex.get()) {
+      return -1;
+    }
+    int b = buffer[(int) r & mask] & 0xFF;
+    consume(r + 1);
+    return b;
+  }
+
+  /**
+   * @return next byte 0 to 255 without removing it, -1 if empty
+   */
+  public int peek() {
+    long r = readIndex.get();
+    if (r == writeIndex.get()) {
+      return -1;
+    }
+    return buffer[(int) r & mask] & 0xFF;
+  }
+
+  /**
+   * copies what is available now, up to length bytes
+   *
+   * @return number of bytes read
+   */
+  public int read(byte[] dst, int offset, int length) {
+    long r = readIndex.get();
+    int n = Math.min((int) (writeIndex.get() - r), length);
+    if (n <= 0) {
+      return 0;
+    }
+    int start = (int) r & mask;
+    int first = Math.min(n, capacity - start);
+    System.arraycopy(buffer, start, dst, offset, first);
+    if (n > first) {
+      System.arraycopy(buffer, 0, dst, offset + first, n - first);
+    }
+    consume(r + n);
+    return n;
+  }
+
+  /**
+   * @return everything available now, null if empty
+   */
+  public byte[] readAll() {
+    int size = size();
+    if (size == 0) {
+      return null;
+    }
+    byte[] data = new byte[size];
+    read(data, 0, size);
+    return data;
+  }
+
+  /**
+   * waits for the next byte
+   *
+   * @return byte 0 to 255 or -1 if the timeout was reached
+   */
+  public int poll(long timeoutMs) throws InterruptedException {
+    int b = read();
+    if (b < 0 && awaitData(timeoutMs)) {
+      b = read();
+    }
+    return b;
+  }
+
+  public int take() throws InterruptedException {
+    return poll(NO_TIMEOUT);
+  }
+
+  /**
+   * reads length bytes, or less if the timeout between two bytes was reached
+   *
+   * @return number of bytes read
+   */
+  public int read(byte[] dst, int offset, int length, long timeoutMs) throws InterruptedException {
+    int count = 0;
+    while (count < length) {
+      count += read(dst, offset + count, length - count);
+      if (count < length && !awaitData(timeoutMs)) {
+        break;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * reads up to and including the next delimiter, stopping early when length
+   * bytes were read or the timeout between two bytes was reached
+   *
+   * @return number of bytes read - dst[offset + count - 1] is the delimiter if
+   *         one was found
+   */
+  public int readUntil(byte[] dst, int offset, int length, int delimiter, long timeoutMs) throws InterruptedException {
+    byte d = (byte) delimiter;
+    int count = 0;
+    while (count < length) {
+      // scan what is available for the delimiter, then copy it in bulk
+      long r = readIndex.get();
+      int n = Math.min((int) (writeIndex.get() - r), length - count);
+      int i = 0;
+      while (i < n) {
+        if (buffer[(int) (r + i++) & mask] == d) {
+          read(dst, offset + count, i);
+          return count + i;
+        }
+      }
+      count += read(dst, offset + count, n);
+      if (count < length && !awaitData(timeoutMs)) {
+        break;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * drops everything buffered - consumer side
+   */
+  public void clear() {
+    consume(writeIndex.get());
+  }
+
+  private void consume(long r) {
+    // a volatile store - must not be reordered with the read of writer below
+    readIndex.set(r);
+    Thread t = writer;
+    if (t != null) {
+      LockSupport.unpark(t);
+    }
+  }
+
+  /**
+   * @return false if the timeout was reached with the ring still empty
+   */
+  boolean awaitData(long timeoutMs) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    try {
+      while (isEmpty()) {
+        reader = Thread.currentThread();
+        // re-check after announcing so the producer's publish can not be missed
+        if (isEmpty() && !park(timeoutMs < 0, deadline)) {
+          return false;
+        }
+      }
+      return true;
+    } finally {
+      reader = null;
+    }
+  }
+
+  /**
+   * @param forever
+   *          - ignore the deadline
+   * @param deadline
+   *          - System.nanoTime to give up at
+   * @return false if the deadline passed
+   */
+  private boolean park(boolean forever, long deadline) throws InterruptedException {
+    if (forever) {
+      LockSupport.park(this);
+    } else {
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return false;
+      }
+      LockSupport.parkNanos(this, remaining);
+    }
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+    return true;
+  }
+
+  /**
+   * @return a BlockingQueue of Integer view for QueueSource - it boxes, the
+   *         ring's own methods do not. It holds the read or write lock, so it
+   *         can be used by any number of threads.
+   */
+  synchronized public BlockingQueue<Integer> asQueue() {
+    if (queue == null) {
+      queue = new Queue();
+    }
+    return queue;
+  }
+
+  class Queue extends AbstractQueue<Integer> implements BlockingQueue<Integer> {
+
+    @Override
+    public boolean offer(Integer b) {
+      synchronized (writeLock) {
+        return write(b);
+      }
+    }
+
+    @Override
+    public void put(Integer b) throws InterruptedException {
+      synchronized (writeLock) {
+        ByteRing.this.put(b);
+      }
+    }
+
+    @Override
+    public boolean offer(Integer b, long timeout, TimeUnit unit) throws InterruptedException {
+      long ms = unit.toMillis(timeout);
+      synchronized (writeLock) {
+        while (!write(b)) {
+          if (!awaitRoom(ms)) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public Integer poll() {
+      synchronized (readLock) {
+        int b = read();
+        return (b < 0) ? null : b;
+      }
+    }
+
+    @Override
+    public Integer take() throws InterruptedException {
+      synchronized (readLock) {
+        return ByteRing.this.take();
+      }
+    }
+
+    @Override
+    public Integer poll(long timeout, TimeUnit unit) throws InterruptedException {
+      synchronized (readLock) {
+        int b = ByteRing.this.poll(unit.toMillis(timeout));
+        return (b < 0) ? null : b;
+      }
+    }
+
+    @Override
+    public Integer peek() {
+      synchronized (readLock) {
+        int b = ByteRing.this.peek();
+        return (b < 0) ? null : b;
+      }
+    }
+
+    @Override
+    public int remainingCapacity() {
+      return ByteRing.this.remainingCapacity();
+    }
+
+    @Override
+    public int drainTo(Collection<? super Integer> c) {
+      return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Integer> c, int maxElements) {
+      int count = 0;
+      int b;
+      synchronized (readLock) {
+        while (count < maxElements && (b = read()) >= 0) {
+          c.add(b);
+          ++count;
+        }
+      }
+      return count;
+    }
+
+    @Override
+    public void clear() {
+      synchronized (readLock) {
+        ByteRing.this.clear();
+      }
+    }
+
+    /**
+     * snapshot of what is buffered now
+     */
+    @Override
+    public Iterator<Integer> iterator() {
+      long r = readIndex.get();
+      long w = writeIndex.get();
+      List<Integer> snapshot = new ArrayList<>((int) (w - r));
+      for (long i = r; i < w; ++i) {
+        snapshot.add(buffer[(int) i & mask] & 0xFF);
+      }
+      return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+    @Override
+    public int size() {
+      return ByteRing.this.size();
+    }
+
+  }
+
+}
@@ -18,6 +18,13 @@ import org.slf4j.Logger;
 public abstract class Port implements Runnable, SerialControl {
 
   public final static Logger log = LoggerFactory.getLogger(Port.class);
+
+  /**
+   * longest time the reading thread waits in readBytes(timeoutMs) before it
+   * checks if it should still be listening
+   */
+  static public final long READ_TIMEOUT_MS = 250;
+
   public String portName;
   transient HashMap<String, SerialDataListener> listeners = new HashMap<>();
 
@@ -31,6 +38,8 @@ public abstract class Port implements Runnable, SerialControl {
   public boolean debugTX = false;
   public boolean debugRX = false;
   QueueStats stats = new QueueStats();
+  // stats.total at the last report
+  int statsLastTotal = 0;
   // hardware serial port details
   int rate = 115200;
   int dataBits = 8;
@@ -131,10 +140,58 @@ public abstract class Port implements Runnable, SerialControl {
 
   abstract public byte[] readBytes() throws Exception;
 
+  /**
+   * waits for data - ports which can block on their source until data arrives
+   * override this, the default polls readBytes() every millisecond
+   * 
+   * @param timeoutMs
+   *          - longest time to wait
+   * @return the data or null if none arrived in time
+   * @throws Exception
+   *           e
+   */
+  public byte[] readBytes(long timeoutMs) throws Exception {
+    long deadline = System.currentTimeMillis() + timeoutMs;
+    byte[] data = readBytes();
+    while (data == null && listening && System.currentTimeMillis() < deadline) {
+      Thread.sleep(1);
+      data = readBytes();
+    }
+    return data;
+  }
+
+  /**
+   * count a chunk of received bytes
+   * 
+   * @param count
+   *          - bytes received
+   * @return true when stats.interval more bytes were received since the last
+   *         report - stats then has the new line speed
+   */
+  boolean updateStats(int count) {
+    int before = stats.total / stats.interval;
+    stats.total += count;
+    if (stats.total / stats.interval == before) {
+      return false;
+    }
+    stats.ts = System.currentTimeMillis();
+    stats.delta = stats.ts - stats.lastTS;
+    // avoid the divide by zero
+    if (stats.delta > 0) {
+      stats.lineSpeed = (8 * (stats.total - statsLastTotal)) / stats.delta;
+    }
+    stats.lastTS = stats.ts;
+    statsLastTotal = stats.total;
+    return true;
+  }
+
   /**
    * reads from Ports input stream and puts it on the Serials main RX line - to
    * be published and buffered - PortJSSC uses the thread of the library to
    * "push" serial data
+   * 
+   * The thread waits in readBytes(READ_TIMEOUT_MS) - data is delivered as soon
+   * as the port has it, an idle port costs nothing.
    */
   @Override
   public void run() {
@@ -144,12 +201,9 @@ public abstract class Port implements Runnable, SerialControl {
     listening = true;
     try {
       while (listening) {
-        // read everything that's available on the port.
-        byte[] buffer = readBytes();
+        // wait for data and read everything that's available on the port.
+        byte[] buffer = readBytes(READ_TIMEOUT_MS);
         if (buffer == null) {
-          // We want to have a small delay to spare the cpu,
-          // give it a millisecond for data to arrive.
-          Thread.sleep(1);
           continue;
         }
         // debug
@@ -163,17 +217,9 @@ public abstract class Port implements Runnable, SerialControl {
         for (String key : listeners.keySet()) {
           listeners.get(key).onBytes(buffer);
         }
-        // TODO: better stats.. for now.. keeping previous behavior.
-        for (int i = 0; i < buffer.length; i++) {
-          ++stats.total;
-          if (stats.total % stats.interval == 0) {
-            stats.ts = System.currentTimeMillis();
-            stats.delta = stats.ts - stats.lastTS;
-            stats.lineSpeed = (8 * stats.interval) / stats.delta;
-            for (String key : listeners.keySet()) {
-              listeners.get(key).updateStats(stats);
-            }
-            stats.lastTS = stats.ts;
+        if (updateStats(buffer.length)) {
+          for (String key : listeners.keySet()) {
+            listeners.get(key).updateStats(stats);
           }
         }
       }
@@ -199,19 +199,10 @@ public class PortJSSC extends Port implements SerialControl, SerialPortEventList
           listeners.get(key).onBytes(buffer);
         }
         // gather stats about this serial event (bytes read...)
-        for (int i = 0; i < buffer.length; i++) {
-          ++stats.total;
-          if (stats.total % stats.interval == 0) {
-            stats.ts = System.currentTimeMillis();
-            long delta = stats.ts - stats.lastTS;
-            // avoid the divide by zero
-            if (delta != 0) {
-              log.debug("===stats - dequeued total {} - {} bytes in {} ms {} Kbps", stats.total, stats.interval, delta, 8 * stats.interval / delta);
-            }
-            // TODO: should we be calling this still?
-            // publishQueueStats(stats);
-            stats.lastTS = stats.ts;
-          }
+        if (updateStats(buffer.length)) {
+          log.debug("===stats - dequeued total {} in {} ms {} Kbps", stats.total, stats.delta, stats.lineSpeed);
+          // TODO: should we be calling this still?
+          // publishQueueStats(stats);
         }
       } catch (Exception e) {
         log.error("serialEvent readBytes threw", e);
@@ -3,7 +3,6 @@ package org.myrobotlab.serial;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
 
 import org.myrobotlab.logging.LoggerFactory;
 import org.slf4j.Logger;
@@ -22,14 +21,27 @@ public class PortQueue extends Port {
 
   public final static Logger log = LoggerFactory.getLogger(PortQueue.class);
 
-  private BlockingQueue<Integer> in;
-  private BlockingQueue<Integer> out;
+  /**
+   * default size of each direction of a virtual port
+   */
+  static public final int BUFFER_SIZE = 64 * 1024;
+
+  private ByteRing in;
+  private ByteRing out;
 
   public PortQueue(String portName) {
     super(portName);
   }
 
-  public PortQueue(String portName, BlockingQueue<Integer> in, BlockingQueue<Integer> out) {
+  /**
+   * @param portName
+   *          - name of the virtual port
+   * @param in
+   *          - read by this port's listening thread
+   * @param out
+   *          - written by this port, read by the other end
+   */
+  public PortQueue(String portName, ByteRing in, ByteRing out) {
     super(portName);
     this.in = in;
     this.out = out;
@@ -53,22 +65,19 @@ public class PortQueue extends Port {
    * queue.
    */
   public byte[] readBytes() {
-    try {
-      // here we should take as many bytes as there are to return.
-      int size = in.size();
-      if (size == 0) {
-        // no data to process.
-        return null;
-      }
-      byte[] data = new byte[size];
-      for (int i = 0; i < size; i++) {
-        data[i] = in.take().byteValue();
-      }
-      return data;
-    } catch (InterruptedException e) {
-      // log.debug("Interrupted PortQueue in readBytes.");
+    // take as many bytes as there are in one copy
+    return in.readAll();
+  }
+
+  /**
+   * parks until the other end writes - no polling
+   */
+  @Override
+  public byte[] readBytes(long timeoutMs) throws InterruptedException {
+    if (!in.awaitData(timeoutMs)) {
       return null;
     }
+    return in.readAll();
   }
 
   public boolean setParams(int rate, int databits, int stopbits, int parity) {
@@ -78,14 +87,31 @@ public class PortQueue extends Port {
 
   @Override
   public void write(int data) throws IOException {
-    out.add(data);
+    boolean written;
+    synchronized (out.getWriteLock()) {
+      written = out.write(data);
+    }
+    if (!written) {
+      overrun(1);
+    }
   }
 
   public void write(byte[] data) throws IOException {
-    // convert this to match the output queue of integer by upcasting the byte
-    // array
-    for (int i = 0; i < data.length; i++) {
-      out.add(data[i] & 0xFF);
+    int count;
+    synchronized (out.getWriteLock()) {
+      count = out.write(data);
+    }
+    if (count < data.length) {
+      overrun(data.length - count);
+    }
+  }
+
+  /**
+   * the other end is not reading - like a real uart the data is lost
+   */
+  void overrun(int dropped) {
+    if (txErrors++ % 1000 == 0) {
+      log.warn("{} tx overrun - {} bytes dropped, {} overruns", portName, dropped, txErrors);
     }
   }
 
@@ -2,7 +2,9 @@ package org.myrobotlab.serial;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.net.SocketTimeoutException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -26,6 +28,7 @@ public class PortStream extends Port {
 
   private InputStream in;
   private OutputStream out;
+  transient private final byte[] readBuffer = new byte[4096];
 
   public PortStream(String portName) throws IOException {
     super(portName);
@@ -81,6 +84,35 @@ public class PortStream extends Port {
     return null;
   }
 
+  /**
+   * blocks in the stream's read until data arrives - timeoutMs is not used,
+   * streams wake up by the stream's own read timeout (Socket.setSoTimeout),
+   * interruption or closing
+   */
+  @Override
+  public byte[] readBytes(long timeoutMs) throws InterruptedException {
+    try {
+      int numRead = in.read(readBuffer, 0, readBuffer.length);
+      if (numRead < 0) {
+        log.info("{} end of stream", portName);
+        listening = false;
+        return null;
+      }
+      if (numRead == 0) {
+        return null;
+      }
+      return Arrays.copyOf(readBuffer, numRead);
+    } catch (SocketTimeoutException e) {
+      return null;
+    } catch (InterruptedIOException e) {
+      throw new InterruptedException(e.getMessage());
+    } catch (IOException e) {
+      log.warn("PortStream {} read failed - perhaps port was closed?", portName, e);
+      listening = false;
+      return null;
+    }
+  }
+
   public void setInputStream(InputStream in) {
     this.in = in;
   }
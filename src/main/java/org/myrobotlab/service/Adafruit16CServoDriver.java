@@ -17,6 +17,7 @@ import java.util.Set;
 import java.util.TreeMap;
 
 import org.junit.Ignore;
+import org.myrobotlab.framework.CoalescingWriter;
 import org.myrobotlab.framework.Registration;
 import org.myrobotlab.framework.Service;
 import org.myrobotlab.framework.interfaces.Attachable;
@@ -261,6 +262,18 @@ public class Adafruit16CServoDriver extends Service implements I2CControl, Servo
 
   transient HashMap<String, ServoEvent> servoMap = new HashMap<String, ServoEvent>();
 
+  /**
+   * servo pulses collected per pin and written once a tick - null writes
+   * every pulse as it comes
+   */
+  transient CoalescingWriter servoWriter = null;
+
+  /**
+   * most pins in one auto increment write - 1 + 4 * 7 = 29 bytes fits the 32
+   * byte Wire buffer of an AVR and a single MrlComm message
+   */
+  static final int MAX_SERVO_BATCH = 7;
+
   // Motor related constants
   public static final int MOTOR_FORWARD = 1;
   public static final int MOTOR_BACKWARD = 0;
@@ -336,6 +349,7 @@ public class Adafruit16CServoDriver extends Service implements I2CControl, Servo
   public void setPWM(String pinLabel, Integer pulseWidthOn, Integer pulseWidthOff) {
     // TODO - handle pin label mappings if necessary
     int pin = getAddress(pinLabel);
+    flushServo(pin);
 
     byte[] buffer = { (byte) (PCA9685_LED0_ON_L + (pin * 4)), (byte) (pulseWidthOn & 0xff), (byte) (pulseWidthOn >> 8), (byte) (pulseWidthOff & 0xff),
         (byte) (pulseWidthOff >> 8) };
@@ -433,7 +447,78 @@ public class Adafruit16CServoDriver extends Service implements I2CControl, Servo
      * Integer.parseInt(deviceBus), Integer.decode(deviceAddress), buffer,
      * buffer.length);
      */
-    setPWM(pin, 0, pulseWidthOff);
+    CoalescingWriter writer = servoWriter;
+    if (writer != null) {
+      writer.write(getAddress(pin), pulseWidthOff);
+    } else {
+      setPWM(pin, 0, pulseWidthOff);
+    }
+  }
+
+  /**
+   * Collect servo pulses and write them once a tick - a pulse superseded by a
+   * newer one for the same pin within the tick is never written, pulses for
+   * consecutive pins go out as one auto increment i2c write.
+   * 
+   * @param tickMs
+   *          - 0 writes every pulse immediately
+   */
+  synchronized public void setServoBatchTick(long tickMs) {
+    CoalescingWriter writer = servoWriter;
+    if (tickMs <= 0) {
+      servoWriter = null;
+      if (writer != null) {
+        writer.flush();
+      }
+    } else if (writer != null) {
+      writer.setTickMs(tickMs);
+    } else {
+      servoWriter = new CoalescingWriter(getName() + ".servos", tickMs, this::setServoBatch);
+    }
+  }
+
+  public long getServoBatchTick() {
+    CoalescingWriter writer = servoWriter;
+    return (writer == null) ? 0 : writer.getTickMs();
+  }
+
+  /**
+   * write a held pulse before another command for the same pin, so the
+   * command can not overtake it - disable drops the held pulse instead
+   */
+  void flushServo(int pin) {
+    CoalescingWriter writer = servoWriter;
+    if (writer != null) {
+      writer.flush(pin);
+    }
+  }
+
+  void flushServo(String pin) {
+    if (pin != null) {
+      flushServo(getAddress(pin));
+    }
+  }
+
+  void setServoBatch(int[] pins, int[] pulseWidthOffs, int count) {
+    int start = 0;
+    while (start < count) {
+      // a run of consecutive pins - LEDn_ON_L, LEDn_ON_H, LEDn_OFF_L,
+      // LEDn_OFF_H for each
+      int end = start + 1;
+      while (end < count && end - start < MAX_SERVO_BATCH && pins[end] == pins[end - 1] + 1) {
+        ++end;
+      }
+      byte[] buffer = new byte[1 + (end - start) * 4];
+      buffer[0] = (byte) (PCA9685_LED0_ON_L + (pins[start] * 4));
+      for (int i = start; i < end; ++i) {
+        int pos = 1 + (i - start) * 4;
+        buffer[pos + 2] = (byte) (pulseWidthOffs[i] & 0xff);
+        buffer[pos + 3] = (byte) (pulseWidthOffs[i] >> 8);
+      }
+      log.debug("Writing pins {} to {}", pins[start], pins[end - 1]);
+      controller.i2cWrite(this, Integer.parseInt(deviceBus), Integer.decode(deviceAddress), buffer, buffer.length);
+      start = end;
+    }
   }
 
   @Override
@@ -479,6 +564,11 @@ public class Adafruit16CServoDriver extends Service implements I2CControl, Servo
     // sent as 2 bytes
     log.debug("servoWriteMicroseconds {} deviceAddress {} pin {} pulse {}", servo.getName(), deviceAddress, pin, pulseWidthOff);
 
+    CoalescingWriter writer = servoWriter;
+    if (writer != null) {
+      writer.write(pin, pulseWidthOff);
+      return;
+    }
     byte[] buffer = { (byte) (PCA9685_LED0_OFF_L + (pin * 4)), (byte) (pulseWidthOff & 0xff), (byte) (pulseWidthOff >> 8) };
     controller.i2cWrite(this, Integer.parseInt(deviceBus), Integer.decode(deviceAddress), buffer, buffer.length);
   }
@@ -808,6 +898,7 @@ public class Adafruit16CServoDriver extends Service implements I2CControl, Servo
       log.info("servo {} already attached", servo.getName());
       return;
     }
+    flushServo(servo.getPin());
     ServoEvent ServoEvent = new ServoEvent();
     ServoEvent.pin = servo.getPin();
     ServoEvent.targetOutput = servo.getTargetOutput();
@@ -866,6 +957,7 @@ public class Adafruit16CServoDriver extends Service implements I2CControl, Servo
   public void detachServoControl(ServoControl servo) throws Exception {
 
     if (servoMap.containsKey(servo.getName())) {
+      flushServo(servo.getPin());
       servoMap.remove(servo.getName());
       servo.detach(this);
     }
@@ -913,6 +1005,10 @@ public class Adafruit16CServoDriver extends Service implements I2CControl, Servo
       log.error("servo data {} could not get servo from map", servo.getName());
       return;
     }
+    CoalescingWriter writer = servoWriter;
+    if (writer != null) {
+      writer.remove(getAddress(ServoEvent.pin));
+    }
     setPWM(ServoEvent.pin, 4096, 0);
     ServoEvent.isEnergized = false;
     log.info("Pin : " + ServoEvent.pin + " detached from " + servo.getName());
@@ -20,11 +20,13 @@ import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.myrobotlab.arduino.AckWindow;
 import org.myrobotlab.arduino.ArduinoUtils;
 import org.myrobotlab.arduino.BoardInfo;
 import org.myrobotlab.arduino.BoardType;
 import org.myrobotlab.arduino.DeviceSummary;
 import org.myrobotlab.arduino.Msg;
+import org.myrobotlab.framework.CoalescingWriter;
 import org.myrobotlab.framework.interfaces.Attachable;
 import org.myrobotlab.framework.interfaces.NameProvider;
 import org.myrobotlab.i2c.I2CBus;
@@ -185,6 +187,17 @@ public class Arduino extends AbstractMicrocontroller implements I2CBusController
 
   public transient Msg msg;
 
+  /**
+   * servo moves collected per device and sent once a tick - null sends every
+   * move as it comes
+   */
+  transient CoalescingWriter servoWriter = null;
+
+  /**
+   * most servos in one servoMoveToMicrosecondsBatch - 3 bytes each
+   */
+  static final int MAX_SERVO_BATCH = (Msg.MAX_MSG_SIZE - 2) / 3;
+
   Integer nextDeviceId = 0;
 
   /**
@@ -624,6 +637,7 @@ public class Arduino extends AbstractMicrocontroller implements I2CBusController
     log.info("detaching device {}", device.getName());
     Integer id = getDeviceId(device);
     if (id != null) {
+      flushServo(id);
       msg.deviceDetach(id);
       deviceIndex.remove(id);
     }
@@ -732,6 +746,25 @@ public class Arduino extends AbstractMicrocontroller implements I2CBusController
     msg.enableAcks(enabled);
   }
 
+  /**
+   * pipeline messages to MrlComm - up to size messages are sent before their
+   * acks come back. Only used if the board advertises ack windows, otherwise
+   * every message waits for its ack.
+   * 
+   * @param size
+   *          - 0 or 1 stop and wait
+   */
+  public void setAckWindow(int size) {
+    msg.setAckWindow(size);
+    // the board advertises its window in reply
+    msg.getBoardInfo();
+  }
+
+  public int getAckWindow() {
+    AckWindow window = msg.getAckWindowState();
+    return (window == null) ? 0 : window.getSize();
+  }
+
   transient BoardInfoPoller poller = new BoardInfoPoller();
 
   public class BoardInfoPoller implements Runnable {
@@ -1518,6 +1551,12 @@ public class Arduino extends AbstractMicrocontroller implements I2CBusController
     }
   }
 
+  // < publishAckWindow/windowSize
+  public Integer publishAckWindow(Integer windowSize/* byte */) {
+    log.info("{} ack window {}", getName(), windowSize);
+    return windowSize;
+  }
+
   // < publishBoardInfo/version/boardType/b16 microsPerLoop/b16 sram/[]
   // deviceSummary
   public BoardInfo publishBoardInfo(Integer version/* byte */,
@@ -1827,7 +1866,12 @@ public class Arduino extends AbstractMicrocontroller implements I2CBusController
 
   // > servoDetachPin/deviceId
   public void onServoDisable(ServoControl servo) {
-    msg.servoDetachPin(getDeviceId(servo));
+    Integer deviceId = getDeviceId(servo);
+    CoalescingWriter writer = servoWriter;
+    if (writer != null && deviceId != null) {
+      writer.remove(deviceId);
+    }
+    msg.servoDetachPin(deviceId);
   }
 
   @Override
@@ -1838,6 +1882,7 @@ public class Arduino extends AbstractMicrocontroller implements I2CBusController
       return;
     }
     if (isConnected()) {
+      flushServo(deviceId);
       msg.servoAttachPin(deviceId, getAddress(servo.getPin()));
     } else {
       log.info("not currently connected");
@@ -1862,7 +1907,73 @@ public class Arduino extends AbstractMicrocontroller implements I2CBusController
     // so we convert to microseconds
     int us = degreeToMicroseconds(servo.getTargetOutput());
     log.debug("servoMoveToMicroseconds servo {} id {} {}->{} us", servo.getName(), deviceId, servo.getCurrentInputPos(), us);
-    msg.servoMoveToMicroseconds(deviceId, us);
+    servoWrite(deviceId, us);
+  }
+
+  void servoWrite(int deviceId, int us) {
+    CoalescingWriter writer = servoWriter;
+    if (writer != null) {
+      writer.write(deviceId, us);
+    } else {
+      msg.servoMoveToMicroseconds(deviceId, us);
+    }
+  }
+
+  /**
+   * send a held move before another command for the same servo, so the
+   * command can not overtake it - stop and disable drop the held move instead
+   */
+  void flushServo(Integer deviceId) {
+    CoalescingWriter writer = servoWriter;
+    if (writer != null && deviceId != null) {
+      writer.flush(deviceId);
+    }
+  }
+
+  /**
+   * Collect servo moves and send them once a tick - a move superseded by a
+   * newer one for the same servo within the tick is never sent, the rest go
+   * out as servoMoveToMicrosecondsBatch frames, so the serial traffic grows
+   * with the number of servos instead of the number of moves. Needs the
+   * MrlComm in this version.
+   * 
+   * @param tickMs
+   *          - 0 sends every move immediately
+   */
+  synchronized public void setServoBatchTick(long tickMs) {
+    CoalescingWriter writer = servoWriter;
+    if (tickMs <= 0) {
+      servoWriter = null;
+      if (writer != null) {
+        writer.flush();
+      }
+    } else if (writer != null) {
+      writer.setTickMs(tickMs);
+    } else {
+      servoWriter = new CoalescingWriter(getName() + ".servos", tickMs, this::servoWriteBatch);
+    }
+  }
+
+  public long getServoBatchTick() {
+    CoalescingWriter writer = servoWriter;
+    return (writer == null) ? 0 : writer.getTickMs();
+  }
+
+  void servoWriteBatch(int[] deviceIds, int[] targets, int count) {
+    if (count == 1) {
+      msg.servoMoveToMicroseconds(deviceIds[0], targets[0]);
+      return;
+    }
+    for (int start = 0; start < count; start += MAX_SERVO_BATCH) {
+      int n = Math.min(MAX_SERVO_BATCH, count - start);
+      int[] moves = new int[n * 3];
+      for (int i = 0; i < n; ++i) {
+        moves[i * 3] = deviceIds[start + i];
+        moves[i * 3 + 1] = targets[start + i] >> 8 & 0xFF;
+        moves[i * 3 + 2] = targets[start + i] & 0xFF;
+      }
+      msg.servoMoveToMicrosecondsBatch(moves);
+    }
   }
 
   @Override
@@ -1878,6 +1989,7 @@ public class Arduino extends AbstractMicrocontroller implements I2CBusController
       log.error("{} has null deviceId", servo);
       return;
     }
+    flushServo(i);
     msg.servoSetVelocity(i, speed);
   }
 
@@ -1890,7 +2002,7 @@ public class Arduino extends AbstractMicrocontroller implements I2CBusController
   public void onServoWriteMicroseconds(ServoControl servo, int uS) {
     int deviceId = getDeviceId(servo);
     log.debug("writeMicroseconds {} {} id {}", servo.getName(), uS, deviceId);
-    msg.servoMoveToMicroseconds(deviceId, uS);
+    servoWrite(deviceId, uS);
   }
 
   public boolean setArduinoPath(String path) {
@@ -2362,7 +2474,13 @@ public class Arduino extends AbstractMicrocontroller implements I2CBusController
    */
   @Override
   public void onServoStop(ServoControl servo) {
-    msg.servoStop(getDeviceId(servo));
+    Integer deviceId = getDeviceId(servo);
+    CoalescingWriter writer = servoWriter;
+    if (writer != null && deviceId != null) {
+      // a pending move would start it again
+      writer.remove(deviceId);
+    }
+    msg.servoStop(deviceId);
   }
 
   @Override
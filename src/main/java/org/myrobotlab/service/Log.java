@@ -27,15 +27,18 @@ package org.myrobotlab.service;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.myrobotlab.framework.Service;
 import org.myrobotlab.io.FileIO;
+import org.myrobotlab.logging.LogRing;
 import org.myrobotlab.logging.LoggerFactory;
 import org.myrobotlab.logging.Logging;
 import org.myrobotlab.logging.LoggingFactory;
 import org.slf4j.Logger;
 
+import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.Appender;
 import ch.qos.logback.core.Context;
@@ -52,7 +55,22 @@ public class Log extends Service implements Appender<ILoggingEvent> {
     public String className;
     public String body;
 
+    public LogEntry() {
+    }
+
     public LogEntry(ILoggingEvent event) {
+      set(event);
+    }
+
+    public LogEntry(LogEntry entry) {
+      ts = entry.ts;
+      level = entry.level;
+      threadName = entry.threadName;
+      className = entry.className;
+      body = entry.body;
+    }
+
+    public void set(ILoggingEvent event) {
       ts = event.getTimeStamp();
       level = event.getLevel().toString();
       threadName = event.getThreadName();
@@ -75,10 +93,28 @@ public class Log extends Service implements Appender<ILoggingEvent> {
   public static String MYROBOTLAB_LOG = "myrobotlab.log";
 
   /**
-   * buffer of log event - made transient because the appropriate way to
-   * broadcast logging is through publishLogEvent (not broadcastState)
+   * buffer of log events - made transient because the appropriate way to
+   * broadcast logging is through publishLogEvent (not broadcastState). Logging
+   * threads write into it without locking, flush drains it.
+   */
+  transient volatile LogRing buffer;
+
+  /**
+   * overflow already reported by flush
+   */
+  transient long reportedOverflow = 0;
+
+  /**
+   * least level published - null for everything the root logger lets through
+   */
+  String publishLevel = null;
+
+  transient volatile Level minLevel = Level.ALL;
+
+  /**
+   * logger name prefixes which are published - empty for all loggers
    */
-  transient List<LogEntry> buffer = new ArrayList<>();
+  transient volatile String[] loggerFilters = new String[0];
 
   /**
    * logging state
@@ -96,7 +132,8 @@ public class Log extends Service implements Appender<ILoggingEvent> {
   String logLevel = null;
 
   /**
-   * max size of log buffer
+   * max size of log buffer - events logged while it is full are dropped and
+   * counted
    */
   int maxSize = 1000;
 
@@ -107,6 +144,7 @@ public class Log extends Service implements Appender<ILoggingEvent> {
 
   public Log(String n, String id) {
     super(n, id);
+    buffer = new LogRing(maxSize);
     getLogLevel();
   }
 
@@ -172,29 +210,102 @@ public class Log extends Service implements Appender<ILoggingEvent> {
    */
   @Override
   public void doAppend(ILoggingEvent event) throws LogbackException {
-    String name = Thread.currentThread().getName();
-    buffer.add(new LogEntry(event));
-    // if (buffer.size() > maxSize || System.currentTimeMillis() -
-    // lastPublishLogTimeTs > minIntervalMs) {
-    // // event.get
-    // flush();
-    // }
+    // filter before anything is copied - called from every logging thread
+    if (!event.getLevel().isGreaterOrEqual(minLevel)) {
+      return;
+    }
+    String[] filters = loggerFilters;
+    if (filters.length > 0) {
+      String loggerName = event.getLoggerName();
+      boolean match = false;
+      for (String prefix : filters) {
+        if (loggerName.startsWith(prefix)) {
+          match = true;
+          break;
+        }
+      }
+      if (!match) {
+        return;
+      }
+    }
+    if (!hasSubscribers("publishLogEvents")) {
+      return;
+    }
+    buffer.offer(event);
   }
 
   /**
-   * flush publishes the current buffer and creates a new one. It can be called
-   * by either the thread adding a log entry or by a scheduled task which
-   * flushes automatically at some interval. The task is to keep from starving
-   * for information when the logging is sparse
+   * flush publishes what is in the buffer, maxSize entries at a time. It is
+   * called by a scheduled task every minIntervalMs. Dropped events are
+   * reported as a warning entry in the next batch.
    */
   synchronized public void flush() {
-    if (buffer.size() > 0) {
-      invoke("publishLogEvents", buffer);
-      buffer = new ArrayList<>(maxSize);
+    List<LogEntry> entries = new ArrayList<>();
+    long overflow = buffer.getOverflow();
+    if (overflow > reportedOverflow) {
+      LogEntry dropped = new LogEntry();
+      dropped.ts = System.currentTimeMillis();
+      dropped.level = Level.WARN.toString();
+      dropped.threadName = Thread.currentThread().getName();
+      dropped.className = Log.class.getName();
+      dropped.body = String.format("log buffer full - %d events dropped", overflow - reportedOverflow);
+      entries.add(dropped);
+      reportedOverflow = overflow;
+    }
+    while (buffer.drain(entries, maxSize - entries.size()) > 0 || entries.size() > 0) {
+      invoke("publishLogEvents", entries);
       lastPublishLogTimeTs = System.currentTimeMillis();
+      if (entries.size() < maxSize) {
+        break;
+      }
+      entries = new ArrayList<>();
     }
   }
 
+  /**
+   * @param ms
+   *          - time between batches of published log events
+   */
+  public void setFlushInterval(long ms) {
+    minIntervalMs = ms;
+    if (isLogging) {
+      purgeTask("flush");
+      addTask(minIntervalMs, "flush");
+    }
+  }
+
+  /**
+   * @param level
+   *          - least level published (debug, info, warn, error) - null or
+   *          empty to publish everything the root logger lets through
+   */
+  public void setPublishLevel(String level) {
+    publishLevel = (level == null || level.length() == 0) ? null : level;
+    minLevel = (publishLevel == null) ? Level.ALL : Level.toLevel(publishLevel, Level.ALL);
+    broadcastState();
+  }
+
+  /**
+   * publish only events of loggers starting with prefix - e.g.
+   * org.myrobotlab.service.OpenCV - may be called more than once
+   */
+  public void addLoggerFilter(String prefix) {
+    String[] filters = Arrays.copyOf(loggerFilters, loggerFilters.length + 1);
+    filters[filters.length - 1] = prefix;
+    loggerFilters = filters;
+  }
+
+  public void clearLoggerFilters() {
+    loggerFilters = new String[0];
+  }
+
+  /**
+   * @return events dropped because the buffer was full
+   */
+  public long getOverflow() {
+    return buffer.getOverflow();
+  }
+
   @Override
   public Context getContext() {
     // TODO Auto-generated method stub
@@ -263,6 +374,11 @@ public class Log extends Service implements Appender<ILoggingEvent> {
     // LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
     ch.qos.logback.classic.Logger root = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
     // root.setLevel(ch.qos.logback.classic.Level.INFO);
+    if (buffer.getCapacity() < maxSize) {
+      buffer = new LogRing(maxSize);
+      reportedOverflow = 0;
+    }
+    minLevel = (publishLevel == null) ? Level.ALL : Level.toLevel(publishLevel, Level.ALL);
     root.addAppender(this);
     isLogging = true;
     addTask(minIntervalMs, "flush");
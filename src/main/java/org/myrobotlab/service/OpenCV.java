@@ -115,6 +115,9 @@ import org.myrobotlab.opencv.OpenCVFilterKinectDepth;
 import org.myrobotlab.opencv.OpenCVFilterMotionDetect;
 import org.myrobotlab.opencv.OpenCVFilterYolo;
 import org.myrobotlab.opencv.Overlay;
+import org.myrobotlab.opencv.PipelineMetrics;
+import org.myrobotlab.opencv.PipelineStage;
+import org.myrobotlab.opencv.PipelineStats;
 import org.myrobotlab.opencv.YoloDetectedObject;
 import org.myrobotlab.reflection.Reflector;
 import org.myrobotlab.service.abstracts.AbstractComputerVision;
@@ -167,16 +170,25 @@ public class OpenCV extends AbstractComputerVision {
           loops++;
         }
 
+        if (pipelined) {
+          startPipeline();
+        }
+
         while (capturing && !stopping) {
           Frame newFrame = null;
 
+          long grabStart = System.nanoTime();
           if (!singleFrame || (singleFrame && frameIndex < 1)) {
             newFrame = grabber.grab();
           }
+          pipelineMetrics.grab.record(System.nanoTime() - grabStart);
 
           if (newFrame != null) {
             lastFrame = newFrame;
           } else if (newFrame == null && lastFrame != null) {
+            if (!singleFrame) {
+              pipelineMetrics.dropped();
+            }
             newFrame = lastFrame.clone();
           } else {
             error("could not get valid frame");
@@ -186,6 +198,12 @@ public class OpenCV extends AbstractComputerVision {
           frameStartTs = System.currentTimeMillis();
           ++frameIndex;
 
+          if (pipelined && newFrame != null) {
+            // grabbers reuse their frame - the next grab must not write into
+            // one still being filtered
+            newFrame = newFrame.clone();
+          }
+
           data = new OpenCVData(getName(), frameStartTs, frameIndex, newFrame);
 
           if (grabber.getClass().equals(OpenKinectFrameGrabber.class)) {
@@ -195,10 +213,15 @@ public class OpenCV extends AbstractComputerVision {
             // here we need ot add the video
 
             IplImage video = ((OpenKinectFrameGrabber) grabber).grabVideo();
-            data.putKinect(toImage(newFrame), video);
+            data.putKinect(toImage(newFrame), (pipelined) ? video.clone() : video);
           }
 
-          processVideo(data);
+          if (pipelined) {
+            filterStage.put(data);
+            throttle();
+          } else {
+            processVideo(data);
+          }
 
           if (lengthInFrames > 1 && loop && frameIndex > lengthInFrames - 2) {
             grabber.setFrameNumber(0);
@@ -211,6 +234,7 @@ public class OpenCV extends AbstractComputerVision {
       }
       // begin capturing ...
 
+      stopPipeline();
       videoThread = null;
       frameIndex = 0;
 
@@ -615,6 +639,26 @@ public class OpenCV extends AbstractComputerVision {
   // on a still picture
   Integer maxFps = 32;
 
+  /**
+   * grab, filters, display and output each on their own thread - the frame
+   * rate is set by the slowest stage instead of the sum of all of them
+   */
+  boolean pipelined = false;
+
+  /**
+   * frames a pipeline stage holds before the stage in front of it blocks
+   */
+  int pipelineQueueSize = 2;
+
+  transient PipelineStage filterStage;
+  transient PipelineStage displayStage;
+  transient PipelineStage outputStage;
+
+  /**
+   * timing of every stage and filter - see getPipelineStats
+   */
+  transient PipelineMetrics pipelineMetrics;
+
   transient HashMap<String, FrameRecorder> outputFileStreams = new HashMap<String, FrameRecorder>();
 
   HashMap<String, Overlay> overlays = new HashMap<String, Overlay>();
@@ -691,6 +735,8 @@ public class OpenCV extends AbstractComputerVision {
      * Loader.load(opencv_video.class); Loader.load(opencv_videostab.class);
      */
 
+    pipelineMetrics = new PipelineMetrics(getName());
+
     putText(20, 20, "time:  %d");
     putText(20, 30, "frame: %d");
     DATA_DIR = getDataDir();
@@ -1277,8 +1323,154 @@ public class OpenCV extends AbstractComputerVision {
     return null;
   }
 
-  private void processVideo(OpenCVData data) throws org.bytedeco.javacv.FrameGrabber.Exception, InterruptedException {
+  /**
+   * <pre>
+   * starts the worker threads of pipelined mode
+   *
+   * grab (video processor thread) -&gt; filters -&gt; display -&gt; output
+   *
+   * The filters run in order on one stage, so OpenCVFilter.process and
+   * postProcess see every frame in order as before. The filter stage renders
+   * the display BufferedImage before handing a frame on, so the display stage
+   * does not read filter images the next frame is already overwriting. The
+   * grabbed frame is cloned for the same reason.
+   * </pre>
+   */
+  private void startPipeline() {
+    filterStage = new PipelineStage("filters", pipelineQueueSize, data -> {
+      processFilters(data);
+      data.getDisplay();
+    }, pipelineMetrics.filters);
+    displayStage = new PipelineStage("display", pipelineQueueSize, this::processDisplay, pipelineMetrics.display);
+    outputStage = new PipelineStage("output", pipelineQueueSize, data -> {
+      processOutput(data);
+      frameDone(data);
+    }, pipelineMetrics.output);
+    filterStage.setNext(displayStage);
+    displayStage.setNext(outputStage);
+    outputStage.start(String.format("%s-output", getName()));
+    displayStage.start(String.format("%s-display", getName()));
+    filterStage.start(String.format("%s-filters", getName()));
+  }
+
+  private void stopPipeline() {
+    if (filterStage == null) {
+      return;
+    }
+    filterStage.stop();
+    displayStage.stop();
+    outputStage.stop();
+    filterStage = null;
+    displayStage = null;
+    outputStage = null;
+  }
+
+  /**
+   * @param b
+   *          - true to run grab, filters, display and output as a pipeline of
+   *          threads, false to run them in series - restarts a running capture
+   */
+  synchronized public void setPipelined(boolean b) {
+    if (pipelined == b) {
+      return;
+    }
+    pipelined = b;
+    if (capturing) {
+      stopCapture();
+      capture();
+    }
+    broadcastState();
+  }
 
+  public boolean isPipelined() {
+    return pipelined;
+  }
+
+  /**
+   * timing of every stage and filter since the last reset - latencies in
+   * microseconds
+   */
+  public PipelineStats getPipelineStats() {
+    PipelineStats stats = pipelineMetrics.getStats(filters.values());
+    stats.pipelined = pipelined;
+    stats.maxFps = maxFps;
+    if (maxFps != null && maxFps > 0) {
+      stats.budgetMs = 1000.0 / maxFps;
+    }
+    PipelineStage[] stages = { filterStage, displayStage, outputStage };
+    for (PipelineStage stage : stages) {
+      if (stage != null) {
+        stats.queued.put(stage.getName(), stage.getQueueSize());
+      }
+    }
+    return stats;
+  }
+
+  /**
+   * publishing point for getPipelineStats - every publish starts a new window,
+   * so the percentiles are of the last interval, see startPipelineStats
+   */
+  public PipelineStats publishPipelineStats() {
+    PipelineStats stats = getPipelineStats();
+    pipelineMetrics.reset();
+    return stats;
+  }
+
+  /**
+   * publish the pipeline stats every intervalMs
+   * 
+   * @param intervalMs
+   *          - publishing interval
+   */
+  public void startPipelineStats(long intervalMs) {
+    pipelineMetrics.reset();
+    addTask("publishPipelineStats", intervalMs, 0, "publishPipelineStats");
+  }
+
+  public void stopPipelineStats() {
+    purgeTask("publishPipelineStats");
+  }
+
+  public void resetPipelineStats() {
+    pipelineMetrics.reset();
+  }
+
+  /**
+   * every stage of a frame in series on the video processor thread
+   */
+  private void processVideo(OpenCVData data) throws InterruptedException {
+    long start = System.nanoTime();
+    processFilters(data);
+    long filtered = System.nanoTime();
+    pipelineMetrics.filters.record(filtered - start);
+    processDisplay(data);
+    long displayed = System.nanoTime();
+    pipelineMetrics.display.record(displayed - filtered);
+    processOutput(data);
+    pipelineMetrics.output.record(System.nanoTime() - displayed);
+    frameDone(data);
+    throttle();
+  } // end processVideo
+
+  /**
+   * grab to output latency and frame budget accounting of a finished frame
+   */
+  private void frameDone(OpenCVData data) {
+    long budgetNs = (maxFps != null && maxFps > 0) ? 1000000000L / maxFps : 0;
+    pipelineMetrics.frameDone((System.currentTimeMillis() - data.getTs()) * 1000000, budgetNs);
+  }
+
+  /**
+   * delay if needed to maxFps
+   */
+  private void throttle() {
+    frameEndTs = System.currentTimeMillis();
+    if (maxFps != null && frameEndTs - frameStartTs < 1000 / maxFps) {
+      sleep((1000 / maxFps) - (int) (frameEndTs - frameStartTs));
+    }
+  }
+
+  private void processFilters(OpenCVData data) throws InterruptedException {
     // process each filter
     // for (String filterName : filters.keySet()) {
     for (OpenCVFilter filter : filters.values()) {
@@ -1289,18 +1481,32 @@ public class OpenCV extends AbstractComputerVision {
           continue;
         }
 
+        PipelineMetrics.FilterMetrics timing = pipelineMetrics.getFilter(filter.name);
+
         // process the previous filter's output
+        long start = System.nanoTime();
         IplImage processed = filter.process(input);
+        long processedTs = System.nanoTime();
+        timing.process.record(processedTs - start);
         filter.postProcess(processed);
+        long postProcessedTs = System.nanoTime();
+        timing.postProcess.record(postProcessedTs - processedTs);
         filter.processDisplay();
+        timing.processDisplay.record(System.nanoTime() - postProcessedTs);
         processFilterStateUpdates(filter);
       }
     } // for each filter
+  }
+
+  /**
+   * overlays and publishes the display - the BufferedImage the filters left
+   */
+  private void processDisplay(OpenCVData data) {
 
     // get the display filter to process
 
-    putText("frame: %d", frameIndex);
-    putText("time:  %d", frameStartTs);
+    putText("frame: %d", data.getFrameIndex());
+    putText("time:  %d", data.getTs());
 
     BufferedImage displayImage = data.getDisplay();
     if (displayImage != null) {
@@ -1328,12 +1534,12 @@ public class OpenCV extends AbstractComputerVision {
          * </pre>
          */
         BufferedImage b = data.getDisplay();
-        SerializableImage si = new SerializableImage(b, displayFilter, frameIndex);
+        SerializableImage si = new SerializableImage(b, displayFilter, data.getFrameIndex());
         invoke("publishDisplay", si);
 
-        if (webViewer) {
-          // broadcast(???)
-          WebImage webImage = new WebImage(b, getName(), frameIndex);
+        if (webViewer && hasSubscribers("publishWebDisplay")) {
+          // one WebImage for every viewer - gateways encode it once
+          WebImage webImage = new WebImage(b, getName(), data.getFrameIndex());
           // latency use the original ts from before fetch image and the filters
           // !
           webImage.ts = data.getTs();
@@ -1373,6 +1579,12 @@ public class OpenCV extends AbstractComputerVision {
 
       }
     }
+  }
+
+  /**
+   * publishes the data, records and streams it
+   */
+  private void processOutput(OpenCVData data) {
 
     // useful but chatty debug statement - dumps opencvdata
     // log.debug("data -> {}", data);
@@ -1408,16 +1620,8 @@ public class OpenCV extends AbstractComputerVision {
       }
     }
 
-    frameEndTs = System.currentTimeMillis();
-
-    // delay if needed to maxFps
-    if (maxFps != null && frameEndTs - frameStartTs < 1000 / maxFps) {
-      sleep((1000 / maxFps) - (int) (frameEndTs - frameStartTs));
-    }
-
     data.dispose();
-
-  } // end processVideo
+  }
 
   /**
    * A new method to protect filters from other threads doing updates possibly
@@ -1750,6 +1954,7 @@ public class OpenCV extends AbstractComputerVision {
       OpenCVFilter removed = newFilters.remove(name);
       removed.release();
       filters = newFilters;
+      pipelineMetrics.removeFilter(name);
       broadcastState();
     }
   }
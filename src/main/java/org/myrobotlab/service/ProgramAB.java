@@ -8,12 +8,15 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.alicebot.ab.AIMLMap;
 import org.alicebot.ab.AIMLSet;
 import org.alicebot.ab.Bot;
 import org.alicebot.ab.Category;
 import org.alicebot.ab.MagicBooleans;
+import org.myrobotlab.framework.LatencyStats;
 import org.myrobotlab.framework.Service;
 import org.myrobotlab.framework.interfaces.Attachable;
 import org.myrobotlab.image.Util;
@@ -22,7 +25,9 @@ import org.myrobotlab.logging.LoggerFactory;
 import org.myrobotlab.logging.LoggingFactory;
 import org.myrobotlab.logging.SimpleLogPublisher;
 import org.myrobotlab.programab.BotInfo;
+import org.myrobotlab.programab.MrlSraixHandler;
 import org.myrobotlab.programab.Response;
+import org.myrobotlab.programab.ResponseEngine;
 import org.myrobotlab.programab.Session;
 import org.myrobotlab.service.data.Locale;
 import org.myrobotlab.service.interfaces.LocaleProvider;
@@ -60,7 +65,7 @@ public class ProgramAB extends Service implements TextListener, TextPublisher, L
   /**
    * Mapping a bot to a userName and chat session
    */
-  Map<String, Session> sessions = new TreeMap<>();
+  Map<String, Session> sessions = new ConcurrentSkipListMap<>();
 
   /**
    * initial bot name - this bot comes with ProgramAB this will be the result of
@@ -91,6 +96,25 @@ public class ProgramAB extends Service implements TextListener, TextPublisher, L
 
   transient SimpleLogPublisher logPublisher = null;
 
+  /**
+   * workers of getResponseAsync - sessions are answered in parallel, the
+   * requests of a session in order
+   */
+  int responseThreads = 8;
+
+  /**
+   * max requests of a session waiting for getResponseAsync
+   */
+  int maxPendingResponses = 32;
+
+  /**
+   * max time a sraix search can hold up a response of getResponseAsync -
+   * getResponse waits as long as the search takes
+   */
+  long sraixTimeoutMs = MrlSraixHandler.DEFAULT_TIMEOUT_MS;
+
+  transient ResponseEngine responseEngine = null;
+
   String TROLLING_SEED = "what are you doing?";
 
   /**
@@ -261,6 +285,124 @@ public class ProgramAB extends Service implements TextListener, TextPublisher, L
     return response;
   }
 
+  synchronized ResponseEngine getResponseEngine() {
+    if (responseEngine == null) {
+      responseEngine = new ResponseEngine(getName(), responseThreads, maxPendingResponses, this::respond);
+    }
+    return responseEngine;
+  }
+
+  /**
+   * Concurrent counterpart of getResponse - the response is worked out on one
+   * of responseThreads workers, so a slow response of one session does not
+   * hold up the others. Requests of the same user and bot are answered in the
+   * order they were made. Sessions of a bot which can learn are answered one
+   * at a time, see BotInfo.learn. The current user and bot are not changed.
+   * 
+   * @param userName
+   * @param botName
+   * @param text
+   * @return the response when it is ready
+   */
+  public CompletableFuture<Response> getResponseAsync(String userName, String botName, String text) {
+    return getResponseEngine().submit(userName, botName, text);
+  }
+
+  /**
+   * called on a response worker - publishes only to subscribed topics
+   */
+  Response respond(String userName, String botName, String text) {
+    Session session = getSession(userName, botName, true);
+    if (session == null) {
+      throw new IllegalArgumentException(String.format("%s is not a valid botName", botName));
+    }
+    Response response = session.getResponse(text);
+    if (hasSubscribers("publishRequest")) {
+      invoke("publishRequest", text);
+    }
+    if (hasSubscribers("publishResponse")) {
+      invoke("publishResponse", response);
+    }
+    if (hasSubscribers("publishText")) {
+      invoke("publishText", response.msg);
+    }
+    return response;
+  }
+
+  /**
+   * session of a user and bot - created without changing the current session
+   * 
+   * @return null if there is no such bot
+   */
+  Session getSession(String userName, String botName, boolean create) {
+    String sessionKey = getSessionKey(userName, botName);
+    Session session = sessions.get(sessionKey);
+    if (session != null || !create) {
+      return session;
+    }
+    BotInfo botInfo = bots.get(botName);
+    if (botInfo == null) {
+      return null;
+    }
+    synchronized (sessions) {
+      session = sessions.get(sessionKey);
+      if (session == null) {
+        session = new Session(this, userName, botInfo);
+        sessions.put(sessionKey, session);
+        log.info("started session for bot botName:{} , userName:{}", botName, userName);
+      }
+    }
+    return session;
+  }
+
+  /**
+   * response latency percentiles of getResponseAsync by bot
+   */
+  public Map<String, LatencyStats> getResponseStats() {
+    return getResponseEngine().getStats();
+  }
+
+  /**
+   * publishing point for getResponseStats - every publish starts a new window,
+   * see startResponseStats
+   */
+  public Map<String, LatencyStats> publishResponseStats() {
+    Map<String, LatencyStats> stats = getResponseStats();
+    getResponseEngine().resetStats();
+    return stats;
+  }
+
+  /**
+   * publish the response stats every intervalMs
+   * 
+   * @param intervalMs
+   */
+  public void startResponseStats(long intervalMs) {
+    getResponseEngine().resetStats();
+    addTask("publishResponseStats", intervalMs, 0, "publishResponseStats");
+  }
+
+  public void stopResponseStats() {
+    purgeTask("publishResponseStats");
+  }
+
+  public void setResponseThreads(int threads) {
+    responseThreads = threads;
+    getResponseEngine().setThreads(threads);
+  }
+
+  public int getResponseThreads() {
+    return responseThreads;
+  }
+
+  public void setSraixTimeout(long timeoutMs) {
+    sraixTimeoutMs = timeoutMs;
+  }
+
+  public long getSraixTimeout() {
+    return sraixTimeoutMs;
+  }
+
   private Bot getBot(String botName) {
     return bots.get(botName).getBot();
   }
@@ -635,8 +777,7 @@ public class ProgramAB extends Service implements TextListener, TextPublisher, L
   }
 
   public void addCategory(Category c) {
-    Bot bot = getBot(getCurrentBotName());
-    bot.brain.addCategory(c);
+    getBotInfo(getCurrentBotName()).addCategory(c);
   }
 
   public void addCategory(String pattern, String template, String that) {
@@ -873,6 +1014,12 @@ public class ProgramAB extends Service implements TextListener, TextPublisher, L
   @Override
   public void stopService() {
     super.stopService();
+    synchronized (this) {
+      if (responseEngine != null) {
+        responseEngine.shutdown();
+        responseEngine = null;
+      }
+    }
     writeAndQuit();
   }
 
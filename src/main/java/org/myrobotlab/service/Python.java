@@ -325,7 +325,6 @@ public class Python extends Service {
     PyObject compiled = getCompiledMethod("initializePython", selfReferenceScript, interp);
     interp.exec(compiled);
 
-    Map<String, ServiceInterface> svcs = Runtime.getRegistry();
     StringBuffer initScript = new StringBuffer();
     initScript.append("from time import sleep\n");
     initScript.append("from org.myrobotlab.service import Runtime\n");
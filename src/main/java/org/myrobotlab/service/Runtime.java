@@ -23,11 +23,12 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -35,22 +36,30 @@ import java.util.Set;
 import java.util.TimeZone;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.myrobotlab.codec.CodecUtils;
 import org.myrobotlab.codec.CodecUtils.ApiDescription;
 import org.myrobotlab.framework.CmdOptions;
 import org.myrobotlab.framework.DescribeQuery;
 import org.myrobotlab.framework.DescribeResults;
+import org.myrobotlab.framework.ExecutionMode;
 import org.myrobotlab.framework.Instantiator;
 import org.myrobotlab.framework.MRLListener;
 import org.myrobotlab.framework.Message;
 import org.myrobotlab.framework.MethodCache;
 import org.myrobotlab.framework.MethodEntry;
+import org.myrobotlab.framework.Outbox;
 import org.myrobotlab.framework.Plan;
 import org.myrobotlab.framework.Platform;
 import org.myrobotlab.framework.Registration;
 import org.myrobotlab.framework.Service;
+import org.myrobotlab.framework.ServiceMetrics;
+import org.myrobotlab.framework.ServiceStats;
 import org.myrobotlab.framework.Status;
+import org.myrobotlab.framework.TaskScheduler;
+import org.myrobotlab.framework.TaskStats;
 import org.myrobotlab.framework.interfaces.MessageListener;
 import org.myrobotlab.framework.interfaces.ServiceInterface;
 import org.myrobotlab.framework.repo.IvyWrapper;
@@ -114,9 +123,37 @@ public class Runtime extends Service implements MessageListener, ServiceLifeCycl
 
   /**
    * a registry of all services regardless of which environment they came from -
-   * each must have a unique name
+   * each must have a unique name. Hashed and read without locking -
+   * getSortedRegistry for a view ordered by name. Writes go through
+   * putRegistry and removeRegistry so the interface index stays current.
    */
-  static private final Map<String, ServiceInterface> registry = new TreeMap<>();
+  static private final Map<String, ServiceInterface> registry = new ConcurrentHashMap<>();
+
+  /**
+   * interface -&gt; registered services whose class implements it, in
+   * registration order
+   */
+  static private final Map<Class<?>, List<ServiceInterface>> interfaceIndex = new ConcurrentHashMap<>();
+
+  /**
+   * short name -&gt; full name of the local instance id it was resolved with
+   */
+  static private class FullNames {
+    final String id;
+    final Map<String, String> names = new ConcurrentHashMap<>();
+
+    FullNames(String id) {
+      this.id = id;
+    }
+  }
+
+  /**
+   * cached names only grow this large - lookups of names which were never
+   * registered should not fill the heap
+   */
+  static private final int MAX_FULL_NAMES = 4096;
+
+  static private volatile FullNames fullNames = new FullNames(null);
 
   /**
    * <pre>
@@ -418,6 +455,8 @@ public class Runtime extends Service implements MessageListener, ServiceLifeCycl
         }
       }
 
+      FileIO.extractServiceResources(fullTypeName.substring(fullTypeName.lastIndexOf(".") + 1));
+
       // create an instance
       Object newService = Instantiator.getThrowableNewInstance(null, fullTypeName, name, id);
       log.debug("returning {}", fullTypeName);
@@ -489,7 +528,7 @@ public class Runtime extends Service implements MessageListener, ServiceLifeCycl
   public static String dump() {
     try {
       FileOutputStream dump = new FileOutputStream("registry.json");
-      String reg = CodecUtils.toJson(registry);
+      String reg = CodecUtils.toJson(getSortedRegistry());
       dump.write(reg.getBytes());
       dump.close();
       return reg;
@@ -557,7 +596,11 @@ public class Runtime extends Service implements MessageListener, ServiceLifeCycl
           // setting the singleton security
           Security.getInstance();
           runtime.getRepo().addStatusPublisher(runtime);
-          FileIO.extractResources();
+          if (options.extractAll) {
+            FileIO.extractAllResources();
+          } else {
+            FileIO.extractSharedResources();
+          }
         }
       }
     }
@@ -713,10 +756,12 @@ public class Runtime extends Service implements MessageListener, ServiceLifeCycl
 
   public static Map<String, ServiceInterface> getLocalServices() {
     Map<String, ServiceInterface> local = new HashMap<>();
-    for (String serviceName : registry.keySet()) {
+    String localId = "@" + Platform.getLocalInstance().getId();
+    for (Map.Entry<String, ServiceInterface> entry : registry.entrySet()) {
+      String serviceName = entry.getKey();
       // FIXME @ should be a requirement of "all" entries for consistency
-      if (!serviceName.contains("@") || serviceName.endsWith(String.format("@%s", Platform.getLocalInstance().getId()))) {
-        local.put(serviceName, registry.get(serviceName));
+      if (!serviceName.contains("@") || serviceName.endsWith(localId)) {
+        local.put(serviceName, entry.getValue());
       }
     }
     return local;
@@ -767,7 +812,7 @@ public class Runtime extends Service implements MessageListener, ServiceLifeCycl
    */
   synchronized public List<Registration> getServiceList() {
     List<Registration> ret = new ArrayList<>();
-    for (ServiceInterface si : registry.values()) {
+    for (ServiceInterface si : getSortedRegistry().values()) {
       // problem with
       // ret.add(new NameAndType(si.getId(), si.getName(), si.getType(),
       // CodecUtils.toJson(si)));
@@ -776,25 +821,151 @@ public class Runtime extends Service implements MessageListener, ServiceLifeCycl
     return ret;
   }
 
-  // FIXME - scary function - returns private data
+  /**
+   * @return read only live view of the registry - unordered, see
+   *         getSortedRegistry
+   */
   public static Map<String, ServiceInterface> getRegistry() {
-    return registry;// FIXME should return copy
+    return Collections.unmodifiableMap(registry);
+  }
+
+  /**
+   * @return copy of the registry ordered by full name
+   */
+  public static Map<String, ServiceInterface> getSortedRegistry() {
+    return new TreeMap<>(registry);
   }
 
   public static ServiceInterface getService(String inName) {
     if (inName == null) {
       return null;
     }
+    return registry.get(getFullName(inName));
+  }
 
-    String name = getFullName(inName);
+  /**
+   * add or replace a registry entry and index it by the interfaces its class
+   * implements
+   */
+  synchronized static private void putRegistry(String fullname, ServiceInterface si) {
+    if (si == null) {
+      log.warn("not registering {} - no service", fullname);
+      return;
+    }
+    ServiceInterface previous = registry.put(fullname, si);
+    if (previous != null) {
+      unindex(previous);
+    }
+    for (Class<?> interfaze : si.getClass().getInterfaces()) {
+      List<ServiceInterface> services = interfaceIndex.get(interfaze);
+      if (services == null) {
+        services = interfaceIndex.computeIfAbsent(interfaze, i -> new CopyOnWriteArrayList<>());
+      }
+      services.add(si);
+    }
+  }
 
-    if (!registry.containsKey(name)) {
-      return null;
-    } else {
-      return registry.get(name);
+  synchronized static private void removeRegistry(String fullname) {
+    ServiceInterface si = registry.remove(fullname);
+    if (si != null) {
+      unindex(si);
     }
   }
 
+  static private void unindex(ServiceInterface si) {
+    for (Class<?> interfaze : si.getClass().getInterfaces()) {
+      List<ServiceInterface> services = interfaceIndex.get(interfaze);
+      if (services != null) {
+        // by identity - services may override equals
+        for (ServiceInterface indexed : services) {
+          if (indexed == si) {
+            services.remove(indexed);
+            break;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * latency and jitter of every task scheduled by every local service, e.g.
+   * to find which polling sensors are running late
+   * 
+   * @return task stats sorted by worst latency first
+   */
+  public List<TaskStats> getAllTaskStats() {
+    List<TaskStats> stats = TaskScheduler.getInstance().getStats();
+    Collections.sort(stats, new Comparator<TaskStats>() {
+      @Override
+      public int compare(TaskStats a, TaskStats b) {
+        return Double.compare(b.maxLatencyMs, a.maxLatencyMs);
+      }
+    });
+    return stats;
+  }
+
+  /**
+   * sampled queue and invoke metrics of every local service
+   * 
+   * @return stats sorted by worst inbox wait first
+   */
+  public List<ServiceStats> getAllServiceStats() {
+    List<ServiceStats> stats = new ArrayList<>();
+    for (ServiceInterface si : getLocalServices().values()) {
+      if (si instanceof Service) {
+        stats.add(((Service) si).getServiceStats());
+      }
+    }
+    Collections.sort(stats, new Comparator<ServiceStats>() {
+      @Override
+      public int compare(ServiceStats a, ServiceStats b) {
+        return Double.compare(b.inboxWait.p99Us, a.inboxWait.p99Us);
+      }
+    });
+    return stats;
+  }
+
+  /**
+   * publishing point for getAllServiceStats - e.g. for a WebGui panel, see
+   * startServiceStats
+   * 
+   * @return stats of every local service
+   */
+  public List<ServiceStats> publishAllServiceStats() {
+    return getAllServiceStats();
+  }
+
+  /**
+   * publish every service's stats every intervalMs
+   * 
+   * @param intervalMs
+   *          - publishing interval
+   */
+  public void startServiceStats(long intervalMs) {
+    addTask("publishAllServiceStats", intervalMs, 0, "publishAllServiceStats");
+  }
+
+  public void stopServiceStats() {
+    purgeTask("publishAllServiceStats");
+  }
+
+  public void resetAllServiceStats() {
+    for (ServiceInterface si : getLocalServices().values()) {
+      if (si instanceof Service) {
+        ((Service) si).resetServiceStats();
+      }
+    }
+  }
+
+  /**
+   * @param oneIn
+   *          - 0 off, 1 time every message, n - time 1 in n messages
+   * @return sample rate in effect
+   */
+  public int setServiceStatsSampleRate(int oneIn) {
+    return ServiceMetrics.setSampleRate(oneIn);
+  }
+
   /**
    * return all service names in a list form
    * 
@@ -866,18 +1037,23 @@ public class Runtime extends Service implements MessageListener, ServiceLifeCycl
     return getServices(null);
   }
 
+  /**
+   * @param id
+   *          - instance id, null for every service
+   * @return services ordered by name
+   */
   public static List<ServiceInterface> getServices(String id) {
+    Map<String, ServiceInterface> sorted = getSortedRegistry();
     if (id == null) {
-      return new ArrayList<ServiceInterface>(registry.values());
+      return new ArrayList<ServiceInterface>(sorted.values());
     }
 
     List<ServiceInterface> list = new ArrayList<>();
     // otherwise we are getting services of an instance
 
-    for (String serviceName : registry.keySet()) {
-      ServiceInterface si = registry.get(serviceName);
+    for (ServiceInterface si : sorted.values()) {
       if (si.getId().equals(id)) {
-        list.add(registry.get(serviceName));
+        list.add(si);
       }
     }
     return list;
@@ -930,34 +1106,18 @@ public class Runtime extends Service implements MessageListener, ServiceLifeCycl
 
   /**
    * return a list of services which are currently running and implement a
-   * specific interface
+   * specific interface - read from the index kept on register and release, in
+   * registration order
    * 
    * @param interfaze
    * @return
    */
-  public static synchronized List<ServiceInterface> getServicesFromInterface(Class<?> interfaze) {
-    List<ServiceInterface> ret = new ArrayList<ServiceInterface>();
-
-    Iterator<String> it = registry.keySet().iterator();
-    String serviceName;
-    ServiceInterface sw;
-    Class<?> c;
-    Class<?>[] interfaces;
-    Class<?> m;
-    while (it.hasNext()) {
-      serviceName = it.next();
-      sw = registry.get(serviceName);
-      c = sw.getClass();
-      interfaces = c.getInterfaces();
-      for (int i = 0; i < interfaces.length; ++i) {
-        m = interfaces[i];
-
-        if (m.equals(interfaze)) {
-          ret.add(sw);
-        }
-      }
+  public static List<ServiceInterface> getServicesFromInterface(Class<?> interfaze) {
+    List<ServiceInterface> services = interfaceIndex.get(interfaze);
+    if (services == null) {
+      return new ArrayList<ServiceInterface>();
     }
-    return ret;
+    return new ArrayList<ServiceInterface>(services);
   }
 
   static public Set<Thread> getThreads() {
@@ -1127,7 +1287,7 @@ public class Runtime extends Service implements MessageListener, ServiceLifeCycl
 
   public void onState(ServiceInterface updatedService) {
     log.info("runtime updating registry info for remote service {}", updatedService.getName());
-    registry.put(String.format("%s@%s", updatedService.getName(), updatedService.getId()), updatedService);
+    putRegistry(String.format("%s@%s", updatedService.getName(), updatedService.getId()), updatedService);
   }
 
   /**
@@ -1170,7 +1330,7 @@ public class Runtime extends Service implements MessageListener, ServiceLifeCycl
         copyShallowFrom(registration.service, CodecUtils.fromJson(registration.getState(), Class.forName(registration.getTypeKey())));
       }
 
-      registry.put(fullname, registration.service);
+      putRegistry(fullname, registration.service);
 
       if (runtime != null) {
         // TODO - determine rules on re-broadcasting based on configuration
@@ -1251,8 +1411,16 @@ public class Runtime extends Service implements MessageListener, ServiceLifeCycl
       // runtime.broadcast("released", inName);
     }
 
-    // last step - remove from registry
-    registry.remove(name);
+    // remove from registry first - a route resolved after this can not find it
+    removeRegistry(name);
+
+    // then drop direct routes other services hold to the released service
+    for (ServiceInterface si : registry.values()) {
+      Outbox outbox = si.getOutbox();
+      if (outbox != null) {
+        outbox.invalidateRoutes(sw);
+      }
+    }
 
     log.info("released {}", name);
   }
@@ -1263,11 +1431,12 @@ public class Runtime extends Service implements MessageListener, ServiceLifeCycl
 
   public List<ServiceInterface> getRemoteServices(String id) {
     List<ServiceInterface> list = new ArrayList<>();
-    for (String serviceName : registry.keySet()) {
+    for (Map.Entry<String, ServiceInterface> entry : getSortedRegistry().entrySet()) {
+      String serviceName = entry.getKey();
       if (serviceName.contains("@")) {
         String sid = serviceName.substring(serviceName.indexOf("@") + 1);
         if (id == null || sid.equals(id)) {
-          list.add(registry.get(serviceName));
+          list.add(entry.getValue());
         }
       }
     }
@@ -1325,6 +1494,7 @@ public class Runtime extends Service implements MessageListener, ServiceLifeCycl
     }
     log.debug("clearing registry");
     registry.clear();
+    interfaceIndex.clear();
   }
 
   /**
@@ -2484,14 +2654,8 @@ public class Runtime extends Service implements MessageListener, ServiceLifeCycl
       // broadcast completed connection information
       invoke("getConnections"); // FIXME - why isn't this done before ???
 
-      Set<String> set = registry.keySet();
-      String[] list = new String[set.size()];
-      set.toArray(list);
-
       // TODO - filtering on what is broadcasted or re-broadcasted
-      for (int i = 0; i < list.length; ++i) {
-        String fullname = list[i];
-        ServiceInterface si = registry.get(fullname);
+      for (ServiceInterface si : getSortedRegistry().values()) {
 
         Registration registration = new Registration(si);
 
@@ -2757,12 +2921,25 @@ public class Runtime extends Service implements MessageListener, ServiceLifeCycl
     if (shortname == null) {
       return null;
     }
-    if (shortname.contains("@")) {
+    if (shortname.indexOf('@') >= 0) {
       // already long form
       return shortname;
     }
-    // if nothing is supplied assume local
-    return String.format("%s@%s", shortname, Platform.getLocalInstance().getId());
+    // if nothing is supplied assume local - resolved once per local id
+    String id = Platform.getLocalInstance().getId();
+    FullNames cache = fullNames;
+    if (!id.equals(cache.id)) {
+      cache = new FullNames(id);
+      fullNames = cache;
+    }
+    String fullname = cache.names.get(shortname);
+    if (fullname == null) {
+      fullname = shortname + "@" + id;
+      if (cache.names.size() < MAX_FULL_NAMES) {
+        cache.names.put(shortname, fullname);
+      }
+    }
+    return fullname;
   }
 
   @Override
@@ -3096,6 +3273,11 @@ public class Runtime extends Service implements MessageListener, ServiceLifeCycl
         Platform.setVirtual(true);
       }
 
+      // before any service (including runtime) starts its threads
+      if (options.threadMode != null) {
+        ExecutionMode.setMode(options.threadMode);
+      }
+
       if (options.addKeys != null) {
         if (options.addKeys.length < 2) {
           Runtime.mainHelp();
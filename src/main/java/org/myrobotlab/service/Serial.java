@@ -16,8 +16,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
 
 import org.myrobotlab.framework.Platform;
 import org.myrobotlab.framework.Service;
@@ -28,6 +26,7 @@ import org.myrobotlab.logging.LoggerFactory;
 import org.myrobotlab.logging.Logging;
 import org.myrobotlab.logging.LoggingFactory;
 import org.myrobotlab.net.TcpSerialHub;
+import org.myrobotlab.serial.ByteRing;
 import org.myrobotlab.serial.Port;
 import org.myrobotlab.serial.PortQueue;
 import org.myrobotlab.serial.PortStream;
@@ -92,9 +91,18 @@ public class Serial extends Service implements SerialControl, QueueSource, Seria
   int BUFFER_SIZE = 1024;
 
   /**
-   * blocking queue for blocking rx read requests
+   * ring buffer for blocking rx read requests - filled by the ports' threads,
+   * read by the blocking read methods. Every read method holds its read lock
+   * and onBytes its write lock, since more than one thread may read or more
+   * than one port may write.
    */
-  transient BlockingQueue<Integer> blockingRX = new LinkedBlockingQueue<Integer>();
+  final transient ByteRing blockingRX = new ByteRing(BUFFER_SIZE);
+
+  /**
+   * serializes writes - a virtual port's ring takes one writer at a time and
+   * frames from different threads must not interleave
+   */
+  final transient Object txLock = new Object();
 
   /**
    * our set of ports we have access to. This is a shared resource between ALL
@@ -307,7 +315,9 @@ public class Serial extends Service implements SerialControl, QueueSource, Seria
    * clears the rx buffer
    */
   public void clear() {
-    blockingRX.clear();
+    synchronized (blockingRX.getReadLock()) {
+      blockingRX.clear();
+    }
   }
 
   /**
@@ -536,6 +546,10 @@ public class Serial extends Service implements SerialControl, QueueSource, Seria
     }
     @SuppressWarnings("resource")
     Socket socket = new Socket(uri.getHost(), uri.getPort());
+    // replies go out right away and the reading thread wakes up to check if
+    // it should still be listening
+    socket.setTcpNoDelay(true);
+    socket.setSoTimeout((int) Port.READ_TIMEOUT_MS);
     // String portName = String.format("%s.%s", getName(),
     // socket.getRemoteSocketAddress().toString());
     Port socketPort = new PortStream(url, socket.getInputStream(), socket.getOutputStream());
@@ -544,8 +558,8 @@ public class Serial extends Service implements SerialControl, QueueSource, Seria
   }
 
   public PortQueue createVirtualPort(String name) {
-    BlockingQueue<Integer> rx = new LinkedBlockingQueue<Integer>();
-    BlockingQueue<Integer> tx = new LinkedBlockingQueue<Integer>();
+    ByteRing rx = new ByteRing(PortQueue.BUFFER_SIZE);
+    ByteRing tx = new ByteRing(PortQueue.BUFFER_SIZE);
     PortQueue portQueue = new PortQueue(name, rx, tx);
     ports.put(name, portQueue);
     return portQueue;
@@ -561,8 +575,8 @@ public class Serial extends Service implements SerialControl, QueueSource, Seria
 
   static public Serial connectVirtualUart(Serial uart, String myPort, String uartPort) throws IOException {
 
-    BlockingQueue<Integer> left = new LinkedBlockingQueue<Integer>();
-    BlockingQueue<Integer> right = new LinkedBlockingQueue<Integer>();
+    ByteRing left = new ByteRing(PortQueue.BUFFER_SIZE);
+    ByteRing right = new ByteRing(PortQueue.BUFFER_SIZE);
 
     // add our virtual port
     PortQueue vPort = new PortQueue(myPort, left, right);
@@ -722,7 +736,7 @@ public class Serial extends Service implements SerialControl, QueueSource, Seria
 
   @Override
   public BlockingQueue<?> getQueue() {
-    return blockingRX;
+    return blockingRX.asQueue();
   }
 
   public int getRXCount() {
@@ -757,6 +771,15 @@ public class Serial extends Service implements SerialControl, QueueSource, Seria
       log.warn("No Listeners !!!  we are invoking publishBytes.. data is likely getting dropped? ");
     }
     invoke("publishBytes", bytes);
+    // overrun data is dropped
+    synchronized (blockingRX.getWriteLock()) {
+      blockingRX.write(bytes);
+    }
+    try {
+      tcpSerialHub.broadcast(bytes);
+    } catch (IOException e) {
+      log.warn("Error broadcasting to tcp serial hub", e);
+    }
     // String byteIntString = StringUtil.byteArrayToIntString(bytes);
     // log.info("On bytes called len: {} data: {}" , bytes.length,
     // byteIntString);
@@ -765,14 +788,6 @@ public class Serial extends Service implements SerialControl, QueueSource, Seria
       ++rxCount;
       // publish the rx byte !
       invoke("publishRX", newByte);
-      if (blockingRX.size() < BUFFER_SIZE) {
-        blockingRX.add(newByte);
-      }
-      try {
-        tcpSerialHub.broadcast(newByte);
-      } catch (IOException e) {
-        log.warn("Error broadcasting to tcp serial hub", e);
-      }
       if (recordRx != null) {
         // potentially variety of formats can be supported here
         try {
@@ -856,12 +871,12 @@ public class Serial extends Service implements SerialControl, QueueSource, Seria
    * @see org.myrobotlab.service.SerialDevice#read()
    */
   @Override
-  synchronized public int read() throws IOException, InterruptedException {
-    if (timeoutMS == null) {
-      return blockingRX.take();
+  public int read() throws IOException, InterruptedException {
+    int newByte;
+    synchronized (blockingRX.getReadLock()) {
+      newByte = blockingRX.poll(getRxTimeout());
     }
-    Integer newByte = blockingRX.poll(timeoutMS, TimeUnit.MILLISECONDS);
-    if (newByte == null) {
+    if (newByte < 0) {
       String error = String.format("%d ms timeout was reached - no data", timeoutMS);
       error(error);
       throw new IOException(error);
@@ -877,25 +892,24 @@ public class Serial extends Service implements SerialControl, QueueSource, Seria
    * @throws IOException
    * @throws InterruptedException
    */
-  synchronized public byte[] readBytes() throws IOException, InterruptedException {
-    int size = blockingRX.size();
-    if (size == 0) {
-      return null;
-    } else {
-      byte[] data = new byte[size];
-      for (int i = 0; i < size; i++) {
-        data[i] = blockingRX.take().byteValue();
-      }
-      return data;
+  public byte[] readBytes() throws IOException, InterruptedException {
+    synchronized (blockingRX.getReadLock()) {
+      return blockingRX.readAll();
     }
   }
 
   // FIXME add timeout parameter (with default)
-  synchronized public int read(byte[] data) throws IOException, InterruptedException {
-    for (int i = 0; i < data.length; ++i) {
-      data[i] = (byte) read();
+  public int read(byte[] data) throws IOException, InterruptedException {
+    int count;
+    synchronized (blockingRX.getReadLock()) {
+      count = blockingRX.read(data, 0, data.length, getRxTimeout());
+    }
+    if (count < data.length) {
+      String error = String.format("%d ms timeout was reached - no data", timeoutMS);
+      error(error);
+      throw new IOException(error);
     }
-    return data.length;
+    return count;
   }
 
   /**
@@ -910,46 +924,34 @@ public class Serial extends Service implements SerialControl, QueueSource, Seria
    *           e
    * 
    */
-  synchronized public byte[] read(int length) throws InterruptedException {
-    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-    int count = 0;
-    Integer newByte = null;
-    while (count < length) {
-      if (timeoutMS == null) {
-        newByte = blockingRX.take();
-      } else {
-        newByte = blockingRX.poll(timeoutMS, TimeUnit.MILLISECONDS);
-      }
-      if (newByte == null) {
-        if (count == 0) {
-          error("got nothing!");
-          return null;
-        } else {
-          error("expecting %d bytes got %d", length, count);
-          break;
-        }
-      }
-      bytes.write(newByte.intValue() & 0xff);
-      ++count;
+  public byte[] read(int length) throws InterruptedException {
+    byte[] bytes = new byte[length];
+    int count;
+    synchronized (blockingRX.getReadLock()) {
+      count = blockingRX.read(bytes, 0, length, getRxTimeout());
+    }
+    if (count == 0 && length > 0) {
+      error("got nothing!");
+      return null;
+    }
+    if (count < length) {
+      error("expecting %d bytes got %d", length, count);
+      return Arrays.copyOf(bytes, count);
     }
-    return bytes.toByteArray();
+    return bytes;
   }
 
   public int read(int[] data) throws InterruptedException {
-    int count = 0;
-    Integer newByte = null;
-    while (count < data.length) {
-      if (timeoutMS == null) {
-        newByte = blockingRX.take();
-      } else {
-        newByte = blockingRX.poll(timeoutMS, TimeUnit.MILLISECONDS);
-      }
-      if (newByte == null) {
-        error("expecting %d bytes got %d", data.length, count);
-        return count;
-      }
-      data[count] = newByte;
-      ++count;
+    byte[] bytes = new byte[data.length];
+    int count;
+    synchronized (blockingRX.getReadLock()) {
+      count = blockingRX.read(bytes, 0, bytes.length, getRxTimeout());
+    }
+    for (int i = 0; i < count; ++i) {
+      data[i] = bytes[i] & 0xff;
+    }
+    if (count < data.length) {
+      error("expecting %d bytes got %d", data.length, count);
     }
     return count;
   }
@@ -960,20 +962,21 @@ public class Serial extends Service implements SerialControl, QueueSource, Seria
 
   public byte[] readLine(char deliminater) throws InterruptedException {
     ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-    Integer newByte = null;
-    while (newByte == null || newByte != deliminater) {
-      if (timeoutMS == null) {
-        newByte = blockingRX.take();
-      } else {
-        newByte = blockingRX.poll(timeoutMS, TimeUnit.MILLISECONDS);
-      }
-      if (newByte == null) {
-        info("non blocking got nothing");
-        return bytes.toByteArray();
+    byte[] chunk = new byte[64];
+    // one reader at a time gets a whole line
+    synchronized (blockingRX.getReadLock()) {
+      while (true) {
+        int count = blockingRX.readUntil(chunk, 0, chunk.length, deliminater, getRxTimeout());
+        bytes.write(chunk, 0, count);
+        if (count > 0 && chunk[count - 1] == (byte) deliminater) {
+          return bytes.toByteArray();
+        }
+        if (count < chunk.length) {
+          info("non blocking got nothing");
+          return bytes.toByteArray();
+        }
       }
-      bytes.write(newByte.intValue() & 0xff);
     }
-    return bytes.toByteArray();
   }
 
   public String readString() throws InterruptedException {
@@ -1002,11 +1005,60 @@ public class Serial extends Service implements SerialControl, QueueSource, Seria
     return new String(bytes);
   }
 
+  /**
+   * read until the delimiter has been received - with the same timeout as
+   * readLine
+   * 
+   * @param delimeter
+   *          - one or more bytes ending the data
+   * @return bytes read including the delimiter, or what was read before the
+   *         timeout
+   * @throws InterruptedException
+   *           e
+   */
   // FIXME remove blocking public
   // FIXME overload with timeouts etc - remove exposed blocking
-  // FIXME - implement
-  public byte[] readToDelimiter(String delimeter) {
-    return null;
+  public byte[] readToDelimiter(String delimeter) throws InterruptedException {
+    byte[] delim = delimeter.getBytes();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] chunk = new byte[64];
+    int last = (delim.length == 0) ? 0 : delim[delim.length - 1];
+    synchronized (blockingRX.getReadLock()) {
+      if (delim.length == 0) {
+        return blockingRX.readAll();
+      }
+      while (true) {
+        int count = blockingRX.readUntil(chunk, 0, chunk.length, last, getRxTimeout());
+        bytes.write(chunk, 0, count);
+        if (count > 0 && chunk[count - 1] == (byte) last && endsWith(bytes.toByteArray(), delim)) {
+          return bytes.toByteArray();
+        }
+        if (count < chunk.length && (count == 0 || chunk[count - 1] != (byte) last)) {
+          info("non blocking got nothing");
+          return bytes.toByteArray();
+        }
+      }
+    }
+  }
+
+  static boolean endsWith(byte[] data, byte[] suffix) {
+    if (data.length < suffix.length) {
+      return false;
+    }
+    for (int i = 0; i < suffix.length; ++i) {
+      if (data[data.length - suffix.length + i] != suffix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return timeout for the rx ring - timeoutMS or block forever
+   */
+  long getRxTimeout() {
+    Integer timeout = timeoutMS;
+    return (timeout == null) ? ByteRing.NO_TIMEOUT : timeout;
   }
 
   public void record() throws FileNotFoundException {
@@ -1113,11 +1165,13 @@ public class Serial extends Service implements SerialControl, QueueSource, Seria
       return;
     }
 
-    for (String portName : connectedPorts.keySet()) {
-      Port writePort = connectedPorts.get(portName);
-      // log.info("Writing data to port {} data:{} -- WritePort:{}", portName,
-      // data, writePort);
-      writePort.write(data);
+    synchronized (txLock) {
+      for (String portName : connectedPorts.keySet()) {
+        Port writePort = connectedPorts.get(portName);
+        // log.info("Writing data to port {} data:{} -- WritePort:{}", portName,
+        // data, writePort);
+        writePort.write(data);
+      }
     }
 
     // TODO: invoke publishTX with the array?
@@ -1132,25 +1186,27 @@ public class Serial extends Service implements SerialControl, QueueSource, Seria
   }
 
   // TODO: remove this method use write(int[] b) instead
-  synchronized public void write(int b) throws Exception {
+  public void write(int b) throws Exception {
 
     if (connectedPorts.size() == 0) {
       error("can not write to a closed port!");
       return;
     }
 
-    for (String portName : connectedPorts.keySet()) {
-      Port writePort = connectedPorts.get(portName);
-      writePort.write(b);
+    synchronized (txLock) {
+      for (String portName : connectedPorts.keySet()) {
+        Port writePort = connectedPorts.get(portName);
+        writePort.write(b);
+      }
+
+      ++txCount;
+      if (recordTx != null) {
+        recordTx.write(String.format(" %02X", b).getBytes());
+      }
     }
 
     // main line TX
     invoke("publishTX", b);
-
-    ++txCount;
-    if (recordTx != null) {
-      recordTx.write(String.format(" %02X", b).getBytes());
-    }
   }
 
   // ============= write methods begin ====================
@@ -804,11 +804,10 @@ public class SwingGui extends Service implements Gateway, WindowListener, Action
        * the RuntimeGui - so we set it to the rough size of that panel
        */
 
-      Map<String, ServiceInterface> services = Runtime.getRegistry();
-      log.info("buildTabPanels service count " + Runtime.getRegistry().size());
+      Map<String, ServiceInterface> services = Runtime.getSortedRegistry();
+      log.info("buildTabPanels service count " + services.size());
 
-      TreeMap<String, ServiceInterface> sortedMap = new TreeMap<String, ServiceInterface>(services);
-      Iterator<String> it = sortedMap.keySet().iterator();
+      Iterator<String> it = services.keySet().iterator();
 
       tabPanel = new JPanel(new BorderLayout());
       tabPanel.add(tabs.getTabs(), BorderLayout.CENTER);
@@ -1,8 +1,6 @@
 package org.myrobotlab.service;
 
 import java.io.IOException;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 
 import org.myrobotlab.image.SerializableImage;
 import org.myrobotlab.logging.Level;
@@ -75,14 +73,10 @@ public class VideoStreamer
      * if (mergeSteams) { si.setSource("output"); }
      */
 
-    if (!server.videoFeeds.containsKey(si.getSource())) {
-      server.videoFeeds.put(si.getSource(), new LinkedBlockingQueue<SerializableImage>());
-    }
-
-    BlockingQueue<SerializableImage> buffer = server.videoFeeds.get(si.getSource());
-    // if its backed up over 10 frames we are dumping it
-    if (buffer.size() < 1) {
-      buffer.add(si);
+    // encoded once for every client - slow clients skip frames
+    MjpegServer s = server;
+    if (s != null) {
+      s.publish(si);
     }
   }
 
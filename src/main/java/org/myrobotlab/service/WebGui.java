@@ -12,11 +12,24 @@ import java.security.KeyStore;
 import java.security.SecureRandom;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.jmdns.JmDNS;
 import javax.jmdns.ServiceInfo;
@@ -54,6 +67,7 @@ import org.myrobotlab.logging.Level;
 import org.myrobotlab.logging.LoggerFactory;
 import org.myrobotlab.logging.LoggingFactory;
 import org.myrobotlab.net.BareBonesBrowserLaunch;
+import org.myrobotlab.net.ClientOutbox;
 import org.myrobotlab.net.Connection;
 import org.myrobotlab.service.interfaces.AuthorizationProvider;
 import org.myrobotlab.service.interfaces.Gateway;
@@ -93,6 +107,78 @@ public class WebGui extends Service implements AuthorizationProvider, Gateway, H
     }
   }
 
+  /**
+   * the data of a publish encoded at most once per wire format - shared by
+   * the copies of the message sent to each remote subscriber
+   */
+  static class EncodedData {
+    final Object[] data;
+    String json;
+    byte[] cbor;
+
+    EncodedData(Object[] data) {
+      this.data = data;
+    }
+
+    synchronized String getJson() {
+      if (json == null) {
+        json = CodecUtils.toJson(data);
+      }
+      return json;
+    }
+
+    synchronized byte[] getCbor() throws IOException {
+      if (cbor == null) {
+        cbor = CodecUtils.toCbor(data);
+      }
+      return cbor;
+    }
+  }
+
+  /**
+   * an outbound message encoded at most once per wire format - json clients
+   * get text frames, cbor clients binary frames. Only the envelope is encoded
+   * per message, the data comes from the shared EncodedData.
+   */
+  class EncodedMessage {
+    final Message msg;
+    final EncodedData data;
+    String json;
+    byte[] cbor;
+
+    EncodedMessage(Message msg) {
+      this.msg = msg;
+      this.data = getEncodedData(msg.data);
+    }
+
+    Object get(String encoding) throws IOException {
+      int size;
+      Object payload;
+      if (CodecUtils.ENCODING_CBOR.equals(encoding)) {
+        if (cbor == null) {
+          cbor = (data == null) ? CodecUtils.toCbor(msg) : CodecUtils.toCbor(msg, data.getCbor());
+        }
+        size = cbor.length;
+        payload = cbor;
+      } else {
+        if (json == null) {
+          json = (data == null) ? CodecUtils.toJson(msg) : CodecUtils.toJson(msg, data.getJson());
+        }
+        size = json.length();
+        payload = json;
+      }
+      if (size > maxMsgSize) {
+        log.warn(String.format("sendRemote default msg size (%d) exceeded %d for msg %s", size, maxMsgSize, msg));
+        /*
+         * debugging large msgs try {
+         * FileIO.toFile(String.format("too-big-%s-%d.json", msg.method,
+         * System.currentTimeMillis()), json); } catch (Exception e) { }
+         */
+      }
+      return payload;
+    }
+  }
+
   public static class Panel {
 
     int height = 400;
@@ -254,6 +340,53 @@ public class WebGui extends Service implements AuthorizationProvider, Gateway, H
 
   protected int maxMsgSize = 1048576;
 
+  /**
+   * frames waiting for a slow client before the oldest latest-only ones are
+   * dropped - a client with more waiting frames which can not be dropped is
+   * disconnected
+   */
+  protected int maxPending = 32;
+
+  /**
+   * longest wait on a client write before moving on to its next frame
+   */
+  protected long writeTimeoutMs = 5000;
+
+  /**
+   * callbacks where only the latest frame matters - a slow client gets the
+   * newest instead of every one
+   */
+  protected Set<String> latestOnly = new HashSet<>(Arrays.asList("onWebDisplay", "onState", "onPinArray", "onOrientation"));
+
+  /**
+   * outbound frames of each client by uuid
+   */
+  transient Map<String, ClientOutbox> outboxes = new ConcurrentHashMap<>();
+
+  transient ExecutorService writers = Executors.newCachedThreadPool(new ThreadFactory() {
+    AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread t = new Thread(r, "webgui.writer." + count.getAndIncrement());
+      t.setDaemon(true);
+      return t;
+    }
+  });
+
+  /**
+   * recently encoded data - keyed by the identity of the data array, which
+   * the remote subscribers' copies of a publish share
+   */
+  transient Map<Object[], EncodedData> encodedData = Collections.synchronizedMap(new LinkedHashMap<Object[], EncodedData>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Object[], EncodedData> eldest) {
+      return size() > 16;
+    }
+  });
+
   public WebGui(String n, String id) {
     super(n, id);
     
@@ -281,6 +414,10 @@ public class WebGui extends Service implements AuthorizationProvider, Gateway, H
         log.info("onDisconnect - {} {}", event, uuid);
         Runtime runtime = Runtime.getInstance();
         runtime.removeConnection(uuid);
+        ClientOutbox outbox = outboxes.remove(uuid);
+        if (outbox != null) {
+          outbox.close();
+        }
         // runtime.removeRoute(uuid);
         // sessions.remove(uuid);
         if (event.isCancelled()) {
@@ -544,12 +681,16 @@ public class WebGui extends Service implements AuthorizationProvider, Gateway, H
         setBroadcaster(r);
       }
 
+      String encoding = getEncoding(Runtime.getInstance().getConnection(uuid));
+
       // default return encoding
-      r.getResponse().addHeader("Content-Type", CodecUtils.MIME_TYPE_JSON);
+      r.getResponse().addHeader("Content-Type", CodecUtils.ENCODING_CBOR.equals(encoding) ? CodecUtils.MIME_TYPE_CBOR : CodecUtils.MIME_TYPE_JSON);
 
       AtmosphereRequest request = r.getRequest();
 
-      String bodyData = request.body().asString();
+      // binary frames are cbor, text frames json
+      boolean binary = request.body().hasBytes();
+      String bodyData = (binary) ? null : request.body().asString();
       String logData = null;
 
       if (debugConnectivity) {
@@ -580,13 +721,13 @@ public class WebGui extends Service implements AuthorizationProvider, Gateway, H
         // subscribe to describe
         MRLListener listener = new MRLListener("describe", String.format("runtime@%s", getId()), "onDescribe");
         Message subscribe = Message.createMessage(getFullName(), "runtime", "addListener", listener);
-        out.write(CodecUtils.toJson(subscribe).getBytes());
+        write(out, subscribe, encoding);
 
         // describe
         Message describe = getDescribeMsg(uuid); // SEND BACK describe(hello)
         // Service.sleep(1000);
         log.info(String.format("new connection %s", request.getRequestURI()));
-        out.write(CodecUtils.toJson(describe).getBytes());
+        write(out, describe, encoding);
         log.info(String.format("<-- %s", describe));
         return;
 
@@ -612,12 +753,16 @@ public class WebGui extends Service implements AuthorizationProvider, Gateway, H
         return;
       }
 
-      if (bodyData != null) {
+      if (bodyData != null || binary) {
 
         // decoding 1st pass - decodes the containers
         Message msg = null;
         try {
-          msg = CodecUtils.fromJson(bodyData, Message.class);
+          if (binary) {
+            msg = CodecUtils.fromCbor(request.body().asBytes(), request.body().byteOffset(), request.body().byteLength(), Message.class);
+          } else {
+            msg = CodecUtils.fromJson(bodyData, Message.class);
+          }
 
           if (msg.containsHop(getId())) {
             log.error("{} dumping duplicate hop msg to avoid cyclical from {} --to--> {}.{}", getName(), msg.sender, msg.name, msg.method);
@@ -677,6 +822,76 @@ public class WebGui extends Service implements AuthorizationProvider, Gateway, H
     return Runtime.getInstance().isLocal(msg);
   }
 
+  /**
+   * @return the wire format of a connection - json unless the client asked
+   *         for cbor on a websocket
+   */
+  String getEncoding(Connection c) {
+    Object encoding = (c == null) ? null : c.get("encoding");
+    return (encoding == null) ? CodecUtils.ENCODING_JSON : (String) encoding;
+  }
+
+  EncodedData getEncodedData(Object[] data) {
+    if (data == null) {
+      return null;
+    }
+    return encodedData.computeIfAbsent(data, EncodedData::new);
+  }
+
+  ClientOutbox getOutbox(String uuid) {
+    return outboxes.computeIfAbsent(uuid, k -> new ClientOutbox(k, payload -> write(k, payload), writers, maxPending, () -> disconnect(k)));
+  }
+
+  /**
+   * drops a client which is too far behind
+   */
+  void disconnect(String uuid) {
+    ClientOutbox outbox = outboxes.remove(uuid);
+    if (outbox != null) {
+      outbox.close();
+    }
+    Runtime.getInstance().removeConnection(uuid);
+    Broadcaster b = getBroadcasterFactory().lookup(uuid);
+    if (b == null) {
+      return;
+    }
+    for (AtmosphereResource r : new ArrayList<>(b.getAtmosphereResources())) {
+      try {
+        r.close();
+      } catch (Exception e) {
+        log.error("closing {} threw", uuid, e);
+      }
+    }
+  }
+
+  /**
+   * writes a frame to one client - called by the client's outbox, waits for
+   * the write so frames queue in the outbox where stale ones can be dropped
+   */
+  void write(String uuid, Object payload) throws Exception {
+    Broadcaster b = getBroadcasterFactory().lookup(uuid);
+    if (b == null) {
+      ClientOutbox outbox = outboxes.remove(uuid);
+      if (outbox != null) {
+        outbox.close();
+      }
+      return;
+    }
+    try {
+      b.broadcast(payload).get(writeTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      log.info("{} write took longer than {} ms", uuid, writeTimeoutMs);
+    }
+  }
+
+  void write(OutputStream out, Object o, String encoding) throws IOException {
+    if (CodecUtils.ENCODING_CBOR.equals(encoding)) {
+      out.write(CodecUtils.toCbor(o));
+    } else {
+      out.write(CodecUtils.toJson(o).getBytes());
+    }
+  }
+
   private boolean upsertConnection(AtmosphereResource r) {
     String uuid = r.uuid();
     Runtime runtime = Runtime.getInstance();
@@ -702,6 +917,15 @@ public class WebGui extends Service implements AuthorizationProvider, Gateway, H
       connection.putTransient("c-r", r);
       connection.put("c-type", "WebGui");
 
+      // wire format - binary frames need a websocket, anything else gets json
+      String encoding = request.getParameter("encoding");
+      if (CodecUtils.ENCODING_CBOR.equals(encoding) && r.transport() == AtmosphereResource.TRANSPORT.WEBSOCKET) {
+        connection.put("encoding", CodecUtils.ENCODING_CBOR);
+        r.forceBinaryWrite(true);
+      } else {
+        connection.put("encoding", CodecUtils.ENCODING_JSON);
+      }
+
       // cli specific
       connection.put("cwd", "/");
 
@@ -721,7 +945,11 @@ public class WebGui extends Service implements AuthorizationProvider, Gateway, H
     } else {
       // keeping it "fresh" - the resource changes every request ..
       // it switches on
-      runtime.getConnection(uuid).putTransient("c-r", r);
+      Connection c = runtime.getConnection(uuid);
+      c.putTransient("c-r", r);
+      if (CodecUtils.ENCODING_CBOR.equals(getEncoding(c))) {
+        r.forceBinaryWrite(true);
+      }
       return false;
     }
   }
@@ -954,24 +1182,22 @@ public class WebGui extends Service implements AuthorizationProvider, Gateway, H
        * ======================================================================
        */
 
-      String json = CodecUtils.toJson(msg);
-      if (json.length() > maxMsgSize) {
-        log.warn(String.format("sendRemote default msg size (%d) exceeded 65536 for msg %s", json.length(), msg));
-        /*
-         * debugging large msgs try {
-         * FileIO.toFile(String.format("too-big-%s-%d.json", msg.method,
-         * System.currentTimeMillis()), json); } catch (Exception e) { }
-         */
-      }
+      // encoded at most once per wire format
+      EncodedMessage encoded = new EncodedMessage(msg);
+      // a slow client only gets the latest frame of these
+      String stream = latestOnly.contains(msg.method) ? msg.sender + "." + msg.method : null;
 
       if (broadcastMode) {
-        // multi-cast mode all clients have a single id
-        broadcaster.broadcast(json);
+        // multi-cast mode all clients have a single id - the same payload
+        // goes to every client of a wire format
+        Runtime runtime = Runtime.getInstance();
+        for (AtmosphereResource r : broadcaster.getAtmosphereResources()) {
+          getOutbox(r.uuid()).send(stream, encoded.get(getEncoding(runtime.getConnection(r.uuid()))));
+        }
       } else {
         // uni-cast mode - all clients have their own id
         Connection c = Runtime.getInstance().getRoute(msg.getId());
-        Broadcaster broadcaster = getBroadcasterFactory().lookup(c.getUuid());
-        broadcaster.broadcast(json);
+        getOutbox(c.getUuid()).send(stream, encoded.get(getEncoding(c)));
       }
     } catch (Exception e) {
       log.error("WebGui.sendRemote threw", e);
@@ -1104,6 +1330,10 @@ public class WebGui extends Service implements AuthorizationProvider, Gateway, H
     super.stopService();
     stopMdns();
     stop();
+    for (ClientOutbox outbox : outboxes.values()) {
+      outbox.close();
+    }
+    outboxes.clear();
   }
 
   /**
@@ -189,11 +189,14 @@ public class Webcam extends Service implements WebcamListener {
     ++frameIndex;
     // TODO change jpg quality !!! B&W option ?
     // SerializableImage image = new SerializableImage(bi, getName());
-    WebImage webImage = new WebImage(bi, getName(), frameIndex, type, quality);
+    // encoded only if someone is watching - once for all of them
+    if (hasSubscribers("publishWebDisplay")) {
+      WebImage webImage = new WebImage(bi, getName(), frameIndex, type, quality);
 
-    // non queue broadcast - blocking direct call for this thread
-    // which is what we want
-    broadcast("publishWebDisplay", webImage);
+      // non queue broadcast - blocking direct call for this thread
+      // which is what we want
+      broadcast("publishWebDisplay", webImage);
+    }
     
     long now = System.currentTimeMillis();
     if (now - startSampleTs > 1000) {
@@ -22,6 +22,8 @@ public interface MrlCommPublisher {
 
   public void publishAck(Integer function/* byte */);
 
+  public Integer publishAckWindow(Integer windowSize/* byte */);
+
   public int[] publishCustomMsg(int[] msg);
 
   public String publishDebug(String debugMsg);
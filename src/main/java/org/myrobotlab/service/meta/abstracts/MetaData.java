@@ -133,6 +133,15 @@ public class MetaData implements Serializable {
     this.name = "org.myrobotlab.service." + simpleName;
   }
 
+  /**
+   * meta data read back from the service data index - no Meta class is loaded
+   */
+  public MetaData(String type, String simpleName, String serviceName) {
+    this.name = type;
+    this.simpleName = simpleName;
+    this.serviceName = serviceName;
+  }
+
   public void addArtifact(String orgId, String classifierId) {
     lastDependency.add(new ServiceArtifact(orgId, classifierId));
   }
@@ -220,6 +229,10 @@ public class MetaData implements Serializable {
     return available;
   }
 
+  public boolean isCloudService() {
+    return isCloudService;
+  }
+
   public boolean requiresKeys() {
     return requiresKeys;
   }
@@ -256,6 +269,14 @@ public class MetaData implements Serializable {
     this.sponsor = sponsor;
   }
 
+  public String getSponsor() {
+    return sponsor;
+  }
+
+  public String getTodo() {
+    return todo;
+  }
+
   public int size() {
     return dependencies.size();
   }
@@ -41,7 +41,6 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 
 import javax.swing.ButtonGroup;
 import javax.swing.DefaultListModel;
@@ -577,10 +576,7 @@ public class RuntimeGui extends ServiceGui implements ActionListener, ListSelect
    */
   public void getCurrentServices() {
     // can't be static
-    Map<String, ServiceInterface> services = Runtime.getRegistry();
-    Map<String, ServiceInterface> sortedMap = null;
-    sortedMap = new TreeMap<String, ServiceInterface>(services);
-    Iterator<String> it = sortedMap.keySet().iterator();
+    Iterator<String> it = Runtime.getSortedRegistry().keySet().iterator();
 
     while (it.hasNext()) {
       String serviceName = it.next();
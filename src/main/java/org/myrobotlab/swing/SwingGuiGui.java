@@ -37,7 +37,6 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
@@ -285,11 +284,10 @@ public class SwingGuiGui extends ServiceGui implements ActionListener {
   public void buildLocalServiceGraph() {
 
     log.debug("buildLocalServiceGraph-begin");
-    Map<String, ServiceInterface> services = Runtime.getRegistry();
-    log.debug("SwingGUI service count " + Runtime.getRegistry().size());
+    Map<String, ServiceInterface> services = Runtime.getSortedRegistry();
+    log.debug("SwingGUI service count " + services.size());
 
-    TreeMap<String, ServiceInterface> sortedMap = new TreeMap<String, ServiceInterface>(services);
-    Iterator<String> it = sortedMap.keySet().iterator();
+    Iterator<String> it = services.keySet().iterator();
 
     int x = 20;
     int y = 20;
@@ -367,7 +365,7 @@ public class SwingGuiGui extends ServiceGui implements ActionListener {
   // FIXME - return a "copy" of registry ????
   // versus sunchronize on it?
   public synchronized void buildLocalServiceRoutes() {
-    Iterator<String> it = Runtime.getRegistry().keySet().iterator();
+    Iterator<String> it = Runtime.getSortedRegistry().keySet().iterator();
     Object parent = graph.getDefaultParent();
 
     // FIXME either getServiceWrapper & getNotifyList need to return copies
@@ -9,7 +9,7 @@
  * 							src\resource\Arduino\generate\ArduinoMsgCodec.template.h
  */
 
-#define MRLCOMM_VERSION			67
+#define MRLCOMM_VERSION			68
 #define MAGIC_NUMBER            170 // 10101010
 #define MAX_MSG_SIZE			64
 
@@ -137,6 +137,12 @@
 #define PUBLISH_MRL_COMM_BEGIN 55
 // > servoStop/deviceId
 #define SERVO_STOP 56
+// < publishAckWindow/windowSize
+#define PUBLISH_ACK_WINDOW 57
+// > enableAckWindow/windowSize
+#define ENABLE_ACK_WINDOW 58
+// > servoMoveToMicrosecondsBatch/[] moves
+#define SERVO_MOVE_TO_MICROSECONDS_BATCH 59
 
 
 
@@ -150,7 +150,14 @@ void MrlComm::processCommand()
 	msg->processCommand();
 	if (ackEnabled)
 	{
-		msg->publishAck(msg->getMethod());
+		if (ackWindow)
+		{
+			msg->publishAck(ackSeq++);
+		}
+		else
+		{
+			msg->publishAck(msg->getMethod());
+		}
 	}
 }
 
@@ -159,6 +166,18 @@ void MrlComm::enableAck(boolean enabled)
 	ackEnabled = enabled;
 }
 
+// > enableAckWindow/windowSize
+// not advertised from getBoardInfo yet - the serial rx buffer of the smaller
+// boards needs measuring first, and Msg::readMsg has to discard everything
+// after an rx error until the next enableAckWindow like the virtual board
+// does, until then MRL stays stop and wait
+void MrlComm::enableAckWindow(byte windowSize)
+{
+	ackWindow = windowSize;
+	ackSeq = 0;
+	msg->publishAckWindow(windowSize);
+}
+
 bool MrlComm::readMsg()
 {
 	return msg->readMsg();
@@ -418,6 +437,20 @@ void MrlComm::servoMoveToMicroseconds(byte deviceId, int target)
 	servo->moveToMicroseconds(target);
 }
 
+// > servoMoveToMicrosecondsBatch/[] moves
+// deviceId, target high byte, target low byte for each servo
+void MrlComm::servoMoveToMicrosecondsBatch(byte movesSize, const byte *moves)
+{
+	for (int i = 0; i + 2 < movesSize; i += 3)
+	{
+		MrlServo *servo = (MrlServo *)getDevice(moves[i]);
+		if (servo)
+		{
+			servo->moveToMicroseconds((int)(short)((moves[i + 1] << 8) | moves[i + 2]));
+		}
+	}
+}
+
 void MrlComm::setDebug(boolean enabled)
 {
 	msg->debug = enabled;
@@ -75,6 +75,9 @@ public:
   Device *getDevice(int id);
   Msg *getMsg();
   bool ackEnabled = true;
+  // sliding window acks - 0 stop and wait, otherwise acks carry ackSeq
+  byte ackWindow = 0;
+  byte ackSeq = 0;
 
   Device *addDevice(Device *device);
   void update();
@@ -162,6 +165,10 @@ public:
   void setZeroPoint( byte deviceId);
   // > servoStop/deviceId
   void servoStop( byte deviceId);
+  // > enableAckWindow/windowSize
+  void enableAckWindow( byte windowSize);
+  // > servoMoveToMicrosecondsBatch/[] moves
+  void servoMoveToMicrosecondsBatch( byte movesSize, const byte*moves);
     // </generatedCallBacks>
   // end
 
@@ -138,6 +138,10 @@ Msg* Msg::getInstance() {
   void setZeroPoint( byte deviceId);
   // > servoStop/deviceId
   void servoStop( byte deviceId);
+  // > enableAckWindow/windowSize
+  void enableAckWindow( byte windowSize);
+  // > servoMoveToMicrosecondsBatch/[] moves
+  void servoMoveToMicrosecondsBatch( byte movesSize, const byte*moves);
 
  */
 
@@ -273,6 +277,15 @@ void Msg::publishMrlCommBegin( byte version) {
   reset();
 }
 
+void Msg::publishAckWindow( byte windowSize) {
+  write(MAGIC_NUMBER);
+  write(1 + 1); // size
+  write(PUBLISH_ACK_WINDOW); // msgType = 57
+  write(windowSize);
+  flush();
+  reset();
+}
+
 
 void Msg::processCommand() {
 
@@ -630,6 +643,19 @@ void Msg::processCommand() {
       byte deviceId = ioCmd[startPos+1]; // bu8
       startPos += 1;
       mrlComm->servoStop( deviceId);
+      break;
+	}
+  case ENABLE_ACK_WINDOW: { // enableAckWindow
+      byte windowSize = ioCmd[startPos+1]; // bu8
+      startPos += 1;
+      mrlComm->enableAckWindow( windowSize);
+      break;
+	}
+  case SERVO_MOVE_TO_MICROSECONDS_BATCH: { // servoMoveToMicrosecondsBatch
+      const byte* moves = ioCmd+startPos+2;
+      byte movesSize = ioCmd[startPos+1];
+      startPos += 1 + ioCmd[startPos+1];
+      mrlComm->servoMoveToMicrosecondsBatch( movesSize, moves);
       break;
 	}
 
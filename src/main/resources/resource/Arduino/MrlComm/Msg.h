@@ -105,6 +105,7 @@ public:
 	void publishUltrasonicSensorData( byte deviceId,  int echoTime);
 	void publishEncoderData( byte deviceId,  int position);
 	void publishMrlCommBegin( byte version);
+	void publishAckWindow( byte windowSize);
 
 	// handles all (PC --> MrlComm) methods
 	// void handle(int[] ioCmd); // send size too ?
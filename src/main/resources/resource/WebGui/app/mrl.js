@@ -39,6 +39,122 @@ angular.module('mrlapp.mrl', []).provider('mrl', [function() {
     let navCtrl = null
     let tabsViewCtrl = null
 
+    // decodes a binary (cbor) frame from the WebGui into the same objects
+    // JSON.parse would give - maps and arrays may be of indefinite length
+    function decodeCbor(buffer) {
+        let view = new DataView(buffer)
+        let bytes = new Uint8Array(buffer)
+        let pos = 0
+        let utf8 = new TextDecoder('utf-8')
+        const BREAK = {}
+
+        function argument(info) {
+            let v
+            if (info < 24) {
+                return info
+            } else if (info == 24) {
+                v = view.getUint8(pos)
+                pos += 1
+            } else if (info == 25) {
+                v = view.getUint16(pos)
+                pos += 2
+            } else if (info == 26) {
+                v = view.getUint32(pos)
+                pos += 4
+            } else if (info == 27) {
+                v = view.getUint32(pos) * 4294967296 + view.getUint32(pos + 4)
+                pos += 8
+            } else {
+                throw 'bad cbor additional info ' + info
+            }
+            return v
+        }
+
+        function item() {
+            let b = view.getUint8(pos++)
+            if (b == 0xFF) {
+                return BREAK
+            }
+            let major = b >> 5
+            let info = b & 0x1F
+            let len, ret, e
+            switch (major) {
+            case 0:
+                return argument(info)
+            case 1:
+                return -1 - argument(info)
+            case 2:
+                len = argument(info)
+                ret = Array.from(bytes.subarray(pos, pos + len))
+                pos += len
+                return ret
+            case 3:
+                if (info == 31) {
+                    ret = ''
+                    while ((e = item()) !== BREAK) {
+                        ret += e
+                    }
+                    return ret
+                }
+                len = argument(info)
+                ret = utf8.decode(bytes.subarray(pos, pos + len))
+                pos += len
+                return ret
+            case 4:
+                ret = []
+                if (info == 31) {
+                    while ((e = item()) !== BREAK) {
+                        ret.push(e)
+                    }
+                } else {
+                    len = argument(info)
+                    for (let i = 0; i < len; ++i) {
+                        ret.push(item())
+                    }
+                }
+                return ret
+            case 5:
+                ret = {}
+                if (info == 31) {
+                    while ((e = item()) !== BREAK) {
+                        ret[e] = item()
+                    }
+                } else {
+                    len = argument(info)
+                    for (let i = 0; i < len; ++i) {
+                        e = item()
+                        ret[e] = item()
+                    }
+                }
+                return ret
+            case 6:
+                argument(info)
+                return item()
+            default:
+                if (info == 20) {
+                    return false
+                } else if (info == 21) {
+                    return true
+                } else if (info == 22 || info == 23) {
+                    return null
+                } else if (info == 26) {
+                    ret = view.getFloat32(pos)
+                    pos += 4
+                    return ret
+                } else if (info == 27) {
+                    ret = view.getFloat64(pos)
+                    pos += 8
+                    return ret
+                }
+                throw 'unsupported cbor simple value ' + b
+            }
+        }
+        return item()
+    }
+
+    // binary frames need TextDecoder - older browsers stay on json
+    let encoding = (typeof TextDecoder !== 'undefined') ? 'cbor' : 'json'
+
     // FIXME - let the webgui pass up the id unless configured not to
     function generateId() {
         // one id to rule them all !
@@ -99,8 +215,10 @@ angular.module('mrlapp.mrl', []).provider('mrl', [function() {
     // See the following link for all websocket configuration
     // https://raw.githubusercontent.com/Atmosphere/atmosphere-javascript/master/modules/javascript/src/main/webapp/javascript/atmosphere.js
     this.request = {
-        url: document.location.origin.toString() + '/api/messages?user=root&pwd=pwd&session_id=2309adf3dlkdk&id=' + this.id,
+        url: document.location.origin.toString() + '/api/messages?user=root&pwd=pwd&session_id=2309adf3dlkdk&encoding=' + encoding + '&id=' + this.id,
         transport: 'websocket',
+        // the WebGui answers with binary cbor frames if we asked for cbor
+        webSocketBinaryType: 'arraybuffer',
         maxRequest: 100,
         enableProtocol: true,
         timeout: -1,
@@ -349,7 +467,15 @@ angular.module('mrlapp.mrl', []).provider('mrl', [function() {
         } else {
             var msg
             try {
-                msg = jQuery.parseJSON(body)
+                // text frames are json, binary frames cbor
+                if (typeof body === 'string') {
+                    msg = jQuery.parseJSON(body)
+                } else if (new Uint8Array(body)[0] == 0x7B) {
+                    // '{' - json written to a binary connection (e.g. log events)
+                    msg = jQuery.parseJSON(new TextDecoder('utf-8').decode(body))
+                } else {
+                    msg = decodeCbor(body)
+                }
 
                 console.info('in-msg --> ' + msg.method)
 
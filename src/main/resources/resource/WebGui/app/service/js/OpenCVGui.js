@@ -18,6 +18,11 @@ angular.module('mrlapp.service.OpenCVGui', []).controller('OpenCVGuiCtrl', ['$sc
         fps: 0
     }
 
+    // last publishPipelineStats - null until stats are started
+    $scope.pipelineStats = null
+
+    $scope.showPipelineStats = false
+
     $scope.samplePoint = {
         x: 0,
         y: 0
@@ -251,6 +256,10 @@ angular.module('mrlapp.service.OpenCVGui', []).controller('OpenCVGuiCtrl', ['$sc
             $scope.possibleFilters = data
             $scope.$apply()
             break
+        case 'onPipelineStats':
+            $scope.pipelineStats = data
+            $scope.$apply()
+            break
         case 'onWebDisplay':
             // $scope.diplayImage = 'data:image/jpeg;base64,' + data
             $scope.diplayImage = data.data
@@ -288,6 +297,31 @@ angular.module('mrlapp.service.OpenCVGui', []).controller('OpenCVGuiCtrl', ['$sc
         return null
     }
 
+    $scope.togglePipelineStats = function() {
+        $scope.showPipelineStats = !$scope.showPipelineStats
+        if ($scope.showPipelineStats) {
+            msg.send('startPipelineStats', 1000)
+        } else {
+            msg.send('stopPipelineStats')
+            $scope.pipelineStats = null
+        }
+    }
+
+    // share of the frame budget (or of the whole frame without maxFps) a
+    // filter's mean process + postProcess + processDisplay takes
+    $scope.budgetShare = function(filter) {
+        let stats = $scope.pipelineStats
+        if (!stats || !filter.process) {
+            return 0
+        }
+        let budgetUs = stats.budgetMs ? stats.budgetMs * 1000 : stats.stages.frame.meanUs
+        if (!budgetUs) {
+            return 0
+        }
+        let meanUs = filter.process.meanUs + filter.postProcess.meanUs + filter.processDisplay.meanUs
+        return Math.round(100 * meanUs / budgetUs)
+    }
+
     $scope.getDisplayImage = function() {
         return $scope.diplayImage
     }
@@ -340,6 +374,7 @@ angular.module('mrlapp.service.OpenCVGui', []).controller('OpenCVGuiCtrl', ['$sc
 
     msg.subscribe('getPossibleFilters')
     msg.subscribe('publishWebDisplay')
+    msg.subscribe('publishPipelineStats')
     msg.subscribe('publishState')
     msg.send('getPossibleFilters')
     msg.subscribe(this)
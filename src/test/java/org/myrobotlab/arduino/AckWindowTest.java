@@ -0,0 +1,121 @@
+package org.myrobotlab.arduino;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class AckWindowTest {
+
+  static final byte[] DIGITAL_WRITE = new byte[] { (byte) Msg.MAGIC_NUMBER, 3, (byte) Msg.DIGITAL_WRITE, 13, 1 };
+  static final byte[] I2C_WRITE = new byte[] { (byte) Msg.MAGIC_NUMBER, 4, (byte) Msg.I2C_WRITE, 1, 0x40, 0 };
+
+  /**
+   * every frame written to the board
+   */
+  final BlockingQueue<byte[]> wire = new LinkedBlockingQueue<>();
+
+  /**
+   * a window the board confirmed - enableAckWindow took seq 0
+   */
+  AckWindow start(int size, long timeoutMs, int maxRetries, Runnable onFailure) throws Exception {
+    AckWindow window = new AckWindow(msg -> wire.add(msg), size, timeoutMs, maxRetries, onFailure);
+    window.start();
+    window.confirmed(size);
+    window.ack(0);
+    assertEquals(Msg.ENABLE_ACK_WINDOW, wire.take()[2]);
+    return window;
+  }
+
+  @Test
+  public void testWindowLimit() throws Exception {
+    AckWindow window = start(2, 10000, 0, null);
+    assertTrue(window.send(DIGITAL_WRITE));
+    assertTrue(window.send(DIGITAL_WRITE));
+    assertEquals(2, window.getOutstanding());
+
+    // a full window holds the next message back until an ack
+    CountDownLatch sent = new CountDownLatch(1);
+    Thread sender = new Thread(() -> {
+      try {
+        window.send(DIGITAL_WRITE);
+        sent.countDown();
+      } catch (Exception e) {
+      }
+    });
+    sender.start();
+    assertFalse(sent.await(100, TimeUnit.MILLISECONDS));
+    assertEquals(2, wire.size());
+
+    window.ack(1);
+    assertTrue(sent.await(5, TimeUnit.SECONDS));
+    assertEquals(2, window.getOutstanding());
+    assertEquals(3, wire.size());
+    window.close();
+  }
+
+  @Test
+  public void testCumulativeAck() throws Exception {
+    AckWindow window = start(8, 10000, 0, null);
+    for (int i = 0; i < 3; ++i) {
+      window.send(DIGITAL_WRITE);
+    }
+
+    // the ack of seq 3 covers 1 and 2
+    window.ack(3);
+    assertEquals(0, window.getOutstanding());
+    assertEquals(3, window.getAcked());
+
+    // stale
+    window.ack(2);
+    assertEquals(3, window.getAcked());
+    window.close();
+  }
+
+  @Test
+  public void testTimeoutResend() throws Exception {
+    AckWindow window = start(8, 200, 3, null);
+    window.send(DIGITAL_WRITE);
+    window.send(I2C_WRITE);
+    wire.take();
+    wire.take();
+
+    // not acked - resent behind a new enableAckWindow, the i2c write is not
+    // written twice
+    byte[] msg = wire.poll(5, TimeUnit.SECONDS);
+    assertEquals(Msg.ENABLE_ACK_WINDOW, msg[2]);
+    assertArrayEquals(DIGITAL_WRITE, wire.poll(5, TimeUnit.SECONDS));
+    assertTrue(window.isSyncing());
+    assertEquals(1, window.getResent());
+    assertEquals(1, window.getDropped());
+
+    // the board confirms and acks the resent message
+    window.confirmed(8);
+    window.ack(1);
+    assertEquals(0, window.getOutstanding());
+    assertNull(wire.poll(200, TimeUnit.MILLISECONDS));
+    window.close();
+  }
+
+  @Test
+  public void testFailure() throws Exception {
+    CountDownLatch failed = new CountDownLatch(1);
+    AckWindow window = start(8, 20, 2, () -> failed.countDown());
+    window.send(DIGITAL_WRITE);
+
+    // no acks - the window gives up after the retries
+    assertTrue(failed.await(5, TimeUnit.SECONDS));
+    assertTrue(window.isClosed());
+    assertEquals(2, window.getResent());
+    assertFalse(window.send(DIGITAL_WRITE));
+  }
+
+}
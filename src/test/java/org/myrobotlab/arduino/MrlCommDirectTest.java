@@ -277,6 +277,11 @@ public class MrlCommDirectTest implements SerialDataListener , MrlCommPublisher,
 //    System.err.println("Publish Ack: " + function);
   }
 
+  @Override
+  public Integer publishAckWindow(Integer windowSize) {
+    return windowSize;
+  }
+
   @Override
   public int[] publishCustomMsg(int[] msg) {
     // TODO Auto-generated method stub
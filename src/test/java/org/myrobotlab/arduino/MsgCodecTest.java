@@ -0,0 +1,68 @@
+package org.myrobotlab.arduino;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class MsgCodecTest {
+
+  @Test
+  public void testEncode() {
+    MsgCodec codec = new MsgCodec();
+    codec.begin(1 + 1 + 2);
+    codec.append(Msg.SERVO_MOVE_TO_MICROSECONDS);
+    codec.append(3);
+    codec.appendb16(-2);
+    byte[] frame = codec.frame();
+    assertArrayEquals(new byte[] { (byte) 170, 4, (byte) Msg.SERVO_MOVE_TO_MICROSECONDS, 3, (byte) 0xFF, (byte) 0xFE }, frame);
+
+    // f32 goes to the board little endian
+    codec.begin(1 + 4 + 1 + (1 + 2));
+    codec.append(Msg.ECHO);
+    codec.appendf32(1.0f);
+    codec.appendbool(true);
+    codec.append("ab");
+    assertArrayEquals(new byte[] { (byte) 170, 9, (byte) Msg.ECHO, 0, 0, (byte) 0x80, 0x3F, 1, 2, 'a', 'b' }, codec.frame());
+
+    // frames of the same size are reused
+    codec.begin(1 + 1 + 2);
+    codec.append(Msg.SERVO_MOVE_TO_MICROSECONDS);
+    codec.append(4);
+    codec.appendb16(1500);
+    assertSame(frame, codec.frame());
+    assertEquals(4, frame[3]);
+  }
+
+  @Test
+  public void testEncodeOnly() {
+    // no serial - the send methods only encode, each result is the caller's
+    Msg msg = new Msg(null, null);
+    byte[] high = msg.digitalWrite(3, 1);
+    byte[] low = msg.digitalWrite(3, 0);
+    assertNotSame(high, low);
+    assertArrayEquals(new byte[] { (byte) 170, 3, (byte) Msg.DIGITAL_WRITE, 3, 1 }, high);
+    assertArrayEquals(new byte[] { (byte) 170, 3, (byte) Msg.DIGITAL_WRITE, 3, 0 }, low);
+  }
+
+  @Test
+  public void testDecode() {
+    MsgCodec codec = new MsgCodec();
+    // garbage, a size error, then a message split over the buffer boundary
+    int[] bytes = new int[] { 1, 170, 0, 170, 3, Msg.PUBLISH_ACK, 7 };
+    int[] expected = new int[] { MsgCodec.BAD_MAGIC, MsgCodec.NEED_MORE, MsgCodec.BAD_SIZE, MsgCodec.NEED_MORE, MsgCodec.NEED_MORE, MsgCodec.NEED_MORE,
+        MsgCodec.NEED_MORE };
+    for (int i = 0; i < bytes.length; ++i) {
+      assertEquals(expected[i], codec.decode(bytes[i]));
+    }
+    assertEquals(MsgCodec.COMPLETE, codec.decode(9));
+    assertEquals(3, codec.getFrameSize());
+    assertEquals(Msg.PUBLISH_ACK, codec.getFrame()[0]);
+    assertEquals(7, codec.getFrame()[1]);
+    assertEquals(9, codec.getFrame()[2]);
+    assertEquals(0, codec.getByteCount());
+  }
+
+}
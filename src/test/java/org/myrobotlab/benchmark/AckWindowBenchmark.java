@@ -0,0 +1,95 @@
+package org.myrobotlab.benchmark;
+
+import org.myrobotlab.arduino.AckWindow;
+import org.myrobotlab.framework.Platform;
+import org.myrobotlab.logging.Level;
+import org.myrobotlab.logging.LoggerFactory;
+import org.myrobotlab.logging.LoggingFactory;
+import org.myrobotlab.service.Arduino;
+import org.myrobotlab.service.Runtime;
+import org.myrobotlab.service.Serial;
+import org.slf4j.Logger;
+
+/**
+ * <pre>
+ * Commands per second from Arduino to a VirtualArduino with acks enabled -
+ * stop and wait against an ack window, at 115200 and 1M baud.
+ *
+ * Not a JMH benchmark - it needs a connected Arduino and VirtualArduino pair,
+ * run it and compare the RESULT lines
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.myrobotlab.benchmark.AckWindowBenchmark
+ *
+ * Virtual serial ports ignore the rate, so the measured numbers show the
+ * round trip through the service threads. The wire limit printed next to them
+ * is what a real link at that rate could carry - stop and wait pays the wire
+ * time of the message and its ack on every command, a window only the
+ * message.
+ * </pre>
+ */
+public class AckWindowBenchmark {
+
+  public final static Logger log = LoggerFactory.getLogger(AckWindowBenchmark.class);
+
+  static final int COMMANDS = 5000;
+  static final int[] WINDOWS = new int[] { 0, 16 };
+  static final int[] RATES = new int[] { Serial.BAUD_115200, 1000000 };
+
+  /**
+   * digitalWrite is magic, size, method, pin, value - its ack magic, size,
+   * method, seq
+   */
+  static final int MSG_BYTES = 5;
+  static final int ACK_BYTES = 4;
+
+  static double wireLimit(int rate, int window) {
+    // 8N1 - 10 bits a byte
+    double bytesPerSecond = rate / 10.0;
+    return bytesPerSecond / ((window > 1) ? MSG_BYTES : MSG_BYTES + ACK_BYTES);
+  }
+
+  static void measure(Arduino arduino, int rate, int window) throws Exception {
+    arduino.setAckWindow(window);
+    // the window is negotiated with the first message after the board info
+    arduino.digitalWrite(13, 0);
+    long deadline = System.currentTimeMillis() + 3000;
+    while (window > 1 && arduino.getAckWindow() == 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+      arduino.digitalWrite(13, 0);
+    }
+
+    long start = System.nanoTime();
+    for (int i = 0; i < COMMANDS; ++i) {
+      arduino.digitalWrite(13, i & 1);
+    }
+    AckWindow state = arduino.msg.getAckWindowState();
+    if (state != null) {
+      state.drain();
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    System.out.println(String.format("RESULT rate %d window %d (negotiated %d) %.0f commands/s wire limit %.0f commands/s %s", rate, window,
+        arduino.getAckWindow(), COMMANDS / seconds, wireLimit(rate, window), (state == null) ? "" : state.toString()));
+  }
+
+  public static void main(String[] args) {
+    try {
+      LoggingFactory.init(Level.WARN);
+      Platform.setVirtual(true);
+      Arduino arduino = (Arduino) Runtime.start("arduino", "Arduino");
+      for (int rate : RATES) {
+        arduino.connect("COM77", rate);
+        arduino.enableAck(true);
+        for (int window : WINDOWS) {
+          measure(arduino, rate, window);
+        }
+        arduino.setAckWindow(0);
+        arduino.disconnect();
+      }
+    } catch (Exception e) {
+      log.error("main threw", e);
+    }
+    System.exit(0);
+  }
+
+}
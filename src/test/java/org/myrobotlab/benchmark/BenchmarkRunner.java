@@ -0,0 +1,40 @@
+package org.myrobotlab.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all the framework benchmarks in this package, or the ones matching the
+ * regex given on the command line, and writes the results as json so a release
+ * can be compared with the previous one. Any other jmh option can be passed
+ * too (-f, -wi, -prof gc ...).
+ *
+ * <pre>
+ * mvn -Pbenchmark test
+ * mvn -Pbenchmark test -Dbenchmark=FanOutBenchmark
+ * </pre>
+ * 
+ * The benchmarks only start local Test services - no network or repo access
+ * is needed.
+ */
+public class BenchmarkRunner {
+
+  static public final String DEFAULT_INCLUDE = "org\\.myrobotlab\\.benchmark\\..*Benchmark";
+  static public final String DEFAULT_RESULT = "target/jmh-result.json";
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions cmd = new CommandLineOptions(args);
+    ChainedOptionsBuilder opt = new OptionsBuilder().parent(cmd);
+    if (cmd.getIncludes().isEmpty()) {
+      opt.include(DEFAULT_INCLUDE);
+    }
+    if (!cmd.getResult().hasValue()) {
+      opt.resultFormat(ResultFormatType.JSON).result(DEFAULT_RESULT);
+    }
+    new Runner(opt.build()).run();
+  }
+
+}
@@ -0,0 +1,133 @@
+package org.myrobotlab.benchmark;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.alicebot.ab.Bot;
+import org.myrobotlab.io.FileIO;
+import org.myrobotlab.logging.Level;
+import org.myrobotlab.logging.LoggingFactory;
+import org.myrobotlab.programab.BrainSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Loading a ProgramAB bot by parsing its aiml against loading its compiled
+ * brain snapshot. main prints the load time and the heap held by the bot for
+ * every bot found - the bundled test bots, or the bots directory given with
+ * -Dbots=... e.g. the InMoov2 language packs.
+ *
+ * <pre>
+ * mvn -Pbenchmark test -Dbenchmark=BotLoadBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+public class BotLoadBenchmark {
+
+  static final String BOTS = "src/test/resources/ProgramAB/bots";
+  static final int RUNS = 5;
+
+  @Param({ "lloyd", "pikachu" })
+  public String botName;
+
+  @Param({ "aiml", "snapshot" })
+  public String brain;
+
+  File bot;
+
+  /**
+   * a copy of the bot - compiling writes into the bot directory
+   */
+  static File copy(File src) throws Exception {
+    File dst = new File(Files.createTempDirectory("bots").toFile(), src.getName());
+    FileIO.copy(src, dst);
+    return dst;
+  }
+
+  /**
+   * removes the compiled brain so the next load parses the aiml - without a
+   * snapshot the bot is created the way Program AB does by itself
+   */
+  static void removeBrain(File bot) {
+    new BrainSnapshot(bot).invalidate();
+    new File(bot, "aiml").setLastModified(new File(bot, "aimlif").lastModified() + 1000);
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    LoggingFactory.init(Level.WARN);
+    bot = copy(new File(System.getProperty("bots", BOTS), botName));
+    // compiles the snapshot
+    BrainSnapshot.load(botName, bot, null, true);
+    if ("aiml".equals(brain)) {
+      removeBrain(bot);
+    }
+  }
+
+  @Benchmark
+  public Bot load() {
+    return BrainSnapshot.load(botName, bot, null, "snapshot".equals(brain));
+  }
+
+  static long usedHeap(MemoryMXBean memory) throws InterruptedException {
+    for (int i = 0; i < 3; ++i) {
+      System.gc();
+      Thread.sleep(50);
+    }
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+
+  public static void main(String[] args) throws Exception {
+    LoggingFactory.init(Level.WARN);
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    File[] bots = new File(System.getProperty("bots", BOTS)).listFiles(File::isDirectory);
+    if (bots == null) {
+      bots = new File[0];
+    }
+    for (File src : bots) {
+      File bot = copy(src);
+      for (String brain : new String[] { "aiml", "snapshot" }) {
+        // first load compiles the snapshot
+        BrainSnapshot.load(bot.getName(), bot, null, true);
+        long ms = 0;
+        long heap = 0;
+        int categories = 0;
+        for (int i = 0; i < RUNS; ++i) {
+          if ("aiml".equals(brain)) {
+            removeBrain(bot);
+          }
+          long before = usedHeap(memory);
+          long start = System.nanoTime();
+          Bot b = BrainSnapshot.load(bot.getName(), bot, null, "snapshot".equals(brain));
+          ms += (System.nanoTime() - start) / 1000000;
+          heap += usedHeap(memory) - before;
+          categories = b.brain.getCategories().size();
+        }
+        System.out.println(String.format("%-12s %-8s %6d categories  %6d ms  %7d KB heap", bot.getName(), brain, categories, ms / RUNS, heap / RUNS / 1024));
+      }
+    }
+    Options opt = new OptionsBuilder().include(BotLoadBenchmark.class.getSimpleName()).addProfiler("gc").build();
+    new Runner(opt).run();
+  }
+
+}
@@ -0,0 +1,63 @@
+package org.myrobotlab.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.myrobotlab.codec.CodecUtils;
+import org.myrobotlab.framework.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * json encoding and decoding of a typical Message - what every remote or
+ * WebGui message pays.
+ *
+ * <pre>
+ * mvn -Pbenchmark test -Dbenchmark=CodecBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+  Message msg;
+  String json;
+
+  @Setup
+  public void setup() {
+    msg = Message.createMessage("servo01@robot", "arduino01@robot", "onServoEvent", new Object[] { "servo01", 90.0, 1500 });
+    msg.sendingMethod = "publishServoEvent";
+    json = CodecUtils.toJson(msg);
+  }
+
+  @Benchmark
+  public String toJson() {
+    return CodecUtils.toJson(msg);
+  }
+
+  @Benchmark
+  public Message fromJson() {
+    return CodecUtils.fromJson(json, Message.class);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder().include(CodecBenchmark.class.getSimpleName()).addProfiler("gc").build();
+    new Runner(opt).run();
+  }
+
+}
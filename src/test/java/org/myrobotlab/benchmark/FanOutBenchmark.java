@@ -0,0 +1,87 @@
+package org.myrobotlab.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.myrobotlab.logging.Level;
+import org.myrobotlab.logging.LoggingFactory;
+import org.myrobotlab.service.Runtime;
+import org.myrobotlab.service.TestCatcher;
+import org.myrobotlab.service.TestThrower;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * One local publish fanned out to 1, 10 and 100 subscribers - time until every
+ * subscriber's inbox thread has processed it.
+ *
+ * <pre>
+ * mvn -Pbenchmark test -Dbenchmark=FanOutBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FanOutBenchmark {
+
+  @Param({ "1", "10", "100" })
+  public int subscribers;
+
+  @Param({ "false", "true" })
+  public boolean direct;
+
+  TestThrower thrower;
+  TestCatcher[] catchers;
+  Integer value = 7;
+
+  @Setup
+  public void setup() {
+    LoggingFactory.init(Level.WARN);
+    thrower = (TestThrower) Runtime.start("fanThrower", "TestThrower");
+    thrower.setDirectRouting(direct);
+    catchers = new TestCatcher[subscribers];
+    for (int i = 0; i < subscribers; ++i) {
+      catchers[i] = (TestCatcher) Runtime.start("fanCatcher" + i, "TestCatcher");
+      thrower.addListener("publishInteger", catchers[i].getName(), "onInteger");
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    Runtime.release("fanThrower");
+    for (int i = 0; i < subscribers; ++i) {
+      Runtime.release("fanCatcher" + i);
+    }
+  }
+
+  @Benchmark
+  public int publish() throws InterruptedException {
+    thrower.invoke("publishInteger", value);
+    for (TestCatcher catcher : catchers) {
+      catcher.msgs.take();
+    }
+    return catchers.length;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder().include(FanOutBenchmark.class.getSimpleName()).build();
+    new Runner(opt).run();
+  }
+
+}
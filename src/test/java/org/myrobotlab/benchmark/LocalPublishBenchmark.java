@@ -0,0 +1,78 @@
+package org.myrobotlab.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.myrobotlab.framework.Message;
+import org.myrobotlab.logging.Level;
+import org.myrobotlab.logging.LoggingFactory;
+import org.myrobotlab.service.Runtime;
+import org.myrobotlab.service.TestCatcher;
+import org.myrobotlab.service.TestThrower;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * End to end latency of a local publish - from the publisher invoking its
+ * publishing method to the subscriber's inbox thread processing the message.
+ * Compares the outbox thread path with direct routing.
+ *
+ * <pre>
+ * mvn -Pbenchmark test -Dbenchmark=LocalPublishBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalPublishBenchmark {
+
+  @Param({ "false", "true" })
+  public boolean direct;
+
+  TestThrower thrower;
+  TestCatcher catcher;
+  Integer value = 7;
+
+  @Setup
+  public void setup() {
+    LoggingFactory.init(Level.WARN);
+    thrower = (TestThrower) Runtime.start("benchThrower", "TestThrower");
+    catcher = (TestCatcher) Runtime.start("benchCatcher", "TestCatcher");
+    thrower.setDirectRouting(direct);
+    thrower.addListener("publishInteger", catcher.getName(), "onInteger");
+  }
+
+  @TearDown
+  public void tearDown() {
+    Runtime.release("benchThrower");
+    Runtime.release("benchCatcher");
+  }
+
+  @Benchmark
+  public Message publishToSubscriber() throws InterruptedException {
+    thrower.invoke("publishInteger", value);
+    return catcher.msgs.take();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder().include(LocalPublishBenchmark.class.getSimpleName()).build();
+    new Runner(opt).run();
+  }
+
+}
@@ -0,0 +1,78 @@
+package org.myrobotlab.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.myrobotlab.framework.LinkedMessageQueue;
+import org.myrobotlab.framework.Message;
+import org.myrobotlab.framework.MessageQueue;
+import org.myrobotlab.framework.MpscMessageQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Inbox/Outbox queue contention - 4 publishing threads and 1 consuming thread
+ * against the original LinkedList queue and the lock-free MPSC ring.
+ *
+ * <pre>
+ * mvn -Pbenchmark test -Dbenchmark=MessageQueueBenchmark
+ * </pre>
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageQueueBenchmark {
+
+  @Param({ MessageQueue.LINKED, MessageQueue.MPSC })
+  public String type;
+
+  MessageQueue queue;
+  Message msg;
+
+  @Setup
+  public void setup() {
+    if (MessageQueue.MPSC.equals(type)) {
+      queue = new MpscMessageQueue(1024);
+    } else {
+      queue = new LinkedMessageQueue(1024, false, true);
+    }
+    msg = Message.createMessage("servo01", "arduino01", "onServoEvent", new Object[] { 90.0 });
+  }
+
+  @Benchmark
+  @Group("contended")
+  @GroupThreads(4)
+  public boolean publish() {
+    return queue.add(msg);
+  }
+
+  @Benchmark
+  @Group("contended")
+  @GroupThreads(1)
+  public Message consume() {
+    return queue.poll();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder().include(MessageQueueBenchmark.class.getSimpleName()).build();
+    new Runner(opt).run();
+  }
+
+}
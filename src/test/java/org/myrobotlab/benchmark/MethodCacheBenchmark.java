@@ -0,0 +1,97 @@
+package org.myrobotlab.benchmark;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.myrobotlab.framework.MethodCache;
+import org.myrobotlab.framework.MethodInvoker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * ns per invoke of the string keyed getMethod + Method.invoke path versus the
+ * cached MethodInvoker path. Run with -prof gc to see allocation per invoke.
+ *
+ * <pre>
+ * mvn -Pbenchmark test -Dbenchmark=MethodCacheBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MethodCacheBenchmark {
+
+  /**
+   * stand-in for a servo event subscriber
+   */
+  static public class Subscriber {
+    public double position;
+
+    public double onServoEvent(Double position) {
+      this.position = position;
+      return position;
+    }
+
+    public int onPin(Integer address, Integer value) {
+      return address + value;
+    }
+  }
+
+  MethodCache cache;
+  Subscriber subscriber;
+  Double position = 90.0;
+  Integer address = 3;
+  Integer value = 512;
+
+  @Setup
+  public void setup() {
+    cache = MethodCache.getInstance();
+    cache.cacheMethodEntries(Subscriber.class);
+    subscriber = new Subscriber();
+  }
+
+  @Benchmark
+  public Object reflectOneArg() throws Exception {
+    Method method = cache.getMethod(Subscriber.class, "onServoEvent", position);
+    return method.invoke(subscriber, position);
+  }
+
+  @Benchmark
+  public Object invokerOneArg() throws Exception {
+    MethodInvoker invoker = cache.getInvoker(Subscriber.class, "onServoEvent", position);
+    return invoker.invoke(subscriber, position);
+  }
+
+  @Benchmark
+  public Object reflectTwoArgs() throws Exception {
+    Method method = cache.getMethod(Subscriber.class, "onPin", address, value);
+    return method.invoke(subscriber, address, value);
+  }
+
+  @Benchmark
+  public Object invokerTwoArgs() throws Exception {
+    MethodInvoker invoker = cache.getInvoker(Subscriber.class, "onPin", address, value);
+    return invoker.invoke(subscriber, address, value);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder().include(MethodCacheBenchmark.class.getSimpleName()).addProfiler("gc").build();
+    new Runner(opt).run();
+  }
+
+}
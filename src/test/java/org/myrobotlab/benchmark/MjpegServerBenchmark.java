@@ -0,0 +1,221 @@
+package org.myrobotlab.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.myrobotlab.image.SerializableImage;
+import org.myrobotlab.logging.Level;
+import org.myrobotlab.logging.LoggingFactory;
+import org.myrobotlab.net.MjpegServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * A 640x480 feed streamed to 1, 10 and 50 clients - jmh measures the cost of
+ * a publish, main first streams flat out for a few seconds per client count
+ * and prints the frames per second published and received and the latency
+ * from publish to a client having the whole jpeg.
+ *
+ * <pre>
+ * mvn -Pbenchmark test -Dbenchmark=MjpegServerBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MjpegServerBenchmark {
+
+  static final int[] CLIENTS = { 1, 10, 50 };
+
+  /**
+   * reads the stream like a browser would
+   */
+  static class Viewer extends Thread {
+    final Socket socket;
+    volatile long frames = 0;
+    volatile long latencyMs = 0;
+    volatile long maxLatencyMs = 0;
+
+    Viewer(int port, String feed) throws IOException {
+      super("viewer");
+      setDaemon(true);
+      socket = new Socket("localhost", port);
+      OutputStream out = socket.getOutputStream();
+      out.write(String.format("GET /%s HTTP/1.1\r\nHost: localhost\r\n\r\n", feed).getBytes());
+      out.flush();
+    }
+
+    @Override
+    public void run() {
+      try {
+        InputStream in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+        // response header
+        while (readLine(in).length() > 0) {
+        }
+        byte[] jpeg = new byte[0];
+        while (true) {
+          String line = readLine(in);
+          if (!line.startsWith("--")) {
+            continue;
+          }
+          int length = 0;
+          long ts = 0;
+          while ((line = readLine(in)).length() > 0) {
+            if (line.startsWith("Content-Length: ")) {
+              length = Integer.parseInt(line.substring(16));
+            } else if (line.startsWith("X-Timestamp: ")) {
+              ts = Long.parseLong(line.substring(13));
+            }
+          }
+          if (jpeg.length < length) {
+            jpeg = new byte[length];
+          }
+          for (int n = 0; n < length;) {
+            int count = in.read(jpeg, n, length - n);
+            if (count < 0) {
+              return;
+            }
+            n += count;
+          }
+          long latency = System.currentTimeMillis() - ts;
+          latencyMs += latency;
+          maxLatencyMs = Math.max(maxLatencyMs, latency);
+          ++frames;
+        }
+      } catch (IOException e) {
+        // closed
+      }
+    }
+
+    static String readLine(InputStream in) throws IOException {
+      StringBuilder sb = new StringBuilder();
+      int b;
+      while ((b = in.read()) != '\n') {
+        if (b < 0) {
+          throw new IOException("end of stream");
+        }
+        if (b != '\r') {
+          sb.append((char) b);
+        }
+      }
+      return sb.toString();
+    }
+
+    void close() {
+      try {
+        socket.close();
+      } catch (IOException e) {
+      }
+    }
+  }
+
+  @Param({ "1", "10", "50" })
+  public int clients;
+
+  MjpegServer server;
+  Viewer[] viewers;
+  BufferedImage image;
+
+  static BufferedImage createImage() {
+    BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_3BYTE_BGR);
+    Random random = new Random(7);
+    for (int y = 0; y < image.getHeight(); ++y) {
+      for (int x = 0; x < image.getWidth(); ++x) {
+        // gradient with some noise - not trivially compressed
+        image.setRGB(x, y, ((x & 0xFF) << 16) | ((y & 0xFF) << 8) | random.nextInt(64));
+      }
+    }
+    return image;
+  }
+
+  static Viewer[] connect(MjpegServer server, int clients) throws Exception {
+    // the feed exists once something published to it
+    server.publish(new SerializableImage(createImage(), "camera"));
+    Viewer[] viewers = new Viewer[clients];
+    for (int i = 0; i < clients; ++i) {
+      viewers[i] = new Viewer(server.getPort(), "camera");
+      viewers[i].start();
+    }
+    Thread.sleep(200);
+    return viewers;
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    LoggingFactory.init(Level.WARN);
+    image = createImage();
+    server = new MjpegServer(0);
+    server.start();
+    viewers = connect(server, clients);
+  }
+
+  @TearDown
+  public void tearDown() {
+    for (Viewer viewer : viewers) {
+      viewer.close();
+    }
+    server.stop();
+  }
+
+  @Benchmark
+  public void publish() {
+    server.publish(new SerializableImage(image, "camera"));
+  }
+
+  public static void main(String[] args) throws Exception {
+    LoggingFactory.init(Level.WARN);
+    BufferedImage image = createImage();
+    for (int clients : CLIENTS) {
+      MjpegServer server = new MjpegServer(0);
+      server.start();
+      Viewer[] viewers = connect(server, clients);
+
+      long start = System.currentTimeMillis();
+      long published = 0;
+      while (System.currentTimeMillis() - start < 3000) {
+        server.publish(new SerializableImage(image, "camera"));
+        ++published;
+      }
+      Thread.sleep(200);
+      long ms = System.currentTimeMillis() - start;
+
+      long frames = 0;
+      long latency = 0;
+      long maxLatency = 0;
+      for (Viewer viewer : viewers) {
+        frames += viewer.frames;
+        latency += viewer.latencyMs;
+        maxLatency = Math.max(maxLatency, viewer.maxLatencyMs);
+        viewer.close();
+      }
+      server.stop();
+      System.out.println(String.format("%2d clients  published %5.1f fps  received %5.1f fps per client  latency %5.1f ms avg %4d ms max", clients, published * 1000.0 / ms,
+          frames * 1000.0 / ms / clients, (frames == 0) ? 0.0 : (double) latency / frames, maxLatency));
+    }
+    Options opt = new OptionsBuilder().include(MjpegServerBenchmark.class.getSimpleName()).addProfiler("gc").build();
+    new Runner(opt).run();
+  }
+
+}
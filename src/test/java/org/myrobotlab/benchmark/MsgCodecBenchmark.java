@@ -0,0 +1,105 @@
+package org.myrobotlab.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.myrobotlab.arduino.Msg;
+import org.myrobotlab.arduino.MsgCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * MrlComm encoding and decoding per message type - what every servo move and
+ * every pin array from the board pays. Run with the gc profiler (main does),
+ * gc.alloc.rate.norm should be 0 once each frame size was seen.
+ *
+ * <pre>
+ * mvn -Pbenchmark test -Dbenchmark=MsgCodecBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MsgCodecBenchmark {
+
+  @Param({ "servoMoveToMicroseconds", "echo", "customMsg", "publishPinArray" })
+  public String type;
+
+  MsgCodec codec;
+  int[] data;
+  byte[] frame;
+  int value = 0;
+
+  @Setup
+  public void setup() {
+    codec = new MsgCodec();
+    data = new int[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12 };
+    frame = encode().clone();
+  }
+
+  byte[] encode() {
+    ++value;
+    switch (type) {
+      case "servoMoveToMicroseconds":
+        codec.begin(1 + 1 + 2);
+        codec.append(Msg.SERVO_MOVE_TO_MICROSECONDS);
+        codec.append(value & 0x3F);
+        codec.appendb16(value & 0x7FF);
+        break;
+      case "echo":
+        codec.begin(1 + 4 + 1 + 4);
+        codec.append(Msg.ECHO);
+        codec.appendf32(value * 0.5f);
+        codec.append(value & 0xFF);
+        codec.appendf32(value * 0.25f);
+        break;
+      case "customMsg":
+        codec.begin(1 + (1 + data.length));
+        codec.append(Msg.CUSTOM_MSG);
+        codec.append(data);
+        break;
+      case "publishPinArray":
+        // what the board sends - 3 bytes per pin
+        codec.begin(1 + (1 + data.length));
+        codec.append(Msg.PUBLISH_PIN_ARRAY);
+        codec.append(data);
+        break;
+    }
+    return codec.frame();
+  }
+
+  @Benchmark
+  public byte[] encodeFrame() {
+    return encode();
+  }
+
+  @Benchmark
+  public int decodeFrame() {
+    int state = MsgCodec.NEED_MORE;
+    for (int i = 0; i < frame.length; ++i) {
+      state = codec.decode(frame[i] & 0xFF);
+    }
+    return (state == MsgCodec.COMPLETE) ? codec.getFrame()[codec.getFrameSize() - 1] : -1;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder().include(MsgCodecBenchmark.class.getSimpleName()).addProfiler("gc").build();
+    new Runner(opt).run();
+  }
+
+}
@@ -0,0 +1,132 @@
+package org.myrobotlab.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.myrobotlab.framework.interfaces.ServiceInterface;
+import org.myrobotlab.logging.Level;
+import org.myrobotlab.logging.LoggingFactory;
+import org.myrobotlab.service.Runtime;
+import org.myrobotlab.service.interfaces.SerialDataListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runtime registry lookups with 50, 500 and 5000 services registered - the
+ * short name getService every locally delivered message does, full name
+ * resolution and services by interface. The services are created but not
+ * started, so no threads are needed. main prints ns per lookup before jmh
+ * runs.
+ *
+ * <pre>
+ * mvn -Pbenchmark test -Dbenchmark=RegistryBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistryBenchmark {
+
+  static final int[] SERVICES = { 50, 500, 5000 };
+
+  @Param({ "50", "500", "5000" })
+  public int services;
+
+  String[] names;
+  int next = 0;
+
+  static String[] register(int services) {
+    String[] names = new String[services];
+    for (int i = 0; i < services; ++i) {
+      names[i] = "registry" + i;
+      Runtime.create(names[i], "TestCatcher");
+    }
+    return names;
+  }
+
+  static void release(String[] names) {
+    for (String name : names) {
+      Runtime.release(name);
+    }
+  }
+
+  @Setup
+  public void setup() {
+    LoggingFactory.init(Level.WARN);
+    names = register(services);
+  }
+
+  @TearDown
+  public void tearDown() {
+    release(names);
+  }
+
+  @Benchmark
+  public ServiceInterface getService() {
+    next = (next + 1) % names.length;
+    return Runtime.getService(names[next]);
+  }
+
+  @Benchmark
+  public String getFullName() {
+    next = (next + 1) % names.length;
+    return Runtime.getFullName(names[next]);
+  }
+
+  @Benchmark
+  public List<ServiceInterface> getServicesFromInterface() {
+    return Runtime.getServicesFromInterface(SerialDataListener.class);
+  }
+
+  public static void main(String[] args) throws Exception {
+    LoggingFactory.init(Level.WARN);
+    Runtime.getInstance();
+    for (int services : SERVICES) {
+      String[] names = register(services);
+      long found = 0;
+      int lookups = 2000000;
+      for (int round = 0; round < 2; ++round) {
+        // first round warms up
+        long start = System.nanoTime();
+        for (int i = 0; i < lookups; ++i) {
+          if (Runtime.getService(names[i % services]) != null) {
+            ++found;
+          }
+        }
+        long getService = (System.nanoTime() - start) / lookups;
+        start = System.nanoTime();
+        int byInterface = 0;
+        for (int i = 0; i < 1000; ++i) {
+          byInterface += Runtime.getServicesFromInterface(SerialDataListener.class).size();
+        }
+        long fromInterface = (System.nanoTime() - start) / 1000;
+        if (round == 1) {
+          System.out.println(String.format("%5d services  getService %4d ns  getServicesFromInterface %8d ns (%d found)", services, getService, fromInterface, byInterface / 1000));
+        }
+      }
+      release(names);
+      if (found == 0) {
+        System.out.println("nothing found");
+      }
+    }
+    Options opt = new OptionsBuilder().include(RegistryBenchmark.class.getSimpleName()).addProfiler("gc").build();
+    new Runner(opt).run();
+  }
+
+}
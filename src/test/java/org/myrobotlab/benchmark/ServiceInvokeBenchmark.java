@@ -0,0 +1,83 @@
+package org.myrobotlab.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.myrobotlab.framework.Message;
+import org.myrobotlab.logging.Level;
+import org.myrobotlab.logging.LoggingFactory;
+import org.myrobotlab.service.Runtime;
+import org.myrobotlab.service.TestCatcher;
+import org.myrobotlab.service.TestThrower;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <pre>
+ * invokeOn  - blocking call of another local service's method by name
+ * broadcast - publish with subscribers invoked on the calling thread
+ * invoke    - publish through the outbox and the subscriber's inbox thread
+ *
+ * mvn -Pbenchmark test -Dbenchmark=ServiceInvokeBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceInvokeBenchmark {
+
+  TestThrower thrower;
+  TestCatcher catcher;
+  Integer value = 7;
+
+  @Setup
+  public void setup() {
+    LoggingFactory.init(Level.WARN);
+    thrower = (TestThrower) Runtime.start("invokeThrower", "TestThrower");
+    catcher = (TestCatcher) Runtime.start("invokeCatcher", "TestCatcher");
+    thrower.addListener("publishInteger", catcher.getName(), "onInteger");
+  }
+
+  @TearDown
+  public void tearDown() {
+    Runtime.release("invokeThrower");
+    Runtime.release("invokeCatcher");
+  }
+
+  @Benchmark
+  public Object invokeOn() {
+    return thrower.invokeOn(catcher.getName(), "onInteger", value);
+  }
+
+  @Benchmark
+  public Object broadcast() {
+    return thrower.broadcast("publishInteger", value);
+  }
+
+  @Benchmark
+  public Message invoke() throws InterruptedException {
+    thrower.invoke("publishInteger", value);
+    return catcher.msgs.take();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder().include(ServiceInvokeBenchmark.class.getSimpleName()).build();
+    new Runner(opt).run();
+  }
+
+}
@@ -0,0 +1,104 @@
+package org.myrobotlab.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.myrobotlab.framework.repo.ServiceData;
+import org.myrobotlab.logging.Level;
+import org.myrobotlab.logging.LoggingFactory;
+import org.myrobotlab.service.Runtime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Cold start - time to a ready Runtime with the service data loaded from
+ * serviceData.json against the prebuilt binary index. Every measurement is a
+ * fresh jvm. main first starts a few jvms per mode and prints the time from
+ * jvm start to Runtime.getInstance() returning.
+ *
+ * Lazy resource extraction only makes a difference when running from
+ * myrobotlab.jar with no resource directory yet.
+ *
+ * <pre>
+ * mvn -Pbenchmark test -Dbenchmark=StartupBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+public class StartupBenchmark {
+
+  static final int RUNS = 5;
+
+  @Param({ "json", "index" })
+  public String metadata;
+
+  @Benchmark
+  public Runtime start() {
+    ServiceData.useIndex = "index".equals(metadata);
+    ServiceData.getLocalInstance();
+    return Runtime.getInstance();
+  }
+
+  /**
+   * one cold start - prints the ms from jvm start to a ready Runtime
+   */
+  public static class Boot {
+    public static void main(String[] args) {
+      LoggingFactory.init(Level.WARN);
+      ServiceData.useIndex = "index".equals(args[0]);
+      ServiceData.getLocalInstance();
+      Runtime.getInstance();
+      System.out.println(System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime());
+      Runtime.shutdown();
+    }
+  }
+
+  static long boot(String metadata) throws Exception {
+    String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), Boot.class.getName(), metadata).redirectErrorStream(true).start();
+    long ms = -1;
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.matches("\\d+")) {
+          ms = Long.parseLong(line);
+        }
+      }
+    }
+    process.waitFor();
+    return ms;
+  }
+
+  public static void main(String[] args) throws Exception {
+    for (String metadata : new String[] { "json", "index" }) {
+      // the first start may generate or copy the service data
+      boot(metadata);
+      long total = 0;
+      for (int i = 0; i < RUNS; ++i) {
+        total += boot(metadata);
+      }
+      System.out.println(String.format("%-6s %5d ms to a ready Runtime (avg of %d)", metadata, total / RUNS, RUNS));
+    }
+    Options opt = new OptionsBuilder().include(StartupBenchmark.class.getSimpleName()).addProfiler("gc").build();
+    new Runner(opt).run();
+  }
+
+}
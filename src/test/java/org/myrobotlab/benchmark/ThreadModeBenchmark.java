@@ -0,0 +1,85 @@
+package org.myrobotlab.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.myrobotlab.framework.ExecutionMode;
+import org.myrobotlab.framework.Platform;
+import org.myrobotlab.logging.Level;
+import org.myrobotlab.logging.LoggerFactory;
+import org.myrobotlab.logging.LoggingFactory;
+import org.myrobotlab.service.InMoov2;
+import org.myrobotlab.service.Runtime;
+import org.slf4j.Logger;
+
+/**
+ * <pre>
+ * Startup time, os thread count and resident memory of a full virtual InMoov2
+ * (i01.startAll with virtual arduinos) in each ExecutionMode.
+ *
+ * Not a JMH benchmark - startup is a one shot measurement and each mode needs
+ * a fresh jvm, so run once per mode and compare the RESULT lines
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.myrobotlab.benchmark.ThreadModeBenchmark -Dexec.args=PLATFORM
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.myrobotlab.benchmark.ThreadModeBenchmark -Dexec.args=VIRTUAL
+ *
+ * VmRSS and Threads come from /proc/self/status (linux only), virtual mode
+ * needs java 21+.
+ * </pre>
+ */
+public class ThreadModeBenchmark {
+
+  public final static Logger log = LoggerFactory.getLogger(ThreadModeBenchmark.class);
+
+  /**
+   * settle time after startup before sampling threads and memory
+   */
+  static final long SETTLE_MS = 5000;
+
+  static String procStatus(String key) {
+    try {
+      for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+        if (line.startsWith(key + ":")) {
+          return line.substring(key.length() + 1).trim();
+        }
+      }
+    } catch (Exception e) {
+      // not linux
+    }
+    return "n/a";
+  }
+
+  static void measure(String mode) throws Exception {
+    LoggingFactory.init(Level.WARN);
+    Platform.setVirtual(true);
+    String actual = ExecutionMode.setMode(mode);
+
+    long start = System.currentTimeMillis();
+    InMoov2 i01 = (InMoov2) Runtime.start("i01", "InMoov2");
+    try {
+      i01.startAll("COM3", "COM4");
+    } catch (Exception e) {
+      log.error("startAll threw", e);
+    }
+    long startup = System.currentTimeMillis() - start;
+
+    Thread.sleep(SETTLE_MS);
+    System.gc();
+
+    int services = Runtime.getServiceNames().length;
+    int jvmThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+    System.out.println(String.format("RESULT mode %s services %d startup %d ms jvm threads %d os threads %s rss %s", actual, services, startup, jvmThreads,
+        procStatus("Threads"), procStatus("VmRSS")));
+    System.exit(0);
+  }
+
+  public static void main(String[] args) {
+    try {
+      measure((args.length > 0) ? args[0] : ExecutionMode.PLATFORM);
+    } catch (Exception e) {
+      log.error("main threw", e);
+    }
+  }
+
+}
@@ -0,0 +1,107 @@
+package org.myrobotlab.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.myrobotlab.codec.CodecUtils;
+import org.myrobotlab.framework.Message;
+import org.myrobotlab.service.data.Orientation;
+import org.myrobotlab.service.data.PinData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * WebGui wire formats - json text frames against cbor binary frames for the
+ * messages dashboards subscribe to. main prints the bytes on the wire per
+ * message before jmh measures the cpu.
+ *
+ * <pre>
+ * mvn -Pbenchmark test -Dbenchmark=WebGuiEncodingBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebGuiEncodingBenchmark {
+
+  static final String[] TYPES = { "pinArray", "orientation", "servoEvent" };
+
+  @Param({ "pinArray", "orientation", "servoEvent" })
+  public String type;
+
+  Message msg;
+  String json;
+  byte[] cbor;
+
+  static Message createMessage(String type) {
+    switch (type) {
+      case "pinArray": {
+        PinData[] pins = new PinData[16];
+        for (int i = 0; i < pins.length; ++i) {
+          pins[i] = new PinData("A" + i, 0);
+          pins[i].value = 512.0 + i * 17.3;
+        }
+        return Message.createMessage("arduino@robot", "webgui@robot", "onPinArray", new Object[] { pins });
+      }
+      case "orientation":
+        return Message.createMessage("mpu6050@robot", "webgui@robot", "onOrientation", new Object[] { new Orientation(1.2345678, -0.4567891, 178.03125) });
+      default:
+        return Message.createMessage("servo01@robot", "webgui@robot", "onServoEvent", new Object[] { "servo01", 90.5, 1500 });
+    }
+  }
+
+  @Setup
+  public void setup() throws IOException {
+    msg = createMessage(type);
+    json = CodecUtils.toJson(msg);
+    cbor = CodecUtils.toCbor(msg);
+  }
+
+  @Benchmark
+  public String toJson() {
+    return CodecUtils.toJson(msg);
+  }
+
+  @Benchmark
+  public byte[] toCbor() throws IOException {
+    return CodecUtils.toCbor(msg);
+  }
+
+  @Benchmark
+  public Message fromJson() {
+    return CodecUtils.fromJson(json, Message.class);
+  }
+
+  @Benchmark
+  public Message fromCbor() throws IOException {
+    return CodecUtils.fromCbor(cbor, 0, cbor.length, Message.class);
+  }
+
+  public static void main(String[] args) throws Exception {
+    for (String type : TYPES) {
+      Message msg = createMessage(type);
+      int json = CodecUtils.toJson(msg).getBytes().length;
+      int cbor = CodecUtils.toCbor(msg).length;
+      System.out.println(String.format("%-12s json %5d bytes  cbor %5d bytes  %3d%%", type, json, cbor, 100 * cbor / json));
+    }
+    Options opt = new OptionsBuilder().include(WebGuiEncodingBenchmark.class.getSimpleName()).addProfiler("gc").build();
+    new Runner(opt).run();
+  }
+
+}
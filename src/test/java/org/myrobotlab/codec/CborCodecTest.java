@@ -0,0 +1,60 @@
+package org.myrobotlab.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.myrobotlab.framework.Message;
+import org.myrobotlab.service.data.Orientation;
+
+import com.google.gson.JsonParser;
+
+public class CborCodecTest {
+
+  @Test
+  public void testEncoding() throws Exception {
+    // RFC 7049 appendix A examples
+    assertArrayEquals(new byte[] { 0x17 }, CodecUtils.toCbor(23));
+    assertArrayEquals(new byte[] { 0x18, 0x18 }, CodecUtils.toCbor(24));
+    assertArrayEquals(new byte[] { 0x19, 0x03, (byte) 0xe8 }, CodecUtils.toCbor(1000));
+    assertArrayEquals(new byte[] { 0x38, 0x63 }, CodecUtils.toCbor(-100));
+    assertArrayEquals(new byte[] { (byte) 0xfa, 0x3f, (byte) 0xc0, 0, 0 }, CodecUtils.toCbor(1.5));
+    assertArrayEquals(new byte[] { (byte) 0xfb, 0x3f, (byte) 0xf1, (byte) 0x99, (byte) 0x99, (byte) 0x99, (byte) 0x99, (byte) 0x99, (byte) 0x9a },
+        CodecUtils.toCbor(1.1));
+    assertArrayEquals(new byte[] { 0x62, 'I', 'E' }, CodecUtils.toCbor("IE"));
+    assertArrayEquals(new byte[] { (byte) 0xf5 }, CodecUtils.toCbor(true));
+    // gson leaves out null fields, like it does in json
+    assertArrayEquals(new byte[] { (byte) 0xbf, 0x64, 'r', 'o', 'l', 'l', 0x02, (byte) 0xff }, CodecUtils.toCbor(new Orientation(2.0, null, null)));
+  }
+
+  @Test
+  public void testMessage() throws Exception {
+    Message msg = Message.createMessage("servo01@robot", "webgui@robot", "onServoEvent", new Object[] { "servo01", 90.5, 1500, new int[] { 1, 2 } });
+    String json = CodecUtils.toJson(msg);
+    byte[] cbor = CodecUtils.toCbor(msg);
+    assertTrue(cbor.length < json.length());
+
+    // decodes to the same tree as json
+    assertEquals(new JsonParser().parse(json), new JsonParser().parse(CodecUtils.toJson(CodecUtils.fromCbor(cbor, 0, cbor.length, Message.class))));
+    Message decoded = CodecUtils.fromCbor(cbor, 0, cbor.length, Message.class);
+    assertEquals("onServoEvent", decoded.method);
+    assertEquals(90.5, decoded.data[1]);
+  }
+
+  @Test
+  public void testEncodedData() throws Exception {
+    // fan-out encodes the data once and the envelope per route
+    Object[] data = new Object[] { new Orientation(1.5, -2.0, 178.0) };
+    Message msg = Message.createMessage("mpu6050@robot", "runtime@webgui-client-1", "onOrientation", data);
+    JsonParser parser = new JsonParser();
+
+    String json = CodecUtils.toJson(msg, CodecUtils.toJson(data));
+    assertEquals(parser.parse(CodecUtils.toJson(msg)), parser.parse(json));
+
+    byte[] cbor = CodecUtils.toCbor(msg, CodecUtils.toCbor(data));
+    assertEquals(parser.parse(CodecUtils.toJson(msg)), CborCodec.decode(cbor, 0, cbor.length));
+    assertTrue(msg.data == data);
+  }
+
+}
@@ -0,0 +1,56 @@
+package org.myrobotlab.framework;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class CoalescingWriterTest {
+
+  @Test
+  public void coalesceTest() throws Exception {
+    LinkedBlockingQueue<int[][]> batches = new LinkedBlockingQueue<>();
+    CoalescingWriter writer = new CoalescingWriter("test", 100, (keys, values, count) -> {
+      batches.add(new int[][] { Arrays.copyOf(keys, count), Arrays.copyOf(values, count) });
+    });
+
+    for (int i = 0; i < 100; ++i) {
+      writer.write(7, i);
+      writer.write(3, 1000 + i);
+    }
+    writer.write(12, 5);
+    assertTrue(writer.remove(12));
+    assertFalse(writer.remove(12));
+
+    // one batch per tick, ascending keys, latest values
+    int[][] batch = batches.poll(1000, TimeUnit.MILLISECONDS);
+    assertArrayEquals(new int[] { 3, 7 }, batch[0]);
+    assertArrayEquals(new int[] { 1099, 99 }, batch[1]);
+    assertEquals(null, batches.poll(300, TimeUnit.MILLISECONDS));
+
+    writer.write(1, 1);
+    writer.flush();
+    batch = batches.poll(0, TimeUnit.MILLISECONDS);
+    assertArrayEquals(new int[] { 1 }, batch[0]);
+    assertEquals("test tick 100 ms writes 202 superseded 198 flushes 2", writer.toString());
+
+    // flushing one key leaves the others held
+    writer.write(4, 40);
+    writer.write(5, 50);
+    writer.flush(5);
+    batch = batches.poll(0, TimeUnit.MILLISECONDS);
+    assertArrayEquals(new int[] { 5 }, batch[0]);
+    assertArrayEquals(new int[] { 50 }, batch[1]);
+    writer.flush(5);
+    assertEquals(null, batches.poll(0, TimeUnit.MILLISECONDS));
+    batch = batches.poll(1000, TimeUnit.MILLISECONDS);
+    assertArrayEquals(new int[] { 4 }, batch[0]);
+  }
+
+}
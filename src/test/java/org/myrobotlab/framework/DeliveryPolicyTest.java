@@ -0,0 +1,122 @@
+package org.myrobotlab.framework;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.myrobotlab.logging.LoggerFactory;
+import org.myrobotlab.service.Runtime;
+import org.myrobotlab.service.TestCatcher;
+import org.myrobotlab.service.TestThrower;
+import org.myrobotlab.test.AbstractTest;
+import org.slf4j.Logger;
+
+public class DeliveryPolicyTest extends AbstractTest {
+
+  public final static Logger log = LoggerFactory.getLogger(DeliveryPolicyTest.class);
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    Runtime.release("latestCatcher");
+    Runtime.release("latestWaitCatcher");
+    Runtime.release("rateCatcher");
+    Runtime.release("batchCatcher");
+    Runtime.release("latestThrower");
+    Runtime.release("latestWaitThrower");
+    Runtime.release("rateThrower");
+    Runtime.release("batchThrower");
+  }
+
+  @Test
+  public void latestTest() throws Exception {
+    TestCatcher catcher = (TestCatcher) Runtime.start("latestCatcher", "TestCatcher");
+    TestThrower thrower = (TestThrower) Runtime.start("latestThrower", "TestThrower");
+    thrower.addListener("publishInteger", catcher.getName(), "onInteger", DeliveryPolicy.latest());
+
+    for (int i = 0; i < 1000; ++i) {
+      thrower.invoke("publishInteger", i);
+    }
+
+    // some in between are dropped, the last one always arrives
+    Message last = null;
+    Message msg = null;
+    int count = 0;
+    while ((msg = catcher.getMsg(500)) != null) {
+      last = msg;
+      ++count;
+    }
+    log.info("latest delivered {} of 1000", count);
+    assertTrue(count > 0 && count <= 1000);
+    assertEquals(999, last.data[0]);
+  }
+
+  @Test
+  public void latestWaitTest() throws Exception {
+    TestCatcher catcher = (TestCatcher) Runtime.start("latestWaitCatcher", "TestCatcher");
+    TestThrower thrower = (TestThrower) Runtime.start("latestWaitThrower", "TestThrower");
+    thrower.addListener("publishInteger", catcher.getName(), "onInteger", DeliveryPolicy.latest());
+
+    // the placeholder completes the wait instead of going into the inbox
+    CompletableFuture<Object> future = PendingCalls.getInstance().expect(catcher.getFullName(), "onInteger", 1000, "latestWaitTest");
+    thrower.invoke("publishInteger", 1);
+    assertEquals(1, future.get(1000, TimeUnit.MILLISECONDS));
+
+    // and does not hold up the topic
+    thrower.invoke("publishInteger", 2);
+    assertEquals(2, catcher.getMsg(1000).data[0]);
+  }
+
+  @Test
+  public void rateTest() throws Exception {
+    TestCatcher catcher = (TestCatcher) Runtime.start("rateCatcher", "TestCatcher");
+    TestThrower thrower = (TestThrower) Runtime.start("rateThrower", "TestThrower");
+    thrower.addListener("publishInteger", catcher.getName(), "onInteger", DeliveryPolicy.rate(200));
+
+    for (int i = 0; i < 100; ++i) {
+      thrower.invoke("publishInteger", i);
+    }
+
+    // the first immediately, the newest at the end of the interval
+    assertEquals(0, catcher.getMsg(1000).data[0]);
+    assertEquals(99, catcher.getMsg(1000).data[0]);
+    assertNull(catcher.getMsg(500));
+  }
+
+  @Test
+  public void batchTest() throws Exception {
+    TestCatcher catcher = (TestCatcher) Runtime.start("batchCatcher", "TestCatcher");
+    TestThrower thrower = (TestThrower) Runtime.start("batchThrower", "TestThrower");
+    thrower.addListener("publishInteger", catcher.getName(), "onBatch", DeliveryPolicy.batch(300, 10));
+
+    // a batch with neither an interval nor a size would never be delivered
+    try {
+      DeliveryPolicy.batch(0, 0);
+      fail("expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+    }
+    assertNull(Delivery.create(new MRLListener("publishInteger", catcher.getName(), "onBatch", new DeliveryPolicy(DeliveryPolicy.BATCH, 0, 0))));
+
+    for (int i = 0; i < 25; ++i) {
+      thrower.invoke("publishInteger", i);
+    }
+
+    // two full batches, the remainder when the interval runs out
+    int expected = 0;
+    for (int size : new int[] { 10, 10, 5 }) {
+      List<?> batch = (List<?>) catcher.getMsg(1000).data[0];
+      assertEquals(size, batch.size());
+      for (Object o : batch) {
+        assertEquals(expected++, o);
+      }
+    }
+    assertNull(catcher.getMsg(500));
+  }
+
+}
@@ -0,0 +1,101 @@
+package org.myrobotlab.framework;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.myrobotlab.logging.LoggerFactory;
+import org.myrobotlab.test.AbstractTest;
+import org.slf4j.Logger;
+
+public class MessageQueueTest extends AbstractTest {
+
+  public final static Logger log = LoggerFactory.getLogger(MessageQueueTest.class);
+
+  Message createMessage(int i) {
+    return Message.createMessage("sender", "receiver", "onInt", new Object[] { i });
+  }
+
+  @Test
+  public void testMpscOrderAndOverrun() {
+    MpscMessageQueue queue = new MpscMessageQueue(4);
+    assertNull(queue.poll());
+    for (int i = 0; i < 4; ++i) {
+      assertTrue(queue.add(createMessage(i)));
+    }
+    assertEquals(4, queue.size());
+    // full - non blocking drops
+    assertFalse(queue.add(createMessage(4)));
+
+    for (int i = 0; i < 4; ++i) {
+      assertEquals(i, queue.poll().data[0]);
+    }
+    assertNull(queue.poll());
+    assertEquals(0, queue.size());
+  }
+
+  @Test
+  public void testMpscManyProducers() throws Exception {
+    final MpscMessageQueue queue = new MpscMessageQueue(256, true);
+    final int producers = 8;
+    final int perProducer = 10000;
+    final CountDownLatch start = new CountDownLatch(1);
+
+    for (int p = 0; p < producers; ++p) {
+      new Thread("producer-" + p) {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+          }
+          for (int i = 0; i < perProducer; ++i) {
+            queue.add(createMessage(i));
+          }
+        }
+      }.start();
+    }
+
+    start.countDown();
+    AtomicInteger count = new AtomicInteger();
+    long sum = 0;
+    while (count.get() < producers * perProducer) {
+      Message msg = queue.take();
+      sum += (Integer) msg.data[0];
+      count.incrementAndGet();
+    }
+    // blocking queue - nothing dropped, everything delivered once
+    assertEquals((long) producers * perProducer * (perProducer - 1) / 2, sum);
+    assertEquals(0, queue.size());
+  }
+
+  @Test
+  public void testMpscTakeWakesUp() throws Exception {
+    final MpscMessageQueue queue = new MpscMessageQueue(16);
+    new Thread("late-producer") {
+      @Override
+      public void run() {
+        Service.sleep(100);
+        queue.add(createMessage(7));
+      }
+    }.start();
+    assertEquals(7, queue.take().data[0]);
+  }
+
+  @Test
+  public void testInboxQueueType() throws Exception {
+    Inbox inbox = new Inbox("test");
+    assertEquals(MessageQueue.LINKED, inbox.getQueueType());
+    inbox.add(createMessage(1));
+    inbox.setQueueType(MessageQueue.MPSC);
+    assertEquals(MessageQueue.MPSC, inbox.getQueueType());
+    assertEquals(1, inbox.size());
+    assertEquals(1, inbox.getMsg().data[0]);
+  }
+
+}
@@ -140,6 +140,26 @@ public class MethodCacheTest extends AbstractTest {
 
   }
 
+  @Test
+  public void invokerTest() throws IllegalAccessException, IllegalArgumentException, InvocationTargetException, ClassNotFoundException {
+
+    MethodInvoker invoker = cache.getInvoker(TestCatcher.class, "primitiveOnlyMethod", 3);
+    assertEquals(5, invoker.invoke(tester, 5));
+    // second lookup with the same parameter classes is the cached invoker
+    assertTrue(invoker == cache.getInvoker(TestCatcher.class, "primitiveOnlyMethod", 7));
+
+    invoker = cache.getInvoker(TestCatcher.class, "invokeTest", "echo");
+    assertEquals("echo", invoker.invoke(tester, "echo"));
+
+    // overloaded by parameter class resolves to a different invoker
+    MethodInvoker listenerInvoker = cache.getInvoker(TestCatcher.class, "invokeTest", (HttpDataListener) tester);
+    assertTrue(invoker != listenerInvoker);
+    assertEquals(tester, listenerInvoker.invoke(tester, tester));
+
+    invoker = cache.getInvoker(TestCatcher.class, "isRunning");
+    assertNotNull(invoker.invoke(tester));
+  }
+
   @Test
   public void ancestorTest() throws IllegalAccessException, IllegalArgumentException, InvocationTargetException, ClassNotFoundException {
 
@@ -240,6 +260,24 @@ public class MethodCacheTest extends AbstractTest {
     Integer r = (Integer)cache.invokeOn(test, "getInt", 7);
     assertTrue(7 == r);
   }
+
+  @Test
+  public void invokerArgumentsTest() throws Exception {
+    MethodInvoker invoker = new MethodInvoker(TestClass.class.getMethod("getInt", int.class), new Class<?>[] { Integer.class });
+    TestClass test = new TestClass();
+    assertEquals(7, invoker.invoke(test, 7));
+    // argument mismatches are not exceptions of the target
+    try {
+      invoker.invoke(test, "7");
+      assertTrue("mismatched argument should throw", false);
+    } catch (IllegalArgumentException e) {
+    }
+    try {
+      invoker.invoke(test, (Object) null);
+      assertTrue("null for a primitive should throw", false);
+    } catch (IllegalArgumentException e) {
+    }
+  }
   
   
 
@@ -0,0 +1,102 @@
+package org.myrobotlab.framework;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.myrobotlab.codec.CodecUtils;
+import org.myrobotlab.logging.LoggerFactory;
+import org.myrobotlab.service.Runtime;
+import org.myrobotlab.service.TestCatcher;
+import org.myrobotlab.service.TestThrower;
+import org.myrobotlab.test.AbstractTest;
+import org.slf4j.Logger;
+
+import com.google.gson.reflect.TypeToken;
+
+public class OutboxTest extends AbstractTest {
+
+  public final static Logger log = LoggerFactory.getLogger(OutboxTest.class);
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    Runtime.release("outboxCatcher");
+    Runtime.release("outboxThrower");
+  }
+
+  @Test
+  public void subscriptionTableTest() {
+    SubscriptionTable table = new SubscriptionTable();
+    assertTrue(table.add(new MRLListener("publishInteger", "webgui01", "onInteger")));
+    // duplicate
+    assertFalse(table.add(new MRLListener("publishInteger", "webgui01", "onInteger")));
+    assertTrue(table.add(new MRLListener("publishInteger", "webgui02", "onInteger")));
+    assertTrue(table.add(new MRLListener("publishState", "webgui02", "onState")));
+
+    MRLListener[] snapshot = table.get("publishInteger");
+    assertEquals(2, snapshot.length);
+
+    // churn does not change an array a broadcast is already iterating
+    table.removeSubscriber("webgui02");
+    assertEquals(2, snapshot.length);
+    assertEquals("webgui02", snapshot[1].callbackName);
+
+    assertEquals(1, table.get("publishInteger").length);
+    // last subscriber gone - topic removed
+    assertNull(table.get("publishState"));
+    assertEquals(1, table.remove("publishInteger", "webgui01"));
+    assertEquals(0, table.size());
+  }
+
+  @Test
+  public void subscriptionTableJsonTest() {
+    SubscriptionTable table = new SubscriptionTable();
+    table.add(new MRLListener("publishInteger", "webgui01", "onInteger"));
+    table.add(new MRLListener("publishInteger", "webgui02", "onInteger"));
+
+    // same shape as the map of lists it replaced
+    String json = CodecUtils.toJson(table);
+    Map<String, List<MRLListener>> map = CodecUtils.fromJson(json, new TypeToken<Map<String, List<MRLListener>>>() {
+    }.getType());
+    assertEquals(2, map.get("publishInteger").size());
+    assertEquals("webgui02", map.get("publishInteger").get(1).callbackName);
+
+    SubscriptionTable copy = CodecUtils.fromJson(json, SubscriptionTable.class);
+    assertEquals(2, copy.get("publishInteger").length);
+  }
+
+  @Test
+  public void directRoutingTest() throws Exception {
+    TestCatcher catcher = (TestCatcher) Runtime.start("outboxCatcher", "TestCatcher");
+    TestThrower thrower = (TestThrower) Runtime.start("outboxThrower", "TestThrower");
+    thrower.setDirectRouting(true);
+    thrower.addListener("publishInteger", catcher.getName(), "onInteger");
+    catcher.clear();
+
+    thrower.invoke("publishInteger", 7);
+    Message msg = catcher.getMsg(1000);
+    assertNotNull(msg);
+    assertEquals(7, msg.data[0]);
+    // never touched the outbox queue
+    assertEquals(0, thrower.getOutbox().size());
+
+    // route was resolved when the listener was added
+    MRLListener listener = thrower.getNotifyList("publishInteger").get(0);
+    assertTrue(listener.route == catcher);
+
+    // and is dropped when the subscriber is released
+    Runtime.release(catcher.getName());
+    assertNull(listener.route);
+
+    // publishing to a released subscriber does not throw
+    thrower.invoke("publishInteger", 8);
+  }
+
+}
@@ -0,0 +1,84 @@
+package org.myrobotlab.framework;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.myrobotlab.logging.LoggerFactory;
+import org.myrobotlab.service.Runtime;
+import org.myrobotlab.service.TestCatcher;
+import org.myrobotlab.service.TestThrower;
+import org.myrobotlab.test.AbstractTest;
+import org.slf4j.Logger;
+
+public class SendAsyncTest extends AbstractTest {
+
+  public final static Logger log = LoggerFactory.getLogger(SendAsyncTest.class);
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    Runtime.release("asyncCatcher");
+    Runtime.release("asyncThrower");
+  }
+
+  @Test
+  public void correlationTest() throws Exception {
+    TestCatcher catcher = (TestCatcher) Runtime.start("asyncCatcher", "TestCatcher");
+    TestThrower thrower = (TestThrower) Runtime.start("asyncThrower", "TestThrower");
+
+    // many outstanding calls to the same method - each gets its own reply
+    List<CompletableFuture<Object>> futures = new ArrayList<>();
+    for (int i = 0; i < 200; ++i) {
+      futures.add(thrower.sendAsync(catcher.getName(), 3000, "onInteger", i));
+    }
+    for (int i = 0; i < futures.size(); ++i) {
+      assertEquals(i, futures.get(i).get());
+    }
+    assertEquals(0, PendingCalls.getInstance().size());
+  }
+
+  @Test
+  public void timeoutTest() throws Exception {
+    TestThrower thrower = (TestThrower) Runtime.start("asyncThrower", "TestThrower");
+    CompletableFuture<Object> future = thrower.sendAsync("asyncNobody", 50, "onInteger", 1);
+    try {
+      future.get();
+      fail("expected timeout");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof TimeoutException);
+    }
+    assertEquals(0, PendingCalls.getInstance().size());
+  }
+
+  @Test
+  public void completeTest() throws Exception {
+    PendingCalls pending = new PendingCalls();
+
+    // a RETURN nobody waits on is not consumed
+    Message ret = Message.createMessage("asyncThrower", "asyncCatcher", "onInteger", 1);
+    ret.status = Message.RETURN;
+    ret.msgId = 1234;
+    assertFalse(pending.complete(ret));
+
+    CompletableFuture<Object> future = pending.expect(1234, null, "asyncCatcher.onInteger");
+    assertTrue(pending.complete(ret));
+    assertEquals(1, future.get());
+
+    // topic waits only match their subscriber and callback
+    CompletableFuture<Object> topic = pending.expect("asyncCatcher", "onInteger", null, "asyncThrower.publishInteger");
+    assertFalse(pending.complete(Message.createMessage("asyncThrower", "asyncOther", "onInteger", 2)));
+    assertFalse(pending.complete(Message.createMessage("asyncThrower", "asyncCatcher", "onString", "2")));
+    assertTrue(pending.complete(Message.createMessage("asyncThrower", "asyncCatcher", "onInteger", 3)));
+    assertEquals(3, topic.get());
+    assertTrue(pending.topics.isEmpty());
+  }
+
+}
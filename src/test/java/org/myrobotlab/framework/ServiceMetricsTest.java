@@ -0,0 +1,78 @@
+package org.myrobotlab.framework;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.myrobotlab.logging.LoggerFactory;
+import org.myrobotlab.service.Runtime;
+import org.myrobotlab.service.TestCatcher;
+import org.myrobotlab.test.AbstractTest;
+import org.slf4j.Logger;
+
+public class ServiceMetricsTest extends AbstractTest {
+
+  public final static Logger log = LoggerFactory.getLogger(ServiceMetricsTest.class);
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    ServiceMetrics.setSampleRate(64);
+    Runtime.release("metricsCatcher");
+  }
+
+  @Test
+  public void histogramTest() {
+    LatencyHistogram h = new LatencyHistogram();
+    for (long i = 1; i <= 10000; ++i) {
+      h.record(i * 1000);
+    }
+    assertEquals(10000, h.getCount());
+    // within the ~6% bucket resolution
+    assertEquals(5000000, h.getValueAtPercentile(50), 5000000 * 0.07);
+    assertEquals(9900000, h.getValueAtPercentile(99), 9900000 * 0.07);
+    assertEquals(10000000, h.getValueAtPercentile(100), 10000000 * 0.07);
+    LatencyStats stats = h.getStats();
+    assertEquals(5000.5, stats.meanUs, 0.01);
+    assertEquals(10000.0, stats.maxUs, 0.01);
+    h.reset();
+    assertEquals(0, h.getCount());
+  }
+
+  @Test
+  public void sampleRateTest() {
+    assertEquals(0, ServiceMetrics.setSampleRate(0));
+    assertEquals(1, ServiceMetrics.setSampleRate(1));
+    assertEquals(64, ServiceMetrics.setSampleRate(50));
+    assertEquals(64, ServiceMetrics.setSampleRate(64));
+  }
+
+  @Test
+  public void serviceStatsTest() throws Exception {
+    ServiceMetrics.setSampleRate(1);
+    TestCatcher catcher = (TestCatcher) Runtime.start("metricsCatcher", "TestCatcher");
+    catcher.resetServiceStats();
+    for (int i = 0; i < 100; ++i) {
+      catcher.in(Message.createMessage("metricsTest", catcher.getName(), "onInteger", i));
+    }
+    catcher.waitForMsgs(100);
+    // last invoke is recorded after the message was handed over
+    Thread.sleep(50);
+
+    ServiceStats stats = catcher.getServiceStats();
+    assertEquals(100, stats.inboxWait.count);
+    LatencyStats invoke = stats.invoke.get("onInteger");
+    assertNotNull(invoke);
+    assertEquals(100, invoke.count);
+    assertTrue(invoke.maxUs > 0);
+    assertEquals(0, stats.inboxDropped);
+
+    boolean found = false;
+    for (ServiceStats s : Runtime.getInstance().getAllServiceStats()) {
+      found |= s.name.equals(catcher.getName());
+    }
+    assertTrue(found);
+  }
+
+}
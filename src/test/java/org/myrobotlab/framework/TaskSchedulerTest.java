@@ -0,0 +1,133 @@
+package org.myrobotlab.framework;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.myrobotlab.logging.LoggerFactory;
+import org.myrobotlab.service.Runtime;
+import org.myrobotlab.service.TestCatcher;
+import org.myrobotlab.test.AbstractTest;
+import org.slf4j.Logger;
+
+public class TaskSchedulerTest extends AbstractTest {
+
+  public final static Logger log = LoggerFactory.getLogger(TaskSchedulerTest.class);
+
+  TestCatcher catcher;
+
+  /**
+   * counts its runs down on ran, then waits for block if there is one
+   */
+  static class LatchTask extends Task {
+    final CountDownLatch ran;
+    final CountDownLatch block;
+
+    LatchTask(Service service, String name, long interval, CountDownLatch ran, CountDownLatch block) {
+      super(service, name, interval, 0, false, Message.createMessage(service.getName(), service.getName(), "onInteger", 1));
+      this.ran = ran;
+      this.block = block;
+    }
+
+    @Override
+    public void run() {
+      super.run();
+      ran.countDown();
+      if (block != null) {
+        try {
+          block.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  @Before
+  public void setUp() {
+    catcher = (TestCatcher) Runtime.start("taskCatcher", "TestCatcher");
+  }
+
+  @After
+  public void tearDown() {
+    Runtime.release("taskCatcher");
+  }
+
+  @Test
+  public void addPurgeTaskTest() throws Exception {
+    catcher.addTask("rate", 10, 0, true, "onInteger", 1);
+    catcher.addTask("delay", 10, 0, "onInteger", 2);
+    // same name is ignored
+    catcher.addTask("delay", 1000, 0, "onInteger", 3);
+    catcher.addTaskOneShot(0, "onInteger", 4);
+    assertTrue(catcher.containsTask("rate"));
+    assertTrue(catcher.getTasks().size() >= 2);
+
+    // the one shot runs and is forgotten
+    long deadline = System.currentTimeMillis() + 5000;
+    while (catcher.containsTask("onInteger") && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertFalse(catcher.containsTask("onInteger"));
+
+    List<TaskStats> stats = catcher.getTaskStats();
+    assertEquals(2, stats.size());
+    for (TaskStats s : stats) {
+      assertEquals(10, s.intervalMs);
+    }
+    assertTrue(Runtime.getInstance().getAllTaskStats().size() >= 2);
+
+    // so its name can be used again
+    catcher.addTaskOneShot(10000, "onInteger", 5);
+    assertTrue(catcher.containsTask("onInteger"));
+
+    catcher.purgeTask("rate");
+    assertFalse(catcher.containsTask("rate"));
+    catcher.purgeTasks();
+    assertEquals(0, catcher.getTasks().size());
+  }
+
+  @Test
+  public void blockingTaskTest() throws Exception {
+    TaskScheduler scheduler = TaskScheduler.getInstance();
+    CountDownLatch block = new CountDownLatch(1);
+    CountDownLatch blocked = new CountDownLatch(1);
+    CountDownLatch ticks = new CountDownLatch(5);
+    LatchTask blocker = new LatchTask(catcher, "blocker", 0, blocked, block);
+    LatchTask ticker = new LatchTask(catcher, "ticker", 1, ticks, null);
+    scheduler.schedule(blocker);
+    assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+    // a task of the same service keeps running while the other one blocks
+    scheduler.schedule(ticker);
+    assertTrue(ticks.await(5, TimeUnit.SECONDS));
+    assertEquals(1, block.getCount());
+    block.countDown();
+    scheduler.cancel(ticker);
+  }
+
+  @Test
+  public void cancelTest() throws Exception {
+    TaskScheduler scheduler = TaskScheduler.getInstance();
+    CountDownLatch block = new CountDownLatch(1);
+    CountDownLatch ran = new CountDownLatch(1);
+    LatchTask task = new LatchTask(catcher, "cancelled", 1, ran, block);
+    scheduler.schedule(task);
+    assertTrue(ran.await(5, TimeUnit.SECONDS));
+
+    // cancelled during a run - the run completes, no next one is scheduled
+    scheduler.cancel(task);
+    block.countDown();
+    assertFalse(scheduler.tasks.contains(task));
+    assertTrue(task.cancelled);
+    assertFalse(scheduler.executor.getQueue().contains(task.future));
+  }
+
+}
@@ -1,13 +1,18 @@
 package org.myrobotlab.framework.repo;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.myrobotlab.framework.ServiceReservation;
 import org.myrobotlab.logging.LoggerFactory;
 import org.myrobotlab.service.meta.abstracts.MetaData;
 import org.myrobotlab.test.AbstractTest;
@@ -49,4 +54,45 @@ public class ServiceDataTest extends AbstractTest {
     assertTrue(srn.length > 0);
   }
 
+  @Test
+  public void testIndex() throws IOException {
+    if (printMethods)System.out.println(String.format("Running %s.%s", getSimpleName(), getName()));
+    ServiceData sd = new ServiceData();
+    MetaData md = new MetaData("org.myrobotlab.service.Arduino", "Arduino", null);
+    md.addDescription("controls an Arduino");
+    md.setLicenseApache();
+    md.setCloudService(true);
+    md.addPeer("serial", "Serial", "serial device for this Arduino");
+    md.peers.put("virtual", new ServiceReservation("virtual", "v01", "VirtualArduino", null, false));
+    md.addDependency("org.scream3r", "jssc", "2.8.0-1");
+    md.exclude("log4j", "log4j");
+    md.getDependencies().get(0).add(new ServiceArtifact("org.scream3r", "jssc", "jar"));
+    sd.add(md);
+    Category category = new Category();
+    category.name = "microcontroller";
+    category.serviceTypes.add(md.getType());
+    sd.categoryTypes.put(category.name, category);
+
+    ServiceData decoded = ServiceDataIndex.decode(ByteBuffer.wrap(ServiceDataIndex.encode(sd, 1234)));
+
+    assertEquals(1, decoded.getCategories().size());
+    assertEquals("org.myrobotlab.service.Arduino", decoded.getServiceTypeNames("microcontroller")[0]);
+    MetaData d = decoded.serviceTypes.get("org.myrobotlab.service.Arduino");
+    assertEquals("Arduino", d.getSimpleName());
+    assertNull(d.getServiceName());
+    assertEquals("controls an Arduino", d.getDescription());
+    assertEquals("apache", d.getLicense());
+    assertTrue(d.isCloudService());
+    assertFalse(d.requiresKeys());
+    assertTrue(d.isAvailable());
+    assertEquals("Serial", d.getPeer("serial").type);
+    assertTrue(d.getPeer("serial").autoStart);
+    assertEquals("v01", d.getPeer("virtual").actualName);
+    assertFalse(d.getPeer("virtual").autoStart);
+    ServiceDependency dep = d.getDependencies().get(0);
+    assertEquals("org.scream3r/jssc/2.8.0-1/null", dep.getKey());
+    assertEquals("log4j", dep.getExcludes().get(0).getArtifactId());
+    assertEquals("jar", dep.getArtifacts().get(0).type);
+  }
+
 }
\ No newline at end of file
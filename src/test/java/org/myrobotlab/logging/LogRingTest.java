@@ -0,0 +1,92 @@
+package org.myrobotlab.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.myrobotlab.service.Log.LogEntry;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+
+public class LogRingTest {
+
+  static LoggingEvent event(LoggerContext context, String message) {
+    return new LoggingEvent(LogRingTest.class.getName(), context.getLogger("test"), Level.INFO, message, null, null);
+  }
+
+  @Test
+  public void testOverflow() {
+    LoggerContext context = new LoggerContext();
+    LogRing ring = new LogRing(3);
+    assertEquals(4, ring.getCapacity());
+    for (int i = 0; i < 4; ++i) {
+      assertTrue(ring.offer(event(context, "event " + i)));
+    }
+    assertFalse(ring.offer(event(context, "dropped")));
+    assertEquals(1, ring.getOverflow());
+
+    List<LogEntry> entries = new ArrayList<>();
+    assertEquals(2, ring.drain(entries, 2));
+    assertEquals("event 0", entries.get(0).body);
+    assertEquals("INFO", entries.get(0).level);
+    assertEquals("test", entries.get(0).className);
+    assertTrue(ring.offer(event(context, "event 4")));
+    assertEquals(3, ring.drain(entries, 10));
+    assertEquals("event 4", entries.get(4).body);
+    assertEquals(0, ring.size());
+  }
+
+  @Test
+  public void testProducers() throws Exception {
+    LoggerContext context = new LoggerContext();
+    LogRing ring = new LogRing(64);
+    int threads = 4;
+    int events = 20000;
+    Thread[] producers = new Thread[threads];
+    for (int t = 0; t < threads; ++t) {
+      final int id = t;
+      producers[t] = new Thread(() -> {
+        for (int i = 0; i < events; ++i) {
+          ring.offer(event(context, id + ":" + i));
+        }
+      });
+      producers[t].start();
+    }
+
+    List<LogEntry> entries = new ArrayList<>();
+    boolean running = true;
+    while (running) {
+      running = false;
+      for (Thread producer : producers) {
+        running |= producer.isAlive();
+      }
+      ring.drain(entries, 64);
+    }
+    ring.drain(entries, 64);
+
+    // every event either delivered once or counted as overflow
+    Set<String> bodies = new HashSet<>();
+    int[] last = new int[threads];
+    Arrays.fill(last, -1);
+    for (LogEntry entry : entries) {
+      assertTrue(bodies.add(entry.body));
+      String[] parts = entry.body.split(":");
+      int id = Integer.parseInt(parts[0]);
+      int i = Integer.parseInt(parts[1]);
+      // each producer's events in order
+      assertTrue(i > last[id]);
+      last[id] = i;
+    }
+    assertEquals(threads * events, entries.size() + ring.getOverflow());
+  }
+
+}
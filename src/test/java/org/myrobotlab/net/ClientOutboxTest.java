@@ -0,0 +1,88 @@
+package org.myrobotlab.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ClientOutboxTest {
+
+  @Test
+  public void testSlowClient() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    CountDownLatch blocked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    List<Object> written = new ArrayList<>();
+
+    ClientOutbox outbox = new ClientOutbox("client", payload -> {
+      blocked.countDown();
+      release.await();
+      synchronized (written) {
+        written.add(payload);
+      }
+    }, executor, 3, null);
+
+    // the first frame is taken by the writer, which stalls
+    assertTrue(outbox.send("cam.onWebDisplay", "frame-0"));
+    assertTrue(blocked.await(1, TimeUnit.SECONDS));
+
+    // the publisher never blocks - stale frames of a stream are replaced
+    assertTrue(outbox.send("cam.onWebDisplay", "frame-1"));
+    assertTrue(outbox.send(null, "status-1"));
+    assertFalse(outbox.send("cam.onWebDisplay", "frame-2"));
+    assertTrue(outbox.send(null, "status-2"));
+    assertEquals(3, outbox.getPending());
+
+    // past maxPending the oldest latest-only frame goes, never a status
+    assertFalse(outbox.send(null, "status-3"));
+    assertEquals(3, outbox.getPending());
+    assertEquals(2, outbox.getDropped());
+
+    release.countDown();
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+    assertEquals(4, outbox.getSent());
+    synchronized (written) {
+      assertEquals("[frame-0, status-1, status-2, status-3]", written.toString());
+    }
+  }
+
+  @Test
+  public void testOverflow() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    CountDownLatch blocked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch disconnected = new CountDownLatch(1);
+
+    ClientOutbox outbox = new ClientOutbox("client", payload -> {
+      blocked.countDown();
+      release.await();
+    }, executor, 2, () -> disconnected.countDown());
+
+    assertTrue(outbox.send(null, "status-0"));
+    assertTrue(blocked.await(1, TimeUnit.SECONDS));
+    assertTrue(outbox.send(null, "status-1"));
+    assertTrue(outbox.send(null, "status-2"));
+    assertEquals(1, disconnected.getCount());
+
+    // nothing to drop - the client is disconnected
+    assertFalse(outbox.send(null, "status-3"));
+    assertEquals(0, disconnected.getCount());
+    assertEquals(0, outbox.getPending());
+    assertFalse(outbox.send(null, "status-4"));
+
+    release.countDown();
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+    assertEquals(1, outbox.getSent());
+  }
+
+}
@@ -0,0 +1,142 @@
+package org.myrobotlab.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.myrobotlab.image.SerializableImage;
+
+public class MjpegServerTest {
+
+  /**
+   * reads the stream, counting whole frames
+   */
+  static class Viewer extends Thread {
+    final Socket socket;
+    final Semaphore frames = new Semaphore(0);
+
+    Viewer(int port, String feed) throws IOException {
+      super("viewer");
+      setDaemon(true);
+      socket = new Socket("localhost", port);
+      socket.getOutputStream().write(String.format("GET /%s HTTP/1.1\r\n\r\n", feed).getBytes());
+    }
+
+    @Override
+    public void run() {
+      try {
+        InputStream in = new BufferedInputStream(socket.getInputStream());
+        while (readLine(in).length() > 0) {
+        }
+        while (true) {
+          int length = 0;
+          String line;
+          while ((line = readLine(in)).length() > 0) {
+            if (line.startsWith("Content-Length: ")) {
+              length = Integer.parseInt(line.substring(16));
+            }
+          }
+          // jpeg and trailer
+          for (int i = 0; i < length + 4; ++i) {
+            if (in.read() < 0) {
+              return;
+            }
+          }
+          frames.release();
+        }
+      } catch (IOException e) {
+      }
+    }
+
+    static String readLine(InputStream in) throws IOException {
+      StringBuilder line = new StringBuilder();
+      int c;
+      while ((c = in.read()) != '\n') {
+        if (c < 0) {
+          throw new IOException("closed");
+        }
+        if (c != '\r') {
+          line.append((char) c);
+        }
+      }
+      return line.toString();
+    }
+  }
+
+  MjpegServer server;
+  final List<Viewer> viewers = new ArrayList<>();
+  final SerializableImage image = new SerializableImage(new BufferedImage(32, 24, BufferedImage.TYPE_INT_RGB), "cam");
+
+  @Before
+  public void setUp() throws Exception {
+    server = new MjpegServer(0);
+    server.start();
+    // creates the feed
+    server.publish(image);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    for (Viewer viewer : viewers) {
+      viewer.socket.close();
+    }
+    server.stop();
+  }
+
+  @Test
+  public void testDisconnectDuringWrite() throws Exception {
+    MjpegServer.Feed feed = server.feeds.get("cam");
+    for (int i = 0; i < 3; ++i) {
+      Viewer viewer = new Viewer(server.getPort(), "cam");
+      viewer.start();
+      viewers.add(viewer);
+    }
+    long deadline = System.currentTimeMillis() + 5000;
+    while (feed.viewers < 3 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(3, feed.viewers);
+
+    server.publish(image);
+    for (Viewer viewer : viewers) {
+      assertTrue(viewer.frames.tryAcquire(5, TimeUnit.SECONDS));
+    }
+
+    // the first client goes away without the selector reading it - the next
+    // frame's write to it fails while the other clients are being written
+    feed.clients.get(0).channel.shutdownOutput();
+    server.publish(image);
+
+    int streaming = 0;
+    for (Viewer viewer : viewers) {
+      if (viewer.frames.tryAcquire(1, TimeUnit.SECONDS)) {
+        ++streaming;
+      }
+    }
+    assertEquals(2, streaming);
+    assertEquals(2, feed.viewers);
+
+    // the server is still running
+    server.publish(image);
+    int received = 0;
+    for (Viewer viewer : viewers) {
+      if (viewer.frames.tryAcquire(1, TimeUnit.SECONDS)) {
+        ++received;
+      }
+    }
+    assertEquals(2, received);
+  }
+
+}
@@ -0,0 +1,41 @@
+package org.myrobotlab.opencv;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+public class PipelineMetricsTest {
+
+  @Test
+  public void testFrameBudget() throws Exception {
+    PipelineMetrics metrics = new PipelineMetrics("cv");
+    long budgetNs = 20 * 1000000L;
+
+    metrics.frameDone(5 * 1000000L, budgetNs);
+    metrics.frameDone(5 * 1000000L, budgetNs);
+    // late - more than the budget after the frame before
+    Thread.sleep(40);
+    metrics.frameDone(45 * 1000000L, budgetNs);
+    metrics.dropped();
+    metrics.getFilter("canny").process.record(3 * 1000000L);
+
+    PipelineStats stats = metrics.getStats(new ArrayList<OpenCVFilter>());
+    assertEquals(3, stats.frames);
+    assertEquals(1, stats.overBudget);
+    assertEquals(1, stats.dropped);
+    assertEquals(3, stats.stages.get("frame").count);
+    assertEquals(45000.0, stats.stages.get("frame").maxUs, 45000 * 0.07);
+    // only filters in the pipeline are reported
+    assertEquals(0, stats.filters.size());
+
+    metrics.reset();
+    stats = metrics.getStats(new ArrayList<OpenCVFilter>());
+    assertEquals(0, stats.frames);
+    assertEquals(0, stats.overBudget);
+    assertEquals(0, stats.stages.get("frame").count);
+    assertEquals(0, metrics.getFilter("canny").process.getCount());
+  }
+
+}
@@ -0,0 +1,56 @@
+package org.myrobotlab.opencv;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class PipelineStageTest {
+
+  @Test
+  public void testOrder() throws Exception {
+    int frames = 200;
+    Random random = new Random(7);
+    List<Integer> done = new ArrayList<>();
+    CountDownLatch latch = new CountDownLatch(frames);
+
+    PipelineStage.Work jitter = data -> Thread.sleep(random.nextInt(2));
+    PipelineStage first = new PipelineStage("first", 2, jitter);
+    PipelineStage second = new PipelineStage("second", 2, jitter);
+    PipelineStage last = new PipelineStage("last", 2, data -> {
+      synchronized (done) {
+        done.add(data.getFrameIndex());
+      }
+      latch.countDown();
+    });
+    first.setNext(second);
+    second.setNext(last);
+    last.start("last");
+    second.start("second");
+    first.start("first");
+
+    for (int i = 0; i < frames; ++i) {
+      OpenCVData data = new OpenCVData();
+      data.setFrameIndex(i);
+      // blocks while the pipeline is full
+      first.put(data);
+    }
+    latch.await(10, TimeUnit.SECONDS);
+    first.stop();
+    second.stop();
+    last.stop();
+
+    // every frame, in the order it went in
+    assertEquals(frames, done.size());
+    for (int i = 0; i < frames; ++i) {
+      assertEquals(i, (int) done.get(i));
+    }
+    assertEquals(frames, first.getStats().count);
+  }
+
+}
@@ -0,0 +1,50 @@
+package org.myrobotlab.programab;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.myrobotlab.io.FileIO;
+import org.myrobotlab.test.AbstractTest;
+
+public class BrainSnapshotTest extends AbstractTest {
+
+  @Rule
+  public TemporaryFolder bots = new TemporaryFolder();
+
+  @Test
+  public void testSnapshot() throws Exception {
+    File bot = bots.newFolder("lloyd");
+    File aiml = new File(bot, "aiml/lloyd.aiml");
+    FileIO.toFile(aiml.getAbsolutePath(), "<aiml><category><pattern>HI</pattern><template>HELLO</template></category></aiml>");
+    BrainSnapshot snapshot = new BrainSnapshot(bot);
+
+    // nothing compiled yet
+    assertFalse(snapshot.isValid());
+
+    FileIO.toFile(new File(bot, "aimlif/lloyd.aiml.csv").getAbsolutePath(), "0,HI,*,*,HELLO,lloyd.aiml");
+    snapshot.save();
+    assertTrue(snapshot.isValid());
+
+    // edited aiml
+    FileIO.toFile(aiml.getAbsolutePath(), "<aiml><category><pattern>HI</pattern><template>HELLO THERE</template></category></aiml>");
+    assertFalse(snapshot.isValid());
+    snapshot.save();
+    assertTrue(snapshot.isValid());
+
+    // added aiml
+    FileIO.toFile(new File(bot, "aiml/more.aiml").getAbsolutePath(), "<aiml></aiml>");
+    assertFalse(snapshot.isValid());
+    snapshot.save();
+    assertTrue(snapshot.isValid());
+
+    snapshot.invalidate();
+    assertFalse(snapshot.isValid());
+    assertFalse(new File(bot, "aimlif/lloyd.aiml.csv").exists());
+  }
+
+}
@@ -0,0 +1,102 @@
+package org.myrobotlab.programab;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.myrobotlab.framework.LatencyStats;
+import org.myrobotlab.test.AbstractTest;
+
+public class ResponseEngineTest extends AbstractTest {
+
+  static final int SESSIONS = 300;
+  static final int REQUESTS = 10;
+
+  @Test
+  public void testConcurrentSessions() throws Exception {
+    Map<String, List<String>> answered = new ConcurrentHashMap<>();
+    AtomicInteger active = new AtomicInteger();
+    AtomicInteger maxActive = new AtomicInteger();
+    ResponseEngine engine = new ResponseEngine("test", 8, REQUESTS, (userName, botName, text) -> {
+      // sraix bounds its searches only here
+      assertTrue(ResponseEngine.isWorker());
+      int n = active.incrementAndGet();
+      maxActive.accumulateAndGet(n, Math::max);
+      // a session never has two requests in flight
+      List<String> texts = answered.computeIfAbsent(userName, k -> new ArrayList<>());
+      synchronized (texts) {
+        texts.add(text);
+      }
+      Thread.sleep(1);
+      active.decrementAndGet();
+      return new Response(userName, botName, text, null);
+    });
+
+    List<CompletableFuture<Response>> futures = new ArrayList<>();
+    for (int r = 0; r < REQUESTS; ++r) {
+      for (int s = 0; s < SESSIONS; ++s) {
+        futures.add(engine.submit("user" + s, (s % 2 == 0) ? "lloyd" : "pikachu", Integer.toString(r)));
+      }
+    }
+    for (CompletableFuture<Response> future : futures) {
+      future.get(30, TimeUnit.SECONDS);
+    }
+
+    assertEquals(SESSIONS, answered.size());
+    for (List<String> texts : answered.values()) {
+      for (int r = 0; r < REQUESTS; ++r) {
+        assertEquals(Integer.toString(r), texts.get(r));
+      }
+    }
+    assertTrue(maxActive.get() > 1);
+    assertFalse(ResponseEngine.isWorker());
+    Map<String, LatencyStats> stats = engine.getStats();
+    assertEquals(SESSIONS * REQUESTS / 2, stats.get("lloyd").count);
+    assertEquals(SESSIONS * REQUESTS / 2, stats.get("pikachu").count);
+    engine.shutdown();
+  }
+
+  @Test
+  public void testSlowSession() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    ResponseEngine engine = new ResponseEngine("test", 2, 2, (userName, botName, text) -> {
+      if (userName.equals("slow")) {
+        release.await();
+      }
+      return new Response(userName, botName, text, null);
+    });
+
+    CompletableFuture<Response> slow = engine.submit("slow", "lloyd", "search something");
+    // slow holds one worker - everyone else is answered on the other
+    for (int i = 0; i < 100; ++i) {
+      assertEquals("hi", engine.submit("user" + i, "lloyd", "hi").get(5, TimeUnit.SECONDS).msg);
+    }
+
+    // the slow session queues behind its own request - and is bounded
+    engine.submit("slow", "lloyd", "1");
+    engine.submit("slow", "lloyd", "2");
+    try {
+      engine.submit("slow", "lloyd", "3").get();
+      assertTrue("too many requests should be rejected", false);
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+
+    release.countDown();
+    assertEquals("search something", slow.get(5, TimeUnit.SECONDS).msg);
+    engine.shutdown();
+  }
+
+}
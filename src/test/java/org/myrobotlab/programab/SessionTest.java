@@ -0,0 +1,85 @@
+package org.myrobotlab.programab;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.alicebot.ab.Chat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.myrobotlab.io.FileIO;
+import org.myrobotlab.service.ProgramAB;
+import org.myrobotlab.service.Runtime;
+import org.myrobotlab.test.AbstractTest;
+
+public class SessionTest extends AbstractTest {
+
+  static final String AIML = "<aiml>" //
+      + "<category><pattern>SEARCH</pattern><template><sraix>slow</sraix></template></category>" //
+      + "<category><pattern>LEARN * IS *</pattern><template>OK<think><learn><category><pattern><eval><star/></eval></pattern>"
+      + "<template><eval><star index=\"2\"/></eval></template></category></learn></think></template></category>" //
+      + "</aiml>";
+
+  @Rule
+  public TemporaryFolder bots = new TemporaryFolder();
+
+  File createBot(String name, String aiml) throws Exception {
+    File bot = bots.newFolder(name);
+    FileIO.toFile(new File(bot, "aiml/" + name + ".aiml").getAbsolutePath(), aiml);
+    FileIO.toFile(new File(bot, "config/properties.txt").getAbsolutePath(), "");
+    return bot;
+  }
+
+  @Test
+  public void testSlowSraix() throws Exception {
+    ProgramAB programab = (ProgramAB) Runtime.start("sessionTest", "ProgramAB");
+    programab.addBotPath(createBot("slowbot", AIML).getAbsolutePath());
+    Session searching = programab.startSession("searching", "slowbot");
+    Session learning = programab.startSession("learning", "slowbot");
+
+    BotInfo botInfo = searching.botInfo;
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    botInfo.getBot().setSraixHandler(new MrlSraixHandler(programab, botInfo) {
+      @Override
+      String search(Chat chatSession, String input, String defaultResponse, String hint, Locale locale) {
+        started.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+        }
+        return "FOUND";
+      }
+    });
+    assertTrue(botInfo.learn);
+
+    CompletableFuture<Response> search = CompletableFuture.supplyAsync(() -> searching.getResponse("SEARCH"));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    // the other session learns while the search waits
+    CompletableFuture<Response> learn = CompletableFuture.supplyAsync(() -> learning.getResponse("LEARN COLOR IS BLUE"));
+    assertEquals("OK", learn.get(5, TimeUnit.SECONDS).msg);
+    assertEquals("BLUE", learning.getResponse("COLOR").msg);
+    assertFalse(search.isDone());
+
+    release.countDown();
+    assertEquals("FOUND", search.get(5, TimeUnit.SECONDS).msg);
+    assertEquals(0, botInfo.brainLock.getReadLockCount());
+    assertFalse(botInfo.brainLock.isWriteLocked());
+    Runtime.release("sessionTest");
+  }
+
+  @Test
+  public void testCanLearn() throws Exception {
+    assertTrue(BotInfo.canLearn(new File(createBot("learns", AIML), "aiml")));
+    assertFalse(BotInfo.canLearn(new File(createBot("fixed", "<aiml><category><pattern>HI</pattern><template>HELLO</template></category></aiml>"), "aiml")));
+  }
+
+}
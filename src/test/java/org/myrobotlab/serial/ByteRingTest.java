@@ -0,0 +1,134 @@
+package org.myrobotlab.serial;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class ByteRingTest {
+
+  @Test
+  public void testWrapAndOverrun() {
+    ByteRing ring = new ByteRing(6);
+    assertEquals(8, ring.getCapacity());
+    assertEquals(5, ring.write(new byte[] { 1, 2, 3, 4, 5 }));
+    assertEquals(1, ring.read());
+    assertEquals(2, ring.read());
+    // wraps around the end of the array, what does not fit is dropped
+    assertEquals(5, ring.write(new byte[] { 6, 7, 8, 9, 10, 11, 12 }));
+    assertFalse(ring.write(13));
+    assertEquals(8, ring.size());
+    assertArrayEquals(new byte[] { 3, 4, 5, 6, 7, 8, 9, 10 }, ring.readAll());
+    assertNull(ring.readAll());
+    assertEquals(-1, ring.read());
+
+    assertTrue(ring.write(0xFE));
+    assertEquals(0xFE, ring.peek());
+    ring.clear();
+    assertEquals(0, ring.size());
+  }
+
+  @Test
+  public void testTimedReads() throws Exception {
+    ByteRing ring = new ByteRing(16);
+    ring.write("ok\nrest".getBytes());
+
+    byte[] line = new byte[16];
+    int count = ring.readUntil(line, 0, line.length, '\n', 0);
+    assertEquals("ok\n", new String(line, 0, count));
+
+    // less than asked for once the timeout is reached
+    byte[] data = new byte[8];
+    long start = System.currentTimeMillis();
+    assertEquals(4, ring.read(data, 0, data.length, 50));
+    assertTrue(System.currentTimeMillis() - start >= 40);
+    assertEquals(-1, ring.poll(10));
+
+    // blocks until the producer delivers
+    Thread producer = new Thread(() -> {
+      try {
+        for (int i = 0; i < 1000; ++i) {
+          ring.put(new byte[] { (byte) i, (byte) (i >> 8) }, 0, 2);
+        }
+      } catch (InterruptedException e) {
+      }
+    });
+    producer.start();
+    byte[] all = new byte[2000];
+    assertEquals(all.length, ring.read(all, 0, all.length, ByteRing.NO_TIMEOUT));
+    producer.join();
+    for (int i = 0; i < 1000; ++i) {
+      assertEquals(i, (all[2 * i] & 0xFF) | ((all[2 * i + 1] & 0xFF) << 8));
+    }
+  }
+
+  @Test
+  public void testQueueView() throws Exception {
+    ByteRing ring = new ByteRing(4);
+    BlockingQueue<Integer> queue = ring.asQueue();
+    assertTrue(queue.offer(200));
+    ring.write(new byte[] { 1, 2 });
+    assertEquals(3, queue.size());
+    assertEquals(Arrays.asList(200, 1, 2), Arrays.asList(queue.toArray()));
+    assertEquals(200, (int) queue.take());
+    assertEquals(1, (int) queue.poll(10, TimeUnit.MILLISECONDS));
+    assertEquals(2, (int) queue.poll());
+    assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testQueueViewManyThreads() throws Exception {
+    // the view holds the ring's locks - many producers and consumers are safe
+    ByteRing ring = new ByteRing(16);
+    BlockingQueue<Integer> queue = ring.asQueue();
+    int threads = 4;
+    int perThread = 10000;
+    AtomicLong sum = new AtomicLong();
+    AtomicInteger received = new AtomicInteger();
+    List<Thread> all = new ArrayList<>();
+    for (int t = 0; t < threads; ++t) {
+      all.add(new Thread(() -> {
+        try {
+          for (int i = 0; i < perThread; ++i) {
+            queue.put(i & 0xFF);
+          }
+        } catch (InterruptedException e) {
+        }
+      }));
+      all.add(new Thread(() -> {
+        try {
+          for (int i = 0; i < perThread; ++i) {
+            sum.addAndGet(queue.take());
+            received.incrementAndGet();
+          }
+        } catch (InterruptedException e) {
+        }
+      }));
+    }
+    for (Thread t : all) {
+      t.start();
+    }
+    for (Thread t : all) {
+      t.join(10000);
+    }
+    long expected = 0;
+    for (int i = 0; i < perThread; ++i) {
+      expected += i & 0xFF;
+    }
+    assertEquals(threads * perThread, received.get());
+    assertEquals(threads * expected, sum.get());
+    assertTrue(ring.isEmpty());
+  }
+
+}
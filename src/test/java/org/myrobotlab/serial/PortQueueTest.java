@@ -1,11 +1,12 @@
 package org.myrobotlab.serial;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 import org.myrobotlab.framework.QueueStats;
@@ -16,13 +17,15 @@ import org.slf4j.Logger;
 public class PortQueueTest implements SerialDataListener {
 
   transient public final static Logger log = LoggerFactory.getLogger(PortQueueTest.class);
+
+  LinkedBlockingQueue<byte[]> received = new LinkedBlockingQueue<>();
   
   @Test
   public void testPortQueue() throws IOException {
     // Test a port queue.
     String portName = "vCOMPort";
-    BlockingQueue<Integer> rx = new LinkedBlockingQueue<Integer>();
-    BlockingQueue<Integer> tx = new LinkedBlockingQueue<Integer>();
+    ByteRing rx = new ByteRing(PortQueue.BUFFER_SIZE);
+    ByteRing tx = new ByteRing(PortQueue.BUFFER_SIZE);
     PortQueue portQueue = new PortQueue(portName, rx, tx);
     
     // TODO: use the port queue to do something.
@@ -37,6 +40,21 @@ public class PortQueueTest implements SerialDataListener {
    
   }
 
+  @Test
+  public void testListen() throws Exception {
+    ByteRing rx = new ByteRing(PortQueue.BUFFER_SIZE);
+    ByteRing tx = new ByteRing(PortQueue.BUFFER_SIZE);
+    PortQueue portQueue = new PortQueue("vListenPort", rx, tx);
+    portQueue.listen(this);
+    // the listening thread wakes up when data arrives
+    Thread.sleep(50);
+    rx.write(new byte[] { 1, 2, 3 });
+    assertArrayEquals(new byte[] { 1, 2, 3 }, received.poll(1000, TimeUnit.MILLISECONDS));
+    portQueue.write(new byte[] { 4, 5 });
+    assertArrayEquals(new byte[] { 4, 5 }, tx.readAll());
+    portQueue.close();
+  }
+
   @Override
   public String getName() {
     return "PortQueueTest";
@@ -72,6 +90,7 @@ public class PortQueueTest implements SerialDataListener {
     // TODO Auto-generated method stub
     // ?!?!  what do we do with this?  on bytes for which queue?!
     log.info("On Bytes");
+    received.add(bytes);
   }
   
 }
@@ -12,6 +12,7 @@ import org.junit.Test;
 import org.myrobotlab.framework.interfaces.ServiceInterface;
 import org.myrobotlab.logging.LoggerFactory;
 import org.myrobotlab.service.data.Locale;
+import org.myrobotlab.service.interfaces.SerialDataListener;
 import org.myrobotlab.test.AbstractTest;
 import org.slf4j.Logger;
 
@@ -55,6 +56,25 @@ public class RuntimeTest extends AbstractTest {
     Assert.assertNotNull(se);
   }
 
+  @Test
+  public void testRegistryIndex() {
+    ServiceInterface catcher = Runtime.create("registryCatcher", "TestCatcher");
+    Assert.assertSame(catcher, Runtime.getService("registryCatcher"));
+    Assert.assertSame(catcher, Runtime.getService(Runtime.getFullName("registryCatcher")));
+    assertTrue(Runtime.getServicesFromInterface(SerialDataListener.class).contains(catcher));
+    assertTrue(Runtime.getSortedRegistry().containsKey(catcher.getFullName()));
+
+    // listed in name order like the old TreeMap registry
+    List<ServiceInterface> services = Runtime.getServices();
+    for (int i = 1; i < services.size(); ++i) {
+      assertTrue(services.get(i - 1).getFullName().compareTo(services.get(i).getFullName()) < 0);
+    }
+
+    Runtime.release("registryCatcher");
+    Assert.assertNull(Runtime.getService("registryCatcher"));
+    Assert.assertFalse(Runtime.getServicesFromInterface(SerialDataListener.class).contains(catcher));
+  }
+
   @Test
   public void testGetUptime() {
     String res = Runtime.getUptime();
@@ -104,6 +104,11 @@ public class VirtualArduinoTest extends AbstractServiceTest implements MrlCommPu
     log.info("Publish Ack for function {}", VirtualMsg.methodToString(function));
   }
 
+  @Override
+  public Integer publishAckWindow(Integer windowSize) {
+    return windowSize;
+  }
+
   @Override
   public int[] publishCustomMsg(int[] msg) {
     log.info("Publish Custom Msg: {}", msg);